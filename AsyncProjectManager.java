@@ -0,0 +1,312 @@
+package poised;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * An asynchronous facade over the {@link ProjectManager} operations.
+ *
+ * <p>Every call runs as its own task on a pooled connection from
+ * {@link Database} and returns a CompletableFuture, so independent queries
+ * can be overlapped and composed. Tasks run on a virtual thread each when
+ * the JVM supports them (Java 21 and later), and on a cached pool of daemon
+ * threads otherwise; concurrency against the database is bounded by the
+ * connection pool either way. A database error always completes the
+ * future exceptionally; a null, -1 or false result only means that nothing
+ * matched.
+ */
+public class AsyncProjectManager implements AutoCloseable {
+  private static final Logger logger = Logger.getLogger(AsyncProjectManager.class.getName());
+
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+
+  /**
+   * Constructor for a facade with its own task executor.
+   */
+  public AsyncProjectManager() {
+    this(newTaskExecutor(), true);
+  }
+
+  /**
+   * Constructor for a facade running tasks on the given executor, which
+   * the caller shuts down.
+   *
+   * @param executor The executor to run tasks on
+   */
+  public AsyncProjectManager(ExecutorService executor) {
+    this(executor, false);
+  }
+
+  private AsyncProjectManager(ExecutorService executor, boolean ownsExecutor) {
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+  }
+
+  /**
+   * Creates an executor that runs each task on a new virtual thread, or on
+   * a cached pool of daemon threads where virtual threads are unavailable.
+   *
+   * @return The executor
+   */
+  static ExecutorService newTaskExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      logger.fine("Virtual threads unavailable; using a cached thread pool.");
+      AtomicInteger threads = new AtomicInteger();
+      return Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "poisepms-task-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Retrieves a project by its ID.
+   *
+   * @param projectId The ID of the project
+   * @return The project, or null if not found
+   */
+  public CompletableFuture<Project> getProject(int projectId) {
+    return supply(connection -> ProjectManager.getProjectByIdChecked(connection, projectId));
+  }
+
+  /**
+   * Retrieves one page of projects ordered by ID.
+   *
+   * @param afterId  Only projects with an ID greater than this are returned
+   * @param pageSize The maximum number of projects to return
+   * @return The page
+   */
+  public CompletableFuture<ProjectPage> getProjectPage(int afterId, int pageSize) {
+    return supply(connection -> required(
+        ProjectManager.getProjectPage(connection, afterId, pageSize), "projects"));
+  }
+
+  /**
+   * Retrieves projects that have not been finalized.
+   *
+   * @return The unfinished projects
+   */
+  public CompletableFuture<List<Project>> getUnfinishedProjects() {
+    return supply(connection -> required(
+        ProjectManager.getUnfinishedProjects(connection), "unfinished projects"));
+  }
+
+  /**
+   * Retrieves unfinished projects whose deadline has passed.
+   *
+   * @return The past due projects
+   */
+  public CompletableFuture<List<Project>> getPastDueProjects() {
+    return supply(connection -> required(
+        ProjectManager.getPastDueProjects(connection), "past due projects"));
+  }
+
+  /**
+   * Retrieves unfinished projects due within a number of days.
+   *
+   * @param days The number of days ahead to look
+   * @return The projects, earliest deadline first
+   */
+  public CompletableFuture<List<Project>> getProjectsDueWithin(int days) {
+    return supply(connection -> required(
+        ProjectManager.getProjectsDueWithin(connection, days), "projects due soon"));
+  }
+
+  /**
+   * Searches projects by name, physical address and ERF number.
+   *
+   * @param query The search text
+   * @param limit The maximum number of results, or 0 for all of them
+   * @return The matching projects, best match first
+   */
+  public CompletableFuture<List<Project>> searchProjects(String query, int limit) {
+    return supply(connection -> required(
+        ProjectManager.searchProjects(connection, query, limit), "search results"));
+  }
+
+  /**
+   * Computes the portfolio report.
+   *
+   * @return The report
+   */
+  public CompletableFuture<PortfolioReport> getPortfolioReport() {
+    return supply(connection -> required(
+        ProjectManager.getPortfolioReport(connection), "portfolio report"));
+  }
+
+  /**
+   * Retrieves every person in a role directory.
+   *
+   * @param role The role whose directory to read
+   * @return The names keyed by ID in ID order
+   */
+  public CompletableFuture<Map<Integer, String>> getPersons(PersonRole role) {
+    return supply(connection -> required(
+        ProjectManager.getPersons(connection, role), role.getLabel() + " directory"));
+  }
+
+  /**
+   * Retrieves all five role directories concurrently.
+   *
+   * @return The directories keyed by role
+   */
+  public CompletableFuture<Map<PersonRole, Map<Integer, String>>> getAllPersons() {
+    Map<PersonRole, CompletableFuture<Map<Integer, String>>> lookups =
+        new EnumMap<>(PersonRole.class);
+    for (PersonRole role : PersonRole.values()) {
+      lookups.put(role, getPersons(role));
+    }
+    return CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture<?>[0]))
+        .thenApply(done -> {
+          Map<PersonRole, Map<Integer, String>> directories = new EnumMap<>(PersonRole.class);
+          for (Map.Entry<PersonRole, CompletableFuture<Map<Integer, String>>> lookup
+              : lookups.entrySet()) {
+            directories.put(lookup.getKey(), lookup.getValue().join());
+          }
+          return directories;
+        });
+  }
+
+  /**
+   * Retrieves a person's ID in a role directory by name.
+   *
+   * @param role The role
+   * @param name The name of the person
+   * @return The person's ID, or -1 if not found
+   */
+  public CompletableFuture<Integer> getPersonIdByName(PersonRole role, String name) {
+    return supply(connection ->
+        ProjectManager.getPersonIdByNameChecked(connection, role, name));
+  }
+
+  /**
+   * Adds a new project and assigns its ID.
+   *
+   * @param project The project to add
+   * @return The new project ID
+   */
+  public CompletableFuture<Integer> addProject(Project project) {
+    return supply(connection -> {
+      int projectId = ProjectManager.addProject(connection, project);
+      if (projectId < 0) {
+        throw new SQLException("Could not add project.");
+      }
+      return projectId;
+    });
+  }
+
+  /**
+   * Updates an existing project.
+   *
+   * @param project The updated project
+   * @return true if the project was updated
+   */
+  public CompletableFuture<Boolean> updateProject(Project project) {
+    return supply(connection -> ProjectManager.updateProjectChecked(connection, project));
+  }
+
+  /**
+   * Finalizes a project with today's date.
+   *
+   * @param projectId The ID of the project
+   * @return true if the project was finalized
+   */
+  public CompletableFuture<Boolean> finalizeProject(int projectId) {
+    return supply(connection ->
+        ProjectManager.finalizeProjectChecked(connection, projectId, LocalDate.now()));
+  }
+
+  /**
+   * Finalizes a set of projects in one transaction.
+   *
+   * @param projectIds The IDs of the projects
+   * @return The number of projects finalized
+   */
+  public CompletableFuture<Integer> finalizeProjects(Collection<Integer> projectIds) {
+    return supply(connection -> count(
+        ProjectManager.finalizeProjects(connection, projectIds), "finalize projects"));
+  }
+
+  /**
+   * Deletes a project and its associated persons.
+   *
+   * @param projectId The ID of the project
+   * @return true if the project was deleted
+   */
+  public CompletableFuture<Boolean> deleteProject(int projectId) {
+    return supply(connection ->
+        ProjectManager.deleteProjectChecked(connection, projectId));
+  }
+
+  /**
+   * Deletes a set of projects and their associated persons in one
+   * transaction.
+   *
+   * @param projectIds The IDs of the projects
+   * @return The number of projects deleted
+   */
+  public CompletableFuture<Integer> deleteProjects(Collection<Integer> projectIds) {
+    return supply(connection -> count(
+        ProjectManager.deleteProjectsAndAssociatedPersons(connection, projectIds),
+        "delete projects"));
+  }
+
+  /**
+   * Shuts down the executor if this facade created it. Tasks already
+   * submitted still complete.
+   */
+  @Override
+  public void close() {
+    if (ownsExecutor) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Database work run with a borrowed connection.
+   */
+  private interface ConnectionTask<T> {
+    T run(Connection connection) throws SQLException;
+  }
+
+  private <T> CompletableFuture<T> supply(ConnectionTask<T> task) {
+    return CompletableFuture.supplyAsync(() -> {
+      try (Connection connection = Database.getConnection()) {
+        return task.run(connection);
+      } catch (SQLException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+  private static <T> T required(T result, String what) throws SQLException {
+    if (result == null) {
+      throw new SQLException("Could not retrieve " + what + ".");
+    }
+    return result;
+  }
+
+  private static int count(int result, String what) throws SQLException {
+    if (result < 0) {
+      throw new SQLException("Could not " + what + ".");
+    }
+    return result;
+  }
+}
@@ -0,0 +1,555 @@
+package poised;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a stream of commands without the interactive menu, writing one
+ * JSON result line per command in input order.
+ *
+ * <p>Each input line is either a JSON object naming the operation in an
+ * {@code "op"} field, or the operation name followed by
+ * {@code key=value} arguments, with double quotes around values that
+ * contain spaces:
+ * <pre>
+ * {"op":"update-project","id":3,"total_fee":1500}
+ * finalize-projects due_before=2024-01-01
+ * search q="oak house" limit=5
+ * </pre>
+ * Blank lines and lines starting with # are skipped. Argument names are
+ * the same as the JSON fields of projects and persons.
+ *
+ * <p>Consecutive reads are pipelined: up to a window of them run at once,
+ * each on its own session. Consecutive writes are grouped and run in one
+ * transaction on the database, so a group either commits as a whole or
+ * is rolled back when any write in it fails. Reads never run alongside
+ * writes, so every read sees the writes before it.
+ *
+ * <p>Read operations: get-project, list-projects, search, unfinished,
+ * past-due, due-soon, next-due, report, list-persons, find-person,
+ * get-person. Write operations: add-project, update-project,
+ * finalize-project, finalize-projects, delete-project, delete-projects,
+ * add-person, update-person, delete-person.
+ *
+ * <p>An update given the "version" it was read at fails, rolling back its
+ * group, if the row has changed since; with merge=true its fields are
+ * reapplied on top of the stored row instead.
+ */
+public class BatchRunner {
+  private static final Logger logger = Logger.getLogger(BatchRunner.class.getName());
+  private static final int PAGE_SIZE = Integer.getInteger("poisepms.pageSize", 20);
+  private static final int DUE_SOON_DAYS = Integer.getInteger("poisepms.dueSoonDays", 7);
+  private static final Set<String> WRITES = new HashSet<>(Arrays.asList(
+      "add-project", "update-project", "finalize-project", "finalize-projects",
+      "delete-project", "delete-projects", "add-person", "update-person", "delete-person"));
+
+  private final RepositorySession.Source sessions;
+  private final ExecutorService executor;
+  private final int maxInFlight;
+  private final int maxWriteGroup;
+
+  private final Deque<CompletableFuture<Result>> reads = new ArrayDeque<>();
+  private final List<Command> writes = new ArrayList<>();
+  private Writer out;
+  private int commands;
+  private int failures;
+
+  /**
+   * Constructor for a runner.
+   *
+   * @param sessions      The source of repository sessions
+   * @param executor      The executor pipelined reads run on
+   * @param maxInFlight   The most reads run at once
+   * @param maxWriteGroup The most writes committed in one transaction
+   */
+  public BatchRunner(RepositorySession.Source sessions, ExecutorService executor,
+      int maxInFlight, int maxWriteGroup) {
+    this.sessions = sessions;
+    this.executor = executor;
+    this.maxInFlight = Math.max(1, maxInFlight);
+    this.maxWriteGroup = Math.max(1, maxWriteGroup);
+  }
+
+  /**
+   * Runs every command in the input.
+   *
+   * @param in     The commands, one per line
+   * @param output Where the result lines are written
+   * @throws IOException if the input cannot be read or the output written
+   */
+  public void run(BufferedReader in, Writer output) throws IOException {
+    this.out = output;
+    String line;
+    int lineNumber = 0;
+    while ((line = in.readLine()) != null) {
+      lineNumber++;
+      String trimmed = line.trim();
+      if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+        continue;
+      }
+      commands++;
+      Command command;
+      try {
+        command = parse(lineNumber, trimmed);
+      } catch (IllegalArgumentException e) {
+        flushWrites();
+        enqueueRead(CompletableFuture.completedFuture(
+            result(lineNumber, null, null, e.getMessage())));
+        continue;
+      }
+      if (WRITES.contains(command.op)) {
+        drainReads();
+        writes.add(command);
+        if (writes.size() == maxWriteGroup) {
+          flushWrites();
+        }
+      } else {
+        flushWrites();
+        enqueueRead(CompletableFuture.supplyAsync(() -> runRead(command), executor));
+      }
+    }
+    flushWrites();
+    drainReads();
+    out.flush();
+  }
+
+  /**
+   * Gets the number of commands read.
+   *
+   * @return The command count
+   */
+  public int getCommands() {
+    return commands;
+  }
+
+  /**
+   * Gets the number of commands that failed or were rolled back.
+   *
+   * @return The failure count
+   */
+  public int getFailures() {
+    return failures;
+  }
+
+  private void enqueueRead(CompletableFuture<Result> read) throws IOException {
+    reads.add(read);
+    while (reads.size() > maxInFlight) {
+      emit(reads.poll().join());
+    }
+  }
+
+  private void drainReads() throws IOException {
+    while (!reads.isEmpty()) {
+      emit(reads.poll().join());
+    }
+  }
+
+  private Result runRead(Command command) {
+    try (RepositorySession session = sessions.open()) {
+      return result(command.line, command.op, execute(command, session), null);
+    } catch (CommandException | IllegalArgumentException | SQLException e) {
+      return result(command.line, command.op, null, e.getMessage());
+    } catch (RuntimeException e) {
+      logger.log(Level.SEVERE, "Error running " + command.op, e);
+      return result(command.line, command.op, null, "Internal error: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Runs the pending writes. On the database they share one transaction,
+   * which is rolled back if any of them fails.
+   */
+  private void flushWrites() throws IOException {
+    if (writes.isEmpty()) {
+      return;
+    }
+    List<Result> results = new ArrayList<>(writes.size());
+    try (RepositorySession session = sessions.open()) {
+      Connection connection = session.getConnection();
+      if (connection == null) {
+        for (Command command : writes) {
+          results.add(runWrite(command, session));
+        }
+      } else {
+        runTransaction(connection, session, results);
+      }
+    } catch (SQLException | RuntimeException e) {
+      logger.log(Level.SEVERE, "Error running write group.", e);
+      results.clear();
+      for (Command command : writes) {
+        results.add(result(command.line, command.op, null, e.getMessage()));
+      }
+    }
+    writes.clear();
+    for (Result result : results) {
+      emit(result);
+    }
+  }
+
+  private void runTransaction(Connection connection, RepositorySession session,
+      List<Result> results) throws SQLException {
+    connection.setAutoCommit(false);
+    try {
+      String failure = null;
+      List<String> outputs = new ArrayList<>(writes.size());
+      for (Command command : writes) {
+        try {
+          outputs.add(execute(command, session));
+        } catch (CommandException | IllegalArgumentException | ConcurrentUpdateException e) {
+          failure = "line " + command.line + ": " + e.getMessage();
+          break;
+        }
+      }
+      if (failure == null) {
+        connection.commit();
+        for (int i = 0; i < writes.size(); i++) {
+          results.add(result(writes.get(i).line, writes.get(i).op, outputs.get(i), null));
+        }
+      } else {
+        connection.rollback();
+        for (Command command : writes) {
+          results.add(result(command.line, command.op, null, "Rolled back: " + failure));
+        }
+      }
+    } catch (SQLException | RuntimeException e) {
+      connection.rollback();
+      throw e;
+    } finally {
+      connection.setAutoCommit(true);
+      // The writes evicted their projects before committing, so a reader on
+      // another connection may have cached the old rows in between
+      ProjectManager.invalidateProjectCache();
+    }
+  }
+
+  private Result runWrite(Command command, RepositorySession session) {
+    try {
+      return result(command.line, command.op, execute(command, session), null);
+    } catch (CommandException | IllegalArgumentException | ConcurrentUpdateException e) {
+      return result(command.line, command.op, null, e.getMessage());
+    }
+  }
+
+  /**
+   * Runs one command.
+   *
+   * @return The result as JSON
+   * @throws CommandException if the operation did not succeed
+   */
+  private static String execute(Command command, RepositorySession session)
+      throws CommandException {
+    ProjectRepository projects = session.getProjects();
+    PersonRepository persons = session.getPersons();
+    Map<String, Object> args = command.args;
+    StringBuilder out = new StringBuilder();
+    switch (command.op) {
+      case "get-project":
+        return ProjectJson.appendProject(out, findProject(projects, id(args))).toString();
+      case "list-projects": {
+        ProjectPage page = required(projects.findPage(intArg(args, "after", 0),
+            intArg(args, "limit", PAGE_SIZE)), "projects");
+        out.append("{\"projects\":");
+        ProjectJson.appendProjects(out, page.getProjects());
+        out.append(",\"last_id\":").append(page.getLastProjectId());
+        return out.append(",\"has_more\":").append(page.hasMore()).append('}').toString();
+      }
+      case "search": {
+        String query = Json.getString(args, "q");
+        if (query == null || query.trim().isEmpty()) {
+          throw new IllegalArgumentException("Missing q.");
+        }
+        return ProjectJson.appendProjects(out, required(
+            projects.search(query, intArg(args, "limit", PAGE_SIZE)), "projects")).toString();
+      }
+      case "unfinished":
+        return ProjectJson.appendProjects(out,
+            required(projects.findUnfinished(), "projects")).toString();
+      case "past-due":
+        return ProjectJson.appendProjects(out,
+            required(projects.findPastDue(), "projects")).toString();
+      case "due-soon":
+        return ProjectJson.appendProjects(out, required(
+            projects.findDueWithin(intArg(args, "days", DUE_SOON_DAYS)), "projects")).toString();
+      case "next-due":
+        return ProjectJson.appendProjects(out, required(
+            projects.findNextDue(intArg(args, "count", PAGE_SIZE)), "projects")).toString();
+      case "report":
+        return ProjectJson.appendReport(out,
+            required(projects.report(), "portfolio report")).toString();
+      case "list-persons":
+        return ProjectJson.appendDirectory(out, required(
+            persons.listByRole(ProjectJson.role(args, "role")), "persons")).toString();
+      case "find-person": {
+        PersonRole role = ProjectJson.role(args, "role");
+        String name = Json.getString(args, "name");
+        int personId = name == null ? -1 : persons.findIdByName(role, name);
+        if (personId < 0) {
+          throw new CommandException(role.getLabel() + " not found: " + name);
+        }
+        return out.append("{\"id\":").append(personId).append('}').toString();
+      }
+      case "get-person":
+        return ProjectJson.appendPerson(out, findPerson(persons, id(args))).toString();
+      case "add-project": {
+        Project project = ProjectJson.toProject(args, null);
+        if (projects.add(project) < 0) {
+          throw new CommandException("Could not add project.");
+        }
+        return ProjectJson.appendProject(out, project).toString();
+      }
+      case "update-project": {
+        Project project = ProjectJson.toProject(args, findProject(projects, id(args)));
+        boolean updated = merge(args)
+            ? projects.update(project, Project::rebase) : projects.update(project);
+        if (!updated) {
+          throw new CommandException("Could not update project " + project.getId() + ".");
+        }
+        return ProjectJson.appendProject(out, project).toString();
+      }
+      case "finalize-project": {
+        int projectId = id(args);
+        LocalDate date = args.containsKey("completion_date")
+            ? ProjectJson.date(args, "completion_date") : LocalDate.now();
+        if (!projects.finalizeProject(projectId, date)) {
+          throw new CommandException("Project not found or already finalised: " + projectId);
+        }
+        return count(out, "finalized", 1);
+      }
+      case "finalize-projects": {
+        LocalDate date = args.containsKey("completion_date")
+            ? ProjectJson.date(args, "completion_date") : LocalDate.now();
+        return count(out, "finalized", required(args.containsKey("due_before")
+            ? projects.finalizeDueBefore(ProjectJson.date(args, "due_before"), date)
+            : projects.finalizeAll(ProjectJson.ids(args, "ids"), date), "finalize projects"));
+      }
+      case "delete-project": {
+        int projectId = id(args);
+        if (!projects.delete(projectId)) {
+          throw new CommandException("Project not found: " + projectId);
+        }
+        return count(out, "deleted", 1);
+      }
+      case "delete-projects":
+        return count(out, "deleted", required(args.containsKey("completed_before")
+            ? projects.deleteCompletedBefore(ProjectJson.date(args, "completed_before"))
+            : projects.deleteAll(ProjectJson.ids(args, "ids")), "delete projects"));
+      case "add-person": {
+        Person person = ProjectJson.toPerson(args, null);
+        if (!persons.add(person)) {
+          throw new CommandException("Could not add person.");
+        }
+        return ProjectJson.appendPerson(out, person).toString();
+      }
+      case "update-person": {
+        Person person = ProjectJson.toPerson(args, findPerson(persons, id(args)));
+        boolean updated = merge(args)
+            ? persons.update(person, Person::rebase) : persons.update(person);
+        if (!updated) {
+          throw new CommandException("Could not update person " + person.getId() + ".");
+        }
+        return ProjectJson.appendPerson(out, person).toString();
+      }
+      case "delete-person": {
+        int personId = id(args);
+        if (!persons.delete(personId)) {
+          throw new CommandException("Person not found: " + personId);
+        }
+        return count(out, "deleted", 1);
+      }
+      default:
+        throw new IllegalArgumentException("Unknown operation: " + command.op);
+    }
+  }
+
+  /**
+   * Parses a JSON line or an operation name followed by key=value pairs.
+   *
+   * @throws IllegalArgumentException if the line cannot be parsed
+   */
+  static Command parse(int line, String text) {
+    Map<String, Object> args;
+    String op;
+    if (text.startsWith("{")) {
+      args = Json.parseObject(text);
+      op = Json.getString(args, "op");
+    } else {
+      args = new LinkedHashMap<>();
+      List<String> tokens = tokenize(text);
+      op = tokens.get(0);
+      for (String token : tokens.subList(1, tokens.size())) {
+        int equals = token.indexOf('=');
+        if (equals <= 0) {
+          throw new IllegalArgumentException("Expected key=value: " + token);
+        }
+        args.put(token.substring(0, equals), token.substring(equals + 1));
+      }
+    }
+    if (op == null || op.isEmpty()) {
+      throw new IllegalArgumentException("Missing op.");
+    }
+    return new Command(line, op, Collections.unmodifiableMap(args));
+  }
+
+  /**
+   * Splits a line on whitespace, keeping double-quoted text together and
+   * dropping the quotes.
+   */
+  private static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    StringBuilder token = new StringBuilder();
+    boolean quoted = false;
+    boolean inToken = false;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"') {
+        quoted = !quoted;
+        inToken = true;
+      } else if (Character.isWhitespace(c) && !quoted) {
+        if (inToken) {
+          tokens.add(token.toString());
+          token.setLength(0);
+          inToken = false;
+        }
+      } else {
+        token.append(c);
+        inToken = true;
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Unterminated quote.");
+    }
+    if (inToken) {
+      tokens.add(token.toString());
+    }
+    return tokens;
+  }
+
+  private void emit(Result result) throws IOException {
+    if (!result.ok) {
+      failures++;
+    }
+    out.write(result.json);
+    out.write('\n');
+  }
+
+  private static Result result(int line, String op, String value, String error) {
+    StringBuilder out = new StringBuilder("{\"line\":").append(line).append(",\"op\":");
+    Json.quote(out, op);
+    if (error == null) {
+      out.append(",\"ok\":true,\"result\":").append(value);
+    } else {
+      out.append(",\"ok\":false,\"error\":");
+      Json.quote(out, error);
+    }
+    return new Result(out.append('}').toString(), error == null);
+  }
+
+  private static Project findProject(ProjectRepository projects, int projectId)
+      throws CommandException {
+    Project project = projects.findById(projectId);
+    if (project == null) {
+      throw new CommandException("Project not found: " + projectId);
+    }
+    return project;
+  }
+
+  private static Person findPerson(PersonRepository persons, int personId)
+      throws CommandException {
+    Person person = persons.findById(personId);
+    if (person == null) {
+      throw new CommandException("Person not found: " + personId);
+    }
+    return person;
+  }
+
+  private static int id(Map<String, Object> args) {
+    if (!args.containsKey("id")) {
+      throw new IllegalArgumentException("Missing id.");
+    }
+    return (int) ProjectJson.number(args, "id");
+  }
+
+  private static boolean merge(Map<String, Object> args) {
+    return Boolean.parseBoolean(String.valueOf(args.get("merge")));
+  }
+
+  private static int intArg(Map<String, Object> args, String key, int defaultValue) {
+    return args.containsKey(key) ? (int) ProjectJson.number(args, key) : defaultValue;
+  }
+
+  private static <T> T required(T result, String what) throws CommandException {
+    if (result == null) {
+      throw new CommandException("Could not retrieve " + what + ".");
+    }
+    return result;
+  }
+
+  private static int required(int result, String what) throws CommandException {
+    if (result < 0) {
+      throw new CommandException("Could not " + what + ".");
+    }
+    return result;
+  }
+
+  private static String count(StringBuilder out, String name, int count) {
+    out.append('{');
+    return Json.quote(out, name).append(':').append(count).append('}').toString();
+  }
+
+  /**
+   * One parsed input line.
+   */
+  static final class Command {
+    private final int line;
+    private final String op;
+    private final Map<String, Object> args;
+
+    Command(int line, String op, Map<String, Object> args) {
+      this.line = line;
+      this.op = op;
+      this.args = args;
+    }
+  }
+
+  /**
+   * The output line for one command.
+   */
+  private static final class Result {
+    private final String json;
+    private final boolean ok;
+
+    Result(String json, boolean ok) {
+      this.json = json;
+      this.ok = ok;
+    }
+  }
+
+  /**
+   * An operation that ran but did not succeed, such as an unknown ID.
+   */
+  private static final class CommandException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    CommandException(String message) {
+      super(message);
+    }
+  }
+}
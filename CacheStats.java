@@ -0,0 +1,65 @@
+package poised;
+
+/**
+ * A point-in-time copy of a cache's hit, miss and eviction counts.
+ */
+public final class CacheStats {
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+
+  /**
+   * Constructor.
+   *
+   * @param hits      The number of lookups served from the cache
+   * @param misses    The number of lookups that went to the database
+   * @param evictions The number of entries dropped to stay within capacity
+   */
+  public CacheStats(long hits, long misses, long evictions) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+  }
+
+  /**
+   * Gets the number of lookups served from the cache.
+   *
+   * @return The hit count
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of lookups that went to the database.
+   *
+   * @return The miss count
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Gets the number of entries dropped to stay within capacity.
+   *
+   * @return The eviction count
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Gets the fraction of lookups served from the cache.
+   *
+   * @return The hit ratio between 0 and 1, or 0 before any lookup
+   */
+  public double getHitRatio() {
+    long total = hits + misses;
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  @Override
+  public String toString() {
+    return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions;
+  }
+}
@@ -0,0 +1,743 @@
+package poised;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A column-oriented in-memory ProjectRepository for large portfolios.
+ *
+ * <p>Instead of one object per project, each field is held in its own
+ * column: IDs, person IDs and versions as ints, deadlines and completion
+ * dates as epoch days, fees as whole cents and the finalised flag in a
+ * bitset. Building types are dictionary-encoded, so each distinct type is
+ * stored once. Scans such as unfinished, past-due and the portfolio report
+ * read only the columns they need and build Project objects only for the
+ * rows they return.
+ *
+ * <p>Rows are kept in ID order in fixed-size segments, so a lookup by ID is
+ * a binary search. Once a configured number of rows is held on the heap,
+ * further segments keep their numeric columns in direct ByteBuffers
+ * outside it; the text columns always stay on the heap. Deleted rows are
+ * flagged rather than removed. Reads share a lock and writes take it
+ * exclusively. The search index is built on the first search and kept
+ * current from then on.
+ */
+public class ColumnarProjectRepository implements ProjectRepository {
+  private static final int SEGMENT_SHIFT = 14;
+  private static final int SEGMENT_ROWS = 1 << SEGMENT_SHIFT;
+  private static final int SEGMENT_MASK = SEGMENT_ROWS - 1;
+  private static final int NO_DATE = Integer.MIN_VALUE;
+  private static final int NO_TYPE = -1;
+
+  private final int maxHeapRows;
+  private final List<Segment> segments = new ArrayList<>();
+  private final BitSet live = new BitSet();
+  private final BitSet finalised = new BitSet();
+  private final List<String> typeNames = new ArrayList<>();
+  private final Map<String, Integer> typeCodes = new HashMap<>();
+  private final ProjectSearchIndex searchIndex = new ProjectSearchIndex();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile boolean searchIndexLoaded;
+  private int rowCount;
+  private int liveCount;
+  private int nextId = 1;
+
+  /**
+   * Constructor for an empty store that moves segments off the heap after
+   * {@code poisepms.columnar.maxHeapRows} rows.
+   */
+  public ColumnarProjectRepository() {
+    this(Integer.getInteger("poisepms.columnar.maxHeapRows", 1 << 20));
+  }
+
+  /**
+   * Constructor for an empty store.
+   *
+   * @param maxHeapRows The number of rows kept on the heap before new
+   *                    segments are allocated outside it
+   */
+  public ColumnarProjectRepository(int maxHeapRows) {
+    this.maxHeapRows = maxHeapRows;
+  }
+
+  /**
+   * Receives the report columns of one row from {@link #scan}.
+   */
+  interface RowVisitor {
+    void visit(String buildingType, long feeCents, long deadlineDay, boolean finalised,
+        int managerId, int architectId);
+  }
+
+  /**
+   * Loads a project that already has an ID, replacing any project with
+   * the same ID. Loading in ID order appends; loading out of order shifts
+   * the rows after it.
+   *
+   * @param project The project to load
+   */
+  public void load(Project project) {
+    lock.writeLock().lock();
+    try {
+      int row = rowOf(project.getId());
+      if (row < 0) {
+        row = -row - 1;
+        insertRow(row);
+      }
+      put(row, project, Math.max(1, project.getVersion()));
+      nextId = Math.max(nextId, project.getId() + 1);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the number of projects held.
+   *
+   * @return The project count
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return liveCount;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the number of bytes of column data held outside the heap.
+   *
+   * @return The off-heap bytes
+   */
+  public long getOffHeapBytes() {
+    lock.readLock().lock();
+    try {
+      long bytes = 0;
+      for (Segment segment : segments) {
+        bytes += segment.offHeapBytes;
+      }
+      return bytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Project findById(int projectId) {
+    lock.readLock().lock();
+    try {
+      int row = liveRow(projectId);
+      return row >= 0 ? read(row) : null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public ProjectPage findPage(int afterId, int pageSize) {
+    lock.readLock().lock();
+    try {
+      int start = rowOf(afterId);
+      start = start >= 0 ? start + 1 : -start - 1;
+      List<Project> projects = new ArrayList<>(pageSize);
+      boolean hasMore = false;
+      for (int row = live.nextSetBit(start); row >= 0; row = live.nextSetBit(row + 1)) {
+        if (projects.size() == pageSize) {
+          hasMore = true;
+          break;
+        }
+        projects.add(read(row));
+      }
+      int lastId = projects.isEmpty() ? afterId : projects.get(projects.size() - 1).getId();
+      return new ProjectPage(projects, lastId, hasMore);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Project> findByIdOrName(String input) {
+    lock.readLock().lock();
+    try {
+      int idRow = -1;
+      try {
+        idRow = liveRow(Integer.parseInt(input));
+      } catch (NumberFormatException e) {
+        // Not an ID; match by name only
+      }
+      // Scan the name hashes and only compare the strings that match
+      int hash = input.hashCode();
+      List<Project> projects = new ArrayList<>();
+      for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+        Segment segment = segment(row);
+        int i = row & SEGMENT_MASK;
+        if (row == idRow
+            || (segment.nameHashes.get(i) == hash && input.equals(segment.names[i]))) {
+          projects.add(read(row));
+        }
+      }
+      return projects;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Project> search(String query, int limit) {
+    if (!searchIndexLoaded) {
+      loadSearchIndex();
+    }
+    lock.readLock().lock();
+    try {
+      List<Integer> ids = searchIndex.search(query, limit);
+      List<Project> projects = new ArrayList<>(ids.size());
+      for (Integer projectId : ids) {
+        int row = liveRow(projectId);
+        if (row >= 0) {
+          projects.add(read(row));
+        }
+      }
+      return projects;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Project> findUnfinished() {
+    lock.readLock().lock();
+    try {
+      List<Project> projects = new ArrayList<>();
+      for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+        if (!finalised.get(row)) {
+          projects.add(read(row));
+        }
+      }
+      return projects;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Project> findPastDue() {
+    return findDueBetween(NO_DATE + 1, (int) LocalDate.now().toEpochDay() - 1, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public List<Project> findDueWithin(int days) {
+    int today = (int) LocalDate.now().toEpochDay();
+    return findDueBetween(today, today + days, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public List<Project> findNextDue(int count) {
+    return findDueBetween((int) LocalDate.now().toEpochDay(), Integer.MAX_VALUE, count);
+  }
+
+  @Override
+  public List<Integer> findIdsDueBefore(LocalDate date) {
+    lock.readLock().lock();
+    try {
+      int before = (int) date.toEpochDay();
+      List<Integer> due = new ArrayList<>();
+      for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+        Segment segment = segment(row);
+        int deadline = segment.deadlines.get(row & SEGMENT_MASK);
+        if (!finalised.get(row) && deadline != NO_DATE && deadline < before) {
+          due.add(segment.ids.get(row & SEGMENT_MASK));
+        }
+      }
+      return due;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Integer> findIdsCompletedBefore(LocalDate date) {
+    lock.readLock().lock();
+    try {
+      int before = (int) date.toEpochDay();
+      List<Integer> completed = new ArrayList<>();
+      for (int row = finalised.nextSetBit(0); row >= 0; row = finalised.nextSetBit(row + 1)) {
+        Segment segment = segment(row);
+        int completion = segment.completions.get(row & SEGMENT_MASK);
+        if (live.get(row) && completion != NO_DATE && completion < before) {
+          completed.add(segment.ids.get(row & SEGMENT_MASK));
+        }
+      }
+      return completed;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Computes the portfolio report straight from the columns. Amounts paid
+   * are not held in memory, so every fee counts as outstanding.
+   *
+   * @return The report
+   */
+  @Override
+  public PortfolioReport report() {
+    return new PortfolioAnalytics(LocalDate.now()).analyze(this);
+  }
+
+  @Override
+  public int add(Project project) {
+    lock.writeLock().lock();
+    try {
+      int projectId = nextId++;
+      int row = rowCount;
+      insertRow(row);
+      project.setId(projectId);
+      put(row, project, 1);
+      project.setVersion(1);
+      return projectId;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean update(Project project) {
+    lock.writeLock().lock();
+    try {
+      int row = liveRow(project.getId());
+      if (row < 0) {
+        return false;
+      }
+      int version = segment(row).versions.get(row & SEGMENT_MASK);
+      if (project.getVersion() > 0 && project.getVersion() != version) {
+        throw new ConcurrentUpdateException("Project " + project.getId()
+            + " was changed by someone else.", read(row));
+      }
+      // As with the UPDATE statement, only the fields set since the
+      // project was read are written
+      Project stored = read(row);
+      stored.copyFields(project, project.getChangedFields());
+      put(row, stored, version + 1);
+      project.setVersion(version + 1);
+      project.markClean();
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean finalizeProject(int projectId, LocalDate completionDate) {
+    lock.writeLock().lock();
+    try {
+      int row = liveRow(projectId);
+      if (row < 0 || finalised.get(row)) {
+        return false;
+      }
+      finalizeRow(row, completionDate);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean delete(int projectId) {
+    lock.writeLock().lock();
+    try {
+      int row = liveRow(projectId);
+      if (row < 0) {
+        return false;
+      }
+      deleteRow(row);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public int finalizeAll(Collection<Integer> projectIds, LocalDate completionDate) {
+    lock.writeLock().lock();
+    try {
+      int finalized = 0;
+      for (Integer projectId : projectIds) {
+        int row = liveRow(projectId);
+        if (row >= 0 && !finalised.get(row)) {
+          finalizeRow(row, completionDate);
+          finalized++;
+        }
+      }
+      return finalized;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public int finalizeDueBefore(LocalDate date, LocalDate completionDate) {
+    lock.writeLock().lock();
+    try {
+      int before = (int) date.toEpochDay();
+      int finalized = 0;
+      for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+        int deadline = segment(row).deadlines.get(row & SEGMENT_MASK);
+        if (!finalised.get(row) && deadline != NO_DATE && deadline < before) {
+          finalizeRow(row, completionDate);
+          finalized++;
+        }
+      }
+      return finalized;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public int deleteAll(Collection<Integer> projectIds) {
+    lock.writeLock().lock();
+    try {
+      int deleted = 0;
+      for (Integer projectId : projectIds) {
+        int row = liveRow(projectId);
+        if (row >= 0) {
+          deleteRow(row);
+          deleted++;
+        }
+      }
+      return deleted;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public int deleteCompletedBefore(LocalDate date) {
+    lock.writeLock().lock();
+    try {
+      int before = (int) date.toEpochDay();
+      int deleted = 0;
+      for (int row = finalised.nextSetBit(0); row >= 0; row = finalised.nextSetBit(row + 1)) {
+        int completion = segment(row).completions.get(row & SEGMENT_MASK);
+        if (live.get(row) && completion != NO_DATE && completion < before) {
+          deleteRow(row);
+          deleted++;
+        }
+      }
+      return deleted;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Passes the report columns of every project to a visitor, in ID order,
+   * without building Project objects.
+   *
+   * @param visitor Receives each row
+   */
+  void scan(RowVisitor visitor) {
+    lock.readLock().lock();
+    try {
+      for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+        Segment segment = segment(row);
+        int i = row & SEGMENT_MASK;
+        int type = segment.types.get(i);
+        int deadline = segment.deadlines.get(i);
+        visitor.visit(type != NO_TYPE ? typeNames.get(type) : null, segment.fees.get(i),
+            deadline != NO_DATE ? deadline : Long.MAX_VALUE, finalised.get(row),
+            segment.managers.get(i), segment.architects.get(i));
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Reads the unfinished projects due in a range of epoch days, earliest
+   * deadline first and then by ID.
+   */
+  private List<Project> findDueBetween(int fromDay, int untilDay, int limit) {
+    lock.readLock().lock();
+    try {
+      // Deadline in the high half and row in the low half sort as wanted
+      long[] keys = new long[64];
+      int count = 0;
+      for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+        int deadline = segment(row).deadlines.get(row & SEGMENT_MASK);
+        if (deadline != NO_DATE && deadline >= fromDay && deadline <= untilDay
+            && !finalised.get(row)) {
+          if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+          }
+          keys[count++] = ((long) deadline << 32) | row;
+        }
+      }
+      Arrays.sort(keys, 0, count);
+      List<Project> projects = new ArrayList<>(Math.min(count, limit));
+      for (int i = 0; i < count && projects.size() < limit; i++) {
+        projects.add(read((int) keys[i]));
+      }
+      return projects;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void loadSearchIndex() {
+    lock.writeLock().lock();
+    try {
+      if (!searchIndexLoaded) {
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+          searchIndex.put(read(row));
+        }
+        searchIndexLoaded = true;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private Segment segment(int row) {
+    return segments.get(row >>> SEGMENT_SHIFT);
+  }
+
+  /**
+   * Finds a row by project ID, live or deleted.
+   *
+   * @return The row, or (-(insertion point) - 1) if the ID has no row
+   */
+  private int rowOf(int projectId) {
+    int low = 0;
+    int high = rowCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int id = segment(middle).ids.get(middle & SEGMENT_MASK);
+      if (id < projectId) {
+        low = middle + 1;
+      } else if (id > projectId) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private int liveRow(int projectId) {
+    int row = rowOf(projectId);
+    return row >= 0 && live.get(row) ? row : -1;
+  }
+
+  /**
+   * Opens an empty row at a position, moving the rows from there on down
+   * by one.
+   */
+  private void insertRow(int at) {
+    if (rowCount == segments.size() * SEGMENT_ROWS) {
+      segments.add(new Segment(rowCount >= maxHeapRows));
+    }
+    for (int row = rowCount; row > at; row--) {
+      copyRow(row - 1, row);
+    }
+    live.clear(at);
+    finalised.clear(at);
+    rowCount++;
+  }
+
+  private void copyRow(int from, int to) {
+    Segment source = segment(from);
+    Segment target = segment(to);
+    int i = from & SEGMENT_MASK;
+    int j = to & SEGMENT_MASK;
+    target.ids.put(j, source.ids.get(i));
+    target.types.put(j, source.types.get(i));
+    target.deadlines.put(j, source.deadlines.get(i));
+    target.completions.put(j, source.completions.get(i));
+    target.architects.put(j, source.architects.get(i));
+    target.engineers.put(j, source.engineers.get(i));
+    target.managers.put(j, source.managers.get(i));
+    target.contractors.put(j, source.contractors.get(i));
+    target.customers.put(j, source.customers.get(i));
+    target.versions.put(j, source.versions.get(i));
+    target.nameHashes.put(j, source.nameHashes.get(i));
+    target.fees.put(j, source.fees.get(i));
+    target.names[j] = source.names[i];
+    target.addresses[j] = source.addresses[i];
+    target.erfNumbers[j] = source.erfNumbers[i];
+    live.set(to, live.get(from));
+    finalised.set(to, finalised.get(from));
+  }
+
+  /**
+   * Writes every column of a row and keeps the counts and search index
+   * current.
+   */
+  private void put(int row, Project project, int version) {
+    Segment segment = segment(row);
+    int i = row & SEGMENT_MASK;
+    segment.ids.put(i, project.getId());
+    segment.types.put(i, typeCode(project.getBuildingType()));
+    segment.deadlines.put(i, epochDay(project.getDeadline()));
+    segment.completions.put(i, epochDay(project.getCompletionDate()));
+    segment.architects.put(i, project.getArchitectId());
+    segment.engineers.put(i, project.getEngineerId());
+    segment.managers.put(i, project.getManagerId());
+    segment.contractors.put(i, project.getContractorId());
+    segment.customers.put(i, project.getCustomerId());
+    segment.versions.put(i, version);
+    segment.nameHashes.put(i, project.getProjectName() != null
+        ? project.getProjectName().hashCode() : 0);
+    segment.fees.put(i, Math.round(project.getTotalFee() * 100.0));
+    segment.names[i] = project.getProjectName();
+    segment.addresses[i] = project.getPhysicalAddress();
+    segment.erfNumbers[i] = project.getErfNumber();
+    finalised.set(row, project.isFinalised() != 0);
+    if (!live.get(row)) {
+      live.set(row);
+      liveCount++;
+    }
+    if (searchIndexLoaded) {
+      searchIndex.put(project);
+    }
+  }
+
+  private void finalizeRow(int row, LocalDate completionDate) {
+    Segment segment = segment(row);
+    int i = row & SEGMENT_MASK;
+    segment.completions.put(i, epochDay(completionDate));
+    segment.versions.put(i, segment.versions.get(i) + 1);
+    finalised.set(row);
+  }
+
+  private void deleteRow(int row) {
+    Segment segment = segment(row);
+    int i = row & SEGMENT_MASK;
+    // The ID stays so rows remain sorted; the text is released
+    segment.names[i] = null;
+    segment.addresses[i] = null;
+    segment.erfNumbers[i] = null;
+    live.clear(row);
+    finalised.clear(row);
+    liveCount--;
+    if (searchIndexLoaded) {
+      searchIndex.remove(segment.ids.get(i));
+    }
+  }
+
+  private Project read(int row) {
+    Segment segment = segment(row);
+    int i = row & SEGMENT_MASK;
+    int type = segment.types.get(i);
+    Project project = new Project(
+        segment.ids.get(i),
+        segment.names[i],
+        type != NO_TYPE ? typeNames.get(type) : null,
+        segment.addresses[i],
+        segment.fees.get(i) / 100f,
+        date(segment.deadlines.get(i)),
+        segment.erfNumbers[i],
+        segment.architects.get(i),
+        segment.engineers.get(i),
+        segment.managers.get(i),
+        segment.contractors.get(i),
+        segment.customers.get(i),
+        finalised.get(row) ? 1 : 0,
+        date(segment.completions.get(i)));
+    project.setVersion(segment.versions.get(i));
+    project.markClean();
+    return project;
+  }
+
+  private int typeCode(String buildingType) {
+    if (buildingType == null) {
+      return NO_TYPE;
+    }
+    Integer code = typeCodes.get(buildingType);
+    if (code == null) {
+      code = typeNames.size();
+      typeCodes.put(buildingType, code);
+      typeNames.add(buildingType);
+    }
+    return code;
+  }
+
+  private static int epochDay(LocalDate date) {
+    return date != null ? (int) date.toEpochDay() : NO_DATE;
+  }
+
+  private static LocalDate date(int epochDay) {
+    return epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+  }
+
+  /**
+   * A block of {@value #SEGMENT_ROWS} rows, one buffer per numeric column.
+   * Heap segments wrap plain arrays; off-heap segments share one direct
+   * buffer in native byte order.
+   */
+  private static final class Segment {
+    private static final int INT_COLUMNS = 11;
+    private static final int ROW_BYTES = INT_COLUMNS * Integer.BYTES + Long.BYTES;
+
+    private final IntBuffer ids;
+    private final IntBuffer types;
+    private final IntBuffer deadlines;
+    private final IntBuffer completions;
+    private final IntBuffer architects;
+    private final IntBuffer engineers;
+    private final IntBuffer managers;
+    private final IntBuffer contractors;
+    private final IntBuffer customers;
+    private final IntBuffer versions;
+    private final IntBuffer nameHashes;
+    private final LongBuffer fees;
+    private final String[] names = new String[SEGMENT_ROWS];
+    private final String[] addresses = new String[SEGMENT_ROWS];
+    private final String[] erfNumbers = new String[SEGMENT_ROWS];
+    private final long offHeapBytes;
+
+    Segment(boolean offHeap) {
+      ByteBuffer block = offHeap ? ByteBuffer.allocateDirect(SEGMENT_ROWS * ROW_BYTES) : null;
+      offHeapBytes = offHeap ? (long) SEGMENT_ROWS * ROW_BYTES : 0;
+      ids = ints(block, 0);
+      types = ints(block, 1);
+      deadlines = ints(block, 2);
+      completions = ints(block, 3);
+      architects = ints(block, 4);
+      engineers = ints(block, 5);
+      managers = ints(block, 6);
+      contractors = ints(block, 7);
+      customers = ints(block, 8);
+      versions = ints(block, 9);
+      nameHashes = ints(block, 10);
+      fees = block != null
+          ? slice(block, INT_COLUMNS * Integer.BYTES, Long.BYTES).asLongBuffer()
+          : LongBuffer.wrap(new long[SEGMENT_ROWS]);
+    }
+
+    private static IntBuffer ints(ByteBuffer block, int column) {
+      return block != null
+          ? slice(block, column * Integer.BYTES, Integer.BYTES).asIntBuffer()
+          : IntBuffer.wrap(new int[SEGMENT_ROWS]);
+    }
+
+    private static ByteBuffer slice(ByteBuffer block, int offsetPerRow, int bytesPerRow) {
+      ByteBuffer view = block.duplicate();
+      view.position(offsetPerRow * SEGMENT_ROWS);
+      view.limit((offsetPerRow + bytesPerRow) * SEGMENT_ROWS);
+      return view.slice().order(ByteOrder.nativeOrder());
+    }
+  }
+}
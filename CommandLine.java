@@ -0,0 +1,564 @@
+package poised;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The CommandLine class runs PoisePMS operations given as program
+ * arguments instead of through the interactive menu.
+ */
+public class CommandLine {
+  private static final Logger logger = Logger.getLogger(CommandLine.class.getName());
+  private static final int DEFAULT_CHUNK_SIZE = 1000;
+  private static final int DEFAULT_PORT = 8080;
+
+  /**
+   * Runs the command named by the first argument.
+   *
+   * @param args The program arguments
+   * @return The process exit status
+   */
+  public static int run(String[] args) {
+    try {
+      switch (args[0]) {
+        case "--import":
+          return importProjects(args);
+        case "--in-memory":
+          return runInMemory(args);
+        case "--generate":
+          return generate(args);
+        case "--benchmark":
+          return benchmark(args);
+        case "--report":
+          return report();
+        case "--serve":
+          return serve(args);
+        case "--batch":
+          return batch(args);
+        case "--snapshot":
+          return snapshot(args);
+        case "--offline":
+          return offline(args);
+        case "--export":
+          return export(args);
+        case "--replay":
+          return replay(args);
+        default:
+          printUsage();
+          return 2;
+      }
+    } finally {
+      Database.shutdown();
+      Metrics.stopDumping();
+    }
+  }
+
+  /**
+   * Checks whether the arguments ask for a non-interactive command.
+   *
+   * @param args The program arguments
+   * @return true if a command was given
+   */
+  public static boolean isCommand(String[] args) {
+    return args.length > 0 && args[0].startsWith("--");
+  }
+
+  private static void printUsage() {
+    System.out.println("Usage:");
+    System.out.println("  PoisePMS                                  Interactive menu");
+    System.out.println("  PoisePMS --import <file> [chunk-size]     Bulk import projects "
+        + "from CSV or JSON Lines");
+    System.out.println("  PoisePMS --in-memory [projects] [seed]    Interactive menu on the "
+        + "in-memory engine, without a database, optionally seeded with synthetic projects");
+    System.out.println("  PoisePMS --generate <projects> [seed] [chunk-size]  Insert a "
+        + "synthetic dataset into the database");
+    System.out.println("  PoisePMS --report                         Print fee, balance and "
+        + "workload totals for all projects");
+    System.out.println("  PoisePMS --benchmark [scales|embedded [scales]|jdbc]  Benchmark "
+        + "operations on the in-memory engine or an embedded H2 database at the given "
+        + "project counts (default 1000,100000,1000000), or read operations on the "
+        + "configured database");
+    System.out.println("  PoisePMS --serve [port] [jdbc|memory]     Serve the menu operations "
+        + "as JSON over HTTP (default port " + DEFAULT_PORT + ", database backend)");
+    System.out.println("  PoisePMS --batch [file|-] [jdbc|memory]   Run commands from a file or "
+        + "stdin, one per line, writing one JSON result per line");
+    System.out.println("  PoisePMS --snapshot [file]                Write or refresh the "
+        + "snapshot file from the database");
+    System.out.println("  PoisePMS --offline [file]                 Interactive menu on the "
+        + "snapshot file, without a database; changes are journaled");
+    System.out.println("  PoisePMS --replay [journal]               Send the changes journaled "
+        + "offline to the database");
+    System.out.println("  PoisePMS --export <projects|persons> <file|-> [filters]  Stream "
+        + "projects or role directories to CSV, JSON Lines or binary; filters are "
+        + "unfinished, past-due, <role>=<id> for projects, <role> for persons, "
+        + "and format=<csv|jsonl|binary>");
+  }
+
+  private static int importProjects(String[] args) {
+    if (args.length < 2) {
+      printUsage();
+      return 2;
+    }
+    int chunkSize = DEFAULT_CHUNK_SIZE;
+    if (args.length > 2) {
+      try {
+        chunkSize = Integer.parseInt(args[2]);
+      } catch (NumberFormatException e) {
+        System.out.println("Invalid chunk size: " + args[2]);
+        return 2;
+      }
+    }
+
+    try (Connection connection = Database.getConnection()) {
+      ImportResult result = new ProjectImporter(connection, chunkSize)
+          .importFile(Paths.get(args[1]));
+      for (ImportResult.RowError error : result.getErrors()) {
+        System.out.println(error);
+      }
+      System.out.printf("Imported %d of %d projects (%d rejected).%n",
+          result.getRowsImported(), result.getRowsRead(), result.getErrors().size());
+      return result.getErrors().isEmpty() ? 0 : 1;
+    } catch (IOException e) {
+      System.out.println("Error reading import file: " + e.getMessage());
+      logger.log(Level.SEVERE, "Error reading import file.", e);
+    } catch (SQLException | IllegalStateException e) {
+      System.out.println("Error importing projects: " + e.getMessage());
+      logger.log(Level.SEVERE, "Error importing projects.", e);
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+    }
+    return 1;
+  }
+
+  /**
+   * Runs the interactive menu on the in-memory engine. The role
+   * directories are seeded from the sample data in PoisePMS.sql, or with
+   * a synthetic dataset when a project count is given.
+   */
+  private static int runInMemory(String[] args) {
+    InMemoryPersonRepository persons = new InMemoryPersonRepository();
+    if (args.length > 1) {
+      DatasetGenerator generator = parseGenerator(args);
+      if (generator == null) {
+        return 2;
+      }
+      PoisePMS.runMenu(memoryProjects(generator, persons), persons);
+      return 0;
+    }
+    addSamplePersons(persons);
+    PoisePMS.runMenu(memoryProjects(null, persons), persons);
+    return 0;
+  }
+
+  /**
+   * Seeds the role directories with the sample data in PoisePMS.sql.
+   */
+  private static void addSamplePersons(InMemoryPersonRepository persons) {
+    persons.addToRole(PersonRole.ARCHITECT, "Dave Sacks");
+    persons.addToRole(PersonRole.ARCHITECT, "Jack Black");
+    persons.addToRole(PersonRole.ENGINEER, "Adam Smith");
+    persons.addToRole(PersonRole.ENGINEER, "John Shay");
+    persons.addToRole(PersonRole.PROJECT_MANAGER, "Sam Smith");
+    persons.addToRole(PersonRole.PROJECT_MANAGER, "Alice Brown");
+    persons.addToRole(PersonRole.CONTRACTOR, "Bob Grant");
+    persons.addToRole(PersonRole.CONTRACTOR, "Lee Shaw");
+    persons.addToRole(PersonRole.CUSTOMER, "Sara Day");
+    persons.addToRole(PersonRole.CUSTOMER, "Betty Parker");
+  }
+
+  private static int generate(String[] args) {
+    DatasetGenerator generator = parseGenerator(args);
+    if (generator == null) {
+      return 2;
+    }
+    int chunkSize = DEFAULT_CHUNK_SIZE;
+    if (args.length > 3) {
+      try {
+        chunkSize = Integer.parseInt(args[3]);
+      } catch (NumberFormatException e) {
+        System.out.println("Invalid chunk size: " + args[3]);
+        return 2;
+      }
+    }
+
+    try (Connection connection = Database.getConnection()) {
+      long start = System.nanoTime();
+      generator.generateInto(connection, chunkSize);
+      System.out.printf("Generated %s projects in %d ms.%n", args[1],
+          (System.nanoTime() - start) / 1_000_000);
+      return 0;
+    } catch (SQLException e) {
+      System.out.println("Error generating dataset: " + e.getMessage());
+      logger.log(Level.SEVERE, "Error generating dataset.", e);
+      return 1;
+    }
+  }
+
+  /**
+   * Builds a generator from a project count and optional seed in args[1]
+   * and args[2].
+   */
+  private static DatasetGenerator parseGenerator(String[] args) {
+    if (args.length < 2) {
+      printUsage();
+      return null;
+    }
+    int projects;
+    long seed = 42L;
+    try {
+      projects = Integer.parseInt(args[1]);
+      if (args.length > 2) {
+        seed = Long.parseLong(args[2]);
+      }
+      return DatasetGenerator.scaledTo(seed, projects);
+    } catch (NumberFormatException e) {
+      System.out.println("Invalid project count or seed.");
+    } catch (DateTimeParseException e) {
+      System.out.println("Invalid poisepms.generate.referenceDate: " + e.getParsedString());
+    }
+    return null;
+  }
+
+  private static int report() {
+    try (Connection connection = Database.getConnection()) {
+      long start = System.nanoTime();
+      PortfolioReport report = new PortfolioAnalytics(LocalDate.now())
+          .analyze(connection);
+      ProjectManager.printPortfolioReport(report);
+      System.out.printf("%nComputed in %d ms.%n", (System.nanoTime() - start) / 1_000_000);
+      return 0;
+    } catch (SQLException e) {
+      System.out.println("Error computing portfolio report: " + e.getMessage());
+      logger.log(Level.SEVERE, "Error computing portfolio report.", e);
+      return 1;
+    }
+  }
+
+  /**
+   * Writes the snapshot file, or brings an existing one up to date.
+   */
+  private static int snapshot(String[] args) {
+    Path file = args.length > 1 ? Paths.get(args[1]) : SnapshotStore.defaultFile();
+    try (SnapshotStore snapshots = new SnapshotStore(file);
+        Connection connection = Database.getConnection()) {
+      long start = System.nanoTime();
+      boolean written = snapshots.refresh(connection);
+      System.out.printf("%s %s with %d projects in %d ms.%n",
+          written ? "Wrote" : "Already current:", file, snapshots.getSnapshot().size(),
+          (System.nanoTime() - start) / 1_000_000);
+      return 0;
+    } catch (IOException e) {
+      System.out.println("Error writing snapshot: " + e.getMessage());
+      logger.log(Level.SEVERE, "Error writing snapshot.", e);
+    } catch (SQLException e) {
+      System.out.println("Error reading projects: " + e.getMessage());
+      logger.log(Level.SEVERE, "Error reading projects for the snapshot.", e);
+    }
+    return 1;
+  }
+
+  /**
+   * Runs the interactive menu on the snapshot file, journaling changes.
+   */
+  private static int offline(String[] args) {
+    Path file = args.length > 1 ? Paths.get(args[1]) : SnapshotStore.defaultFile();
+    WriteJournal journal = PoisePMS.openJournal(WriteJournal.defaultFile());
+    if (journal == null) {
+      return 1;
+    }
+    try (SnapshotStore snapshots = new SnapshotStore(file)) {
+      PoisePMS.showSnapshotProjects(snapshots.getSnapshot());
+      if (!PoisePMS.runOffline(snapshots, journal)) {
+        System.out.println("No readable snapshot at " + file + ".");
+        return 1;
+      }
+      return 0;
+    }
+  }
+
+  /**
+   * Sends the changes saved offline to the database.
+   */
+  private static int replay(String[] args) {
+    Path file = args.length > 1 ? Paths.get(args[1]) : WriteJournal.defaultFile();
+    try (Connection connection = Database.getConnection()) {
+      WriteJournal journal = new WriteJournal(file);
+      int pending = journal.size();
+      WriteJournal.ReplayResult result = journal.replay(connection);
+      System.out.printf("Replayed %d entries: %d applied, %d already applied, %d rejected.%n",
+          pending, result.getApplied(), result.getSkipped(), result.getRejected());
+      return result.getRejected() == 0 ? 0 : 1;
+    } catch (IOException e) {
+      System.out.println("Error reading journal: " + e.getMessage());
+      logger.log(Level.SEVERE, "Error reading journal.", e);
+    } catch (SQLException e) {
+      System.out.println("Error replaying journal: " + e.getMessage());
+      logger.log(Level.SEVERE, "Error replaying journal.", e);
+    }
+    return 1;
+  }
+
+  /**
+   * Streams projects or persons to a file or stdout. The format comes from
+   * a format= argument or else the file extension.
+   */
+  private static int export(String[] args) {
+    if (args.length < 3 || !("projects".equals(args[1]) || "persons".equals(args[1]))) {
+      printUsage();
+      return 2;
+    }
+    boolean persons = "persons".equals(args[1]);
+    String file = args[2];
+    ProjectExporter.Format format = "-".equals(file) ? ProjectExporter.Format.CSV
+        : ProjectExporter.Format.forFile(file);
+    ProjectExporter.ProjectFilter filter = new ProjectExporter.ProjectFilter();
+    PersonRole role = null;
+    for (int i = 3; i < args.length; i++) {
+      String arg = args[i];
+      int equals = arg.indexOf('=');
+      String name = equals >= 0 ? arg.substring(0, equals) : arg;
+      String value = equals >= 0 ? arg.substring(equals + 1) : null;
+      if ("format".equals(name) && value != null) {
+        format = ProjectExporter.Format.fromName(value);
+      } else if (!persons && "unfinished".equals(arg)) {
+        filter.setUnfinished(true);
+      } else if (!persons && "past-due".equals(arg)) {
+        filter.setPastDue(true);
+      } else if (PersonRole.fromSlug(name) != null && (value != null) != persons) {
+        role = PersonRole.fromSlug(name);
+        if (!persons) {
+          try {
+            filter.setAssignedTo(role, Integer.parseInt(value));
+          } catch (NumberFormatException e) {
+            System.out.println("Invalid " + name + " ID: " + value);
+            return 2;
+          }
+        }
+      } else {
+        System.out.println("Unknown export option: " + arg);
+        return 2;
+      }
+      if (format == null) {
+        System.out.println("Unknown export format: " + value);
+        return 2;
+      }
+    }
+
+    long start = System.nanoTime();
+    try (Connection connection = Database.getConnection();
+        WritableByteChannel out = "-".equals(file) ? Channels.newChannel(System.out)
+            : FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ProjectExporter exporter = new ProjectExporter(connection);
+      long rows = persons ? exporter.exportPersons(role, format, out)
+          : exporter.exportProjects(filter, format, out);
+      System.err.printf("Exported %d %s in %d ms.%n", rows, args[1],
+          (System.nanoTime() - start) / 1_000_000);
+      return 0;
+    } catch (IOException e) {
+      System.err.println("Error writing export: " + e.getMessage());
+      logger.log(Level.SEVERE, "Error writing export.", e);
+    } catch (SQLException e) {
+      System.err.println("Error reading " + args[1] + ": " + e.getMessage());
+      logger.log(Level.SEVERE, "Error exporting " + args[1] + ".", e);
+    }
+    return 1;
+  }
+
+  /**
+   * Runs the HTTP server until the process is interrupted.
+   */
+  private static int serve(String[] args) {
+    int port = DEFAULT_PORT;
+    if (args.length > 1) {
+      try {
+        port = Integer.parseInt(args[1]);
+      } catch (NumberFormatException e) {
+        System.out.println("Invalid port: " + args[1]);
+        return 2;
+      }
+    }
+    String backend = args.length > 2 ? args[2] : "jdbc";
+    RepositorySession.Source sessions = sessionSource(backend);
+    if (sessions == null) {
+      printUsage();
+      return 2;
+    }
+
+    ProjectServer server;
+    try {
+      server = new ProjectServer(port, sessions, "jdbc".equalsIgnoreCase(backend));
+    } catch (IOException e) {
+      System.out.println("Error starting server: " + e.getMessage());
+      logger.log(Level.SEVERE, "Error starting server.", e);
+      return 1;
+    }
+    CountDownLatch stopped = new CountDownLatch(1);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      server.close();
+      Database.shutdown();
+      stopped.countDown();
+    }));
+    server.start();
+    System.out.printf("PoisePMS server listening on port %d (%s).%n", server.getPort(),
+        backend.toLowerCase(Locale.ROOT));
+    try {
+      stopped.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return 0;
+  }
+
+  /**
+   * Runs batch commands from a file, or from stdin when the file is
+   * missing or "-". Only the JSON results are written to stdout; anything
+   * else printed while the batch runs, such as the repositories' error
+   * messages, goes to stderr.
+   */
+  private static int batch(String[] args) {
+    String file = args.length > 1 ? args[1] : "-";
+    RepositorySession.Source sessions = sessionSource(args.length > 2 ? args[2] : "jdbc");
+    if (sessions == null) {
+      printUsage();
+      return 2;
+    }
+    int maxInFlight = Integer.getInteger("poisepms.batch.maxInFlight", 8);
+    int maxWriteGroup = Integer.getInteger("poisepms.batch.maxWriteGroup", 1000);
+    ExecutorService executor = AsyncProjectManager.newTaskExecutor();
+    PrintStream stdout = System.out;
+    System.setOut(System.err);
+    try (BufferedReader in = "-".equals(file)
+            ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+            : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+      Writer out = new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8));
+      BatchRunner runner = new BatchRunner(sessions, executor, maxInFlight, maxWriteGroup);
+      long start = System.nanoTime();
+      runner.run(in, out);
+      System.err.printf("Ran %d commands (%d failed) in %d ms.%n", runner.getCommands(),
+          runner.getFailures(), (System.nanoTime() - start) / 1_000_000);
+      return runner.getFailures() == 0 ? 0 : 1;
+    } catch (IOException e) {
+      System.err.println("Error running batch: " + e.getMessage());
+      logger.log(Level.SEVERE, "Error running batch.", e);
+      return 1;
+    } finally {
+      executor.shutdown();
+      System.setOut(stdout);
+    }
+  }
+
+  /**
+   * Creates the session source for a backend name: "jdbc" for pooled
+   * database connections or "memory" for an in-memory engine seeded with
+   * the sample role directories.
+   *
+   * @return The source, or null if the backend is unknown
+   */
+  private static RepositorySession.Source sessionSource(String backend) {
+    if ("jdbc".equalsIgnoreCase(backend)) {
+      return RepositorySession::openJdbc;
+    }
+    if ("memory".equalsIgnoreCase(backend)) {
+      InMemoryPersonRepository persons = new InMemoryPersonRepository();
+      addSamplePersons(persons);
+      return RepositorySession.inMemory(memoryProjects(null, persons), persons);
+    }
+    return null;
+  }
+
+  /**
+   * Creates the in-memory project store: the columnar store when
+   * {@code poisepms.memory.columnar} is true, which suits large
+   * portfolios, or the object store otherwise.
+   *
+   * @param generator Generates the projects to seed it with, or null
+   * @param persons   The person repository seeded alongside the projects
+   * @return The project store
+   */
+  static ProjectRepository memoryProjects(DatasetGenerator generator,
+      InMemoryPersonRepository persons) {
+    if (Boolean.getBoolean("poisepms.memory.columnar")) {
+      ColumnarProjectRepository projects = new ColumnarProjectRepository();
+      if (generator != null) {
+        generator.generateInto(projects::load, persons);
+      }
+      return projects;
+    }
+    InMemoryProjectRepository projects = new InMemoryProjectRepository();
+    if (generator != null) {
+      generator.generateInto(projects::load, persons);
+    }
+    return projects;
+  }
+
+  private static int benchmark(String[] args) {
+    long warmupMillis = Long.getLong("poisepms.bench.warmupMs", 1000L);
+    long measureMillis = Long.getLong("poisepms.bench.measureMs", 3000L);
+    int forks = Integer.getInteger("poisepms.bench.forks", 1);
+    ProjectBenchmark benchmark = new ProjectBenchmark(warmupMillis, measureMillis);
+    String target = args.length > 1 ? args[1] : "1000,100000,1000000";
+    if ("jdbc".equalsIgnoreCase(target)) {
+      try {
+        benchmark.runJdbc();
+        return 0;
+      } catch (SQLException e) {
+        System.out.println("Error benchmarking database: " + e.getMessage());
+        logger.log(Level.SEVERE, "Error benchmarking database.", e);
+        return 1;
+      }
+    }
+    String embedded = null;
+    if ("embedded".equalsIgnoreCase(target)) {
+      embedded = target;
+      target = args.length > 2 ? args[2] : "1000,100000,1000000";
+    }
+    String[] parts = target.split(",");
+    int[] scales = new int[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      try {
+        scales[i] = Integer.parseInt(parts[i].trim());
+      } catch (NumberFormatException e) {
+        System.out.println("Invalid scale: " + parts[i]);
+        return 2;
+      }
+    }
+    try {
+      if (forks > 0 && !Boolean.getBoolean(ProjectBenchmark.FORKED_PROPERTY)) {
+        return ProjectBenchmark.runForked(embedded, scales, forks) ? 0 : 1;
+      }
+      if (embedded != null) {
+        benchmark.runEmbedded(scales);
+      } else {
+        benchmark.runInMemory(scales);
+      }
+      return 0;
+    } catch (SQLException | IOException e) {
+      System.out.println("Error running benchmark: " + e.getMessage());
+      logger.log(Level.SEVERE, "Error running benchmark.", e);
+      return 1;
+    }
+  }
+}
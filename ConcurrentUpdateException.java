@@ -0,0 +1,34 @@
+package poised;
+
+/**
+ * Thrown when an update is rejected because the stored row changed after
+ * it was read. The stored copy is attached so the caller can show it, or
+ * merge their changes onto it and try again.
+ */
+public class ConcurrentUpdateException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final transient Object current;
+
+  /**
+   * Constructor for a rejected update.
+   *
+   * @param message The error message
+   * @param current The project or person as it is now stored
+   */
+  public ConcurrentUpdateException(String message, Object current) {
+    super(message);
+    this.current = current;
+  }
+
+  /**
+   * Gets the stored copy of the row that was changed.
+   *
+   * @param type The expected type, Project or Person
+   * @return The stored copy
+   * @throws ClassCastException if the row is of another type
+   */
+  public <T> T getCurrent(Class<T> type) {
+    return type.cast(current);
+  }
+}
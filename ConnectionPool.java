@@ -0,0 +1,292 @@
+package poised;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of physical JDBC connections.
+ *
+ * <p>Connections handed out by {@link #borrow()} are proxies; closing one
+ * returns the underlying connection to the pool instead of closing it.
+ * Idle connections are validated on borrow, evicted after the idle
+ * timeout (down to the minimum size), and connections held for longer
+ * than the leak threshold are reported together with the stack trace of
+ * the code that borrowed them, unless they were borrowed with
+ * {@link #borrowForSession()}. Each physical connection carries its own
+ * {@link StatementCache}; hit and miss counts are aggregated per pool.
+ */
+class ConnectionPool {
+  private static final Logger logger =
+      Logger.getLogger(ConnectionPool.class.getName());
+
+  private final String url;
+  private final String user;
+  private final String password;
+  private final int minSize;
+  private final int maxSize;
+  private final long idleTimeoutMillis;
+  private final long borrowTimeoutMillis;
+  private final long leakThresholdMillis;
+  private final int validationTimeoutSeconds;
+  private final int statementCacheSize;
+  private final LongAdder statementCacheHits = new LongAdder();
+  private final LongAdder statementCacheMisses = new LongAdder();
+
+  private final LinkedBlockingDeque<PooledConnection> idle =
+      new LinkedBlockingDeque<>();
+  private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+  private final Semaphore permits;
+  private final ScheduledExecutorService housekeeper;
+  private volatile boolean closed;
+
+  /**
+   * Creates a pool and opens the minimum number of connections.
+   *
+   * @param url                      The JDBC URL
+   * @param user                     The database user
+   * @param password                 The database password
+   * @param minSize                  Connections kept open even when idle
+   * @param maxSize                  Maximum connections borrowed at once
+   * @param idleTimeoutMillis        Idle time after which a connection is evicted
+   * @param borrowTimeoutMillis      How long {@link #borrow()} waits for a free slot
+   * @param leakThresholdMillis      Borrow time after which a leak is reported
+   * @param validationTimeoutSeconds Timeout passed to {@link Connection#isValid(int)}
+   * @param statementCacheSize       Prepared statements cached per connection,
+   *                                 or 0 to disable statement caching
+   */
+  ConnectionPool(String url, String user, String password, int minSize,
+      int maxSize, long idleTimeoutMillis, long borrowTimeoutMillis,
+      long leakThresholdMillis, int validationTimeoutSeconds,
+      int statementCacheSize) {
+    if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+      throw new IllegalArgumentException("Invalid pool size: min=" + minSize
+          + ", max=" + maxSize);
+    }
+    this.url = url;
+    this.user = user;
+    this.password = password;
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.borrowTimeoutMillis = borrowTimeoutMillis;
+    this.leakThresholdMillis = leakThresholdMillis;
+    this.validationTimeoutSeconds = validationTimeoutSeconds;
+    this.statementCacheSize = statementCacheSize;
+    this.permits = new Semaphore(maxSize, true);
+    this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "poisepms-pool-housekeeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    fillToMinimum();
+    long period = Math.max(1000L, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+    housekeeper.scheduleWithFixedDelay(this::housekeep, period, period,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Borrows a connection, waiting up to the borrow timeout for a free slot.
+   *
+   * @return A pooled connection; closing it returns it to the pool
+   * @throws SQLException if the pool is closed, the wait times out or a
+   *                      new connection cannot be opened
+   */
+  Connection borrow() throws SQLException {
+    return borrow(true);
+  }
+
+  /**
+   * Borrows a connection to hold for a whole interactive session, such as
+   * the menu. Holding it is expected, so it is never reported as a leak.
+   *
+   * @return A pooled connection; closing it returns it to the pool
+   * @throws SQLException if the pool is closed, the wait times out or a
+   *                      new connection cannot be opened
+   */
+  Connection borrowForSession() throws SQLException {
+    return borrow(false);
+  }
+
+  private Connection borrow(boolean leakChecked) throws SQLException {
+    if (closed) {
+      throw new SQLException("Connection pool is closed.");
+    }
+    long start = System.nanoTime();
+    try {
+      if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw Metrics.POOL_WAIT.failure(start, new SQLTimeoutException("Timed out after "
+            + borrowTimeoutMillis + " ms waiting for a database connection (max "
+            + maxSize + ")."));
+      }
+      Metrics.POOL_WAIT.success(start, null, 0);
+    } catch (InterruptedException e) {
+      Metrics.POOL_WAIT.failure(start, e);
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection.", e);
+    }
+
+    try {
+      PooledConnection pooled;
+      while ((pooled = idle.pollFirst()) != null) {
+        if (isUsable(pooled)) {
+          break;
+        }
+        discard(pooled);
+      }
+      if (pooled == null) {
+        pooled = open();
+      }
+      pooled.onBorrow(leakChecked);
+      borrowed.add(pooled);
+      return pooled.getProxy();
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a connection to the pool. Called when a borrowed proxy is closed.
+   *
+   * @param pooled The connection being returned
+   */
+  void release(PooledConnection pooled) {
+    if (!borrowed.remove(pooled)) {
+      return;
+    }
+    try {
+      if (closed || pooled.isBroken() || !pooled.reset()) {
+        discard(pooled);
+      } else {
+        // LIFO keeps the most recently used connections warm.
+        idle.offerFirst(pooled);
+      }
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Closes all idle connections and stops housekeeping. Borrowed
+   * connections are closed when they are returned.
+   */
+  void close() {
+    closed = true;
+    housekeeper.shutdownNow();
+    PooledConnection pooled;
+    while ((pooled = idle.pollFirst()) != null) {
+      discard(pooled);
+    }
+  }
+
+  /**
+   * Gets the number of connections currently borrowed.
+   *
+   * @return The active connection count
+   */
+  int getActiveCount() {
+    return borrowed.size();
+  }
+
+  /**
+   * Gets the number of open connections waiting in the pool.
+   *
+   * @return The idle connection count
+   */
+  int getIdleCount() {
+    return idle.size();
+  }
+
+  /**
+   * Gets the number of prepared statements served from a statement cache.
+   *
+   * @return The statement cache hit count
+   */
+  long getStatementCacheHits() {
+    return statementCacheHits.sum();
+  }
+
+  /**
+   * Gets the number of prepared statements that had to be prepared afresh.
+   *
+   * @return The statement cache miss count
+   */
+  long getStatementCacheMisses() {
+    return statementCacheMisses.sum();
+  }
+
+  private PooledConnection open() throws SQLException {
+    Connection physical = DriverManager.getConnection(url, user, password);
+    StatementCache cache = statementCacheSize > 0
+        ? new StatementCache(physical, statementCacheSize, statementCacheHits,
+            statementCacheMisses)
+        : null;
+    return new PooledConnection(this, physical, cache);
+  }
+
+  private boolean isUsable(PooledConnection pooled) {
+    try {
+      return !pooled.isBroken()
+          && pooled.getPhysical().isValid(validationTimeoutSeconds);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private void discard(PooledConnection pooled) {
+    try {
+      pooled.closePhysical();
+    } catch (SQLException e) {
+      logger.log(Level.FINE, "Error closing pooled connection.", e);
+    }
+  }
+
+  private void fillToMinimum() {
+    while (!closed && idle.size() + borrowed.size() < minSize) {
+      try {
+        idle.offerLast(open());
+      } catch (SQLException e) {
+        logger.warning("Could not pre-open pooled connection: " + e.getMessage());
+        return;
+      }
+    }
+  }
+
+  private void housekeep() {
+    try {
+      long now = System.currentTimeMillis();
+      Iterator<PooledConnection> it = idle.descendingIterator();
+      while (it.hasNext() && idle.size() + borrowed.size() > minSize) {
+        PooledConnection pooled = it.next();
+        if (now - pooled.getLastUsedMillis() > idleTimeoutMillis
+            && idle.remove(pooled)) {
+          discard(pooled);
+        }
+      }
+      for (PooledConnection pooled : borrowed) {
+        if (pooled.isLeakChecked()
+            && now - pooled.getBorrowedAtMillis() > leakThresholdMillis
+            && pooled.markLeakReported()) {
+          logger.log(Level.WARNING, "Possible connection leak: connection held for "
+              + (now - pooled.getBorrowedAtMillis()) + " ms.", pooled.getBorrowTrace());
+        }
+      }
+      fillToMinimum();
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Connection pool housekeeping failed.", e);
+    }
+  }
+}
@@ -1,41 +1,130 @@
 package poised;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Database utility class for managing database connections.
+ *
+ * <p>Connections are served from a shared {@link ConnectionPool}. Pool
+ * sizing and timeouts can be overridden with the {@code poisepms.pool.*}
+ * system properties.
  */
 public class Database {
   private static final Logger logger =
       Logger.getLogger(Database.class.getName());
-  private static final String URL = 
+  private static final String URL =
       "jdbc:mysql://localhost:3306/PoisePMS?useSSL=false"
-      + "&allowPublicKeyRetrieval=true";
-  private static final String USER = "otheruser"; 
-  private static final String PASSWORD = "swordfish"; 
+      + "&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true";
+  private static final String USER = "otheruser";
+  private static final String PASSWORD = "swordfish";
+
+  private static final int POOL_MIN_SIZE =
+      Integer.getInteger("poisepms.pool.minSize", 1);
+  private static final int POOL_MAX_SIZE =
+      Integer.getInteger("poisepms.pool.maxSize", 10);
+  private static final long POOL_IDLE_TIMEOUT_MS =
+      Long.getLong("poisepms.pool.idleTimeoutMs", 300_000L);
+  private static final long POOL_BORROW_TIMEOUT_MS =
+      Long.getLong("poisepms.pool.borrowTimeoutMs", 30_000L);
+  private static final long POOL_LEAK_THRESHOLD_MS =
+      Long.getLong("poisepms.pool.leakThresholdMs", 600_000L);
+  private static final int POOL_VALIDATION_TIMEOUT_S =
+      Integer.getInteger("poisepms.pool.validationTimeoutSeconds", 2);
+  private static final int STATEMENT_CACHE_SIZE =
+      Integer.getInteger("poisepms.pool.statementCacheSize", 64);
+
+  private static volatile ConnectionPool pool;
 
   /**
-   * Establishes and returns a connection to the database.
+   * Borrows a connection from the connection pool. Closing the returned
+   * connection gives it back to the pool.
    *
    * @return Connection object
    * @throws SQLException if a database access error occurs
    */
   public static Connection getConnection() throws SQLException {
-    try {
-      // Load the JDBC driver (optional for newer versions)
-      Class.forName("com.mysql.cj.jdbc.Driver");
-    } catch (ClassNotFoundException e) {
-      logger.log(Level.SEVERE, "JDBC Driver not found.", e);
-      throw new SQLException("JDBC Driver not found.", e);
-    }
-    return DriverManager.getConnection(URL, USER, PASSWORD);
+    return getPool().borrow();
+  }
+
+  /**
+   * Borrows a connection to hold for a whole interactive session. Unlike
+   * {@link #getConnection()}, holding it past
+   * {@code poisepms.pool.leakThresholdMs} is not reported as a leak.
+   *
+   * @return Connection object
+   * @throws SQLException if a database access error occurs
+   */
+  public static Connection getSessionConnection() throws SQLException {
+    return getPool().borrowForSession();
   }
-}
 
+  /**
+   * Closes the connection pool. Later calls to {@link #getConnection()}
+   * create a new pool.
+   */
+  public static synchronized void shutdown() {
+    if (pool != null) {
+      pool.close();
+      pool = null;
+    }
+  }
 
+  /**
+   * Gets the statement cache hit and miss counts for the shared pool.
+   *
+   * @return The statement cache statistics; evictions are not counted
+   */
+  public static CacheStats getStatementCacheStats() {
+    ConnectionPool current = pool;
+    if (current == null) {
+      return new CacheStats(0, 0, 0);
+    }
+    return new CacheStats(current.getStatementCacheHits(),
+        current.getStatementCacheMisses(), 0);
+  }
 
+  /**
+   * Gets the number of borrowed and idle connections in the shared pool.
+   *
+   * @return A two-element array of {active, idle}
+   */
+  public static int[] getPoolUsage() {
+    ConnectionPool current = pool;
+    if (current == null) {
+      return new int[] {0, 0};
+    }
+    return new int[] {current.getActiveCount(), current.getIdleCount()};
+  }
 
+  /**
+   * Gets the shared pool, creating it on first use.
+   *
+   * @return The connection pool
+   * @throws SQLException if the JDBC driver cannot be loaded
+   */
+  static ConnectionPool getPool() throws SQLException {
+    ConnectionPool current = pool;
+    if (current != null) {
+      return current;
+    }
+    synchronized (Database.class) {
+      if (pool == null) {
+        try {
+          // Load the JDBC driver (optional for newer versions)
+          Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+          logger.log(Level.SEVERE, "JDBC Driver not found.", e);
+          throw new SQLException("JDBC Driver not found.", e);
+        }
+        pool = new ConnectionPool(URL, USER, PASSWORD, POOL_MIN_SIZE,
+            POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MS, POOL_BORROW_TIMEOUT_MS,
+            POOL_LEAK_THRESHOLD_MS, POOL_VALIDATION_TIMEOUT_S,
+            STATEMENT_CACHE_SIZE);
+      }
+      return pool;
+    }
+  }
+}
@@ -0,0 +1,378 @@
+package poised;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * The DatasetGenerator class produces synthetic project portfolios for
+ * scale testing.
+ *
+ * <p>Building types and role assignments follow Zipf distributions, so a
+ * few types and a few busy people dominate as in real portfolios. Fees
+ * are log-normal per building type. Deadlines are skewed toward the near
+ * future with a long tail of overdue work, and projects past their
+ * deadline are far more likely to be finalised. Dates are drawn relative
+ * to a reference date rather than the clock. Every entity type draws
+ * from its own random stream derived from the seed, so the same seed and
+ * reference date always yield the same data and changing one role's
+ * count leaves the other roles' people unchanged. Projects pick their people from every
+ * role, so changing any count changes the projects.
+ */
+public class DatasetGenerator {
+  private static final Logger logger = Logger.getLogger(DatasetGenerator.class.getName());
+
+  private static final String[] BUILDING_TYPES =
+      {"House", "Apartment", "Townhouse", "Office", "Retail", "Warehouse", "School", "Clinic"};
+  // Median fee per building type, in the same order as BUILDING_TYPES
+  private static final double[] MEDIAN_FEES =
+      {8_500, 45_000, 15_000, 120_000, 60_000, 90_000, 250_000, 180_000};
+  private static final String[] FIRST_NAMES =
+      {"Sara", "Betty", "Dave", "Jack", "Adam", "John", "Sam", "Alice", "Bob", "Lee",
+       "Thandi", "Sipho", "Priya", "Ahmed", "Maria", "Chen", "Fatima", "Pieter", "Anele", "Grace"};
+  private static final String[] SURNAMES =
+      {"Day", "Parker", "Sacks", "Black", "Smith", "Shay", "Brown", "Grant", "Shaw", "Naidoo",
+       "Dlamini", "Botha", "Khumalo", "Patel", "van Wyk", "Mokoena", "Jacobs", "Nkosi", "Adams",
+       "Pillay"};
+  private static final String[] STREETS =
+      {"Main", "Church", "Long", "Oak", "River", "Station", "Beach", "Hill", "Park", "Market"};
+  private static final String[] STREET_TYPES = {"St", "Rd", "Ave", "Dr", "Lane"};
+
+  private static final String INSERT_PROJECT_SQL = "INSERT INTO Project (project_name, "
+      + "building_type, physical_address, erf_number, total_fee, amount_paid, deadline, "
+      + "completion_date, is_finalised, engineer_id, manager_id, architect_id, customer_id, "
+      + "contractor_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+  private final long seed;
+  private final int projectCount;
+  private final Map<PersonRole, Integer> roleCounts = new EnumMap<>(PersonRole.class);
+  private final LocalDate today;
+
+  /**
+   * Constructor for a generator.
+   *
+   * @param seed          The random seed; equal seeds and reference dates
+   *                      give equal datasets
+   * @param referenceDate The date deadlines and completion dates are
+   *                      drawn around, standing in for today
+   * @param projectCount  The number of projects to generate
+   * @param architects   The number of architects
+   * @param engineers    The number of structural engineers
+   * @param managers     The number of project managers
+   * @param contractors  The number of contractors
+   * @param customers    The number of customers
+   */
+  public DatasetGenerator(long seed, LocalDate referenceDate, int projectCount,
+      int architects, int engineers, int managers, int contractors, int customers) {
+    this.seed = seed;
+    this.today = referenceDate;
+    this.projectCount = projectCount;
+    roleCounts.put(PersonRole.ARCHITECT, Math.max(1, architects));
+    roleCounts.put(PersonRole.ENGINEER, Math.max(1, engineers));
+    roleCounts.put(PersonRole.PROJECT_MANAGER, Math.max(1, managers));
+    roleCounts.put(PersonRole.CONTRACTOR, Math.max(1, contractors));
+    roleCounts.put(PersonRole.CUSTOMER, Math.max(1, customers));
+  }
+
+  /**
+   * Creates a generator with role directory sizes scaled to the number of
+   * projects. Each size can be overridden with a system property
+   * (poisepms.generate.architects, .engineers, .managers, .contractors
+   * and .customers). The reference date is today unless
+   * poisepms.generate.referenceDate gives one as YYYY-MM-DD.
+   *
+   * @param seed         The random seed
+   * @param projectCount The number of projects to generate
+   * @return The generator
+   * @throws java.time.format.DateTimeParseException if the reference date
+   *                                                 property is invalid
+   */
+  public static DatasetGenerator scaledTo(long seed, int projectCount) {
+    String referenceDate = System.getProperty("poisepms.generate.referenceDate");
+    return scaledTo(seed, referenceDate != null ? LocalDate.parse(referenceDate)
+        : LocalDate.now(), projectCount);
+  }
+
+  /**
+   * Creates a generator with role directory sizes scaled to the number of
+   * projects, as {@link #scaledTo(long, int)} does, around a given date.
+   *
+   * @param seed          The random seed
+   * @param referenceDate The date deadlines are drawn around
+   * @param projectCount  The number of projects to generate
+   * @return The generator
+   */
+  public static DatasetGenerator scaledTo(long seed, LocalDate referenceDate,
+      int projectCount) {
+    return new DatasetGenerator(seed, referenceDate, projectCount,
+        Integer.getInteger("poisepms.generate.architects", Math.max(2, projectCount / 200)),
+        Integer.getInteger("poisepms.generate.engineers", Math.max(2, projectCount / 300)),
+        Integer.getInteger("poisepms.generate.managers", Math.max(2, projectCount / 150)),
+        Integer.getInteger("poisepms.generate.contractors", Math.max(2, projectCount / 100)),
+        Integer.getInteger("poisepms.generate.customers", Math.max(2, projectCount * 3 / 4)));
+  }
+
+  /**
+   * Generates the dataset into an in-memory engine.
+   *
+   * @param projects Loads each project, with its ID assigned, into a store
+   * @param persons  The person repository to load
+   */
+  public void generateInto(Consumer<Project> projects, InMemoryPersonRepository persons) {
+    Map<PersonRole, int[]> roleIds = new EnumMap<>(PersonRole.class);
+    Map<Integer, String> customerNames = new HashMap<>();
+    for (PersonRole role : PersonRole.values()) {
+      Random random = stream(role.ordinal() + 1);
+      int count = roleCounts.get(role);
+      int[] ids = new int[count];
+      for (int i = 0; i < count; i++) {
+        String name = personName(random);
+        ids[i] = persons.addToRole(role, name);
+        if (role == PersonRole.CUSTOMER) {
+          customerNames.put(ids[i], name);
+        }
+      }
+      roleIds.put(role, ids);
+    }
+    int[] nextId = {1};
+    generateProjects(roleIds, customerNames, (project, amountPaid) -> {
+      project.setId(nextId[0]++);
+      projects.accept(project);
+    });
+  }
+
+  /**
+   * Generates the dataset into the database with batched inserts,
+   * committing every chunk.
+   *
+   * @param connection The database connection
+   * @param chunkSize  The number of rows sent and committed together
+   * @throws SQLException if the data cannot be written
+   */
+  public void generateInto(Connection connection, int chunkSize) throws SQLException {
+    boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(false);
+    try {
+      Map<PersonRole, int[]> roleIds = new EnumMap<>(PersonRole.class);
+      Map<Integer, String> customerNames = new HashMap<>();
+      for (PersonRole role : PersonRole.values()) {
+        roleIds.put(role, insertRole(connection, role, chunkSize,
+            role == PersonRole.CUSTOMER ? customerNames : null));
+      }
+      try (PreparedStatement pstmt = connection.prepareStatement(INSERT_PROJECT_SQL)) {
+        int[] pending = {0};
+        SQLException[] failure = {null};
+        generateProjects(roleIds, customerNames, (project, amountPaid) -> {
+          if (failure[0] != null) {
+            return;
+          }
+          try {
+            bindProject(pstmt, project, amountPaid);
+            pstmt.addBatch();
+            if (++pending[0] == chunkSize) {
+              pstmt.executeBatch();
+              connection.commit();
+              pending[0] = 0;
+            }
+          } catch (SQLException e) {
+            failure[0] = e;
+          }
+        });
+        if (failure[0] != null) {
+          throw failure[0];
+        }
+        if (pending[0] > 0) {
+          pstmt.executeBatch();
+          connection.commit();
+        }
+      }
+      ProjectManager.invalidateRoleDirectories();
+      ProjectManager.invalidateSearchIndex();
+      ProjectManager.invalidateDeadlineIndex();
+      logger.info("Generated " + projectCount + " projects with seed " + seed + ".");
+    } catch (SQLException e) {
+      connection.rollback();
+      throw e;
+    } finally {
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
+  /**
+   * Receives each generated project.
+   */
+  private interface ProjectSink {
+    void accept(Project project, double amountPaid);
+  }
+
+  private void generateProjects(Map<PersonRole, int[]> roleIds,
+      Map<Integer, String> customerNames, ProjectSink sink) {
+    Random random = stream(100);
+    ZipfSampler typeSampler = new ZipfSampler(BUILDING_TYPES.length, 1.1);
+    Map<PersonRole, ZipfSampler> roleSamplers = new EnumMap<>(PersonRole.class);
+    for (PersonRole role : PersonRole.values()) {
+      // Customers rarely repeat; professionals have a few busy names
+      double exponent = role == PersonRole.CUSTOMER ? 0.3 : 0.9;
+      roleSamplers.put(role, new ZipfSampler(roleIds.get(role).length, exponent));
+    }
+
+    for (int i = 1; i <= projectCount; i++) {
+      int type = typeSampler.sample(random);
+      String buildingType = BUILDING_TYPES[type];
+      float totalFee = roundCents(MEDIAN_FEES[type] * Math.exp(0.6 * random.nextGaussian()));
+
+      LocalDate deadline;
+      if (random.nextDouble() < 0.3) {
+        deadline = today.minusDays(1 + (long) (-200 * Math.log(1 - random.nextDouble())));
+      } else {
+        deadline = today.plusDays((long) (-180 * Math.log(1 - random.nextDouble())));
+      }
+      boolean finalised = random.nextDouble() < (deadline.isBefore(today) ? 0.7 : 0.05);
+      LocalDate completionDate = null;
+      if (finalised) {
+        completionDate = deadline.plusDays(random.nextInt(91) - 60);
+        if (completionDate.isAfter(today)) {
+          completionDate = today;
+        }
+      }
+      double paidFraction = finalised
+          ? (random.nextDouble() < 0.85 ? 1.0 : 0.9 + 0.1 * random.nextDouble())
+          : 0.8 * random.nextDouble();
+
+      int architectId = pick(roleIds, roleSamplers, PersonRole.ARCHITECT, random);
+      int engineerId = pick(roleIds, roleSamplers, PersonRole.ENGINEER, random);
+      int managerId = pick(roleIds, roleSamplers, PersonRole.PROJECT_MANAGER, random);
+      int contractorId = pick(roleIds, roleSamplers, PersonRole.CONTRACTOR, random);
+      int customerId = pick(roleIds, roleSamplers, PersonRole.CUSTOMER, random);
+      String customerName = customerNames.get(customerId);
+      String surname = customerName.substring(customerName.indexOf(' ') + 1);
+
+      Project project = new Project(0, buildingType + " " + surname, buildingType,
+          address(random), totalFee, deadline, String.valueOf(10_000 + random.nextInt(90_000)),
+          architectId, engineerId, managerId, contractorId, customerId, finalised ? 1 : 0,
+          completionDate);
+      sink.accept(project, roundCents(totalFee * paidFraction));
+    }
+  }
+
+  private int[] insertRole(Connection connection, PersonRole role, int chunkSize,
+      Map<Integer, String> names) throws SQLException {
+    Random random = stream(role.ordinal() + 1);
+    int count = roleCounts.get(role);
+    List<String> generated = new ArrayList<>(count);
+    int[] ids = new int[count];
+    int assigned = 0;
+    String query = "INSERT INTO " + role.getTable()
+        + " (name, phone_number, email, physical_address) VALUES (?, ?, ?, ?)";
+    try (PreparedStatement pstmt = connection.prepareStatement(query,
+        Statement.RETURN_GENERATED_KEYS)) {
+      for (int i = 0; i < count; i++) {
+        String name = personName(random);
+        generated.add(name);
+        pstmt.setString(1, name);
+        pstmt.setString(2, String.format("0%09d", random.nextInt(1_000_000_000)));
+        pstmt.setString(3,
+            name.toLowerCase(Locale.ROOT).replace(" ", ".") + (i + 1) + "@example.com");
+        pstmt.setString(4, address(random));
+        pstmt.addBatch();
+        if ((i + 1) % chunkSize == 0 || i == count - 1) {
+          pstmt.executeBatch();
+          try (ResultSet keys = pstmt.getGeneratedKeys()) {
+            while (keys.next() && assigned < count) {
+              ids[assigned] = keys.getInt(1);
+              if (names != null) {
+                names.put(ids[assigned], generated.get(assigned));
+              }
+              assigned++;
+            }
+          }
+          connection.commit();
+        }
+      }
+    }
+    if (assigned != count) {
+      throw new SQLException("Could not read generated keys for " + role.getTable() + ".");
+    }
+    return ids;
+  }
+
+  private static void bindProject(PreparedStatement pstmt, Project project, double amountPaid)
+      throws SQLException {
+    pstmt.setString(1, project.getProjectName());
+    pstmt.setString(2, project.getBuildingType());
+    pstmt.setString(3, project.getPhysicalAddress());
+    pstmt.setString(4, project.getErfNumber());
+    pstmt.setFloat(5, project.getTotalFee());
+    pstmt.setDouble(6, amountPaid);
+    pstmt.setDate(7, java.sql.Date.valueOf(project.getDeadline()));
+    pstmt.setDate(8, project.getCompletionDate() != null
+        ? java.sql.Date.valueOf(project.getCompletionDate()) : null);
+    pstmt.setInt(9, project.isFinalised());
+    pstmt.setInt(10, project.getEngineerId());
+    pstmt.setInt(11, project.getManagerId());
+    pstmt.setInt(12, project.getArchitectId());
+    pstmt.setInt(13, project.getCustomerId());
+    pstmt.setInt(14, project.getContractorId());
+  }
+
+  private static int pick(Map<PersonRole, int[]> roleIds, Map<PersonRole, ZipfSampler> samplers,
+      PersonRole role, Random random) {
+    return roleIds.get(role)[samplers.get(role).sample(random)];
+  }
+
+  private Random stream(int salt) {
+    return new Random(seed * 0x9E3779B97F4A7C15L + salt);
+  }
+
+  private static String personName(Random random) {
+    return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+        + SURNAMES[random.nextInt(SURNAMES.length)];
+  }
+
+  private static String address(Random random) {
+    return (1 + random.nextInt(999)) + " " + STREETS[random.nextInt(STREETS.length)] + " "
+        + STREET_TYPES[random.nextInt(STREET_TYPES.length)];
+  }
+
+  private static float roundCents(double amount) {
+    return (float) (Math.round(amount * 100) / 100.0);
+  }
+
+  /**
+   * Samples ranks 0..n-1 with probability proportional to 1/(rank+1)^s.
+   */
+  private static final class ZipfSampler {
+    private final double[] cumulative;
+
+    ZipfSampler(int n, double exponent) {
+      cumulative = new double[n];
+      double total = 0;
+      for (int i = 0; i < n; i++) {
+        total += 1 / Math.pow(i + 1, exponent);
+        cumulative[i] = total;
+      }
+      for (int i = 0; i < n; i++) {
+        cumulative[i] /= total;
+      }
+    }
+
+    int sample(Random random) {
+      int index = Arrays.binarySearch(cumulative, random.nextDouble());
+      int rank = index >= 0 ? index : -index - 1;
+      return Math.min(rank, cumulative.length - 1);
+    }
+  }
+}
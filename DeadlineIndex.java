@@ -0,0 +1,237 @@
+package poised;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index of unfinished projects ordered by deadline.
+ *
+ * <p>Finalised projects are not held, so "past due", "due soon" and "next
+ * deadlines" are range reads over a sorted map whose size is the number
+ * of open projects, not the size of the project table. Projects without
+ * a deadline are tracked as unfinished but never fall due.
+ */
+public class DeadlineIndex {
+  private final TreeMap<LocalDate, Set<Integer>> byDeadline = new TreeMap<>();
+  private final TreeMap<Integer, LocalDate> unfinished = new TreeMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Indexes a project if it is unfinished, or removes it if it has been
+   * finalised.
+   *
+   * @param project The project
+   */
+  public void put(Project project) {
+    if (project.isFinalised() != 0) {
+      remove(project.getId());
+      return;
+    }
+    put(project.getId(), project.getDeadline());
+  }
+
+  /**
+   * Indexes an unfinished project.
+   *
+   * @param projectId The ID of the project
+   * @param deadline  The project's deadline, or null if it has none
+   */
+  public void put(int projectId, LocalDate deadline) {
+    lock.writeLock().lock();
+    try {
+      if (unfinished.containsKey(projectId)) {
+        unlink(projectId, unfinished.get(projectId));
+      }
+      unfinished.put(projectId, deadline);
+      if (deadline != null) {
+        byDeadline.computeIfAbsent(deadline, k -> new TreeSet<>()).add(projectId);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a project, for example because it was finalised or deleted.
+   *
+   * @param projectId The ID of the project
+   * @return true if the project was indexed
+   */
+  public boolean remove(int projectId) {
+    lock.writeLock().lock();
+    try {
+      if (!unfinished.containsKey(projectId)) {
+        return false;
+      }
+      unlink(projectId, unfinished.remove(projectId));
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes every project due before a date.
+   *
+   * @param date Projects due strictly before this date are removed
+   * @return The IDs removed
+   */
+  public List<Integer> removeDueBefore(LocalDate date) {
+    lock.writeLock().lock();
+    try {
+      List<Integer> removed = new ArrayList<>();
+      NavigableMap<LocalDate, Set<Integer>> due = byDeadline.headMap(date, false);
+      for (Set<Integer> ids : due.values()) {
+        for (Integer projectId : ids) {
+          unfinished.remove(projectId);
+          removed.add(projectId);
+        }
+      }
+      due.clear();
+      return removed;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes every project.
+   */
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      byDeadline.clear();
+      unfinished.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Checks whether a project is indexed as unfinished.
+   *
+   * @param projectId The ID of the project
+   * @return true if the project is unfinished
+   */
+  public boolean contains(int projectId) {
+    lock.readLock().lock();
+    try {
+      return unfinished.containsKey(projectId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the number of unfinished projects.
+   *
+   * @return The project count
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return unfinished.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets every unfinished project.
+   *
+   * @return The project IDs in ID order
+   */
+  public List<Integer> getUnfinished() {
+    lock.readLock().lock();
+    try {
+      return new ArrayList<>(unfinished.keySet());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the projects due before a date, for example today's past due
+   * projects.
+   *
+   * @param date Projects due strictly before this date are returned
+   * @return The project IDs, earliest deadline first
+   */
+  public List<Integer> getDueBefore(LocalDate date) {
+    lock.readLock().lock();
+    try {
+      return flatten(byDeadline.headMap(date, false), Integer.MAX_VALUE);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the projects due in a date range.
+   *
+   * @param from  The first date of the range
+   * @param until The last date of the range
+   * @return The project IDs, earliest deadline first
+   */
+  public List<Integer> getDueBetween(LocalDate from, LocalDate until) {
+    lock.readLock().lock();
+    try {
+      if (until.isBefore(from)) {
+        return new ArrayList<>();
+      }
+      return flatten(byDeadline.subMap(from, true, until, true), Integer.MAX_VALUE);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the next projects to fall due on or after a date.
+   *
+   * @param from  The first date to consider
+   * @param count The maximum number of projects
+   * @return The project IDs, earliest deadline first
+   */
+  public List<Integer> getNextDue(LocalDate from, int count) {
+    lock.readLock().lock();
+    try {
+      return flatten(byDeadline.tailMap(from, true), count);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void unlink(int projectId, LocalDate deadline) {
+    if (deadline == null) {
+      return;
+    }
+    Set<Integer> ids = byDeadline.get(deadline);
+    if (ids != null) {
+      ids.remove(projectId);
+      if (ids.isEmpty()) {
+        byDeadline.remove(deadline);
+      }
+    }
+  }
+
+  private static List<Integer> flatten(Map<LocalDate, Set<Integer>> range, int limit) {
+    List<Integer> ids = new ArrayList<>();
+    for (Set<Integer> sameDay : range.values()) {
+      for (Integer projectId : sameDay) {
+        if (ids.size() == limit) {
+          return ids;
+        }
+        ids.add(projectId);
+      }
+    }
+    return ids;
+  }
+}
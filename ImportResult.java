@@ -0,0 +1,104 @@
+package poised;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ImportResult class summarises a bulk project import: how many rows
+ * were read and imported, and why each rejected row failed.
+ */
+public class ImportResult {
+  private int rowsRead;
+  private int rowsImported;
+  private final List<RowError> errors = new ArrayList<>();
+
+  /**
+   * Records that a row was read from the input.
+   */
+  void rowRead() {
+    rowsRead++;
+  }
+
+  /**
+   * Records that rows were committed to the database.
+   *
+   * @param count The number of rows committed
+   */
+  void rowsImported(int count) {
+    rowsImported += count;
+  }
+
+  /**
+   * Records a rejected row.
+   *
+   * @param line    The input line the row started on
+   * @param message Why the row was rejected
+   */
+  void addError(int line, String message) {
+    errors.add(new RowError(line, message));
+  }
+
+  /**
+   * Gets the number of rows read from the input.
+   *
+   * @return The row count
+   */
+  public int getRowsRead() {
+    return rowsRead;
+  }
+
+  /**
+   * Gets the number of rows committed to the database.
+   *
+   * @return The imported row count
+   */
+  public int getRowsImported() {
+    return rowsImported;
+  }
+
+  /**
+   * Gets the rejected rows in input order.
+   *
+   * @return The row errors
+   */
+  public List<RowError> getErrors() {
+    return Collections.unmodifiableList(errors);
+  }
+
+  /**
+   * A row that could not be imported.
+   */
+  public static class RowError {
+    private final int line;
+    private final String message;
+
+    RowError(int line, String message) {
+      this.line = line;
+      this.message = message;
+    }
+
+    /**
+     * Gets the input line the row started on.
+     *
+     * @return The line number, starting at 1
+     */
+    public int getLine() {
+      return line;
+    }
+
+    /**
+     * Gets the reason the row was rejected.
+     *
+     * @return The error message
+     */
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String toString() {
+      return "Line " + line + ": " + message;
+    }
+  }
+}
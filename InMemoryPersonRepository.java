@@ -0,0 +1,136 @@
+package poised;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrent in-memory PersonRepository holding the five role
+ * directories and the person table.
+ */
+public class InMemoryPersonRepository implements PersonRepository {
+  private final Map<PersonRole, ConcurrentSkipListMap<Integer, String>> directories =
+      new EnumMap<>(PersonRole.class);
+  private final Map<PersonRole, Map<String, Integer>> idsByName =
+      new EnumMap<>(PersonRole.class);
+  private final Map<PersonRole, AtomicInteger> nextRoleIds = new EnumMap<>(PersonRole.class);
+  private final Map<Integer, Person> persons = new ConcurrentHashMap<>();
+  private final AtomicInteger nextPersonId = new AtomicInteger(1);
+
+  /**
+   * Constructor for an empty repository.
+   */
+  public InMemoryPersonRepository() {
+    for (PersonRole role : PersonRole.values()) {
+      directories.put(role, new ConcurrentSkipListMap<>());
+      idsByName.put(role, new ConcurrentHashMap<>());
+      nextRoleIds.put(role, new AtomicInteger(1));
+    }
+  }
+
+  /**
+   * Adds a person to a role directory.
+   *
+   * @param role The role
+   * @param name The person's name
+   * @return The ID assigned within the role directory
+   */
+  public int addToRole(PersonRole role, String name) {
+    int id = nextRoleIds.get(role).getAndIncrement();
+    loadRole(role, id, name);
+    return id;
+  }
+
+  /**
+   * Loads a role directory entry that already has an ID.
+   *
+   * @param role The role
+   * @param id   The ID within the role directory
+   * @param name The person's name
+   */
+  public void loadRole(PersonRole role, int id, String name) {
+    directories.get(role).put(id, name);
+    if (name != null) {
+      idsByName.get(role).merge(name.toLowerCase(Locale.ROOT), id, Math::min);
+    }
+    nextRoleIds.get(role).accumulateAndGet(id + 1, Math::max);
+  }
+
+  /**
+   * Loads a person who already has an ID, replacing any person with the
+   * same ID.
+   *
+   * @param person The person to load
+   */
+  public void load(Person person) {
+    Person stored = copy(person);
+    stored.setVersion(Math.max(1, person.getVersion()));
+    persons.put(person.getId(), stored);
+    nextPersonId.accumulateAndGet(person.getId() + 1, Math::max);
+  }
+
+  @Override
+  public Map<Integer, String> listByRole(PersonRole role) {
+    return Collections.unmodifiableMap(new LinkedHashMap<>(directories.get(role)));
+  }
+
+  @Override
+  public int findIdByName(PersonRole role, String name) {
+    Integer id = name == null ? null : idsByName.get(role).get(name.toLowerCase(Locale.ROOT));
+    return id != null ? id : -1;
+  }
+
+  @Override
+  public Person findById(int personId) {
+    return copy(persons.get(personId));
+  }
+
+  @Override
+  public boolean add(Person person) {
+    int personId = nextPersonId.getAndIncrement();
+    person.setId(personId);
+    person.setVersion(1);
+    persons.put(personId, copy(person));
+    return true;
+  }
+
+  @Override
+  public boolean update(Person person) {
+    int version = person.getVersion();
+    Person stored = persons.computeIfPresent(person.getId(), (personId, previous) -> {
+      if (version > 0 && version != previous.getVersion()) {
+        throw new ConcurrentUpdateException("Person " + personId
+            + " was changed by someone else.", copy(previous));
+      }
+      Person updated = copy(person);
+      updated.setVersion(previous.getVersion() + 1);
+      return updated;
+    });
+    if (stored == null) {
+      return false;
+    }
+    person.setVersion(stored.getVersion());
+    return true;
+  }
+
+  @Override
+  public boolean delete(int personId) {
+    return persons.remove(personId) != null;
+  }
+
+  private static Person copy(Person person) {
+    if (person == null) {
+      return null;
+    }
+    Person copy = new Person(person.getId(), person.getName(), person.getPhoneNumber(),
+        person.getEmail());
+    copy.setVersion(person.getVersion());
+    copy.markClean();
+    return copy;
+  }
+}
@@ -0,0 +1,329 @@
+package poised;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrent in-memory ProjectRepository.
+ *
+ * <p>Projects are held in a primary index ordered by ID, with secondary
+ * indexes on project name, a {@link DeadlineIndex} of unfinished projects
+ * and a {@link ProjectSearchIndex} over name, address and ERF number.
+ * Reads of the ID and name indexes are lock-free; writes are serialised
+ * so the indexes are updated together. Projects are copied on the way in and
+ * out, so callers can never modify indexed state.
+ */
+public class InMemoryProjectRepository implements ProjectRepository {
+  private final ConcurrentSkipListMap<Integer, Project> byId = new ConcurrentSkipListMap<>();
+  private final Map<String, Set<Integer>> byName = new ConcurrentHashMap<>();
+  private final DeadlineIndex deadlineIndex = new DeadlineIndex();
+  private final ProjectSearchIndex searchIndex = new ProjectSearchIndex();
+  private final AtomicInteger nextId = new AtomicInteger(1);
+  private final Object writeLock = new Object();
+
+  /**
+   * Loads a project that already has an ID, replacing any project with
+   * the same ID. Used to populate the repository from another source.
+   *
+   * @param project The project to load
+   */
+  public void load(Project project) {
+    synchronized (writeLock) {
+      Project previous = byId.get(project.getId());
+      if (previous != null) {
+        unindex(previous);
+      }
+      Project stored = copy(project);
+      stored.setVersion(Math.max(1, project.getVersion()));
+      store(stored);
+      nextId.accumulateAndGet(project.getId() + 1, Math::max);
+    }
+  }
+
+  /**
+   * Gets the number of projects held.
+   *
+   * @return The project count
+   */
+  public int size() {
+    return byId.size();
+  }
+
+  @Override
+  public Project findById(int projectId) {
+    return copy(byId.get(projectId));
+  }
+
+  @Override
+  public ProjectPage findPage(int afterId, int pageSize) {
+    List<Project> projects = new ArrayList<>(pageSize);
+    boolean hasMore = false;
+    for (Project project : byId.tailMap(afterId, false).values()) {
+      if (projects.size() == pageSize) {
+        hasMore = true;
+        break;
+      }
+      projects.add(copy(project));
+    }
+    int lastId = projects.isEmpty() ? afterId : projects.get(projects.size() - 1).getId();
+    return new ProjectPage(projects, lastId, hasMore);
+  }
+
+  @Override
+  public List<Project> findByIdOrName(String input) {
+    Set<Integer> ids = new TreeSet<>();
+    try {
+      ids.add(Integer.parseInt(input));
+    } catch (NumberFormatException e) {
+      // Not an ID; match by name only
+    }
+    Set<Integer> named = byName.get(input);
+    if (named != null) {
+      ids.addAll(named);
+    }
+    return resolve(ids);
+  }
+
+  @Override
+  public List<Project> search(String query, int limit) {
+    return resolve(searchIndex.search(query, limit));
+  }
+
+  @Override
+  public List<Project> findUnfinished() {
+    return resolve(deadlineIndex.getUnfinished());
+  }
+
+  @Override
+  public List<Project> findPastDue() {
+    return resolve(deadlineIndex.getDueBefore(LocalDate.now()));
+  }
+
+  @Override
+  public List<Project> findDueWithin(int days) {
+    LocalDate today = LocalDate.now();
+    return resolve(deadlineIndex.getDueBetween(today, today.plusDays(days)));
+  }
+
+  @Override
+  public List<Project> findNextDue(int count) {
+    return resolve(deadlineIndex.getNextDue(LocalDate.now(), count));
+  }
+
+  @Override
+  public List<Integer> findIdsDueBefore(LocalDate date) {
+    return deadlineIndex.getDueBefore(date);
+  }
+
+  @Override
+  public List<Integer> findIdsCompletedBefore(LocalDate date) {
+    List<Integer> completed = new ArrayList<>();
+    for (Project project : byId.values()) {
+      if (project.isFinalised() == 1 && project.getCompletionDate() != null
+          && project.getCompletionDate().isBefore(date)) {
+        completed.add(project.getId());
+      }
+    }
+    return completed;
+  }
+
+  /**
+   * Computes the portfolio report. Amounts paid are not held in memory,
+   * so every fee counts as outstanding.
+   *
+   * @return The report
+   */
+  @Override
+  public PortfolioReport report() {
+    return new PortfolioAnalytics(LocalDate.now()).analyze(this);
+  }
+
+  @Override
+  public int add(Project project) {
+    synchronized (writeLock) {
+      int projectId = nextId.getAndIncrement();
+      Project stored = copy(project);
+      stored.setId(projectId);
+      stored.setVersion(1);
+      store(stored);
+      project.setId(projectId);
+      project.setVersion(1);
+      return projectId;
+    }
+  }
+
+  @Override
+  public boolean update(Project project) {
+    synchronized (writeLock) {
+      Project previous = byId.get(project.getId());
+      if (previous == null) {
+        return false;
+      }
+      if (project.getVersion() > 0 && project.getVersion() != previous.getVersion()) {
+        throw new ConcurrentUpdateException("Project " + project.getId()
+            + " was changed by someone else.", copy(previous));
+      }
+      // As with the UPDATE statement, only the fields set since the
+      // project was read are written
+      Project stored = copy(previous);
+      stored.copyFields(project, project.getChangedFields());
+      stored.setVersion(previous.getVersion() + 1);
+      unindex(previous);
+      store(stored);
+      project.setVersion(stored.getVersion());
+      project.markClean();
+      return true;
+    }
+  }
+
+  @Override
+  public boolean finalizeProject(int projectId, LocalDate completionDate) {
+    synchronized (writeLock) {
+      Project previous = byId.get(projectId);
+      if (previous == null || previous.isFinalised() != 0) {
+        return false;
+      }
+      Project finalized = copy(previous);
+      finalized.setFinalised(1);
+      finalized.setCompletionDate(completionDate);
+      finalized.setVersion(previous.getVersion() + 1);
+      unindex(previous);
+      store(finalized);
+      return true;
+    }
+  }
+
+  /**
+   * Deletes a project. Persons are not linked to projects in memory, so
+   * there are no associated persons to remove.
+   *
+   * @param projectId The ID of the project
+   * @return true if the project was deleted
+   */
+  @Override
+  public boolean delete(int projectId) {
+    synchronized (writeLock) {
+      Project previous = byId.remove(projectId);
+      if (previous == null) {
+        return false;
+      }
+      unindex(previous);
+      return true;
+    }
+  }
+
+  @Override
+  public int finalizeAll(Collection<Integer> projectIds, LocalDate completionDate) {
+    synchronized (writeLock) {
+      int finalized = 0;
+      for (Integer projectId : projectIds) {
+        if (deadlineIndex.contains(projectId) && finalizeProject(projectId, completionDate)) {
+          finalized++;
+        }
+      }
+      return finalized;
+    }
+  }
+
+  @Override
+  public int finalizeDueBefore(LocalDate date, LocalDate completionDate) {
+    synchronized (writeLock) {
+      return finalizeAll(findIdsDueBefore(date), completionDate);
+    }
+  }
+
+  @Override
+  public int deleteAll(Collection<Integer> projectIds) {
+    synchronized (writeLock) {
+      int deleted = 0;
+      for (Integer projectId : projectIds) {
+        if (delete(projectId)) {
+          deleted++;
+        }
+      }
+      return deleted;
+    }
+  }
+
+  @Override
+  public int deleteCompletedBefore(LocalDate date) {
+    synchronized (writeLock) {
+      return deleteAll(findIdsCompletedBefore(date));
+    }
+  }
+
+  private void store(Project project) {
+    int projectId = project.getId();
+    byId.put(projectId, project);
+    searchIndex.put(project);
+    if (project.getProjectName() != null) {
+      byName.computeIfAbsent(project.getProjectName(), k -> new ConcurrentSkipListSet<>())
+          .add(projectId);
+    }
+    deadlineIndex.put(project);
+  }
+
+  private void unindex(Project project) {
+    int projectId = project.getId();
+    searchIndex.remove(projectId);
+    removeFromIndex(byName, project.getProjectName(), projectId);
+    deadlineIndex.remove(projectId);
+  }
+
+  private static <K> void removeFromIndex(Map<K, Set<Integer>> index, K key, int projectId) {
+    if (key == null) {
+      return;
+    }
+    Set<Integer> ids = index.get(key);
+    if (ids != null) {
+      ids.remove(projectId);
+      if (ids.isEmpty()) {
+        index.remove(key, ids);
+      }
+    }
+  }
+
+  private List<Project> resolve(Collection<Integer> ids) {
+    List<Project> projects = new ArrayList<>(ids.size());
+    for (Integer projectId : ids) {
+      Project project = byId.get(projectId);
+      if (project != null) {
+        projects.add(copy(project));
+      }
+    }
+    return projects;
+  }
+
+  private static Project copy(Project project) {
+    if (project == null) {
+      return null;
+    }
+    Project copy = new Project(
+        project.getId(),
+        project.getProjectName(),
+        project.getBuildingType(),
+        project.getPhysicalAddress(),
+        project.getTotalFee(),
+        project.getDeadline(),
+        project.getErfNumber(),
+        project.getArchitectId(),
+        project.getEngineerId(),
+        project.getManagerId(),
+        project.getContractorId(),
+        project.getCustomerId(),
+        project.isFinalised(),
+        project.getCompletionDate());
+    copy.setVersion(project.getVersion());
+    copy.markClean();
+    return copy;
+  }
+}
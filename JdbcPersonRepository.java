@@ -0,0 +1,57 @@
+package poised;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * A PersonRepository backed by the MySQL database through the
+ * {@link ProjectManager} JDBC operations.
+ */
+public class JdbcPersonRepository implements PersonRepository {
+  private final Connection connection;
+
+  /**
+   * Constructor for a repository that runs every operation on one connection.
+   *
+   * @param connection The database connection
+   */
+  public JdbcPersonRepository(Connection connection) {
+    this.connection = connection;
+  }
+
+  @Override
+  public Map<Integer, String> listByRole(PersonRole role) {
+    return ProjectManager.getPersons(connection, role);
+  }
+
+  @Override
+  public int findIdByName(PersonRole role, String name) {
+    return ProjectManager.getPersonIdByName(connection, role.getLabel(), name);
+  }
+
+  @Override
+  public Person findById(int personId) {
+    return ProjectManager.getPersonById(connection, personId);
+  }
+
+  @Override
+  public boolean add(Person person) {
+    try {
+      ProjectManager.addPerson(connection, person);
+      return true;
+    } catch (SQLException e) {
+      return false; // Already reported by ProjectManager
+    }
+  }
+
+  @Override
+  public boolean update(Person person) {
+    return ProjectManager.updatePerson(connection, person);
+  }
+
+  @Override
+  public boolean delete(int personId) {
+    return ProjectManager.deletePerson(connection, personId);
+  }
+}
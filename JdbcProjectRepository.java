@@ -0,0 +1,127 @@
+package poised;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A ProjectRepository backed by the MySQL database through the
+ * {@link ProjectManager} JDBC operations.
+ */
+public class JdbcProjectRepository implements ProjectRepository {
+  private final Connection connection;
+
+  /**
+   * Constructor for a repository that runs every operation on one connection.
+   *
+   * @param connection The database connection
+   */
+  public JdbcProjectRepository(Connection connection) {
+    this.connection = connection;
+  }
+
+  @Override
+  public Project findById(int projectId) {
+    return ProjectManager.getProjectById(connection, projectId);
+  }
+
+  @Override
+  public ProjectPage findPage(int afterId, int pageSize) {
+    return ProjectManager.getProjectPage(connection, afterId, pageSize);
+  }
+
+  @Override
+  public List<Project> findByIdOrName(String input) {
+    return ProjectManager.getProjectsByIdOrName(connection, input);
+  }
+
+  /**
+   * Loads the form in one round trip. The role directories come from the
+   * same database, so the person repository is not consulted.
+   */
+  @Override
+  public ProjectForm loadForm(int projectId, PersonRepository persons) {
+    return ProjectManager.getProjectForm(connection, projectId);
+  }
+
+  @Override
+  public List<Project> search(String query, int limit) {
+    return ProjectManager.searchProjects(connection, query, limit);
+  }
+
+  @Override
+  public List<Project> findUnfinished() {
+    return ProjectManager.getUnfinishedProjects(connection);
+  }
+
+  @Override
+  public List<Project> findPastDue() {
+    return ProjectManager.getPastDueProjects(connection);
+  }
+
+  @Override
+  public List<Project> findDueWithin(int days) {
+    return ProjectManager.getProjectsDueWithin(connection, days);
+  }
+
+  @Override
+  public List<Project> findNextDue(int count) {
+    return ProjectManager.getNextDueProjects(connection, count);
+  }
+
+  @Override
+  public List<Integer> findIdsDueBefore(LocalDate date) {
+    return ProjectManager.getProjectIdsDueBefore(connection, date);
+  }
+
+  @Override
+  public List<Integer> findIdsCompletedBefore(LocalDate date) {
+    return ProjectManager.getProjectIdsCompletedBefore(connection, date);
+  }
+
+  @Override
+  public PortfolioReport report() {
+    return ProjectManager.getPortfolioReport(connection);
+  }
+
+  @Override
+  public int add(Project project) {
+    return ProjectManager.addProject(connection, project);
+  }
+
+  @Override
+  public boolean update(Project project) {
+    return ProjectManager.updateProject(connection, project);
+  }
+
+  @Override
+  public boolean finalizeProject(int projectId, LocalDate completionDate) {
+    return ProjectManager.finalizeProject(connection, projectId, completionDate);
+  }
+
+  @Override
+  public boolean delete(int projectId) {
+    return ProjectManager.deleteProjectAndAssociatedPersons(connection, projectId);
+  }
+
+  @Override
+  public int finalizeAll(Collection<Integer> projectIds, LocalDate completionDate) {
+    return ProjectManager.finalizeProjects(connection, projectIds, completionDate);
+  }
+
+  @Override
+  public int finalizeDueBefore(LocalDate date, LocalDate completionDate) {
+    return ProjectManager.finalizeProjectsDueBefore(connection, date, completionDate);
+  }
+
+  @Override
+  public int deleteAll(Collection<Integer> projectIds) {
+    return ProjectManager.deleteProjectsAndAssociatedPersons(connection, projectIds);
+  }
+
+  @Override
+  public int deleteCompletedBefore(LocalDate date) {
+    return ProjectManager.deleteProjectsCompletedBefore(connection, date);
+  }
+}
@@ -0,0 +1,105 @@
+package poised;
+
+import java.sql.Connection;
+import java.util.Map;
+
+/**
+ * A PersonRepository that saves writes to a {@link WriteJournal} when the
+ * database cannot take them, in the same way as
+ * {@link JournalingProjectRepository}. Offline, the role directories come
+ * from the last snapshot and only persons added in this or an earlier
+ * offline session can be looked up by ID.
+ */
+public class JournalingPersonRepository implements PersonRepository {
+  private final PersonRepository delegate;
+  private final InMemoryPersonRepository local;
+  private final Connection connection;
+  private final WriteJournal journal;
+
+  /**
+   * Constructor for working offline.
+   *
+   * @param local   The in-memory copy of the role directories
+   * @param journal The journal to record writes in
+   */
+  public JournalingPersonRepository(InMemoryPersonRepository local, WriteJournal journal) {
+    this.delegate = local;
+    this.local = local;
+    this.connection = null;
+    this.journal = journal;
+  }
+
+  /**
+   * Constructor for working online.
+   *
+   * @param connection The database connection
+   * @param journal    The journal to record writes in if the connection is lost
+   */
+  public JournalingPersonRepository(Connection connection, WriteJournal journal) {
+    this.delegate = new JdbcPersonRepository(connection);
+    this.local = null;
+    this.connection = connection;
+    this.journal = journal;
+  }
+
+  @Override
+  public Map<Integer, String> listByRole(PersonRole role) {
+    return delegate.listByRole(role);
+  }
+
+  @Override
+  public int findIdByName(PersonRole role, String name) {
+    return delegate.findIdByName(role, name);
+  }
+
+  @Override
+  public Person findById(int personId) {
+    return delegate.findById(personId);
+  }
+
+  @Override
+  public boolean add(Person person) {
+    if (local == null) {
+      boolean added = delegate.add(person);
+      if (!failedOnline(added)) {
+        return added;
+      }
+    }
+    person.setId(journal.nextLocalId());
+    if (!journal.addPerson(person)) {
+      return false;
+    }
+    if (local != null) {
+      local.load(person);
+    }
+    JournalingProjectRepository.saved(journal);
+    return true;
+  }
+
+  @Override
+  public boolean update(Person person) {
+    Person pending = new Person(person);
+    boolean updated = delegate.update(person);
+    if (!shouldJournal(updated)) {
+      return updated;
+    }
+    return JournalingProjectRepository.saved(journal, journal.updatePerson(pending));
+  }
+
+  @Override
+  public boolean delete(int personId) {
+    boolean deleted = delegate.delete(personId);
+    if (!shouldJournal(deleted)) {
+      return deleted;
+    }
+    return JournalingProjectRepository.saved(journal, journal.deletePerson(personId));
+  }
+
+  private boolean shouldJournal(boolean succeeded) {
+    return local != null ? succeeded : failedOnline(succeeded);
+  }
+
+  private boolean failedOnline(boolean succeeded) {
+    return !succeeded && JournalingProjectRepository.connectionLost(connection);
+  }
+}
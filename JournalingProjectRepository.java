@@ -0,0 +1,259 @@
+package poised;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A ProjectRepository that saves writes to a {@link WriteJournal} when
+ * the database cannot take them.
+ *
+ * <p>Offline, reads and writes go to an in-memory copy of the last
+ * snapshot and every write that succeeds there is also journaled; added
+ * projects get negative local IDs until they are replayed. Online, writes
+ * go to the database and are journaled only if they failed because the
+ * connection was lost. Writes by date are resolved to project IDs first
+ * and journaled as those IDs, so a replay changes the projects the user
+ * saw rather than whatever matches the date by then.
+ */
+public class JournalingProjectRepository implements ProjectRepository {
+  private final ProjectRepository delegate;
+  private final InMemoryProjectRepository local;
+  private final Connection connection;
+  private final WriteJournal journal;
+
+  /**
+   * Constructor for working offline.
+   *
+   * @param local   The in-memory copy of the projects
+   * @param journal The journal to record writes in
+   */
+  public JournalingProjectRepository(InMemoryProjectRepository local, WriteJournal journal) {
+    this.delegate = local;
+    this.local = local;
+    this.connection = null;
+    this.journal = journal;
+  }
+
+  /**
+   * Constructor for working online.
+   *
+   * @param connection The database connection
+   * @param journal    The journal to record writes in if the connection is lost
+   */
+  public JournalingProjectRepository(Connection connection, WriteJournal journal) {
+    this.delegate = new JdbcProjectRepository(connection);
+    this.local = null;
+    this.connection = connection;
+    this.journal = journal;
+  }
+
+  @Override
+  public Project findById(int projectId) {
+    return delegate.findById(projectId);
+  }
+
+  @Override
+  public ProjectPage findPage(int afterId, int pageSize) {
+    return delegate.findPage(afterId, pageSize);
+  }
+
+  @Override
+  public List<Project> findByIdOrName(String input) {
+    return delegate.findByIdOrName(input);
+  }
+
+  @Override
+  public ProjectForm loadForm(int projectId, PersonRepository persons) {
+    return delegate.loadForm(projectId, persons);
+  }
+
+  @Override
+  public List<Project> search(String query, int limit) {
+    return delegate.search(query, limit);
+  }
+
+  @Override
+  public List<Project> findUnfinished() {
+    return delegate.findUnfinished();
+  }
+
+  @Override
+  public List<Project> findPastDue() {
+    return delegate.findPastDue();
+  }
+
+  @Override
+  public List<Project> findDueWithin(int days) {
+    return delegate.findDueWithin(days);
+  }
+
+  @Override
+  public List<Project> findNextDue(int count) {
+    return delegate.findNextDue(count);
+  }
+
+  @Override
+  public List<Integer> findIdsDueBefore(LocalDate date) {
+    return delegate.findIdsDueBefore(date);
+  }
+
+  @Override
+  public List<Integer> findIdsCompletedBefore(LocalDate date) {
+    return delegate.findIdsCompletedBefore(date);
+  }
+
+  @Override
+  public PortfolioReport report() {
+    return delegate.report();
+  }
+
+  @Override
+  public int add(Project project) {
+    if (local == null) {
+      int projectId = delegate.add(project);
+      if (!failedOnline(projectId > 0)) {
+        return projectId;
+      }
+    }
+    project.setId(journal.nextLocalId());
+    if (!journal.addProject(project)) {
+      return -1;
+    }
+    if (local != null) {
+      local.load(project);
+    }
+    saved(journal);
+    return project.getId();
+  }
+
+  @Override
+  public boolean update(Project project) {
+    Project pending = new Project(project);
+    boolean updated = delegate.update(project);
+    if (!shouldJournal(updated)) {
+      return updated;
+    }
+    if (!journal.updateProject(pending)) {
+      return false;
+    }
+    saved(journal);
+    return true;
+  }
+
+  @Override
+  public boolean finalizeProject(int projectId, LocalDate completionDate) {
+    boolean finalized = delegate.finalizeProject(projectId, completionDate);
+    if (!shouldJournal(finalized)) {
+      return finalized;
+    }
+    return saved(journal, journal.finalizeProject(projectId, completionDate));
+  }
+
+  @Override
+  public boolean delete(int projectId) {
+    boolean deleted = delegate.delete(projectId);
+    if (!shouldJournal(deleted)) {
+      return deleted;
+    }
+    return saved(journal, journal.deleteProject(projectId));
+  }
+
+  @Override
+  public int finalizeAll(Collection<Integer> projectIds, LocalDate completionDate) {
+    int finalized = delegate.finalizeAll(projectIds, completionDate);
+    if (!shouldJournal(finalized >= 0)) {
+      return finalized;
+    }
+    int count = journaledCount(finalized, projectIds.size());
+    return saved(journal, journal.finalizeProjects(projectIds, completionDate)) ? count : -1;
+  }
+
+  @Override
+  public int finalizeDueBefore(LocalDate date, LocalDate completionDate) {
+    List<Integer> projectIds = delegate.findIdsDueBefore(date);
+    return projectIds != null ? finalizeAll(projectIds, completionDate) : -1;
+  }
+
+  @Override
+  public int deleteAll(Collection<Integer> projectIds) {
+    int deleted = delegate.deleteAll(projectIds);
+    if (!shouldJournal(deleted >= 0)) {
+      return deleted;
+    }
+    int count = journaledCount(deleted, projectIds.size());
+    return saved(journal, journal.deleteProjects(projectIds)) ? count : -1;
+  }
+
+  @Override
+  public int deleteCompletedBefore(LocalDate date) {
+    List<Integer> projectIds = delegate.findIdsCompletedBefore(date);
+    return projectIds != null ? deleteAll(projectIds) : -1;
+  }
+
+  /**
+   * Gets the row count to report for a journaled bulk write. Offline the
+   * local copy has run the write and its count is exact; online the write
+   * never reached the database, so only an estimate can be given.
+   *
+   * @param count    The count the delegate returned
+   * @param estimate The count to report online
+   */
+  private int journaledCount(int count, int estimate) {
+    return local != null ? count : estimate;
+  }
+
+  /**
+   * Decides whether to journal a write the delegate has run: every
+   * successful write offline, and online only one that failed because the
+   * connection was lost.
+   */
+  private boolean shouldJournal(boolean succeeded) {
+    return local != null ? succeeded : failedOnline(succeeded);
+  }
+
+  private boolean failedOnline(boolean succeeded) {
+    return !succeeded && connectionLost(connection);
+  }
+
+  /**
+   * Checks whether a failed write failed because the connection is gone,
+   * rather than because the database refused it.
+   *
+   * @param connection The connection the write was sent on
+   * @return true if the connection no longer answers
+   */
+  static boolean connectionLost(Connection connection) {
+    try {
+      return !connection.isValid(5);
+    } catch (SQLException e) {
+      return true;
+    }
+  }
+
+  /**
+   * Tells the user a write was journaled.
+   *
+   * @param journal The journal
+   */
+  static void saved(WriteJournal journal) {
+    System.out.printf("Saved offline (%d changes waiting). They will be sent when the "
+        + "database is reachable again.%n", journal.size());
+  }
+
+  /**
+   * Tells the user a write was journaled, if it was.
+   *
+   * @param journal The journal
+   * @param saved   Whether the journal entry was saved
+   * @return The saved flag
+   */
+  static boolean saved(WriteJournal journal, boolean saved) {
+    if (saved) {
+      saved(journal);
+    }
+    return saved;
+  }
+}
@@ -0,0 +1,293 @@
+package poised;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the line-oriented formats PoisePMS reads and
+ * writes. Objects parse to {@link LinkedHashMap}, arrays to {@link List},
+ * numbers to {@link Long} or {@link Double}. Objects and arrays may be
+ * nested at most {@value #MAX_DEPTH} deep.
+ */
+public final class Json {
+  private static final int MAX_DEPTH = 64;
+
+  private final String text;
+  private int pos;
+  private int depth;
+
+  private Json(String text) {
+    this.text = text;
+  }
+
+  /**
+   * Parses a single JSON object.
+   *
+   * @param text The JSON text
+   * @return The parsed object
+   * @throws IllegalArgumentException if the text is not a JSON object
+   */
+  @SuppressWarnings("unchecked")
+  public static Map<String, Object> parseObject(String text) {
+    Object value = parse(text);
+    if (!(value instanceof Map)) {
+      throw new IllegalArgumentException("Expected a JSON object.");
+    }
+    return (Map<String, Object>) value;
+  }
+
+  /**
+   * Parses a single JSON value.
+   *
+   * @param text The JSON text
+   * @return The parsed value
+   * @throws IllegalArgumentException if the text is not valid JSON
+   */
+  public static Object parse(String text) {
+    Json parser = new Json(text);
+    Object value = parser.readValue();
+    parser.skipWhitespace();
+    if (parser.pos != text.length()) {
+      throw parser.error("Unexpected trailing characters");
+    }
+    return value;
+  }
+
+  /**
+   * Appends a string to a builder as a quoted JSON string.
+   *
+   * @param out   The builder to append to
+   * @param value The string, or null for a JSON null
+   * @return The builder
+   */
+  public static StringBuilder quote(StringBuilder out, String value) {
+    if (value == null) {
+      return out.append("null");
+    }
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            out.append(String.format("\\u%04x", (int) c));
+          } else {
+            out.append(c);
+          }
+      }
+    }
+    return out.append('"');
+  }
+
+  /**
+   * Gets a field as a string, converting numbers and booleans.
+   *
+   * @param object The parsed object
+   * @param key    The field name
+   * @return The field as a string, or null if it is missing or null
+   */
+  public static String getString(Map<String, Object> object, String key) {
+    Object value = object.get(key);
+    return value == null ? null : value.toString();
+  }
+
+  private Object readValue() {
+    skipWhitespace();
+    if (pos >= text.length()) {
+      throw error("Unexpected end of input");
+    }
+    char c = text.charAt(pos);
+    switch (c) {
+      case '{':
+        return readObject();
+      case '[':
+        return readArray();
+      case '"':
+        return readString();
+      case 't':
+        expectWord("true");
+        return Boolean.TRUE;
+      case 'f':
+        expectWord("false");
+        return Boolean.FALSE;
+      case 'n':
+        expectWord("null");
+        return null;
+      default:
+        return readNumber();
+    }
+  }
+
+  private Map<String, Object> readObject() {
+    enter();
+    Map<String, Object> object = new LinkedHashMap<>();
+    pos++;
+    skipWhitespace();
+    if (peek() == '}') {
+      pos++;
+      depth--;
+      return object;
+    }
+    while (true) {
+      skipWhitespace();
+      if (peek() != '"') {
+        throw error("Expected field name");
+      }
+      String key = readString();
+      skipWhitespace();
+      expect(':');
+      object.put(key, readValue());
+      skipWhitespace();
+      if (peek() == ',') {
+        pos++;
+      } else {
+        expect('}');
+        depth--;
+        return object;
+      }
+    }
+  }
+
+  private List<Object> readArray() {
+    enter();
+    List<Object> array = new ArrayList<>();
+    pos++;
+    skipWhitespace();
+    if (peek() == ']') {
+      pos++;
+      depth--;
+      return array;
+    }
+    while (true) {
+      array.add(readValue());
+      skipWhitespace();
+      if (peek() == ',') {
+        pos++;
+      } else {
+        expect(']');
+        depth--;
+        return array;
+      }
+    }
+  }
+
+  private String readString() {
+    pos++;
+    StringBuilder out = new StringBuilder();
+    while (pos < text.length()) {
+      char c = text.charAt(pos++);
+      if (c == '"') {
+        return out.toString();
+      }
+      if (c != '\\') {
+        out.append(c);
+        continue;
+      }
+      if (pos >= text.length()) {
+        break;
+      }
+      char escaped = text.charAt(pos++);
+      switch (escaped) {
+        case 'n':
+          out.append('\n');
+          break;
+        case 'r':
+          out.append('\r');
+          break;
+        case 't':
+          out.append('\t');
+          break;
+        case 'b':
+          out.append('\b');
+          break;
+        case 'f':
+          out.append('\f');
+          break;
+        case 'u':
+          if (pos + 4 > text.length()) {
+            throw error("Invalid unicode escape");
+          }
+          out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+          pos += 4;
+          break;
+        default:
+          out.append(escaped);
+      }
+    }
+    throw error("Unterminated string");
+  }
+
+  private Object readNumber() {
+    int start = pos;
+    boolean integral = true;
+    while (pos < text.length()) {
+      char c = text.charAt(pos);
+      if (c == '.' || c == 'e' || c == 'E') {
+        integral = false;
+      } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+        break;
+      }
+      pos++;
+    }
+    String number = text.substring(start, pos);
+    try {
+      if (integral) {
+        return Long.parseLong(number);
+      }
+      return Double.parseDouble(number);
+    } catch (NumberFormatException e) {
+      throw error("Invalid value");
+    }
+  }
+
+  private void expectWord(String word) {
+    if (!text.startsWith(word, pos)) {
+      throw error("Invalid value");
+    }
+    pos += word.length();
+  }
+
+  private void expect(char c) {
+    if (peek() != c) {
+      throw error("Expected '" + c + "'");
+    }
+    pos++;
+  }
+
+  private char peek() {
+    return pos < text.length() ? text.charAt(pos) : '\0';
+  }
+
+  private void skipWhitespace() {
+    while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+      pos++;
+    }
+  }
+
+  private void enter() {
+    if (++depth > MAX_DEPTH) {
+      throw error("Nested more than " + MAX_DEPTH + " levels deep");
+    }
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(message + " at position " + pos + ".");
+  }
+}
@@ -0,0 +1,137 @@
+package poised;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds.
+ *
+ * <p>Values are counted in log-linear buckets in the style of HdrHistogram:
+ * each power of two is split into {@value #SUB_BUCKETS} equal buckets, so
+ * any recorded value is reported within 1/{@value #SUB_BUCKETS} of itself.
+ * Values below {@value #SUB_BUCKETS} ns are exact and values above about
+ * 18 minutes are counted in the last bucket. Recording is one array
+ * increment and a few adders, with no locks and no allocation, so many
+ * threads can record at once.
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_VALUE_BITS = 40;
+  private static final int BUCKET_COUNT = SUB_BUCKETS * (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1);
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records one value.
+   *
+   * @param nanos The latency in nanoseconds; negative values count as 0
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    buckets.incrementAndGet(indexOf(value));
+    count.increment();
+    total.add(value);
+    if (value > max.get()) {
+      max.accumulateAndGet(value, Math::max);
+    }
+  }
+
+  /**
+   * Gets the number of values recorded.
+   *
+   * @return The count
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Gets the mean of the recorded values.
+   *
+   * @return The mean in nanoseconds, or 0 if nothing was recorded
+   */
+  public double getMean() {
+    long n = count.sum();
+    return n == 0 ? 0 : total.sum() / (double) n;
+  }
+
+  /**
+   * Gets the largest value recorded.
+   *
+   * @return The maximum in nanoseconds
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Gets the value below which the given percentage of recorded values
+   * fall. Buckets are read one at a time while other threads record, so
+   * the result reflects roughly, not exactly, one moment.
+   *
+   * @param percentile The percentile, from 0 to 100
+   * @return The highest value in the bucket holding that percentile, in
+   *         nanoseconds, or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long[] counts = new long[BUCKET_COUNT];
+    long n = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+      n += counts[i];
+    }
+    if (n == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * n));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(highestValueIn(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Clears the histogram. Values recorded while it is being cleared may
+   * be partly kept.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    total.reset();
+    max.set(0);
+  }
+
+  /**
+   * Finds the bucket for a value. Below {@value #SUB_BUCKETS} the value is
+   * its own bucket; above it, the top five bits of the value pick the
+   * bucket within its power of two.
+   */
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int index = (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    return Math.min(index, BUCKET_COUNT - 1);
+  }
+
+  static long highestValueIn(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = (index >>> SUB_BUCKET_BITS) - 1;
+    long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,170 @@
+package poised;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The registry of {@link OperationMetrics}, one per named database
+ * operation, plus the wait for a pooled connection.
+ *
+ * <p>Each operation is registered as an MXBean named
+ * {@code poised:type=Operation,name=<operation>} unless
+ * {@code poisepms.metrics.jmx} is false. A text table of every operation
+ * that has been called can be logged periodically with
+ * {@link #startDumping(long)}.
+ */
+public final class Metrics {
+  private static final Logger logger = Logger.getLogger(Metrics.class.getName());
+  private static final boolean JMX =
+      Boolean.parseBoolean(System.getProperty("poisepms.metrics.jmx", "true"));
+
+  private static final ConcurrentMap<String, OperationMetrics> operations =
+      new ConcurrentSkipListMap<>();
+  private static ScheduledExecutorService dumper;
+
+  /** Time spent waiting for a connection from the pool. */
+  public static final OperationMetrics POOL_WAIT = operation("pool.wait");
+
+  private Metrics() {
+  }
+
+  /**
+   * Gets the metrics for an operation, creating and registering them on
+   * first use. Callers keep the result in a static field rather than
+   * looking it up on every call.
+   *
+   * @param name The operation name
+   * @return The metrics
+   */
+  public static OperationMetrics operation(String name) {
+    OperationMetrics existing = operations.get(name);
+    if (existing != null) {
+      return existing;
+    }
+    OperationMetrics created = new OperationMetrics(name);
+    existing = operations.putIfAbsent(name, created);
+    if (existing != null) {
+      return existing;
+    }
+    if (JMX) {
+      register(created);
+    }
+    return created;
+  }
+
+  /**
+   * Gets the metrics of every operation, ordered by name.
+   *
+   * @return The operations
+   */
+  public static List<OperationMetrics> getOperations() {
+    return new ArrayList<>(operations.values());
+  }
+
+  /**
+   * Formats every operation that has been called as a text table.
+   *
+   * @return The table, with latencies in milliseconds
+   */
+  public static String format() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format(Locale.ROOT, "%-36s %9s %7s %10s %9s %9s %9s %9s %9s%n",
+        "operation", "count", "errors", "rows", "mean", "p50", "p95", "p99", "max"));
+    for (OperationMetrics operation : operations.values()) {
+      if (operation.getCount() == 0) {
+        continue;
+      }
+      sb.append(String.format(Locale.ROOT,
+          "%-36s %9d %7d %10d %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+          operation.getName(), operation.getCount(), operation.getErrors(),
+          operation.getRows(), operation.getMeanMillis(), operation.getP50Millis(),
+          operation.getP95Millis(), operation.getP99Millis(), operation.getMaxMillis()));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Appends every operation that has been called as a JSON object keyed
+   * by operation name.
+   *
+   * @param out The buffer to append to
+   */
+  static void appendJson(StringBuilder out) {
+    out.append('{');
+    boolean first = true;
+    for (OperationMetrics operation : operations.values()) {
+      if (operation.getCount() == 0) {
+        continue;
+      }
+      if (!first) {
+        out.append(',');
+      }
+      first = false;
+      Json.quote(out, operation.getName());
+      out.append(":{\"count\":").append(operation.getCount());
+      out.append(",\"errors\":").append(operation.getErrors());
+      out.append(",\"rows\":").append(operation.getRows());
+      out.append(",\"mean_ms\":").append(operation.getMeanMillis());
+      out.append(",\"p50_ms\":").append(operation.getP50Millis());
+      out.append(",\"p95_ms\":").append(operation.getP95Millis());
+      out.append(",\"p99_ms\":").append(operation.getP99Millis());
+      out.append(",\"max_ms\":").append(operation.getMaxMillis());
+      out.append('}');
+    }
+    out.append('}');
+  }
+
+  /**
+   * Logs the metrics table every {@code periodSeconds} on a background
+   * thread, and once more when dumping is stopped.
+   *
+   * @param periodSeconds The time between dumps; 0 or less does nothing
+   */
+  public static synchronized void startDumping(long periodSeconds) {
+    if (periodSeconds <= 0 || dumper != null) {
+      return;
+    }
+    dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "metrics-dump");
+      thread.setDaemon(true);
+      return thread;
+    });
+    dumper.scheduleAtFixedRate(Metrics::dump, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops the periodic dump started by {@link #startDumping(long)},
+   * logging the table a last time.
+   */
+  public static synchronized void stopDumping() {
+    if (dumper != null) {
+      dumper.shutdownNow();
+      dumper = null;
+      dump();
+    }
+  }
+
+  private static void dump() {
+    logger.info("Operation metrics (ms):\n" + format());
+  }
+
+  private static void register(OperationMetrics operation) {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(operation,
+          new ObjectName("poised:type=Operation,name=" + operation.getName()));
+    } catch (JMException e) {
+      logger.log(Level.WARNING, "Could not register metrics for " + operation.getName(), e);
+    }
+  }
+}
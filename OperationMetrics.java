@@ -0,0 +1,129 @@
+package poised;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error count, rows touched and a latency histogram for one
+ * database operation. Instances come from {@link Metrics#operation}.
+ *
+ * <p>An operation takes {@code System.nanoTime()} on entry and passes it to
+ * {@link #success} or {@link #failure} on the way out. Both return the
+ * value given to them, so they can wrap a {@code return} statement.
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+  private final String name;
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder rows = new LongAdder();
+
+  OperationMetrics(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Records a call that completed.
+   *
+   * @param start  The {@code System.nanoTime()} when the call started
+   * @param result The value the call returns
+   * @param count  The number of rows read or written
+   * @return The result
+   */
+  public <T> T success(long start, T result, long count) {
+    latency.record(System.nanoTime() - start);
+    if (count > 0) {
+      rows.add(count);
+    }
+    return result;
+  }
+
+  /**
+   * Records a call that failed.
+   *
+   * @param start  The {@code System.nanoTime()} when the call started
+   * @param result The value the call returns to signal the failure
+   * @return The result
+   */
+  public <T> T failure(long start, T result) {
+    latency.record(System.nanoTime() - start);
+    errors.increment();
+    return result;
+  }
+
+  /**
+   * Records a call timed elsewhere.
+   *
+   * @param nanos  The time the call took
+   * @param failed Whether the call failed
+   */
+  public void record(long nanos, boolean failed) {
+    latency.record(nanos);
+    if (failed) {
+      errors.increment();
+    }
+  }
+
+  /**
+   * Gets the latency histogram.
+   *
+   * @return The histogram, in nanoseconds
+   */
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public long getCount() {
+    return latency.getCount();
+  }
+
+  @Override
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  @Override
+  public long getRows() {
+    return rows.sum();
+  }
+
+  @Override
+  public double getMeanMillis() {
+    return millis(latency.getMean());
+  }
+
+  @Override
+  public double getP50Millis() {
+    return millis(latency.getValueAtPercentile(50));
+  }
+
+  @Override
+  public double getP95Millis() {
+    return millis(latency.getValueAtPercentile(95));
+  }
+
+  @Override
+  public double getP99Millis() {
+    return millis(latency.getValueAtPercentile(99));
+  }
+
+  @Override
+  public double getMaxMillis() {
+    return millis(latency.getMax());
+  }
+
+  @Override
+  public void reset() {
+    latency.reset();
+    errors.reset();
+    rows.reset();
+  }
+
+  static double millis(double nanos) {
+    return Math.round(nanos / 1_000) / 1_000.0;
+  }
+}
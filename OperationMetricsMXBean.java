@@ -0,0 +1,30 @@
+package poised;
+
+/**
+ * The JMX view of one {@link OperationMetrics}. Latencies are in
+ * milliseconds.
+ */
+public interface OperationMetricsMXBean {
+  String getName();
+
+  long getCount();
+
+  long getErrors();
+
+  long getRows();
+
+  double getMeanMillis();
+
+  double getP50Millis();
+
+  double getP95Millis();
+
+  double getP99Millis();
+
+  double getMaxMillis();
+
+  /**
+   * Clears the counts and latencies.
+   */
+  void reset();
+}
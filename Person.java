@@ -1,5 +1,9 @@
 package poised;
 
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
 /**
  * The Person class represents an individual involved in a project,
  * such as an architect, engineer, project manager, contractor, or
@@ -10,6 +14,10 @@ public class Person {
   private String name;  
   private String phoneNumber; 
   private String email;  
+  // Fields set since the person was loaded; null if it was never loaded
+  private EnumSet<Field> changedFields;
+  // Row version the person was read at; 0 if they were never stored
+  private int version;
 
   /**
    * Constructor for creating a new person.
@@ -39,6 +47,17 @@ public class Person {
     this.email = email;
   }
 
+  /**
+   * Constructor for copying a person, including which fields changed.
+   *
+   * @param other The person to copy
+   */
+  public Person(Person other) {
+    this(other.id, other.name, other.phoneNumber, other.email);
+    this.changedFields = other.changedFields != null ? EnumSet.copyOf(other.changedFields) : null;
+    this.version = other.version;
+  }
+
   // Getter and Setter methods
 
   public int getId() {
@@ -54,6 +73,7 @@ public class Person {
   }
 
   public void setName(String name) {
+    markChanged(Field.NAME, !Objects.equals(this.name, name));
     this.name = name;
   }
 
@@ -62,6 +82,7 @@ public class Person {
   }
 
   public void setPhoneNumber(String phoneNumber) {
+    markChanged(Field.PHONE, !Objects.equals(this.phoneNumber, phoneNumber));
     this.phoneNumber = phoneNumber;
   }
 
@@ -70,7 +91,90 @@ public class Person {
   }
 
   public void setEmail(String email) {
+    markChanged(Field.EMAIL, !Objects.equals(this.email, email));
     this.email = email;
   }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public void setVersion(int version) {
+    this.version = version;
+  }
+
+  /**
+   * Reapplies this person's changes on top of a newer copy, for retrying
+   * an update that lost a race with another user.
+   *
+   * @param current The person as they are now stored
+   * @return The merged person, at the stored version
+   */
+  public Person rebase(Person current) {
+    Person merged = new Person(current);
+    merged.markClean();
+    for (Field field : getChangedFields()) {
+      switch (field) {
+        case NAME:
+          merged.setName(name);
+          break;
+        case PHONE:
+          merged.setPhoneNumber(phoneNumber);
+          break;
+        default:
+          merged.setEmail(email);
+          break;
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Starts tracking changes, for example once the person has been read
+   * from storage or written back to it.
+   */
+  public void markClean() {
+    changedFields = EnumSet.noneOf(Field.class);
+  }
+
+  /**
+   * Gets the fields set to a new value since the person was loaded. A
+   * person who was never loaded reports every field as changed.
+   *
+   * @return The changed fields
+   */
+  public Set<Field> getChangedFields() {
+    return changedFields != null ? EnumSet.copyOf(changedFields) : EnumSet.allOf(Field.class);
+  }
+
+  private void markChanged(Field field, boolean differs) {
+    if (changedFields != null && differs) {
+      changedFields.add(field);
+    }
+  }
+
+  /**
+   * The fields an update can write, with their column names.
+   */
+  public enum Field {
+    NAME("name"),
+    PHONE("phone"),
+    EMAIL("email");
+
+    private final String column;
+
+    Field(String column) {
+      this.column = column;
+    }
+
+    /**
+     * Gets the column in the person table.
+     *
+     * @return The column name
+     */
+    public String getColumn() {
+      return column;
+    }
+  }
 }
 
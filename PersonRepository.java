@@ -0,0 +1,99 @@
+package poised;
+
+import java.util.Map;
+import java.util.function.BinaryOperator;
+
+/**
+ * The PersonRepository interface abstracts how persons and the role
+ * directories are stored, so the application can run against the MySQL
+ * database or an in-memory engine.
+ */
+public interface PersonRepository {
+
+  /**
+   * Retrieves every person in a role directory.
+   *
+   * @param role The role
+   * @return The names keyed by ID in ID order, or null if an error occurred
+   */
+  Map<Integer, String> listByRole(PersonRole role);
+
+  /**
+   * Looks up a person's ID in a role directory by name.
+   *
+   * @param role The role
+   * @param name The person's name
+   * @return The person's ID, or -1 if not found
+   */
+  int findIdByName(PersonRole role, String name);
+
+  /**
+   * Retrieves a person by ID.
+   *
+   * @param personId The ID of the person
+   * @return The person, or null if not found
+   */
+  Person findById(int personId);
+
+  /**
+   * Adds a new person.
+   *
+   * @param person The person to add
+   * @return true if the person was added
+   */
+  boolean add(Person person);
+
+  /**
+   * Updates an existing person. A person read from the repository is only
+   * written if nobody else has updated them since.
+   *
+   * @param person The updated person
+   * @return true if the person was updated
+   * @throws ConcurrentUpdateException if the person was changed since they
+   *                                   were read
+   */
+  boolean update(Person person);
+
+  /**
+   * Updates an existing person, merging and retrying when someone else
+   * changed them first, as {@link ProjectRepository#update(Project,
+   * BinaryOperator)} does for projects.
+   *
+   * @param person The updated person; on success it holds what was stored
+   * @param merge  Builds the next attempt from the update and the stored person,
+   *               for example {@link Person#rebase}
+   * @return true if the person was updated
+   * @throws ConcurrentUpdateException if the merge gave up or the person
+   *                                   kept changing
+   */
+  default boolean update(Person person, BinaryOperator<Person> merge) {
+    Person attempt = person;
+    for (int tries = 1; ; tries++) {
+      try {
+        boolean updated = update(attempt);
+        if (updated && attempt != person) {
+          person.setName(attempt.getName());
+          person.setPhoneNumber(attempt.getPhoneNumber());
+          person.setEmail(attempt.getEmail());
+          person.setVersion(attempt.getVersion());
+          person.markClean();
+        }
+        return updated;
+      } catch (ConcurrentUpdateException e) {
+        Person next = tries < 3 ? merge.apply(attempt, e.getCurrent(Person.class)) : null;
+        if (next == null) {
+          throw e;
+        }
+        attempt = next;
+      }
+    }
+  }
+
+  /**
+   * Deletes a person.
+   *
+   * @param personId The ID of the person
+   * @return true if the person was deleted
+   */
+  boolean delete(int personId);
+}
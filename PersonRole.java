@@ -0,0 +1,93 @@
+package poised;
+
+import java.util.Locale;
+
+/**
+ * The PersonRole enum lists the roles a person can fill on a project and
+ * the directory table each role is stored in.
+ */
+public enum PersonRole {
+  ARCHITECT("Architect", "Architect", "architect_id"),
+  ENGINEER("Engineer", "StructuralEngineer", "engineer_id"),
+  PROJECT_MANAGER("Project Manager", "ProjectManager", "manager_id"),
+  CONTRACTOR("Contractor", "Contractor", "contractor_id"),
+  CUSTOMER("Customer", "Customer", "customer_id");
+
+  private final String label;
+  private final String table;
+  private final String idColumn;
+
+  PersonRole(String label, String table, String idColumn) {
+    this.label = label;
+    this.table = table;
+    this.idColumn = idColumn;
+  }
+
+  /**
+   * Gets the display label used in menus (e.g., "Project Manager").
+   *
+   * @return The role label
+   */
+  public String getLabel() {
+    return label;
+  }
+
+  /**
+   * Gets the name of the directory table for this role.
+   *
+   * @return The table name
+   */
+  public String getTable() {
+    return table;
+  }
+
+  /**
+   * Gets the ID column of the directory table. The project table uses the
+   * same column name for its foreign key.
+   *
+   * @return The ID column name
+   */
+  public String getIdColumn() {
+    return idColumn;
+  }
+
+  /**
+   * Gets the name used for the role in URLs and batch commands, the label
+   * in lower case with spaces as hyphens (e.g., "project-manager").
+   *
+   * @return The role slug
+   */
+  public String getSlug() {
+    return label.toLowerCase(Locale.ROOT).replace(' ', '-');
+  }
+
+  /**
+   * Looks up a role by its slug.
+   *
+   * @param slug The role slug (e.g., "project-manager")
+   * @return The matching role, or null if the slug is unknown
+   */
+  public static PersonRole fromSlug(String slug) {
+    for (PersonRole role : values()) {
+      if (role.getSlug().equalsIgnoreCase(slug)) {
+        return role;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Looks up a role by its display label.
+   *
+   * @param label The role label (e.g., "Architect")
+   * @return The matching role, or null if the label is unknown
+   */
+  public static PersonRole fromLabel(String label) {
+    for (PersonRole role : values()) {
+      if (role.label.equalsIgnoreCase(label)) {
+        return role;
+      }
+    }
+    return null;
+  }
+}
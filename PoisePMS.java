@@ -1,30 +1,187 @@
 package poised;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * The PoisePMS class is responsible for handling user interactions
- * and delegating project management operations.
+ * and delegating project management operations to the configured
+ * project and person repositories.
  */
 public class PoisePMS {
 
   private static final Logger logger = Logger.getLogger(PoisePMS.class.getName());
+  private static final int PAGE_SIZE = Integer.getInteger("poisepms.pageSize", 20);
+  private static final int DUE_SOON_DAYS = Integer.getInteger("poisepms.dueSoonDays", 7);
+  private static final long SNAPSHOT_REFRESH_SECONDS =
+      Long.getLong("poisepms.snapshot.refreshSeconds", 300);
+  private static final long METRICS_DUMP_SECONDS =
+      Long.getLong("poisepms.metrics.dumpSeconds", 0);
   private static Scanner scanner;
+  private static ProjectRepository projects;
+  private static PersonRepository persons;
 
   public static void main(String[] args) {
+    Metrics.startDumping(METRICS_DUMP_SECONDS);
+    if (CommandLine.isCommand(args)) {
+      System.exit(CommandLine.run(args));
+    }
     logger.info("Starting PoisePMS Application.");
-    scanner = new Scanner(System.in);
 
-    try (Connection connection = Database.getConnection()) {
+    try (SnapshotStore snapshots = new SnapshotStore(SnapshotStore.defaultFile())) {
+      showSnapshotProjects(snapshots.getSnapshot());
+      WriteJournal journal = openJournal(WriteJournal.defaultFile());
+      Connection connection = connect();
+      if (connection != null) {
+        try (Connection c = connection) {
+          if (journal != null) {
+            replayJournal(journal, c);
+          }
+          snapshots.startRefreshing(SNAPSHOT_REFRESH_SECONDS);
+          if (journal != null) {
+            runMenu(new JournalingProjectRepository(c, journal),
+                new JournalingPersonRepository(c, journal));
+          } else {
+            runMenu(new JdbcProjectRepository(c), new JdbcPersonRepository(c));
+          }
+        } catch (SQLException e) {
+          logger.log(Level.WARNING, "Error closing the database connection.", e);
+        }
+      } else if (journal != null && !runOffline(snapshots, journal)) {
+        System.out.println("Cannot work offline: no readable snapshot at "
+            + SnapshotStore.defaultFile() + ". Connect to the database once to create one.");
+      }
+    } finally {
+      Database.shutdown();
+      Metrics.stopDumping();
+      logger.info("PoisePMS Application terminated.");
+    }
+  }
+
+  /**
+   * Connects to the database, reporting a failure to the user.
+   *
+   * @return The connection, or null if the database is unreachable
+   */
+  private static Connection connect() {
+    try {
+      Connection connection = Database.getSessionConnection();
       logger.info("Connected to the database successfully.");
+      return connection;
+    } catch (SQLException e) {
+      logger.log(Level.SEVERE, "Database connection error.", e);
+      System.out.println("Failed to connect to the database. "
+          + "Please check the configuration.");
+      return null;
+    }
+  }
+
+  /**
+   * Opens the offline write journal, reporting a failure to the user.
+   *
+   * @param file The journal file
+   * @return The journal, or null if it exists but cannot be read
+   */
+  static WriteJournal openJournal(Path file) {
+    try {
+      return new WriteJournal(file);
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error reading the offline journal.", e);
+      System.out.println("Error reading the offline journal " + file
+          + "; changes cannot be saved offline.");
+      return null;
+    }
+  }
+
+  /**
+   * Sends the changes saved while offline to the database. If that fails
+   * they stay in the journal for the next start.
+   *
+   * @param journal    The journal
+   * @param connection The database connection
+   */
+  static void replayJournal(WriteJournal journal, Connection connection) {
+    if (journal.size() == 0) {
+      return;
+    }
+    try {
+      WriteJournal.ReplayResult result = journal.replay(connection);
+      System.out.printf("Sent %d offline changes to the database (%d already sent, "
+          + "%d rejected).%n", result.getApplied(), result.getSkipped(), result.getRejected());
+    } catch (SQLException | IOException e) {
+      logger.log(Level.SEVERE, "Error replaying the offline journal.", e);
+      System.out.println("Error sending offline changes; they will be sent next time.");
+    }
+  }
+
+  /**
+   * Runs the menu on an in-memory copy of the snapshot with the journaled
+   * changes applied, journaling every change made.
+   *
+   * @param snapshots The snapshot store
+   * @param journal   The journal
+   * @return false if there is no snapshot to work from
+   */
+  static boolean runOffline(SnapshotStore snapshots, WriteJournal journal) {
+    InMemoryProjectRepository localProjects = new InMemoryProjectRepository();
+    InMemoryPersonRepository localPersons = new InMemoryPersonRepository();
+    if (!snapshots.copyTo(localProjects, localPersons)) {
+      return false;
+    }
+    journal.applyTo(localProjects, localPersons);
+    System.out.printf("Working offline from the snapshot; %d changes are waiting to be sent.%n",
+        journal.size());
+    runMenu(new JournalingProjectRepository(localProjects, journal),
+        new JournalingPersonRepository(localPersons, journal));
+    return true;
+  }
+
+  /**
+   * Lists the first page of projects from the snapshot file, so the
+   * portfolio is on screen before the database has answered.
+   *
+   * @param snapshot The snapshot, or null if there is none
+   */
+  static void showSnapshotProjects(ProjectSnapshot snapshot) {
+    if (snapshot == null) {
+      return;
+    }
+    LocalDateTime createdAt = LocalDateTime.ofInstant(
+        Instant.ofEpochMilli(snapshot.getCreatedAt()), ZoneId.systemDefault());
+    System.out.printf("\n=== Projects (snapshot of %s, %d projects) ===\n",
+        createdAt.withNano(0), snapshot.size());
+    for (int i = 0; i < Math.min(PAGE_SIZE, snapshot.size()); i++) {
+      ProjectManager.printProjectSummary(snapshot.get(i));
+    }
+  }
+
+  /**
+   * Runs the interactive menu loop against the given storage engines until
+   * the user chooses to exit.
+   *
+   * @param projectRepository The project storage engine
+   * @param personRepository  The person storage engine
+   */
+  public static void runMenu(ProjectRepository projectRepository,
+      PersonRepository personRepository) {
+    projects = projectRepository;
+    persons = personRepository;
+    scanner = new Scanner(System.in);
+    try {
       boolean running = true;
 
       while (running) {
@@ -32,39 +189,43 @@ public class PoisePMS {
         int option = getMenuOption();
         switch (option) {
           case 1:
-            ProjectManager.displayProjects(connection);
+            System.out.println("\n=== Projects ===");
+            pageProjects();
             break;
           case 2:
-            addProject(connection);
+            addProject();
             break;
           case 3:
-            updateProject(connection);
+            updateProject();
             break;
           case 4:
-            deleteProject(connection);
+            deleteProject();
             break;
           case 5:
-            finalizeProject(connection);
+            finalizeProject();
             break;
           case 6:
-            ProjectManager.findUnfinishedProjects(connection);
+            findUnfinishedProjects();
             break;
           case 7:
-            ProjectManager.findPastDueProjects(connection);
+            findPastDueProjects();
             break;
           case 8:
-            findProjectByIdOrName(connection);
+            findProjectByIdOrName();
             break;
           case 9:
-            addPerson(connection);
+            addPerson();
             break;
           case 10:
-            updatePerson(connection);
+            updatePerson();
             break;
           case 11:
-            deletePerson(connection);
+            deletePerson();
             break;
           case 12:
+            showPortfolioReport();
+            break;
+          case 13:
             System.out.println("Exiting program.");
             running = false;
             break;
@@ -76,13 +237,8 @@ public class PoisePMS {
           promptEnterKey();
         }
       }
-    } catch (SQLException e) {
-      logger.log(Level.SEVERE, "Database connection error.", e);
-      System.out.println("Failed to connect to the database. "
-          + "Please check the configuration.");
     } finally {
       scanner.close();
-      logger.info("PoisePMS Application terminated.");
     }
   }
 
@@ -98,11 +254,12 @@ public class PoisePMS {
     System.out.println("5. Finalize Project");
     System.out.println("6. Find Unfinished Projects");
     System.out.println("7. Find Past Due Projects");
-    System.out.println("8. Find Project by ID or Name");
+    System.out.println("8. Find Project");
     System.out.println("9. Add Person");
     System.out.println("10. Update Person");
     System.out.println("11. Delete Person");
-    System.out.println("12. Exit");
+    System.out.println("12. Portfolio Report");
+    System.out.println("13. Exit");
   }
 
   /**
@@ -111,30 +268,28 @@ public class PoisePMS {
    * @return The selected menu option as an integer
    */
   private static int getMenuOption() {
-    System.out.print("Select an option (1-12): ");
+    System.out.print("Select an option (1-13): ");
     while (true) {
       String input = scanner.nextLine().trim();
       try {
         int option = Integer.parseInt(input);
-        if (option >= 1 && option <= 12) {
+        if (option >= 1 && option <= 13) {
           return option;
         } else {
           System.out.print("Invalid option. Please enter a number "
-              + "between 1 and 12: ");
+              + "between 1 and 13: ");
         }
       } catch (NumberFormatException e) {
         System.out.print("Invalid input. Please enter a number "
-            + "between 1 and 12: ");
+            + "between 1 and 13: ");
       }
     }
   }
 
   /**
-   * Adds a new project by collecting user input and calling ProjectManager.
-   *
-   * @param connection The database connection
+   * Adds a new project by collecting user input.
    */
-  public static void addProject(Connection connection) {
+  public static void addProject() {
     System.out.print("Enter project name (leave empty to auto-generate): ");
     String projectName = scanner.nextLine().trim();
 
@@ -150,13 +305,22 @@ public class PoisePMS {
     System.out.print("Enter ERF number: ");
     String erfNumber = getNonEmptyInput();
 
-    int architectId = getPersonId(connection, "Architect");
-    int engineerId = getPersonId(connection, "Engineer");
-    int managerId = getPersonId(connection, "Project Manager");
-    int contractorId = getPersonId(connection, "Contractor");
-    int customerId = getPersonId(connection, "Customer");
-
-    String customerSurname = getCustomerSurnameById(connection, customerId);
+    ProjectForm form = projects.loadForm(0, persons);
+    if (form == null) {
+      System.out.println("Error retrieving persons.");
+      return;
+    }
+    int architectId = getPersonId(form, PersonRole.ARCHITECT);
+    int engineerId = getPersonId(form, PersonRole.ENGINEER);
+    int managerId = getPersonId(form, PersonRole.PROJECT_MANAGER);
+    int contractorId = getPersonId(form, PersonRole.CONTRACTOR);
+    int customerId = getPersonId(form, PersonRole.CUSTOMER);
+
+    String customerSurname = form.getCustomerSurname(customerId);
+    if (customerSurname == null) {
+      System.out.println("No customer found with ID: " + customerId);
+      customerSurname = "Unknown";
+    }
 
     if (projectName.isEmpty()) {
       projectName = buildingType + " " + customerSurname;
@@ -177,32 +341,37 @@ public class PoisePMS {
         customerId
     );
 
-    ProjectManager.addProject(connection, project);
+    if (projects.add(project) > 0) {
+      System.out.println("Project added successfully.");
+    }
   }
 
   /**
    * Retrieves the person's ID by listing available persons.
    *
-   * @param connection The database connection
-   * @param personType The type of person (e.g., Architect, Engineer, Contractor)
+   * @param form The loaded form data holding the role directories
+   * @param role The role of the person (e.g., Architect, Engineer, Contractor)
    * @return The ID of the specified person
    */
-  private static int getPersonId(Connection connection, String personType) {
-    System.out.println("Available " + personType + "s:");
-    ProjectManager.listPersons(connection, personType); // Method to list all persons
-    System.out.print("Enter " + personType + " ID: ");
-    return getPersonIdInput("Enter " + personType + " ID: "); // Use a prompt message
+  private static int getPersonId(ProjectForm form, PersonRole role) {
+    System.out.println("Available " + role.getLabel() + "s:");
+    printDirectory(form.getDirectory(role)); // Method to list all persons
+    System.out.print("Enter " + role.getLabel() + " ID: ");
+    return getPersonIdInput("Enter " + role.getLabel() + " ID: "); // Use a prompt message
   }
 
   /**
    * Updates an existing project by collecting user input.
-   *
-   * @param connection The database connection
    */
-  private static void updateProject(Connection connection) {
-    displayProjectList(connection); // List available projects
+  private static void updateProject() {
+    displayProjectList(); // List available projects
     int projectId = getProjectIdInput("Enter project ID to update: ");
-    Project existingProject = ProjectManager.getProjectById(connection, projectId);
+    ProjectForm form = projects.loadForm(projectId, persons);
+    if (form == null) {
+      System.out.println("Error retrieving project.");
+      return;
+    }
+    Project existingProject = form.getProject();
     if (existingProject == null) {
       System.out.println("No project found with ID " + projectId);
       return;
@@ -250,86 +419,271 @@ public class PoisePMS {
       }
     }
 
-    int architectId = getPersonId(connection, "Architect");
-    int engineerId = getPersonId(connection, "Engineer");
-    int managerId = getPersonId(connection, "Project Manager");
-    int contractorId = getPersonId(connection, "Contractor");
-    int customerId = getPersonId(connection, "Customer");
+    int architectId = getPersonId(form, PersonRole.ARCHITECT);
+    int engineerId = getPersonId(form, PersonRole.ENGINEER);
+    int managerId = getPersonId(form, PersonRole.PROJECT_MANAGER);
+    int contractorId = getPersonId(form, PersonRole.CONTRACTOR);
+    int customerId = getPersonId(form, PersonRole.CUSTOMER);
+
+    // Edit a copy of the loaded project so only changed columns are written
+    Project updatedProject = new Project(existingProject);
+    updatedProject.setProjectName(projectName);
+    updatedProject.setBuildingType(buildingType);
+    updatedProject.setPhysicalAddress(physicalAddress);
+    updatedProject.setTotalFee(totalFee);
+    updatedProject.setDeadline(deadline);
+    updatedProject.setArchitectId(architectId);
+    updatedProject.setEngineerId(engineerId);
+    updatedProject.setManagerId(managerId);
+    updatedProject.setContractorId(contractorId);
+    updatedProject.setCustomerId(customerId);
 
-    Project updatedProject = new Project(
-        projectId,
-        projectName,
-        buildingType,
-        physicalAddress,
-        totalFee,
-        deadline,
-        existingProject.getErfNumber(),
-        architectId,
-        engineerId,
-        managerId,
-        contractorId,
-        customerId,
-        existingProject.isFinalised(),
-        existingProject.getCompletionDate()
-    );
-
-    ProjectManager.updateProject(connection, updatedProject);
+    try {
+      if (projects.update(updatedProject,
+          (mine, current) -> confirmMerge("project") ? mine.rebase(current) : null)) {
+        System.out.println("Project updated successfully.");
+      }
+    } catch (ConcurrentUpdateException e) {
+      System.out.println("Project not updated: " + e.getMessage());
+    }
   }
 
   /**
-   * Deletes a project by ID and all associated persons.
+   * Asks whether to reapply an edit after someone else saved the same record
+   * first.
    *
-   * @param connection The database connection
+   * @param what The kind of record, for the prompt
+   * @return true to apply the edit on top of the latest version
    */
-  private static void deleteProject(Connection connection) {
-    displayProjectList(connection); // List available projects
-    int projectId = getProjectIdInput("Enter project ID to delete: ");
-    ProjectManager.deleteProjectAndAssociatedPersons(connection, projectId);
+  private static boolean confirmMerge(String what) {
+    return confirm("This " + what + " was changed by someone else while you were editing. "
+        + "Apply your changes on top of the latest version?");
   }
 
   /**
-   * Finalizes a project by marking it as completed.
+   * Asks a yes or no question.
    *
-   * @param connection The database connection
+   * @param question The question, without the (y/n) suffix
+   * @return true if the user answered y
    */
-  private static void finalizeProject(Connection connection) {
-    displayProjectList(connection); // List available projects
-    int projectId = getProjectIdInput("Enter project ID to finalize: ");
-    Project existingProject = ProjectManager.getProjectById(connection, projectId);
-    if (existingProject != null && existingProject.isFinalised() == 0) {
-      ProjectManager.finalizeProject(connection, projectId);
-    } else {
-      System.out.println("Project cannot be finalized or is already finalized.");
+  private static boolean confirm(String question) {
+    System.out.print(question + " (y/n): ");
+    return scanner.nextLine().trim().equalsIgnoreCase("y");
+  }
+
+  /**
+   * Deletes one or more projects and all associated persons, either by ID
+   * or every project completed before a date.
+   */
+  private static void deleteProject() {
+    displayProjectList(); // List available projects
+    while (true) {
+      System.out.print("Enter project ID(s) to delete, separated by commas, "
+          + "or \"before YYYY-MM-DD\" for projects completed before a date: ");
+      String input = scanner.nextLine().trim();
+      LocalDate before = parseBeforeDate(input);
+      if (before != null) {
+        List<Integer> completed = projects.findIdsCompletedBefore(before);
+        if (completed == null) {
+          System.out.println("Error retrieving projects.");
+        } else if (completed.isEmpty()) {
+          System.out.println("No projects were completed before " + before + ".");
+        } else if (confirm("Delete " + completed.size() + " project(s) completed before "
+            + before + " and their persons?")) {
+          int deleted = projects.deleteCompletedBefore(before);
+          if (deleted >= 0) {
+            System.out.println(deleted + " project(s) deleted.");
+          }
+        } else {
+          System.out.println("No projects deleted.");
+        }
+        return;
+      }
+      List<Integer> projectIds = parseIdList(input);
+      if (projectIds == null) {
+        System.out.println("Invalid input. Please enter project IDs or a date.");
+      } else if (projectIds.size() == 1) {
+        if (projects.delete(projectIds.get(0))) {
+          System.out.println("Project deleted successfully.");
+        } else {
+          System.out.println("Project could not be deleted.");
+        }
+        return;
+      } else {
+        int deleted = projects.deleteAll(projectIds);
+        if (deleted >= 0) {
+          System.out.println(deleted + " project(s) deleted.");
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Finalizes one or more projects by marking them as completed, either by
+   * ID or every unfinished project due before a date.
+   */
+  private static void finalizeProject() {
+    displayProjectList(); // List available projects
+    while (true) {
+      System.out.print("Enter project ID(s) to finalize, separated by commas, "
+          + "or \"before YYYY-MM-DD\" for unfinished projects due before a date: ");
+      String input = scanner.nextLine().trim();
+      LocalDate before = parseBeforeDate(input);
+      if (before != null) {
+        List<Integer> due = projects.findIdsDueBefore(before);
+        if (due == null) {
+          System.out.println("Error retrieving projects.");
+        } else if (due.isEmpty()) {
+          System.out.println("No unfinished projects are due before " + before + ".");
+        } else if (confirm("Finalize " + due.size() + " unfinished project(s) due before "
+            + before + "?")) {
+          int finalized = projects.finalizeDueBefore(before, LocalDate.now());
+          if (finalized >= 0) {
+            System.out.println(finalized + " project(s) finalized.");
+          }
+        } else {
+          System.out.println("No projects finalized.");
+        }
+        return;
+      }
+      List<Integer> projectIds = parseIdList(input);
+      if (projectIds == null) {
+        System.out.println("Invalid input. Please enter project IDs or a date.");
+      } else if (projectIds.size() == 1) {
+        int projectId = projectIds.get(0);
+        Project existingProject = projects.findById(projectId);
+        if (existingProject != null && existingProject.isFinalised() == 0) {
+          if (projects.finalizeProject(projectId, LocalDate.now())) {
+            System.out.println("Project finalized successfully.");
+          }
+        } else {
+          System.out.println("Project cannot be finalized or is already finalized.");
+        }
+        return;
+      } else {
+        int finalized = projects.finalizeAll(projectIds, LocalDate.now());
+        if (finalized >= 0) {
+          System.out.println(finalized + " project(s) finalized.");
+        }
+        return;
+      }
     }
   }
 
   /**
    * Displays a list of available projects.
-   *
-   * @param connection The database connection
    */
-  private static void displayProjectList(Connection connection) {
+  private static void displayProjectList() {
     System.out.println("Available Projects:");
-    ProjectManager.displayProjects(connection);
+    pageProjects();
   }
 
   /**
-   * Finds a project by its ID or name.
-   *
-   * @param connection The database connection
+   * Shows projects one page at a time, fetching the next page only when
+   * the user asks for it.
    */
-  private static void findProjectByIdOrName(Connection connection) {
-    System.out.print("Enter project ID or name: ");
+  private static void pageProjects() {
+    int afterId = 0;
+    while (true) {
+      ProjectPage page = projects.findPage(afterId, PAGE_SIZE);
+      if (page == null) {
+        System.out.println("Error retrieving projects.");
+        return;
+      }
+      for (Project project : page.getProjects()) {
+        ProjectManager.printProject(project);
+      }
+      if (!page.hasMore()) {
+        return;
+      }
+      System.out.print("Press Enter for more projects, or type q to stop: ");
+      if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+        return;
+      }
+      afterId = page.getLastProjectId();
+    }
+  }
+
+  /**
+   * Finds projects by ID, or by part of their name, address or ERF number.
+   * A single match is shown in full; otherwise the best matches are listed.
+   */
+  private static void findProjectByIdOrName() {
+    System.out.print("Enter project ID, name, address or ERF number: ");
     String input = scanner.nextLine().trim();
-    ProjectManager.findProjectByIdOrName(connection, input);
+    List<Project> matches = projects.search(input, PAGE_SIZE);
+    if (matches == null) {
+      System.out.println("Error finding project.");
+    } else if (matches.isEmpty()) {
+      System.out.println("No project found matching: " + input);
+    } else if (matches.size() == 1) {
+      ProjectManager.printProject(matches.get(0));
+    } else {
+      System.out.println("\n=== Best Matches ===");
+      for (Project project : matches) {
+        ProjectManager.printProjectSummary(project);
+      }
+    }
+  }
+
+  /**
+   * Displays fee, balance and workload totals across all projects.
+   */
+  private static void showPortfolioReport() {
+    PortfolioReport report = projects.report();
+    if (report == null) {
+      System.out.println("Error computing portfolio report.");
+      return;
+    }
+    System.out.println("\n=== Portfolio Report ===");
+    ProjectManager.printPortfolioReport(report);
+  }
+
+  /**
+   * Displays projects that have not been finalized.
+   */
+  private static void findUnfinishedProjects() {
+    List<Project> unfinished = projects.findUnfinished();
+    if (unfinished == null) {
+      System.out.println("Error retrieving unfinished projects.");
+      return;
+    }
+    System.out.println("\n=== Unfinished Projects ===");
+    for (Project project : unfinished) {
+      ProjectManager.printProjectSummary(project);
+    }
+  }
+
+  /**
+   * Displays unfinished projects whose deadline has passed.
+   */
+  private static void findPastDueProjects() {
+    List<Project> pastDue = projects.findPastDue();
+    if (pastDue == null) {
+      System.out.println("Error retrieving past due projects.");
+      return;
+    }
+    System.out.println("\n=== Past Due Projects ===");
+    for (Project project : pastDue) {
+      ProjectManager.printProjectSummary(project);
+    }
+
+    List<Project> dueSoon = projects.findDueWithin(DUE_SOON_DAYS);
+    if (dueSoon == null) {
+      System.out.println("Error retrieving projects due soon.");
+      return;
+    }
+    System.out.println("\n=== Due in the Next " + DUE_SOON_DAYS + " Days ===");
+    for (Project project : dueSoon) {
+      ProjectManager.printProjectSummary(project);
+    }
   }
 
   /**
    * Adds a new person to the database by collecting user input.
-   *
-   * @param connection The database connection
    */
-  private static void addPerson(Connection connection) {
+  private static void addPerson() {
     System.out.print("Enter name: ");
     String name = getNonEmptyInput();
     String phone = getPhoneNumberInput();
@@ -337,24 +691,19 @@ public class PoisePMS {
 
     // Create a new Person object
     Person newPerson = new Person(name, phone, email);
-    // Attempt to add the person to the database
-    try {
-      ProjectManager.addPerson(connection, newPerson);
-    } catch (SQLException e) {
-      System.out.println("Error adding person: " + e.getMessage());
-      logger.severe("Error adding person: " + e.getMessage());
+    // Attempt to add the person
+    if (persons.add(newPerson)) {
+      System.out.println("Person added successfully.");
     }
   }
 
   /**
    * Updates an existing person's information by collecting user input.
-   *
-   * @param connection The database connection
    */
-  private static void updatePerson(Connection connection) {
-    displayPersonsList(connection); // List available persons
+  private static void updatePerson() {
+    displayPersonsList(); // List available persons
     int personId = getPersonIdInput("Enter person ID to update: ");
-    Person existingPerson = ProjectManager.getPersonById(connection, personId);
+    Person existingPerson = persons.findById(personId);
     if (existingPerson == null) {
       System.out.println("No person found with ID " + personId);
       return;
@@ -378,33 +727,68 @@ public class PoisePMS {
       email = existingPerson.getEmail();
     }
 
-    Person updatedPerson = new Person(personId, name, phone, email);
-    ProjectManager.updatePerson(connection, updatedPerson);
+    Person updatedPerson = new Person(existingPerson);
+    updatedPerson.setName(name);
+    updatedPerson.setPhoneNumber(phone);
+    updatedPerson.setEmail(email);
+    try {
+      if (persons.update(updatedPerson,
+          (mine, current) -> confirmMerge("person") ? mine.rebase(current) : null)) {
+        System.out.println("Person updated successfully.");
+      }
+    } catch (ConcurrentUpdateException e) {
+      System.out.println("Person not updated: " + e.getMessage());
+    }
   }
 
   /**
    * Deletes a person by ID.
-   *
-   * @param connection The database connection
    */
-  private static void deletePerson(Connection connection) {
-    displayPersonsList(connection); // List available persons
+  private static void deletePerson() {
+    displayPersonsList(); // List available persons
     int personId = getPersonIdInput("Enter person ID to delete: ");
-    ProjectManager.deletePerson(connection, personId);
+    if (persons.delete(personId)) {
+      System.out.println("Person deleted successfully.");
+    } else {
+      System.out.println("Person could not be deleted.");
+    }
   }
 
   /**
    * Displays a list of available persons.
-   *
-   * @param connection The database connection
    */
-  private static void displayPersonsList(Connection connection) {
+  private static void displayPersonsList() {
     System.out.println("Available Persons:");
-    ProjectManager.listPersons(connection, "Architect"); // List all persons
-    ProjectManager.listPersons(connection, "Engineer");
-    ProjectManager.listPersons(connection, "Contractor");
-    ProjectManager.listPersons(connection, "Project Manager");
-    ProjectManager.listPersons(connection, "Customer");
+    listPersons(PersonRole.ARCHITECT); // List all persons
+    listPersons(PersonRole.ENGINEER);
+    listPersons(PersonRole.CONTRACTOR);
+    listPersons(PersonRole.PROJECT_MANAGER);
+    listPersons(PersonRole.CUSTOMER);
+  }
+
+  /**
+   * Displays the persons in one role directory.
+   *
+   * @param role The role to list
+   */
+  private static void listPersons(PersonRole role) {
+    Map<Integer, String> directory = persons.listByRole(role);
+    if (directory == null) {
+      System.out.println("Error retrieving persons.");
+      return;
+    }
+    printDirectory(directory);
+  }
+
+  /**
+   * Displays the persons in a role directory.
+   *
+   * @param directory The names keyed by ID
+   */
+  private static void printDirectory(Map<Integer, String> directory) {
+    for (Map.Entry<Integer, String> person : directory.entrySet()) {
+      ProjectManager.printPerson(person.getKey(), person.getValue());
+    }
   }
 
   /**
@@ -416,31 +800,37 @@ public class PoisePMS {
   }
 
   /**
-   * Retrieves the customer's surname by their ID.
+   * Parses a comma-separated list of IDs.
    *
-   * @param connection The database connection
-   * @param customerId The customer ID
-   * @return The customer's surname
+   * @param input The user input
+   * @return The IDs, or null if the input is not a valid list
    */
-  private static String getCustomerSurnameById(Connection connection, int customerId) {
-    String query = "SELECT name FROM Customer WHERE customer_id = ?";
-    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-      pstmt.setInt(1, customerId);
-      try (ResultSet rs = pstmt.executeQuery()) {
-        if (rs.next()) {
-          String fullName = rs.getString("name");
-          String[] nameParts = fullName.split(" ");
-          String surname = nameParts.length > 1 ? nameParts[nameParts.length - 1] : fullName;
-          return surname;
-        } else {
-          System.out.println("No customer found with ID: " + customerId);
-          return "Unknown";  // Return "Unknown" if customer not found
-        }
+  private static List<Integer> parseIdList(String input) {
+    List<Integer> ids = new ArrayList<>();
+    for (String part : input.split(",")) {
+      try {
+        ids.add(Integer.parseInt(part.trim()));
+      } catch (NumberFormatException e) {
+        return null;
       }
-    } catch (SQLException e) {
-      System.out.println("An error occurred while retrieving customer surname.");
-      e.printStackTrace();
-      return "Unknown";  // Return "Unknown" if error occurs
+    }
+    return ids;
+  }
+
+  /**
+   * Parses input of the form "before YYYY-MM-DD".
+   *
+   * @param input The user input
+   * @return The date, or null if the input is not in that form
+   */
+  private static LocalDate parseBeforeDate(String input) {
+    if (!input.toLowerCase(Locale.ROOT).startsWith("before ")) {
+      return null;
+    }
+    try {
+      return LocalDate.parse(input.substring("before ".length()).trim());
+    } catch (DateTimeParseException e) {
+      return null;
     }
   }
 
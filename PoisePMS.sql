@@ -96,6 +96,21 @@ INSERT INTO `customer` VALUES (1,'Sara Day','4567891223','saraday@example.com','
 /*!40000 ALTER TABLE `customer` ENABLE KEYS */;
 UNLOCK TABLES;
 
+--
+-- Table structure for table `journal_applied`
+--
+
+DROP TABLE IF EXISTS `journal_applied`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `journal_applied` (
+  `idempotency_key` char(36) NOT NULL,
+  `result_id` int DEFAULT NULL,
+  `applied_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`idempotency_key`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `person`
 --
@@ -109,7 +124,10 @@ CREATE TABLE `person` (
   `phone` varchar(15) NOT NULL,
   `email` varchar(100) NOT NULL,
   `project_id` int DEFAULT NULL,
-  PRIMARY KEY (`person_id`)
+  `version` int NOT NULL DEFAULT '1',
+  PRIMARY KEY (`person_id`),
+  KEY `fk_person_project` (`project_id`),
+  CONSTRAINT `fk_person_project` FOREIGN KEY (`project_id`) REFERENCES `project` (`project_id`) ON DELETE CASCADE
 ) ENGINE=InnoDB AUTO_INCREMENT=4 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -119,7 +137,7 @@ CREATE TABLE `person` (
 
 LOCK TABLES `person` WRITE;
 /*!40000 ALTER TABLE `person` DISABLE KEYS */;
-INSERT INTO `person` VALUES (3,'AH','123-1234567','AH@gmail.com',NULL);
+INSERT INTO `person` VALUES (3,'AH','123-1234567','AH@gmail.com',NULL,1);
 /*!40000 ALTER TABLE `person` ENABLE KEYS */;
 UNLOCK TABLES;
 
@@ -146,6 +164,7 @@ CREATE TABLE `project` (
   `architect_id` int DEFAULT NULL,
   `customer_id` int DEFAULT NULL,
   `contractor_id` int DEFAULT NULL,
+  `version` int NOT NULL DEFAULT '1',
   PRIMARY KEY (`project_id`),
   KEY `engineer_id` (`engineer_id`),
   KEY `manager_id` (`manager_id`),
@@ -166,7 +185,7 @@ CREATE TABLE `project` (
 
 LOCK TABLES `project` WRITE;
 /*!40000 ALTER TABLE `project` DISABLE KEYS */;
-INSERT INTO `project` VALUES (3,'New Project','Residential','123 Main St',NULL,500000.00,NULL,'2024-12-31','2024-10-09',1,NULL,NULL,NULL,NULL,NULL),(4,'AH','House','54 Main st',NULL,5000.00,NULL,'2024-12-30',NULL,0,2,1,1,1,2),(7,'','House','45 Eat St',NULL,8000.00,NULL,'2028-08-09',NULL,0,1,1,1,1,NULL),(9,'House Parker','House','421 Beep St',NULL,9850.00,NULL,'2028-05-09','2024-10-08',1,2,1,1,2,NULL),(10,'House Parker','House','555 eat',NULL,65250.00,NULL,'2028-09-08','2024-10-08',1,2,2,1,2,NULL),(12,'House Parker','House','665 lmd st','54',8500.00,NULL,'2025-09-07',NULL,NULL,2,2,1,2,1);
+INSERT INTO `project` VALUES (3,'New Project','Residential','123 Main St',NULL,500000.00,NULL,'2024-12-31','2024-10-09',1,NULL,NULL,NULL,NULL,NULL,1),(4,'AH','House','54 Main st',NULL,5000.00,NULL,'2024-12-30',NULL,0,2,1,1,1,2,1),(7,'','House','45 Eat St',NULL,8000.00,NULL,'2028-08-09',NULL,0,1,1,1,1,NULL,1),(9,'House Parker','House','421 Beep St',NULL,9850.00,NULL,'2028-05-09','2024-10-08',1,2,1,1,2,NULL,1),(10,'House Parker','House','555 eat',NULL,65250.00,NULL,'2028-09-08','2024-10-08',1,2,2,1,2,NULL,1),(12,'House Parker','House','665 lmd st','54',8500.00,NULL,'2025-09-07',NULL,NULL,2,2,1,2,1,1);
 /*!40000 ALTER TABLE `project` ENABLE KEYS */;
 UNLOCK TABLES;
 
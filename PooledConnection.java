@@ -0,0 +1,177 @@
+package poised;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A physical connection owned by a {@link ConnectionPool}.
+ *
+ * <p>Callers only ever see the proxy returned by {@link #getProxy()}.
+ * Closing the proxy hands the physical connection back to the pool.
+ * Prepared statements are served from a per-connection
+ * {@link StatementCache} that lives as long as the physical connection.
+ */
+class PooledConnection implements InvocationHandler {
+  private final ConnectionPool pool;
+  private final Connection physical;
+  private final StatementCache statementCache;
+  private volatile Connection proxy;
+  private volatile boolean logicallyClosed = true;
+  private volatile boolean broken;
+  private volatile boolean leakChecked;
+  private volatile boolean leakReported;
+  private volatile long lastUsedMillis = System.currentTimeMillis();
+  private volatile long borrowedAtMillis;
+  private volatile Throwable borrowTrace;
+
+  /**
+   * Wraps a newly opened physical connection.
+   *
+   * @param pool           The owning pool
+   * @param physical       The physical connection
+   * @param statementCache The statement cache for this connection, or null
+   *                       to prepare every statement afresh
+   */
+  PooledConnection(ConnectionPool pool, Connection physical,
+      StatementCache statementCache) {
+    this.pool = pool;
+    this.physical = physical;
+    this.statementCache = statementCache;
+  }
+
+  /**
+   * Marks the connection as handed out and creates a fresh proxy for the
+   * borrower, so a stale proxy from an earlier borrow cannot reach it.
+   *
+   * @param leakChecked false if the borrower holds the connection by
+   *                    design and long holds are not leaks
+   */
+  void onBorrow(boolean leakChecked) {
+    borrowedAtMillis = System.currentTimeMillis();
+    borrowTrace = leakChecked ? new Throwable("Connection borrowed here") : null;
+    this.leakChecked = leakChecked;
+    leakReported = false;
+    logicallyClosed = false;
+    proxy = (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, this);
+  }
+
+  /**
+   * Restores the default session state before the connection goes back
+   * into the pool.
+   *
+   * @return true if the connection can be reused
+   */
+  boolean reset() {
+    try {
+      if (!physical.getAutoCommit()) {
+        physical.rollback();
+        physical.setAutoCommit(true);
+      }
+      physical.clearWarnings();
+      lastUsedMillis = System.currentTimeMillis();
+      return true;
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+    switch (name) {
+      case "close":
+        if (self == proxy && !logicallyClosed) {
+          logicallyClosed = true;
+          pool.release(this);
+        }
+        return null;
+      case "isClosed":
+        return self != proxy || logicallyClosed || physical.isClosed();
+      case "equals":
+        return self == args[0];
+      case "hashCode":
+        return System.identityHashCode(self);
+      case "toString":
+        return "PooledConnection[" + physical + "]";
+      default:
+        break;
+    }
+    if (logicallyClosed || self != proxy) {
+      throw new SQLException("Connection is closed.", "08003");
+    }
+    try {
+      if (statementCache != null && "prepareStatement".equals(name)) {
+        if (args.length == 1) {
+          return statementCache.prepare(proxy, (String) args[0], -1);
+        }
+        if (args.length == 2 && args[1] instanceof Integer
+            && method.getParameterTypes()[1] == int.class) {
+          return statementCache.prepare(proxy, (String) args[0], (Integer) args[1]);
+        }
+      }
+      return method.invoke(physical, args);
+    } catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        String state = ((SQLException) cause).getSQLState();
+        if (state != null && state.startsWith("08")) {
+          broken = true;
+        }
+      }
+      throw cause;
+    }
+  }
+
+  Connection getProxy() {
+    return proxy;
+  }
+
+  Connection getPhysical() {
+    return physical;
+  }
+
+  boolean isBroken() {
+    return broken;
+  }
+
+  long getLastUsedMillis() {
+    return lastUsedMillis;
+  }
+
+  long getBorrowedAtMillis() {
+    return borrowedAtMillis;
+  }
+
+  boolean isLeakChecked() {
+    return leakChecked;
+  }
+
+  Throwable getBorrowTrace() {
+    return borrowTrace;
+  }
+
+  /**
+   * Records that a leak warning was issued for the current borrow.
+   *
+   * @return true if this is the first report for the current borrow
+   */
+  boolean markLeakReported() {
+    if (leakReported) {
+      return false;
+    }
+    leakReported = true;
+    return true;
+  }
+
+  void closePhysical() throws SQLException {
+    if (statementCache != null) {
+      statementCache.clear();
+    }
+    physical.close();
+  }
+}
@@ -0,0 +1,376 @@
+package poised;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The PortfolioAnalytics class computes a {@link PortfolioReport} in a
+ * single pass over the project table.
+ *
+ * <p>Rows are streamed from the database and decoded into column chunks of
+ * primitive values, with building types and person IDs mapped to dense
+ * codes. Each full chunk is handed to a fork/join pool while the next one
+ * is read, and split further until the pieces are small enough to
+ * accumulate into plain arrays. Partial results are then merged, so the
+ * cost is one read of the table plus work spread over every core.
+ */
+public class PortfolioAnalytics {
+  private static final int CHUNK_SIZE = 65_536;
+  private static final int SPLIT_THRESHOLD = 8_192;
+  private static final int NONE = -1;
+
+  private final ForkJoinPool pool;
+  private final LocalDate asOf;
+
+  // Dense codes, assigned by the reading thread only
+  private final Map<String, Integer> typeCodes = new HashMap<>();
+  private final List<String> types = new ArrayList<>();
+  private final Map<Integer, Integer> managerCodes = new HashMap<>();
+  private final List<Integer> managers = new ArrayList<>();
+  private final Map<Integer, Integer> architectCodes = new HashMap<>();
+  private final List<Integer> architects = new ArrayList<>();
+
+  private final Deque<ForkJoinTask<Totals>> pending = new ArrayDeque<>();
+  private Totals totals = new Totals(0, 0, 0);
+  private Chunk chunk = new Chunk();
+
+  /**
+   * Constructor for one report run on the common fork/join pool.
+   *
+   * @param asOf The date past-due status is judged against
+   */
+  public PortfolioAnalytics(LocalDate asOf) {
+    this(ForkJoinPool.commonPool(), asOf);
+  }
+
+  /**
+   * Constructor for one report run.
+   *
+   * @param pool The pool chunks are processed on
+   * @param asOf The date past-due status is judged against
+   */
+  public PortfolioAnalytics(ForkJoinPool pool, LocalDate asOf) {
+    this.pool = pool;
+    this.asOf = asOf;
+  }
+
+  /**
+   * Computes the report over the project table, reading only the columns
+   * it needs in one streamed query.
+   *
+   * @param connection The database connection
+   * @return The report
+   * @throws SQLException if the projects cannot be read
+   */
+  public PortfolioReport analyze(Connection connection) throws SQLException {
+    String query = "SELECT building_type, total_fee, amount_paid, deadline, is_finalised, "
+        + "manager_id, architect_id FROM Project";
+    try (PreparedStatement pstmt = connection.prepareStatement(query,
+        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+      ProjectManager.setFetchSize(pstmt, Integer.MIN_VALUE);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          java.sql.Date deadline = rs.getDate(4);
+          int managerId = rs.getInt(6);
+          int manager = rs.wasNull() ? NONE : code(managerCodes, managers, managerId);
+          int architectId = rs.getInt(7);
+          int architect = rs.wasNull() ? NONE : code(architectCodes, architects, architectId);
+          add(rs.getString(1), Math.round(rs.getDouble(2) * 100),
+              Math.round(rs.getDouble(3) * 100),
+              deadline != null ? deadline.toLocalDate().toEpochDay() : Long.MAX_VALUE,
+              rs.getInt(5) != 0, manager, architect);
+        }
+      }
+    }
+    return finish();
+  }
+
+  /**
+   * Computes the report over every project in a repository. Repositories
+   * do not record amounts paid, so the whole fee counts as outstanding.
+   *
+   * @param repository The project repository
+   * @return The report, or null if the projects could not be read
+   */
+  public PortfolioReport analyze(ProjectRepository repository) {
+    int afterId = 0;
+    ProjectPage page;
+    do {
+      page = repository.findPage(afterId, CHUNK_SIZE);
+      if (page == null) {
+        return null;
+      }
+      for (Project project : page.getProjects()) {
+        LocalDate deadline = project.getDeadline();
+        add(project.getBuildingType(), Math.round(project.getTotalFee() * 100.0), 0,
+            deadline != null ? deadline.toEpochDay() : Long.MAX_VALUE,
+            project.isFinalised() != 0,
+            person(managerCodes, managers, project.getManagerId()),
+            person(architectCodes, architects, project.getArchitectId()));
+      }
+      afterId = page.getLastProjectId();
+    } while (page.hasMore());
+    return finish();
+  }
+
+  /**
+   * Computes the report over a columnar store, reading its columns
+   * directly instead of building a Project for every row. Amounts paid are
+   * not held in memory, so the whole fee counts as outstanding.
+   *
+   * @param store The columnar project store
+   * @return The report
+   */
+  public PortfolioReport analyze(ColumnarProjectRepository store) {
+    store.scan((buildingType, feeCents, deadlineDay, finalised, managerId, architectId) ->
+        add(buildingType, feeCents, 0, deadlineDay, finalised,
+            person(managerCodes, managers, managerId),
+            person(architectCodes, architects, architectId)));
+    return finish();
+  }
+
+  private void add(String buildingType, long feeCents, long paidCents, long deadlineDay,
+      boolean finalised, int manager, int architect) {
+    int i = chunk.size++;
+    chunk.type[i] = code(typeCodes, types, buildingType != null ? buildingType : "(none)");
+    chunk.fee[i] = feeCents;
+    chunk.paid[i] = paidCents;
+    chunk.deadline[i] = deadlineDay;
+    chunk.finalised[i] = finalised;
+    chunk.manager[i] = manager;
+    chunk.architect[i] = architect;
+    if (chunk.size == CHUNK_SIZE) {
+      submit();
+    }
+  }
+
+  private void submit() {
+    if (chunk.size == 0) {
+      return;
+    }
+    pending.add(pool.submit(new ChunkTask(chunk, 0, chunk.size, types.size(), managers.size(),
+        architects.size(), asOf.toEpochDay())));
+    chunk = new Chunk();
+    // Bound the chunks held in memory while the reader is ahead
+    while (pending.size() > pool.getParallelism() * 2) {
+      totals = totals.merge(pending.poll().join());
+    }
+  }
+
+  private PortfolioReport finish() {
+    submit();
+    while (!pending.isEmpty()) {
+      totals = totals.merge(pending.poll().join());
+    }
+    return totals.toReport(asOf, types, managers, architects);
+  }
+
+  /**
+   * Codes a person ID from a repository, where 0 stands for the NULL of an
+   * unassigned role and is not counted as anyone's workload.
+   */
+  private static int person(Map<Integer, Integer> codes, List<Integer> ids, int personId) {
+    return personId == 0 ? NONE : code(codes, ids, personId);
+  }
+
+  private static <K> int code(Map<K, Integer> codes, List<K> values, K value) {
+    Integer code = codes.get(value);
+    if (code == null) {
+      code = values.size();
+      codes.put(value, code);
+      values.add(value);
+    }
+    return code;
+  }
+
+  /**
+   * One block of decoded rows, stored column by column.
+   */
+  private static final class Chunk {
+    private final int[] type = new int[CHUNK_SIZE];
+    private final long[] fee = new long[CHUNK_SIZE];
+    private final long[] paid = new long[CHUNK_SIZE];
+    private final long[] deadline = new long[CHUNK_SIZE];
+    private final boolean[] finalised = new boolean[CHUNK_SIZE];
+    private final int[] manager = new int[CHUNK_SIZE];
+    private final int[] architect = new int[CHUNK_SIZE];
+    private int size;
+  }
+
+  /**
+   * Accumulates a range of a chunk, splitting it in half while it is
+   * larger than the threshold.
+   */
+  private static final class ChunkTask extends RecursiveTask<Totals> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Chunk chunk;
+    private final int from;
+    private final int to;
+    private final int typeCount;
+    private final int managerCount;
+    private final int architectCount;
+    private final long today;
+
+    ChunkTask(Chunk chunk, int from, int to, int typeCount, int managerCount,
+        int architectCount, long today) {
+      this.chunk = chunk;
+      this.from = from;
+      this.to = to;
+      this.typeCount = typeCount;
+      this.managerCount = managerCount;
+      this.architectCount = architectCount;
+      this.today = today;
+    }
+
+    @Override
+    protected Totals compute() {
+      if (to - from > SPLIT_THRESHOLD) {
+        int middle = (from + to) >>> 1;
+        ChunkTask left = new ChunkTask(chunk, from, middle, typeCount, managerCount,
+            architectCount, today);
+        left.fork();
+        Totals right = new ChunkTask(chunk, middle, to, typeCount, managerCount,
+            architectCount, today).compute();
+        return left.join().merge(right);
+      }
+
+      Totals totals = new Totals(typeCount, managerCount, architectCount);
+      for (int i = from; i < to; i++) {
+        long fee = chunk.fee[i];
+        long paid = chunk.paid[i];
+        int type = chunk.type[i];
+        totals.typeCount[type]++;
+        totals.typeFee[type] += fee;
+        totals.totalFee += fee;
+        totals.amountPaid += paid;
+        if (fee > paid) {
+          totals.outstanding += fee - paid;
+        }
+        if (chunk.finalised[i]) {
+          continue;
+        }
+        boolean pastDue = chunk.deadline[i] < today;
+        totals.unfinished++;
+        if (pastDue) {
+          totals.pastDue++;
+        }
+        int manager = chunk.manager[i];
+        if (manager != NONE) {
+          totals.managerUnfinished[manager]++;
+          if (pastDue) {
+            totals.managerPastDue[manager]++;
+          }
+        }
+        int architect = chunk.architect[i];
+        if (architect != NONE) {
+          totals.architectUnfinished[architect]++;
+          if (pastDue) {
+            totals.architectPastDue[architect]++;
+          }
+        }
+      }
+      totals.projects = to - from;
+      return totals;
+    }
+  }
+
+  /**
+   * Primitive accumulators for one range of rows, indexed by dense code.
+   */
+  private static final class Totals {
+    private long projects;
+    private long unfinished;
+    private long pastDue;
+    private long totalFee;
+    private long amountPaid;
+    private long outstanding;
+    private long[] typeCount;
+    private long[] typeFee;
+    private long[] managerUnfinished;
+    private long[] managerPastDue;
+    private long[] architectUnfinished;
+    private long[] architectPastDue;
+
+    Totals(int types, int managers, int architects) {
+      typeCount = new long[types];
+      typeFee = new long[types];
+      managerUnfinished = new long[managers];
+      managerPastDue = new long[managers];
+      architectUnfinished = new long[architects];
+      architectPastDue = new long[architects];
+    }
+
+    /**
+     * Adds another range's totals into this one. Later chunks may know
+     * more codes, so the arrays grow to the longer of the two.
+     */
+    Totals merge(Totals other) {
+      projects += other.projects;
+      unfinished += other.unfinished;
+      pastDue += other.pastDue;
+      totalFee += other.totalFee;
+      amountPaid += other.amountPaid;
+      outstanding += other.outstanding;
+      typeCount = add(typeCount, other.typeCount);
+      typeFee = add(typeFee, other.typeFee);
+      managerUnfinished = add(managerUnfinished, other.managerUnfinished);
+      managerPastDue = add(managerPastDue, other.managerPastDue);
+      architectUnfinished = add(architectUnfinished, other.architectUnfinished);
+      architectPastDue = add(architectPastDue, other.architectPastDue);
+      return this;
+    }
+
+    private static long[] add(long[] into, long[] from) {
+      if (from.length > into.length) {
+        into = Arrays.copyOf(into, from.length);
+      }
+      for (int i = 0; i < from.length; i++) {
+        into[i] += from[i];
+      }
+      return into;
+    }
+
+    PortfolioReport toReport(LocalDate asOf, List<String> types, List<Integer> managers,
+        List<Integer> architects) {
+      List<PortfolioReport.BuildingTypeTotals> byType = new ArrayList<>();
+      for (int i = 0; i < typeCount.length; i++) {
+        if (typeCount[i] > 0) {
+          byType.add(new PortfolioReport.BuildingTypeTotals(types.get(i), typeCount[i],
+              typeFee[i]));
+        }
+      }
+      byType.sort((a, b) -> Long.compare(b.getTotalFeeCents(), a.getTotalFeeCents()));
+      return new PortfolioReport(asOf, projects, unfinished, pastDue, totalFee, amountPaid,
+          outstanding, byType, workloads(managers, managerUnfinished, managerPastDue),
+          workloads(architects, architectUnfinished, architectPastDue));
+    }
+
+    private static List<PortfolioReport.Workload> workloads(List<Integer> ids,
+        long[] unfinished, long[] pastDue) {
+      List<PortfolioReport.Workload> workloads = new ArrayList<>();
+      for (int i = 0; i < unfinished.length; i++) {
+        if (unfinished[i] > 0) {
+          workloads.add(new PortfolioReport.Workload(ids.get(i), unfinished[i], pastDue[i]));
+        }
+      }
+      workloads.sort((a, b) -> a.getPastDue() != b.getPastDue()
+          ? Long.compare(b.getPastDue(), a.getPastDue())
+          : Long.compare(b.getUnfinished(), a.getUnfinished()));
+      return workloads;
+    }
+  }
+}
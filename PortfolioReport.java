@@ -0,0 +1,225 @@
+package poised;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The PortfolioReport class holds the totals computed by
+ * {@link PortfolioAnalytics} over every project. Money amounts are in
+ * cents.
+ */
+public class PortfolioReport {
+  private final LocalDate asOf;
+  private final long projectCount;
+  private final long unfinishedCount;
+  private final long pastDueCount;
+  private final long totalFeeCents;
+  private final long amountPaidCents;
+  private final long outstandingCents;
+  private final List<BuildingTypeTotals> buildingTypes;
+  private final List<Workload> managers;
+  private final List<Workload> architects;
+
+  PortfolioReport(LocalDate asOf, long projectCount, long unfinishedCount, long pastDueCount,
+      long totalFeeCents, long amountPaidCents, long outstandingCents,
+      List<BuildingTypeTotals> buildingTypes, List<Workload> managers,
+      List<Workload> architects) {
+    this.asOf = asOf;
+    this.projectCount = projectCount;
+    this.unfinishedCount = unfinishedCount;
+    this.pastDueCount = pastDueCount;
+    this.totalFeeCents = totalFeeCents;
+    this.amountPaidCents = amountPaidCents;
+    this.outstandingCents = outstandingCents;
+    this.buildingTypes = Collections.unmodifiableList(buildingTypes);
+    this.managers = Collections.unmodifiableList(managers);
+    this.architects = Collections.unmodifiableList(architects);
+  }
+
+  /**
+   * Gets the date past-due status was judged against.
+   *
+   * @return The report date
+   */
+  public LocalDate getAsOf() {
+    return asOf;
+  }
+
+  /**
+   * Gets the number of projects.
+   *
+   * @return The project count
+   */
+  public long getProjectCount() {
+    return projectCount;
+  }
+
+  /**
+   * Gets the number of projects not yet finalised.
+   *
+   * @return The unfinished project count
+   */
+  public long getUnfinishedCount() {
+    return unfinishedCount;
+  }
+
+  /**
+   * Gets the number of unfinished projects whose deadline has passed.
+   *
+   * @return The past due project count
+   */
+  public long getPastDueCount() {
+    return pastDueCount;
+  }
+
+  /**
+   * Gets the sum of all project fees.
+   *
+   * @return The total fee in cents
+   */
+  public long getTotalFeeCents() {
+    return totalFeeCents;
+  }
+
+  /**
+   * Gets the sum of all amounts paid.
+   *
+   * @return The amount paid in cents
+   */
+  public long getAmountPaidCents() {
+    return amountPaidCents;
+  }
+
+  /**
+   * Gets the amount still owed: the fee less the amount paid, summed over
+   * projects that are not fully paid.
+   *
+   * @return The outstanding balance in cents
+   */
+  public long getOutstandingCents() {
+    return outstandingCents;
+  }
+
+  /**
+   * Gets the fee totals per building type, largest total first.
+   *
+   * @return The building type totals
+   */
+  public List<BuildingTypeTotals> getBuildingTypes() {
+    return buildingTypes;
+  }
+
+  /**
+   * Gets the open workload of each project manager with unfinished
+   * projects, most past-due projects first.
+   *
+   * @return The manager workloads
+   */
+  public List<Workload> getManagers() {
+    return managers;
+  }
+
+  /**
+   * Gets the open workload of each architect with unfinished projects,
+   * most past-due projects first.
+   *
+   * @return The architect workloads
+   */
+  public List<Workload> getArchitects() {
+    return architects;
+  }
+
+  /**
+   * Project count and fee totals for one building type.
+   */
+  public static class BuildingTypeTotals {
+    private final String buildingType;
+    private final long count;
+    private final long totalFeeCents;
+
+    BuildingTypeTotals(String buildingType, long count, long totalFeeCents) {
+      this.buildingType = buildingType;
+      this.count = count;
+      this.totalFeeCents = totalFeeCents;
+    }
+
+    /**
+     * Gets the building type.
+     *
+     * @return The building type
+     */
+    public String getBuildingType() {
+      return buildingType;
+    }
+
+    /**
+     * Gets the number of projects of this type.
+     *
+     * @return The project count
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Gets the sum of fees for this type.
+     *
+     * @return The total fee in cents
+     */
+    public long getTotalFeeCents() {
+      return totalFeeCents;
+    }
+
+    /**
+     * Gets the average fee for this type.
+     *
+     * @return The average fee in cents
+     */
+    public long getAverageFeeCents() {
+      return count == 0 ? 0 : Math.round((double) totalFeeCents / count);
+    }
+  }
+
+  /**
+   * Unfinished and past-due project counts for one person.
+   */
+  public static class Workload {
+    private final int personId;
+    private final long unfinished;
+    private final long pastDue;
+
+    Workload(int personId, long unfinished, long pastDue) {
+      this.personId = personId;
+      this.unfinished = unfinished;
+      this.pastDue = pastDue;
+    }
+
+    /**
+     * Gets the ID of the person in their role directory.
+     *
+     * @return The person ID
+     */
+    public int getPersonId() {
+      return personId;
+    }
+
+    /**
+     * Gets the number of unfinished projects assigned.
+     *
+     * @return The unfinished project count
+     */
+    public long getUnfinished() {
+      return unfinished;
+    }
+
+    /**
+     * Gets the number of past due projects assigned.
+     *
+     * @return The past due project count
+     */
+    public long getPastDue() {
+      return pastDue;
+    }
+  }
+}
@@ -1,6 +1,9 @@
 package poised;
 
 import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * The Project class represents a project in the project management system.
@@ -20,6 +23,10 @@ public class Project {
   private int customerId;  
   private int isFinalised;  
   private LocalDate completionDate;  
+  // Row version the project was read at; 0 if it was never stored
+  private int version;
+  // Fields set since the project was loaded; null if it was never loaded
+  private EnumSet<Field> changedFields;
 
   /**
    * Constructor for creating a new project.
@@ -94,6 +101,20 @@ public class Project {
     this.completionDate = completionDate;
   }
 
+  /**
+   * Constructor for copying a project.
+   *
+   * @param other The project to copy
+   */
+  public Project(Project other) {
+    this(other.id, other.projectName, other.buildingType, other.physicalAddress,
+        other.totalFee, other.deadline, other.erfNumber, other.architectId,
+        other.engineerId, other.managerId, other.contractorId, other.customerId,
+        other.isFinalised, other.completionDate);
+    this.changedFields = other.changedFields != null ? EnumSet.copyOf(other.changedFields) : null;
+    this.version = other.version;
+  }
+
   // Getter and Setter methods
 
   /**
@@ -129,6 +150,7 @@ public class Project {
    * @param projectName The project name
    */
   public void setProjectName(String projectName) {
+    markChanged(Field.PROJECT_NAME, !Objects.equals(this.projectName, projectName));
     this.projectName = projectName;
   }
 
@@ -147,6 +169,7 @@ public class Project {
    * @param buildingType The building type
    */
   public void setBuildingType(String buildingType) {
+    markChanged(Field.BUILDING_TYPE, !Objects.equals(this.buildingType, buildingType));
     this.buildingType = buildingType;
   }
 
@@ -165,6 +188,7 @@ public class Project {
    * @param physicalAddress The physical address
    */
   public void setPhysicalAddress(String physicalAddress) {
+    markChanged(Field.PHYSICAL_ADDRESS, !Objects.equals(this.physicalAddress, physicalAddress));
     this.physicalAddress = physicalAddress;
   }
 
@@ -183,6 +207,7 @@ public class Project {
    * @param totalFee The total fee
    */
   public void setTotalFee(float totalFee) {
+    markChanged(Field.TOTAL_FEE, Float.compare(this.totalFee, totalFee) != 0);
     this.totalFee = totalFee;
   }
 
@@ -201,6 +226,7 @@ public class Project {
    * @param deadline The deadline
    */
   public void setDeadline(LocalDate deadline) {
+    markChanged(Field.DEADLINE, !Objects.equals(this.deadline, deadline));
     this.deadline = deadline;
   }
 
@@ -219,6 +245,7 @@ public class Project {
    * @param erfNumber The ERF number
    */
   public void setErfNumber(String erfNumber) {
+    markChanged(Field.ERF_NUMBER, !Objects.equals(this.erfNumber, erfNumber));
     this.erfNumber = erfNumber;
   }
 
@@ -237,6 +264,7 @@ public class Project {
    * @param architectId The architect ID
    */
   public void setArchitectId(int architectId) {
+    markChanged(Field.ARCHITECT_ID, this.architectId != architectId);
     this.architectId = architectId;
   }
 
@@ -255,6 +283,7 @@ public class Project {
    * @param engineerId The engineer ID
    */
   public void setEngineerId(int engineerId) {
+    markChanged(Field.ENGINEER_ID, this.engineerId != engineerId);
     this.engineerId = engineerId;
   }
 
@@ -273,6 +302,7 @@ public class Project {
    * @param managerId The project manager ID
    */
   public void setManagerId(int managerId) {
+    markChanged(Field.MANAGER_ID, this.managerId != managerId);
     this.managerId = managerId;
   }
 
@@ -291,6 +321,7 @@ public class Project {
    * @param contractorId The contractor ID
    */
   public void setContractorId(int contractorId) {
+    markChanged(Field.CONTRACTOR_ID, this.contractorId != contractorId);
     this.contractorId = contractorId;
   }
 
@@ -309,6 +340,7 @@ public class Project {
    * @param customerId The customer ID
    */
   public void setCustomerId(int customerId) {
+    markChanged(Field.CUSTOMER_ID, this.customerId != customerId);
     this.customerId = customerId;
   }
 
@@ -347,6 +379,142 @@ public class Project {
   public void setCompletionDate(LocalDate completionDate) {
     this.completionDate = completionDate;
   }
+
+  /**
+   * Gets the row version the project was read at. Updates only succeed
+   * while the stored row still has this version.
+   *
+   * @return The version, or 0 if the project was never stored
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Sets the row version the project was read at.
+   *
+   * @param version The version, or 0 to update without a version check
+   */
+  public void setVersion(int version) {
+    this.version = version;
+  }
+
+  /**
+   * Reapplies this project's changes on top of a newer copy, for retrying
+   * an update that lost a race with another user. Fields changed here win;
+   * everything else comes from the newer copy.
+   *
+   * @param current The project as it is now stored
+   * @return The merged project, at the stored version
+   */
+  public Project rebase(Project current) {
+    Project merged = new Project(current);
+    merged.markClean();
+    merged.copyFields(this, getChangedFields());
+    return merged;
+  }
+
+  /**
+   * Starts tracking changes, for example once the project has been read
+   * from storage or written back to it.
+   */
+  public void markClean() {
+    changedFields = EnumSet.noneOf(Field.class);
+  }
+
+  /**
+   * Gets the fields set to a new value since the project was loaded. A
+   * project that was never loaded reports every field as changed.
+   *
+   * @return The changed fields
+   */
+  public Set<Field> getChangedFields() {
+    return changedFields != null ? EnumSet.copyOf(changedFields) : EnumSet.allOf(Field.class);
+  }
+
+  /**
+   * Copies a set of fields from another project.
+   *
+   * @param source The project to copy from
+   * @param fields The fields to copy
+   */
+  void copyFields(Project source, Set<Field> fields) {
+    for (Field field : fields) {
+      switch (field) {
+        case PROJECT_NAME:
+          setProjectName(source.projectName);
+          break;
+        case BUILDING_TYPE:
+          setBuildingType(source.buildingType);
+          break;
+        case PHYSICAL_ADDRESS:
+          setPhysicalAddress(source.physicalAddress);
+          break;
+        case TOTAL_FEE:
+          setTotalFee(source.totalFee);
+          break;
+        case DEADLINE:
+          setDeadline(source.deadline);
+          break;
+        case ERF_NUMBER:
+          setErfNumber(source.erfNumber);
+          break;
+        case ARCHITECT_ID:
+          setArchitectId(source.architectId);
+          break;
+        case ENGINEER_ID:
+          setEngineerId(source.engineerId);
+          break;
+        case MANAGER_ID:
+          setManagerId(source.managerId);
+          break;
+        case CONTRACTOR_ID:
+          setContractorId(source.contractorId);
+          break;
+        default:
+          setCustomerId(source.customerId);
+          break;
+      }
+    }
+  }
+
+  private void markChanged(Field field, boolean differs) {
+    if (changedFields != null && differs) {
+      changedFields.add(field);
+    }
+  }
+
+  /**
+   * The fields an update can write, with their column names.
+   */
+  public enum Field {
+    PROJECT_NAME("project_name"),
+    BUILDING_TYPE("building_type"),
+    PHYSICAL_ADDRESS("physical_address"),
+    TOTAL_FEE("total_fee"),
+    DEADLINE("deadline"),
+    ERF_NUMBER("erf_number"),
+    ARCHITECT_ID("architect_id"),
+    ENGINEER_ID("engineer_id"),
+    MANAGER_ID("manager_id"),
+    CONTRACTOR_ID("contractor_id"),
+    CUSTOMER_ID("customer_id");
+
+    private final String column;
+
+    Field(String column) {
+      this.column = column;
+    }
+
+    /**
+     * Gets the column in the project table.
+     *
+     * @return The column name
+     */
+    public String getColumn() {
+      return column;
+    }
+  }
 }
 
 
@@ -0,0 +1,335 @@
+package poised;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * The ProjectBenchmark class measures the cost of the core project and
+ * person operations so regressions can be spotted before deployment.
+ *
+ * <p>Each operation is warmed up and then run for a fixed time on a
+ * single thread. For every operation the benchmark reports throughput,
+ * latency percentiles, bytes allocated per operation and the number of
+ * garbage collections during measurement. Every result is handed to a
+ * volatile sink so the JIT cannot drop the work, and latencies go into a
+ * {@link LatencyHistogram}, so long runs keep every sample.
+ *
+ * <p>Three targets are supported: the in-memory engine seeded with a
+ * synthetic dataset at each requested scale; an embedded database
+ * (H2 in MySQL mode by default) created from PoisePMS.sql and seeded the
+ * same way; and, read-only, the data already in the configured database.
+ * Against a database the project cache, the role directories and the
+ * search and deadline indexes are cleared, outside the timed region,
+ * before every call, so the figures are for the SQL rather than for
+ * cache hits. By default each scale runs in its
+ * own JVM so JIT profiles from one run do not leak into the next.
+ */
+public class ProjectBenchmark {
+  static final String FORKED_PROPERTY = "poisepms.bench.forked";
+
+  private static final String EMBEDDED_URL = System.getProperty("poisepms.bench.jdbcUrl",
+      "jdbc:h2:mem:poisepms;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+  private static final Path SCHEMA_FILE =
+      Paths.get(System.getProperty("poisepms.bench.schema", "PoisePMS.sql"));
+  private static final int SEED_CHUNK_SIZE = 10_000;
+
+  private final long warmupMillis;
+  private final long measureMillis;
+  private final Random random = new Random(42);
+
+  // Results are written here so the JIT cannot eliminate the operations
+  private volatile Object sink;
+
+  /**
+   * Constructor for a benchmark run.
+   *
+   * @param warmupMillis  How long each operation runs before measuring
+   * @param measureMillis How long each operation is measured
+   */
+  public ProjectBenchmark(long warmupMillis, long measureMillis) {
+    this.warmupMillis = warmupMillis;
+    this.measureMillis = measureMillis;
+  }
+
+  /**
+   * Benchmarks the in-memory engine at each scale.
+   *
+   * @param scales The project counts to seed before benchmarking
+   */
+  public void runInMemory(int[] scales) {
+    printHeader();
+    for (int scale : scales) {
+      InMemoryPersonRepository persons = new InMemoryPersonRepository();
+      ProjectRepository projects =
+          CommandLine.memoryProjects(DatasetGenerator.scaledTo(42L, scale), persons);
+      runAll(projects, persons, scale, scale, null);
+    }
+  }
+
+  /**
+   * Benchmarks the JDBC engine against an embedded database at each
+   * scale. The database named by {@code poisepms.bench.jdbcUrl} is
+   * created from the CREATE TABLE statements in {@code poisepms.bench.schema}
+   * and seeded with a synthetic dataset; its driver must be on the class
+   * path.
+   *
+   * @param scales The project counts to seed before benchmarking
+   * @throws SQLException if the database cannot be created or seeded
+   * @throws IOException  if the schema file cannot be read
+   */
+  public void runEmbedded(int[] scales) throws SQLException, IOException {
+    printHeader();
+    for (int scale : scales) {
+      // An in-memory database is dropped when its last connection closes
+      try (Connection connection = DriverManager.getConnection(EMBEDDED_URL)) {
+        loadSchema(connection, SCHEMA_FILE);
+        DatasetGenerator.scaledTo(42L, scale).generateInto(connection, SEED_CHUNK_SIZE);
+        runAll(new JdbcProjectRepository(connection), new JdbcPersonRepository(connection),
+            scale, scale, ProjectBenchmark::clearCaches);
+      } finally {
+        clearCaches();
+      }
+    }
+  }
+
+  /**
+   * Benchmarks the JDBC engine against the data in the configured database.
+   *
+   * @throws SQLException if a connection cannot be obtained
+   */
+  public void runJdbc() throws SQLException {
+    try (Connection connection = Database.getConnection()) {
+      ProjectRepository projects = new JdbcProjectRepository(connection);
+      PersonRepository persons = new JdbcPersonRepository(connection);
+      int maxId = 0;
+      int count = 0;
+      ProjectPage page;
+      int afterId = 0;
+      do {
+        page = projects.findPage(afterId, 10_000);
+        if (page == null) {
+          throw new SQLException("Could not read projects.");
+        }
+        count += page.getProjects().size();
+        afterId = page.getLastProjectId();
+        maxId = Math.max(maxId, afterId);
+      } while (page.hasMore());
+      printHeader();
+      // Benchmark writes would change the database, so only reads are run.
+      runReads(projects, persons, count, Math.max(1, maxId), ProjectBenchmark::clearCaches);
+    }
+  }
+
+  /**
+   * Runs the benchmark once per scale and fork, each in a new JVM with
+   * the same JVM options and class path as this one. The header is
+   * printed here and the forks print only their rows.
+   *
+   * @param target The target argument, "embedded" or null for in-memory
+   * @param scales The project counts
+   * @param forks  The number of JVMs to run per scale
+   * @return true if every fork succeeded
+   * @throws IOException if a JVM cannot be started
+   */
+  public static boolean runForked(String target, int[] scales, int forks) throws IOException {
+    printHeader();
+    boolean succeeded = true;
+    for (int scale : scales) {
+      for (int fork = 0; fork < forks; fork++) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-D" + FORKED_PROPERTY + "=true");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PoisePMS.class.getName());
+        command.add("--benchmark");
+        if (target != null) {
+          command.add(target);
+        }
+        command.add(String.valueOf(scale));
+        try {
+          Process process = new ProcessBuilder(command).inheritIO().start();
+          succeeded &= process.waitFor() == 0;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+    }
+    return succeeded;
+  }
+
+  /**
+   * Creates the tables of a MySQL dump file in another database.
+   *
+   * @param connection The connection to the empty database
+   * @param schema     The dump, such as PoisePMS.sql
+   * @throws SQLException if a table cannot be created
+   * @throws IOException  if the dump cannot be read
+   * @see #createTables(Connection, String)
+   */
+  static void loadSchema(Connection connection, Path schema) throws SQLException, IOException {
+    createTables(connection, new String(Files.readAllBytes(schema), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Creates the tables of a MySQL dump in another database. Only the
+   * CREATE TABLE statements are run, without the MySQL table options,
+   * and tables whose foreign keys refer to tables not yet created are
+   * retried once those exist.
+   *
+   * @param connection The connection to the empty database
+   * @param dump       The text of the dump
+   * @throws SQLException if a table cannot be created
+   */
+  static void createTables(Connection connection, String dump) throws SQLException {
+    List<String> pending = new ArrayList<>();
+    for (String statement : dump.split(";\\r?\\n")) {
+      int start = statement.indexOf("CREATE TABLE");
+      if (start >= 0) {
+        String create = statement.substring(start);
+        pending.add(create.substring(0, create.lastIndexOf(')') + 1));
+      }
+    }
+    try (Statement stmt = connection.createStatement()) {
+      while (!pending.isEmpty()) {
+        List<String> failed = new ArrayList<>();
+        SQLException last = null;
+        for (String create : pending) {
+          try {
+            stmt.execute(create);
+          } catch (SQLException e) {
+            failed.add(create);
+            last = e;
+          }
+        }
+        if (failed.size() == pending.size()) {
+          throw last;
+        }
+        pending = failed;
+      }
+    }
+  }
+
+  private void runAll(ProjectRepository projects, PersonRepository persons, int scale,
+      int maxId, Runnable reset) {
+    runReads(projects, persons, scale, maxId, reset);
+    LocalDate deadline = LocalDate.now().plusDays(30);
+    measure("addProject", scale, reset, i -> projects.add(new Project("Bench " + i, "House",
+        i + " Bench St", 1000f, deadline, "B" + i, 1, 1, 1, 1, 1)));
+  }
+
+  private void runReads(ProjectRepository projects, PersonRepository persons, int scale,
+      int maxId, Runnable reset) {
+    PersonRole[] roles = PersonRole.values();
+    measure("getProjectById", scale, reset, i -> projects.findById(1 + random.nextInt(maxId)));
+    measure("findProjectByIdOrName", scale, reset,
+        i -> projects.findByIdOrName(String.valueOf(1 + random.nextInt(maxId))));
+    measure("findPastDueProjects", scale, reset, i -> projects.findPastDue());
+    measure("findUnfinishedProjects", scale, reset, i -> projects.findUnfinished());
+    measure("portfolioReport", scale, reset, i -> projects.report());
+    measure("listPersons", scale, reset, i -> persons.listByRole(roles[i % roles.length]));
+  }
+
+  private void measure(String name, int scale, Runnable reset, IntFunction<Object> operation) {
+    run(operation, reset, warmupMillis, null);
+
+    LatencyHistogram latencies = new LatencyHistogram();
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    long gcBefore = gcCount();
+    long allocBefore = allocatedBytes(threads);
+    long elapsed = run(operation, reset, measureMillis, latencies);
+    long allocated = allocatedBytes(threads) - allocBefore;
+    long gcs = gcCount() - gcBefore;
+    long operations = latencies.getCount();
+
+    System.out.printf("%-22s %9d %12.1f %9.1f %9.1f %9.1f %9.1f %11s %5d%n",
+        name, scale,
+        operations * 1e9 / elapsed,
+        latencies.getValueAtPercentile(50) / 1e3,
+        latencies.getValueAtPercentile(90) / 1e3,
+        latencies.getValueAtPercentile(99) / 1e3,
+        latencies.getValueAtPercentile(99.9) / 1e3,
+        // Allocation by reset, which is outside the timed region, is included
+        allocBefore < 0 ? "n/a" : String.valueOf(allocated / Math.max(1, operations)),
+        gcs);
+  }
+
+  /**
+   * Runs an operation repeatedly for a time, recording each call's
+   * latency if a histogram is given.
+   *
+   * @return The time spent in the operation itself, in nanoseconds
+   */
+  private long run(IntFunction<Object> operation, Runnable reset, long millis,
+      LatencyHistogram latencies) {
+    long deadline = System.nanoTime() + millis * 1_000_000L;
+    long timed = 0;
+    int i = 0;
+    long now;
+    do {
+      if (reset != null) {
+        reset.run();
+      }
+      long begin = System.nanoTime();
+      sink = operation.apply(i++);
+      now = System.nanoTime();
+      timed += now - begin;
+      if (latencies != null) {
+        latencies.record(now - begin);
+      }
+    } while (now < deadline);
+    return timed;
+  }
+
+  private static void clearCaches() {
+    ProjectManager.invalidateProjectCache();
+    ProjectManager.invalidateRoleDirectories();
+    ProjectManager.invalidateSearchIndex();
+    ProjectManager.invalidateDeadlineIndex();
+  }
+
+  private static void printHeader() {
+    if (Boolean.getBoolean(FORKED_PROPERTY)) {
+      return;
+    }
+    System.out.printf("%-22s %9s %12s %9s %9s %9s %9s %11s %5s%n",
+        "operation", "scale", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us",
+        "bytes/op", "gcs");
+  }
+
+  private static long allocatedBytes(ThreadMXBean threads) {
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+      if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+        return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    for (GarbageCollectorMXBean collector : collectors) {
+      count += Math.max(0, collector.getCollectionCount());
+    }
+    return count;
+  }
+}
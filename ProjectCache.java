@@ -0,0 +1,220 @@
+package poised;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A size-bounded LRU cache of projects keyed by project ID.
+ *
+ * <p>Projects are copied on the way in and out, so callers can never
+ * modify cached state. Writes either update a cached entry with the
+ * columns they changed or evict it, and entries expire after a
+ * time-to-live so that writes by other processes are picked up. Hits,
+ * misses and evictions are counted for tuning.
+ *
+ * <p>A reader takes a {@link #readStamp()} before querying the database
+ * and passes it to {@link #put}. A put is dropped if a write evicted the
+ * project, or any project sharing its stripe, after the stamp was taken,
+ * so a row read before a write cannot be cached after the write's
+ * eviction.
+ */
+class ProjectCache {
+  private static final int STRIPES = 64;
+
+  private final Map<Integer, CachedProject> entries;
+  private final long ttlNanos;
+  // The sequence number of the last eviction in each stripe of project IDs
+  private final long[] evictedAt = new long[STRIPES];
+  private long sequence;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Creates a project cache.
+   *
+   * @param capacity  The maximum number of cached projects
+   * @param ttlMillis How long a cached project is served before it is
+   *                  read again
+   */
+  ProjectCache(final int capacity, long ttlMillis) {
+    this.ttlNanos = ttlMillis * 1_000_000L;
+    this.entries = new LinkedHashMap<Integer, CachedProject>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, CachedProject> eldest) {
+        if (size() <= capacity) {
+          return false;
+        }
+        evictions++;
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Gets a cached project, counting a hit or a miss. Cached projects match
+   * the database, so the copy starts with no changed fields.
+   *
+   * @param projectId The project ID
+   * @return A copy of the cached project, or null if it is not cached
+   */
+  synchronized Project get(int projectId) {
+    CachedProject entry = entries.get(projectId);
+    if (entry != null && System.nanoTime() - entry.loadedAt > ttlNanos) {
+      entries.remove(projectId);
+      entry = null;
+    }
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    Project copy = new Project(entry.project);
+    copy.markClean();
+    return copy;
+  }
+
+  /**
+   * Gets the stamp to pass to {@link #put} for a read about to start.
+   *
+   * @return The current eviction sequence number
+   */
+  synchronized long readStamp() {
+    return sequence;
+  }
+
+  /**
+   * Caches a project read from the database, unless it was evicted since
+   * the read began.
+   *
+   * @param project   The project
+   * @param readStamp The {@link #readStamp()} taken before the read
+   */
+  synchronized void put(Project project, long readStamp) {
+    if (evictedAt[stripe(project.getId())] > readStamp) {
+      return;
+    }
+    entries.put(project.getId(), new CachedProject(new Project(project), System.nanoTime()));
+  }
+
+  /**
+   * Applies an update to a cached project. Only the fields written by
+   * {@link ProjectManager#updateProject} are taken from the update; the
+   * finalisation state stays as cached.
+   *
+   * @param project The updated project
+   * @param fields  The fields the update wrote
+   */
+  synchronized void update(Project project, Set<Project.Field> fields) {
+    CachedProject entry = entries.get(project.getId());
+    if (entry == null) {
+      return;
+    }
+    Project cached = entry.project;
+    cached.copyFields(project, fields);
+    cached.setVersion(project.getVersion());
+    if (fields.contains(Project.Field.TOTAL_FEE)) {
+      // total_fee is DECIMAL(10,2), so cache what the database stores
+      cached.setTotalFee(Math.round(project.getTotalFee() * 100) / 100f);
+    }
+  }
+
+  /**
+   * Marks a cached project as finalized.
+   *
+   * @param projectId      The project ID
+   * @param completionDate The completion date recorded
+   */
+  synchronized void finalizeProject(int projectId, LocalDate completionDate) {
+    CachedProject entry = entries.get(projectId);
+    if (entry != null) {
+      Project cached = entry.project;
+      cached.setFinalised(1);
+      cached.setCompletionDate(completionDate);
+      cached.setVersion(cached.getVersion() + 1);
+    }
+  }
+
+  /**
+   * Removes a project from the cache.
+   *
+   * @param projectId The project ID
+   */
+  synchronized void evict(int projectId) {
+    entries.remove(projectId);
+    evictedAt[stripe(projectId)] = ++sequence;
+  }
+
+  /**
+   * Removes a set of projects from the cache.
+   *
+   * @param projectIds The project IDs
+   */
+  synchronized void evictAll(Collection<Integer> projectIds) {
+    for (Integer projectId : projectIds) {
+      evict(projectId);
+    }
+  }
+
+  /**
+   * Removes every cached project matching a condition.
+   *
+   * @param condition Selects the projects to remove
+   */
+  synchronized void evictIf(Predicate<Project> condition) {
+    Iterator<CachedProject> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      if (condition.test(iterator.next().project)) {
+        iterator.remove();
+      }
+    }
+    // Projects being read may match too
+    Arrays.fill(evictedAt, ++sequence);
+  }
+
+  /**
+   * Removes every cached project.
+   */
+  synchronized void clear() {
+    entries.clear();
+    Arrays.fill(evictedAt, ++sequence);
+  }
+
+  synchronized long getHits() {
+    return hits;
+  }
+
+  synchronized long getMisses() {
+    return misses;
+  }
+
+  synchronized long getEvictions() {
+    return evictions;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  private static int stripe(int projectId) {
+    return projectId & (STRIPES - 1);
+  }
+
+  private static final class CachedProject {
+    private final Project project;
+    private final long loadedAt;
+
+    CachedProject(Project project, long loadedAt) {
+      this.project = project;
+      this.loadedAt = loadedAt;
+    }
+  }
+}
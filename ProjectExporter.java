@@ -0,0 +1,644 @@
+package poised;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * The ProjectExporter class streams projects and role directories out of
+ * the database as CSV, JSON Lines or a compact binary format, for nightly
+ * extracts too large to hold in memory.
+ *
+ * <p>Rows are read from a streaming ResultSet and each column is encoded
+ * straight into one reusable direct buffer, which is written to the output
+ * channel whenever it fills. Fees are read as whole cents and dates as
+ * epoch days so that numbers and dates are formatted digit by digit;
+ * nothing is built per row apart from the strings the driver returns.
+ *
+ * <p>CSV and JSON Lines use the field names of the bulk import and the
+ * JSON API. The binary format is big-endian: a header of the magic number
+ * "PPMX", a format version (short), a column count (short) and for each
+ * column its type code (byte) and UTF-8 name (short length and bytes);
+ * then each row as a 1 byte followed by its values; then a 0 byte and the
+ * row count (long). Type codes are I for an int (null is
+ * Integer.MIN_VALUE), C for a long amount in cents (null is
+ * Long.MIN_VALUE), D for an int epoch day (null is Integer.MIN_VALUE), F
+ * for a flag byte, and S for a UTF-8 string as an int byte length (-1 for
+ * null) and the bytes.
+ */
+public class ProjectExporter {
+  private static final int MAGIC = 0x50504D58; // "PPMX"
+  private static final short FORMAT_VERSION = 1;
+
+  private static final Column[] PROJECT_COLUMNS = {
+    new Column("id", Type.INT),
+    new Column("version", Type.INT),
+    new Column("project_name", Type.STRING),
+    new Column("building_type", Type.STRING),
+    new Column("physical_address", Type.STRING),
+    new Column("erf_number", Type.STRING),
+    new Column("total_fee", Type.CENTS),
+    new Column("amount_paid", Type.CENTS),
+    new Column("deadline", Type.DATE),
+    new Column("completion_date", Type.DATE),
+    new Column("finalised", Type.FLAG),
+    new Column("architect_id", Type.INT),
+    new Column("engineer_id", Type.INT),
+    new Column("manager_id", Type.INT),
+    new Column("contractor_id", Type.INT),
+    new Column("customer_id", Type.INT),
+  };
+  private static final String PROJECT_QUERY = "SELECT project_id, version, project_name, "
+      + "building_type, physical_address, erf_number, ROUND(total_fee * 100), "
+      + "ROUND(amount_paid * 100), DATEDIFF(deadline, '1970-01-01'), "
+      + "DATEDIFF(completion_date, '1970-01-01'), COALESCE(is_finalised, 0), "
+      + "architect_id, engineer_id, manager_id, contractor_id, customer_id FROM Project";
+
+  private static final Column[] PERSON_COLUMNS = {
+    new Column("role", Type.STRING),
+    new Column("id", Type.INT),
+    new Column("name", Type.STRING),
+    new Column("phone", Type.STRING),
+    new Column("email", Type.STRING),
+    new Column("physical_address", Type.STRING),
+  };
+
+  private final Connection connection;
+  private final int bufferBytes;
+
+  /**
+   * Output formats.
+   */
+  public enum Format {
+    CSV,
+    JSON_LINES,
+    BINARY;
+
+    /**
+     * Chooses a format by name: csv, jsonl (or json, ndjson) or binary
+     * (or bin).
+     *
+     * @param name The format name
+     * @return The format, or null if the name is unknown
+     */
+    public static Format fromName(String name) {
+      switch (name.toLowerCase(Locale.ROOT)) {
+        case "csv":
+          return CSV;
+        case "json":
+        case "jsonl":
+        case "ndjson":
+          return JSON_LINES;
+        case "bin":
+        case "binary":
+          return BINARY;
+        default:
+          return null;
+      }
+    }
+
+    /**
+     * Chooses a format from a file extension, as the importer does.
+     *
+     * @param fileName The file name
+     * @return The format, CSV if the extension is not recognised
+     */
+    public static Format forFile(String fileName) {
+      int dot = fileName.lastIndexOf('.');
+      Format format = dot >= 0 ? fromName(fileName.substring(dot + 1)) : null;
+      return format != null ? format : CSV;
+    }
+  }
+
+  /**
+   * Selects the projects to export. The default selects every project.
+   */
+  public static final class ProjectFilter {
+    private boolean unfinished;
+    private boolean pastDue;
+    private PersonRole role;
+    private int personId;
+
+    /**
+     * Keeps only projects that are not finalised.
+     *
+     * @param unfinished True to skip finalised projects
+     */
+    public void setUnfinished(boolean unfinished) {
+      this.unfinished = unfinished;
+    }
+
+    /**
+     * Keeps only unfinished projects whose deadline has passed.
+     *
+     * @param pastDue True to skip projects that are finalised or not yet due
+     */
+    public void setPastDue(boolean pastDue) {
+      this.pastDue = pastDue;
+    }
+
+    /**
+     * Keeps only projects assigned to one person.
+     *
+     * @param role     The role the person has on the project
+     * @param personId The person's ID in the role directory
+     */
+    public void setAssignedTo(PersonRole role, int personId) {
+      this.role = role;
+      this.personId = personId;
+    }
+  }
+
+  /**
+   * Constructor for an exporter whose buffer size is
+   * {@code poisepms.export.bufferBytes}.
+   *
+   * @param connection The database connection
+   */
+  public ProjectExporter(Connection connection) {
+    this(connection, Integer.getInteger("poisepms.export.bufferBytes", 1 << 16));
+  }
+
+  /**
+   * Constructor for an exporter.
+   *
+   * @param connection  The database connection
+   * @param bufferBytes The size of the output buffer
+   */
+  public ProjectExporter(Connection connection, int bufferBytes) {
+    this.connection = connection;
+    this.bufferBytes = Math.max(bufferBytes, 4096);
+  }
+
+  /**
+   * Exports projects in ID order.
+   *
+   * @param filter The projects to export
+   * @param format The output format
+   * @param out    The channel to write to; it is not closed
+   * @return The number of projects exported
+   * @throws SQLException if the projects cannot be read
+   * @throws IOException  if the output cannot be written
+   */
+  public long exportProjects(ProjectFilter filter, Format format, WritableByteChannel out)
+      throws SQLException, IOException {
+    StringBuilder query = new StringBuilder(PROJECT_QUERY).append(" WHERE 1 = 1");
+    if (filter.unfinished || filter.pastDue) {
+      query.append(" AND COALESCE(is_finalised, 0) = 0");
+    }
+    if (filter.pastDue) {
+      query.append(" AND deadline < ?");
+    }
+    if (filter.role != null) {
+      query.append(" AND ").append(filter.role.getIdColumn()).append(" = ?");
+    }
+    query.append(" ORDER BY project_id");
+    try (PreparedStatement pstmt = streamingStatement(query.toString())) {
+      int index = 1;
+      if (filter.pastDue) {
+        pstmt.setDate(index++, Date.valueOf(LocalDate.now()));
+      }
+      if (filter.role != null) {
+        pstmt.setInt(index, filter.personId);
+      }
+      try (ResultSet rs = pstmt.executeQuery()) {
+        return write(rs, PROJECT_COLUMNS, format, out, bufferBytes);
+      }
+    }
+  }
+
+  /**
+   * Exports role directories with contact details, one role after another
+   * and in ID order within each role.
+   *
+   * @param role   The role to export, or null for every role
+   * @param format The output format
+   * @param out    The channel to write to; it is not closed
+   * @return The number of persons exported
+   * @throws SQLException if the directories cannot be read
+   * @throws IOException  if the output cannot be written
+   */
+  public long exportPersons(PersonRole role, Format format, WritableByteChannel out)
+      throws SQLException, IOException {
+    StringBuilder query = new StringBuilder();
+    for (PersonRole r : PersonRole.values()) {
+      if (role != null && r != role) {
+        continue;
+      }
+      if (query.length() > 0) {
+        query.append(" UNION ALL ");
+      }
+      query.append("SELECT '").append(r.getSlug()).append("', ").append(r.getIdColumn())
+          .append(", name, phone_number, email, physical_address, ").append(r.ordinal())
+          .append(" FROM ").append(r.getTable());
+    }
+    // The trailing role number only orders the rows and is not exported
+    query.append(" ORDER BY 7, 2");
+    try (PreparedStatement pstmt = streamingStatement(query.toString());
+        ResultSet rs = pstmt.executeQuery()) {
+      return write(rs, PERSON_COLUMNS, format, out, bufferBytes);
+    }
+  }
+
+  /**
+   * Prepares a statement whose results the driver streams row by row
+   * instead of reading them all into memory first.
+   */
+  private PreparedStatement streamingStatement(String query) throws SQLException {
+    PreparedStatement pstmt = connection.prepareStatement(query,
+        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    ProjectManager.setFetchSize(pstmt, Integer.MIN_VALUE);
+    return pstmt;
+  }
+
+  /**
+   * Writes every remaining row of a result set whose columns are, in
+   * order, the given columns.
+   *
+   * @param rs          The rows
+   * @param columns     The column names and types
+   * @param format      The output format
+   * @param out         The channel to write to
+   * @param bufferBytes The size of the output buffer
+   * @return The number of rows written
+   */
+  static long write(ResultSet rs, Column[] columns, Format format, WritableByteChannel out,
+      int bufferBytes) throws SQLException, IOException {
+    RowWriter writer = new RowWriter(out, format, columns, bufferBytes);
+    writer.begin();
+    long rows = 0;
+    while (rs.next()) {
+      writer.startRow();
+      for (int c = 0; c < columns.length; c++) {
+        writer.startField(c);
+        switch (columns[c].type) {
+          case INT:
+          case DATE: {
+            int value = rs.getInt(c + 1);
+            if (rs.wasNull()) {
+              writer.putNull(columns[c].type);
+            } else if (columns[c].type == Type.DATE) {
+              writer.putDate(value);
+            } else {
+              writer.putInt(value);
+            }
+            break;
+          }
+          case CENTS: {
+            long value = rs.getLong(c + 1);
+            if (rs.wasNull()) {
+              writer.putNull(Type.CENTS);
+            } else {
+              writer.putCents(value);
+            }
+            break;
+          }
+          case FLAG:
+            writer.putFlag(rs.getInt(c + 1) != 0);
+            break;
+          default:
+            writer.putString(rs.getString(c + 1));
+            break;
+        }
+      }
+      writer.endRow();
+      rows++;
+    }
+    writer.end(rows);
+    return rows;
+  }
+
+  /**
+   * Column value types, each with its code in the binary header.
+   */
+  enum Type {
+    INT('I'),
+    CENTS('C'),
+    DATE('D'),
+    FLAG('F'),
+    STRING('S');
+
+    private final byte code;
+
+    Type(char code) {
+      this.code = (byte) code;
+    }
+  }
+
+  /**
+   * An exported column.
+   */
+  static final class Column {
+    private final Type type;
+    private final byte[] nameBytes;
+
+    Column(String name, Type type) {
+      this.type = type;
+      this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Encodes rows into a reusable direct buffer and drains it to a channel
+   * when it fills.
+   */
+  private static final class RowWriter {
+    private final WritableByteChannel out;
+    private final Format format;
+    private final Column[] columns;
+    private ByteBuffer buffer;
+
+    RowWriter(WritableByteChannel out, Format format, Column[] columns, int bufferBytes) {
+      this.out = out;
+      this.format = format;
+      this.columns = columns;
+      this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+    }
+
+    void begin() throws IOException {
+      if (format == Format.BINARY) {
+        ensure(8);
+        buffer.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) columns.length);
+        for (Column column : columns) {
+          ensure(3 + column.nameBytes.length);
+          buffer.put(column.type.code).putShort((short) column.nameBytes.length)
+              .put(column.nameBytes);
+        }
+      } else if (format == Format.CSV) {
+        for (int c = 0; c < columns.length; c++) {
+          ensure(1 + columns[c].nameBytes.length);
+          if (c > 0) {
+            buffer.put((byte) ',');
+          }
+          buffer.put(columns[c].nameBytes);
+        }
+        putByte('\n');
+      }
+    }
+
+    void startRow() throws IOException {
+      if (format == Format.BINARY) {
+        putByte(1);
+      } else if (format == Format.JSON_LINES) {
+        putByte('{');
+      }
+    }
+
+    void startField(int c) throws IOException {
+      if (format == Format.JSON_LINES) {
+        ensure(4 + columns[c].nameBytes.length);
+        if (c > 0) {
+          buffer.put((byte) ',');
+        }
+        buffer.put((byte) '"').put(columns[c].nameBytes).put((byte) '"').put((byte) ':');
+      } else if (format == Format.CSV && c > 0) {
+        putByte(',');
+      }
+    }
+
+    void endRow() throws IOException {
+      if (format == Format.JSON_LINES) {
+        ensure(2);
+        buffer.put((byte) '}').put((byte) '\n');
+      } else if (format == Format.CSV) {
+        putByte('\n');
+      }
+    }
+
+    void end(long rows) throws IOException {
+      if (format == Format.BINARY) {
+        ensure(9);
+        buffer.put((byte) 0).putLong(rows);
+      }
+      flush();
+    }
+
+    void putNull(Type type) throws IOException {
+      ensure(8);
+      if (format == Format.BINARY) {
+        if (type == Type.CENTS) {
+          buffer.putLong(Long.MIN_VALUE);
+        } else {
+          buffer.putInt(Integer.MIN_VALUE);
+        }
+      } else if (format == Format.JSON_LINES) {
+        buffer.put((byte) 'n').put((byte) 'u').put((byte) 'l').put((byte) 'l');
+      }
+    }
+
+    void putInt(int value) throws IOException {
+      ensure(11);
+      if (format == Format.BINARY) {
+        buffer.putInt(value);
+      } else {
+        putDigits(value);
+      }
+    }
+
+    void putCents(long cents) throws IOException {
+      ensure(24);
+      if (format == Format.BINARY) {
+        buffer.putLong(cents);
+        return;
+      }
+      if (cents < 0) {
+        buffer.put((byte) '-');
+        cents = -cents;
+      }
+      putDigits(cents / 100);
+      int fraction = (int) (cents % 100);
+      buffer.put((byte) '.').put((byte) ('0' + fraction / 10)).put((byte) ('0' + fraction % 10));
+    }
+
+    void putDate(int epochDay) throws IOException {
+      ensure(24);
+      if (format == Format.BINARY) {
+        buffer.putInt(epochDay);
+        return;
+      }
+      // Civil date from days since 1970-01-01, without a LocalDate per row
+      long z = epochDay + 719468L;
+      long era = Math.floorDiv(z, 146097);
+      long dayOfEra = z - era * 146097;
+      long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+      long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+      long shiftedMonth = (5 * dayOfYear + 2) / 153;
+      int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+      int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+      long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+      if (format == Format.JSON_LINES) {
+        buffer.put((byte) '"');
+      }
+      for (long pad = 1000; year >= 0 && year < pad && pad > 1; pad /= 10) {
+        buffer.put((byte) '0');
+      }
+      putDigits(year);
+      buffer.put((byte) '-').put((byte) ('0' + month / 10)).put((byte) ('0' + month % 10));
+      buffer.put((byte) '-').put((byte) ('0' + day / 10)).put((byte) ('0' + day % 10));
+      if (format == Format.JSON_LINES) {
+        buffer.put((byte) '"');
+      }
+    }
+
+    void putFlag(boolean value) throws IOException {
+      ensure(5);
+      if (format == Format.BINARY) {
+        buffer.put((byte) (value ? 1 : 0));
+      } else if (value) {
+        buffer.put((byte) 't').put((byte) 'r').put((byte) 'u').put((byte) 'e');
+      } else {
+        buffer.put((byte) 'f').put((byte) 'a').put((byte) 'l').put((byte) 's').put((byte) 'e');
+      }
+    }
+
+    void putString(String value) throws IOException {
+      if (value == null) {
+        putNull(Type.STRING);
+        return;
+      }
+      // An escaped character takes at most six bytes, so the value fits
+      // once this much room is free
+      ensure(value.length() * 6 + 6);
+      if (format == Format.BINARY) {
+        int lengthAt = buffer.position();
+        buffer.putInt(0);
+        putUtf8(value);
+        buffer.putInt(lengthAt, buffer.position() - lengthAt - 4);
+      } else if (format == Format.JSON_LINES) {
+        buffer.put((byte) '"');
+        putUtf8(value);
+        buffer.put((byte) '"');
+      } else if (needsQuotes(value)) {
+        buffer.put((byte) '"');
+        putUtf8(value);
+        buffer.put((byte) '"');
+      } else {
+        putUtf8(value);
+      }
+    }
+
+    /**
+     * Encodes a string as UTF-8, escaping it for the output format.
+     */
+    private void putUtf8(String value) {
+      int length = value.length();
+      for (int i = 0; i < length; i++) {
+        char ch = value.charAt(i);
+        if (ch < 0x80) {
+          if (format == Format.JSON_LINES && (ch == '"' || ch == '\\' || ch < 0x20)) {
+            putJsonEscape(ch);
+          } else {
+            if (format == Format.CSV && ch == '"') {
+              buffer.put((byte) '"');
+            }
+            buffer.put((byte) ch);
+          }
+        } else if (ch < 0x800) {
+          buffer.put((byte) (0xC0 | ch >> 6)).put((byte) (0x80 | ch & 0x3F));
+        } else if (Character.isHighSurrogate(ch) && i + 1 < length
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(ch, value.charAt(++i));
+          buffer.put((byte) (0xF0 | codePoint >> 18))
+              .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+              .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+              .put((byte) (0x80 | codePoint & 0x3F));
+        } else if (Character.isSurrogate(ch)) {
+          buffer.put((byte) '?');
+        } else {
+          buffer.put((byte) (0xE0 | ch >> 12))
+              .put((byte) (0x80 | ch >> 6 & 0x3F))
+              .put((byte) (0x80 | ch & 0x3F));
+        }
+      }
+    }
+
+    private void putJsonEscape(char ch) {
+      buffer.put((byte) '\\');
+      switch (ch) {
+        case '"':
+        case '\\':
+          buffer.put((byte) ch);
+          break;
+        case '\n':
+          buffer.put((byte) 'n');
+          break;
+        case '\r':
+          buffer.put((byte) 'r');
+          break;
+        case '\t':
+          buffer.put((byte) 't');
+          break;
+        default:
+          buffer.put((byte) 'u').put((byte) '0').put((byte) '0')
+              .put((byte) Character.forDigit(ch >> 4, 16))
+              .put((byte) Character.forDigit(ch & 0xF, 16));
+          break;
+      }
+    }
+
+    /**
+     * Writes a number in decimal without building a string. Values are
+     * ints or non-negative cents, so negating cannot overflow.
+     */
+    private void putDigits(long value) {
+      if (value < 0) {
+        buffer.put((byte) '-');
+        value = -value;
+      }
+      int digits = 1;
+      for (long rest = value; rest >= 10; rest /= 10) {
+        digits++;
+      }
+      int start = buffer.position();
+      for (int p = start + digits - 1; p >= start; p--) {
+        buffer.put(p, (byte) ('0' + value % 10));
+        value /= 10;
+      }
+      buffer.position(start + digits);
+    }
+
+    private void putByte(int value) throws IOException {
+      ensure(1);
+      buffer.put((byte) value);
+    }
+
+    /**
+     * Makes room for a number of bytes, draining the buffer to the channel
+     * and growing it only for a value larger than the whole buffer.
+     */
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+        if (buffer.capacity() < bytes) {
+          buffer = ByteBuffer.allocateDirect(Math.max(bytes, buffer.capacity() * 2));
+        }
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        out.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    private static boolean needsQuotes(String value) {
+      for (int i = 0; i < value.length(); i++) {
+        char ch = value.charAt(i);
+        if (ch == ',' || ch == '"' || ch == '\n' || ch == '\r') {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package poised;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The data needed to fill in the add or update project form: the project
+ * being edited, if any, and the five role directories its people are
+ * chosen from.
+ */
+public class ProjectForm {
+  private final Project project;
+  private final Map<PersonRole, Map<Integer, String>> directories;
+
+  /**
+   * Constructor for form data.
+   *
+   * @param project     The project being edited, or null for a new project
+   * @param directories The names keyed by ID for every role
+   */
+  public ProjectForm(Project project, Map<PersonRole, Map<Integer, String>> directories) {
+    this.project = project;
+    this.directories = Collections.unmodifiableMap(new EnumMap<>(directories));
+  }
+
+  /**
+   * Gets the project being edited.
+   *
+   * @return The project, or null for a new project or an unknown ID
+   */
+  public Project getProject() {
+    return project;
+  }
+
+  /**
+   * Gets the directory for one role.
+   *
+   * @param role The role
+   * @return The names keyed by ID in ID order
+   */
+  public Map<Integer, String> getDirectory(PersonRole role) {
+    Map<Integer, String> directory = directories.get(role);
+    return directory != null ? directory : Collections.<Integer, String>emptyMap();
+  }
+
+  /**
+   * Gets a customer's surname, the last word of their name, as used for
+   * generated project names.
+   *
+   * @param customerId The customer ID
+   * @return The surname, or null if there is no such customer
+   */
+  public String getCustomerSurname(int customerId) {
+    String fullName = getDirectory(PersonRole.CUSTOMER).get(customerId);
+    if (fullName == null) {
+      return null;
+    }
+    String[] nameParts = fullName.trim().split(" ");
+    return nameParts[nameParts.length - 1];
+  }
+}
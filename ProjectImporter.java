@@ -0,0 +1,448 @@
+package poised;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * The ProjectImporter class bulk-loads projects from CSV or JSON Lines.
+ *
+ * <p>Rows are streamed from the input, person names are resolved against
+ * role directories loaded once per import, and inserts are sent with
+ * JDBC batching and committed in chunks. A chunk that fails as a batch
+ * is retried row by row so that one bad row is reported without losing
+ * the rest of the chunk. A role directory that cannot be loaded fails
+ * only the rows that need it, and is tried again for the next such row.
+ *
+ * <p>Recognised fields are project_name, building_type, physical_address,
+ * total_fee, deadline (YYYY-MM-DD) and erf_number. Each role is given
+ * either by ID (architect_id, engineer_id, manager_id, contractor_id,
+ * customer_id) or by name (architect, engineer, manager, contractor,
+ * customer). A blank project_name is generated from the building type
+ * and customer surname, as in the interactive menu.
+ */
+public class ProjectImporter {
+  private static final Logger logger = Logger.getLogger(ProjectImporter.class.getName());
+
+  private final Connection connection;
+  private final int chunkSize;
+  private final Map<PersonRole, Map<Integer, String>> namesById = new EnumMap<>(PersonRole.class);
+  private final Map<PersonRole, Map<String, Integer>> idsByName = new EnumMap<>(PersonRole.class);
+
+  /**
+   * Constructor for an importer.
+   *
+   * @param connection The database connection
+   * @param chunkSize  The number of rows sent and committed together
+   */
+  public ProjectImporter(Connection connection, int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be at least 1.");
+    }
+    this.connection = connection;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Imports a file, choosing the format from its extension: .json, .jsonl
+   * and .ndjson are read as JSON Lines, anything else as CSV.
+   *
+   * @param path The file to import
+   * @return The import summary
+   * @throws IOException  if the file cannot be read
+   * @throws SQLException if the database cannot be used at all
+   */
+  public ImportResult importFile(Path path) throws IOException, SQLException {
+    String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      if (name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+        return importJsonLines(reader);
+      }
+      return importCsv(reader);
+    }
+  }
+
+  /**
+   * Imports CSV with a header row naming the fields.
+   *
+   * @param reader The CSV input
+   * @return The import summary
+   * @throws IOException  if the input cannot be read
+   * @throws SQLException if the database cannot be used at all
+   */
+  public ImportResult importCsv(BufferedReader reader) throws IOException, SQLException {
+    return run(new CsvSource(reader));
+  }
+
+  /**
+   * Imports JSON Lines: one JSON object per line.
+   *
+   * @param reader The JSON Lines input
+   * @return The import summary
+   * @throws IOException  if the input cannot be read
+   * @throws SQLException if the database cannot be used at all
+   */
+  public ImportResult importJsonLines(BufferedReader reader) throws IOException, SQLException {
+    return run(new JsonLinesSource(reader));
+  }
+
+  private ImportResult run(RowSource source) throws IOException, SQLException {
+    ImportResult result = new ImportResult();
+    boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(false);
+    try (PreparedStatement pstmt = connection.prepareStatement(ProjectManager.INSERT_PROJECT_SQL)) {
+      List<PendingRow> chunk = new ArrayList<>(chunkSize);
+      while (true) {
+        Project project;
+        boolean counted = false;
+        try {
+          Map<String, String> row = source.next();
+          if (row == null) {
+            break;
+          }
+          result.rowRead();
+          counted = true;
+          project = toProject(row);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+          if (!counted) {
+            result.rowRead();
+          }
+          result.addError(source.getRowLine(), e.getMessage());
+          continue;
+        }
+        ProjectManager.bindProject(pstmt, project);
+        pstmt.addBatch();
+        chunk.add(new PendingRow(source.getRowLine(), project));
+        if (chunk.size() >= chunkSize) {
+          flush(pstmt, chunk, result);
+        }
+      }
+      flush(pstmt, chunk, result);
+    } finally {
+      connection.setAutoCommit(autoCommit);
+      ProjectManager.invalidateSearchIndex();
+      ProjectManager.invalidateDeadlineIndex();
+    }
+    logger.info("Imported " + result.getRowsImported() + " of " + result.getRowsRead()
+        + " projects.");
+    return result;
+  }
+
+  private void flush(PreparedStatement pstmt, List<PendingRow> chunk, ImportResult result)
+      throws SQLException {
+    if (chunk.isEmpty()) {
+      return;
+    }
+    try {
+      pstmt.executeBatch();
+      connection.commit();
+      result.rowsImported(chunk.size());
+    } catch (SQLException e) {
+      connection.rollback();
+      pstmt.clearBatch();
+      retryRowByRow(pstmt, chunk, result);
+    }
+    chunk.clear();
+  }
+
+  private void retryRowByRow(PreparedStatement pstmt, List<PendingRow> chunk,
+      ImportResult result) throws SQLException {
+    for (PendingRow pending : chunk) {
+      try {
+        ProjectManager.bindProject(pstmt, pending.project);
+        pstmt.executeUpdate();
+        connection.commit();
+        result.rowsImported(1);
+      } catch (SQLException e) {
+        connection.rollback();
+        result.addError(pending.line, e.getMessage());
+      }
+    }
+  }
+
+  private Project toProject(Map<String, String> row) {
+    String buildingType = required(row, "building_type");
+    String physicalAddress = required(row, "physical_address");
+    float totalFee;
+    try {
+      totalFee = Float.parseFloat(required(row, "total_fee"));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid total_fee: " + row.get("total_fee"));
+    }
+    LocalDate deadline;
+    try {
+      deadline = LocalDate.parse(required(row, "deadline"));
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid deadline: " + row.get("deadline"));
+    }
+    String erfNumber = blankToNull(row.get("erf_number"));
+
+    int architectId = resolve(row, PersonRole.ARCHITECT);
+    int engineerId = resolve(row, PersonRole.ENGINEER);
+    int managerId = resolve(row, PersonRole.PROJECT_MANAGER);
+    int contractorId = resolve(row, PersonRole.CONTRACTOR);
+    int customerId = resolve(row, PersonRole.CUSTOMER);
+
+    String projectName = blankToNull(row.get("project_name"));
+    if (projectName == null) {
+      projectName = buildingType + " " + surname(directory(PersonRole.CUSTOMER).get(customerId));
+    }
+
+    return new Project(projectName, buildingType, physicalAddress, totalFee, deadline,
+        erfNumber, architectId, engineerId, managerId, contractorId, customerId);
+  }
+
+  private int resolve(Map<String, String> row, PersonRole role) {
+    String idColumn = role.getIdColumn();
+    String nameField = idColumn.substring(0, idColumn.length() - "_id".length());
+    String id = blankToNull(row.get(idColumn));
+    if (id != null) {
+      try {
+        return Integer.parseInt(id);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid " + idColumn + ": " + id);
+      }
+    }
+    String name = blankToNull(row.get(nameField));
+    if (name == null) {
+      throw new IllegalArgumentException("Missing " + nameField + " or " + idColumn + ".");
+    }
+    directory(role);
+    Integer resolved = idsByName.get(role).get(name.toLowerCase(Locale.ROOT));
+    if (resolved == null) {
+      throw new IllegalArgumentException("Unknown " + role.getLabel() + ": " + name);
+    }
+    return resolved;
+  }
+
+  /**
+   * Loads a role directory the first time it is needed, so each role
+   * costs one query per import however many rows refer to it.
+   *
+   * @throws IllegalStateException if the directory cannot be loaded; the
+   *                               row is reported and the import goes on
+   */
+  private Map<Integer, String> directory(PersonRole role) {
+    Map<Integer, String> directory = namesById.get(role);
+    if (directory == null) {
+      directory = ProjectManager.getPersons(connection, role);
+      if (directory == null) {
+        throw new IllegalStateException("Could not load " + role.getLabel() + " directory.");
+      }
+      Map<String, Integer> byName = new HashMap<>();
+      for (Map.Entry<Integer, String> entry : directory.entrySet()) {
+        if (entry.getValue() != null) {
+          byName.putIfAbsent(entry.getValue().toLowerCase(Locale.ROOT), entry.getKey());
+        }
+      }
+      namesById.put(role, directory);
+      idsByName.put(role, byName);
+    }
+    return directory;
+  }
+
+  private static String surname(String fullName) {
+    if (fullName == null) {
+      return "Unknown";
+    }
+    String[] nameParts = fullName.split(" ");
+    return nameParts[nameParts.length - 1];
+  }
+
+  private static String required(Map<String, String> row, String field) {
+    String value = blankToNull(row.get(field));
+    if (value == null) {
+      throw new IllegalArgumentException("Missing " + field + ".");
+    }
+    return value;
+  }
+
+  private static String blankToNull(String value) {
+    if (value == null) {
+      return null;
+    }
+    String trimmed = value.trim();
+    return trimmed.isEmpty() ? null : trimmed;
+  }
+
+  /**
+   * A validated row waiting in the current batch.
+   */
+  private static final class PendingRow {
+    private final int line;
+    private final Project project;
+
+    PendingRow(int line, Project project) {
+      this.line = line;
+      this.project = project;
+    }
+  }
+
+  /**
+   * A stream of input rows as field name to value maps.
+   */
+  private interface RowSource {
+    /**
+     * Reads the next row.
+     *
+     * @return The row, or null at the end of the input
+     * @throws IOException              if the input cannot be read
+     * @throws IllegalArgumentException if the row is malformed; the
+     *                                  source is positioned after it
+     */
+    Map<String, String> next() throws IOException;
+
+    int getRowLine();
+  }
+
+  /**
+   * Reads CSV records, honouring quoted fields that contain commas,
+   * doubled quotes or line breaks.
+   */
+  private static final class CsvSource implements RowSource {
+    private final BufferedReader reader;
+    private final List<String> header;
+    private int line;
+    private int rowLine;
+
+    CsvSource(BufferedReader reader) throws IOException {
+      this.reader = reader;
+      List<String> names = readRecord();
+      if (names == null) {
+        throw new IOException("CSV input is empty.");
+      }
+      header = new ArrayList<>(names.size());
+      for (String name : names) {
+        header.add(name.trim().toLowerCase(Locale.ROOT));
+      }
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+      List<String> fields;
+      do {
+        fields = readRecord();
+        if (fields == null) {
+          return null;
+        }
+      } while (fields.size() == 1 && fields.get(0).trim().isEmpty());
+      Map<String, String> row = new LinkedHashMap<>();
+      for (int i = 0; i < header.size() && i < fields.size(); i++) {
+        row.put(header.get(i), fields.get(i));
+      }
+      return row;
+    }
+
+    @Override
+    public int getRowLine() {
+      return rowLine;
+    }
+
+    private List<String> readRecord() throws IOException {
+      String text = reader.readLine();
+      if (text == null) {
+        return null;
+      }
+      rowLine = ++line;
+      List<String> fields = new ArrayList<>();
+      StringBuilder field = new StringBuilder();
+      boolean quoted = false;
+      int i = 0;
+      while (true) {
+        if (i == text.length()) {
+          if (!quoted) {
+            break;
+          }
+          String more = reader.readLine();
+          if (more == null) {
+            throw new IOException("Unterminated quoted field starting on line " + rowLine + ".");
+          }
+          line++;
+          field.append('\n');
+          text = more;
+          i = 0;
+          continue;
+        }
+        char c = text.charAt(i++);
+        if (quoted) {
+          if (c == '"') {
+            if (i < text.length() && text.charAt(i) == '"') {
+              field.append('"');
+              i++;
+            } else {
+              quoted = false;
+            }
+          } else {
+            field.append(c);
+          }
+        } else if (c == '"') {
+          quoted = true;
+        } else if (c == ',') {
+          fields.add(field.toString());
+          field.setLength(0);
+        } else {
+          field.append(c);
+        }
+      }
+      fields.add(field.toString());
+      return fields;
+    }
+  }
+
+  /**
+   * Reads one JSON object per line, skipping blank lines.
+   */
+  private static final class JsonLinesSource implements RowSource {
+    private final BufferedReader reader;
+    private int line;
+
+    JsonLinesSource(BufferedReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+      String text;
+      do {
+        text = reader.readLine();
+        if (text == null) {
+          return null;
+        }
+        line++;
+      } while (text.trim().isEmpty());
+      Map<String, Object> object;
+      try {
+        object = Json.parseObject(text);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid JSON: " + e.getMessage(), e);
+      }
+      Map<String, String> row = new HashMap<>();
+      for (Map.Entry<String, Object> entry : object.entrySet()) {
+        Object value = entry.getValue();
+        row.put(entry.getKey().toLowerCase(Locale.ROOT),
+            value == null ? null : value.toString());
+      }
+      return row;
+    }
+
+    @Override
+    public int getRowLine() {
+      return line;
+    }
+  }
+}
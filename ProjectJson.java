@@ -0,0 +1,314 @@
+package poised;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts projects, persons and reports to and from the JSON used by the
+ * server and batch modes. Field names match the project table columns and
+ * the bulk import format.
+ */
+final class ProjectJson {
+
+  private ProjectJson() {
+  }
+
+  /**
+   * Appends a project as a JSON object.
+   *
+   * @param out     The builder to append to
+   * @param project The project
+   * @return The builder
+   */
+  static StringBuilder appendProject(StringBuilder out, Project project) {
+    out.append("{\"id\":").append(project.getId());
+    out.append(",\"version\":").append(project.getVersion());
+    field(out, "project_name", project.getProjectName());
+    field(out, "building_type", project.getBuildingType());
+    field(out, "physical_address", project.getPhysicalAddress());
+    field(out, "erf_number", project.getErfNumber());
+    out.append(",\"total_fee\":").append(project.getTotalFee());
+    field(out, "deadline", project.getDeadline());
+    out.append(",\"architect_id\":").append(project.getArchitectId());
+    out.append(",\"engineer_id\":").append(project.getEngineerId());
+    out.append(",\"manager_id\":").append(project.getManagerId());
+    out.append(",\"contractor_id\":").append(project.getContractorId());
+    out.append(",\"customer_id\":").append(project.getCustomerId());
+    out.append(",\"finalised\":").append(project.isFinalised() != 0);
+    field(out, "completion_date", project.getCompletionDate());
+    return out.append('}');
+  }
+
+  /**
+   * Appends a list of projects as a JSON array.
+   *
+   * @param out      The builder to append to
+   * @param projects The projects
+   * @return The builder
+   */
+  static StringBuilder appendProjects(StringBuilder out, List<Project> projects) {
+    out.append('[');
+    for (int i = 0; i < projects.size(); i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+      appendProject(out, projects.get(i));
+    }
+    return out.append(']');
+  }
+
+  /**
+   * Appends a person as a JSON object.
+   *
+   * @param out    The builder to append to
+   * @param person The person
+   * @return The builder
+   */
+  static StringBuilder appendPerson(StringBuilder out, Person person) {
+    out.append("{\"id\":").append(person.getId());
+    out.append(",\"version\":").append(person.getVersion());
+    field(out, "name", person.getName());
+    field(out, "phone", person.getPhoneNumber());
+    field(out, "email", person.getEmail());
+    return out.append('}');
+  }
+
+  /**
+   * Appends a role directory as a JSON array of id/name objects in ID order.
+   *
+   * @param out       The builder to append to
+   * @param directory The names keyed by ID
+   * @return The builder
+   */
+  static StringBuilder appendDirectory(StringBuilder out, Map<Integer, String> directory) {
+    out.append('[');
+    boolean first = true;
+    for (Map.Entry<Integer, String> entry : directory.entrySet()) {
+      if (!first) {
+        out.append(',');
+      }
+      first = false;
+      out.append("{\"id\":").append(entry.getKey());
+      field(out, "name", entry.getValue());
+      out.append('}');
+    }
+    return out.append(']');
+  }
+
+  /**
+   * Appends a portfolio report as a JSON object. Amounts are in cents.
+   *
+   * @param out    The builder to append to
+   * @param report The report
+   * @return The builder
+   */
+  static StringBuilder appendReport(StringBuilder out, PortfolioReport report) {
+    out.append('{');
+    Json.quote(out, "as_of").append(':');
+    Json.quote(out, report.getAsOf().toString());
+    out.append(",\"projects\":").append(report.getProjectCount());
+    out.append(",\"unfinished\":").append(report.getUnfinishedCount());
+    out.append(",\"past_due\":").append(report.getPastDueCount());
+    out.append(",\"total_fee_cents\":").append(report.getTotalFeeCents());
+    out.append(",\"amount_paid_cents\":").append(report.getAmountPaidCents());
+    out.append(",\"outstanding_cents\":").append(report.getOutstandingCents());
+    out.append(",\"building_types\":[");
+    List<PortfolioReport.BuildingTypeTotals> types = report.getBuildingTypes();
+    for (int i = 0; i < types.size(); i++) {
+      PortfolioReport.BuildingTypeTotals type = types.get(i);
+      out.append(i > 0 ? ",{" : "{");
+      Json.quote(out, "building_type").append(':');
+      Json.quote(out, type.getBuildingType());
+      out.append(",\"projects\":").append(type.getCount());
+      out.append(",\"total_fee_cents\":").append(type.getTotalFeeCents());
+      out.append(",\"average_fee_cents\":").append(type.getAverageFeeCents()).append('}');
+    }
+    out.append("],\"managers\":");
+    appendWorkloads(out, report.getManagers());
+    out.append(",\"architects\":");
+    appendWorkloads(out, report.getArchitects());
+    return out.append('}');
+  }
+
+  /**
+   * Builds a project from a JSON object. Fields missing from the object
+   * are taken from the base project, so the same method serves adds and
+   * partial updates. A "version" field is the version the caller read, so
+   * the update is rejected if the project has changed since.
+   *
+   * @param object The parsed JSON object
+   * @param base   The project supplying missing fields, or null for an add
+   * @return The project
+   * @throws IllegalArgumentException if a field is invalid or a required
+   *                                  field is missing
+   */
+  static Project toProject(Map<String, Object> object, Project base) {
+    Project project = base != null ? new Project(base)
+        : new Project(null, null, null, 0, null, null, 0, 0, 0, 0, 0);
+    if (object.containsKey("project_name")) {
+      project.setProjectName(Json.getString(object, "project_name"));
+    }
+    if (object.containsKey("building_type")) {
+      project.setBuildingType(Json.getString(object, "building_type"));
+    }
+    if (object.containsKey("physical_address")) {
+      project.setPhysicalAddress(Json.getString(object, "physical_address"));
+    }
+    if (object.containsKey("erf_number")) {
+      project.setErfNumber(Json.getString(object, "erf_number"));
+    }
+    if (object.containsKey("total_fee")) {
+      project.setTotalFee((float) number(object, "total_fee"));
+    }
+    if (object.containsKey("deadline")) {
+      project.setDeadline(date(object, "deadline"));
+    }
+    if (object.containsKey("architect_id")) {
+      project.setArchitectId((int) number(object, "architect_id"));
+    }
+    if (object.containsKey("engineer_id")) {
+      project.setEngineerId((int) number(object, "engineer_id"));
+    }
+    if (object.containsKey("manager_id")) {
+      project.setManagerId((int) number(object, "manager_id"));
+    }
+    if (object.containsKey("contractor_id")) {
+      project.setContractorId((int) number(object, "contractor_id"));
+    }
+    if (object.containsKey("customer_id")) {
+      project.setCustomerId((int) number(object, "customer_id"));
+    }
+    if (object.containsKey("version")) {
+      project.setVersion((int) number(object, "version"));
+    }
+    if (project.getBuildingType() == null || project.getPhysicalAddress() == null
+        || project.getDeadline() == null) {
+      throw new IllegalArgumentException(
+          "building_type, physical_address and deadline are required.");
+    }
+    return project;
+  }
+
+  /**
+   * Builds a person from a JSON object, taking missing fields from a base.
+   *
+   * @param object The parsed JSON object
+   * @param base   The person supplying missing fields, or null for an add
+   * @return The person
+   * @throws IllegalArgumentException if the name is missing
+   */
+  static Person toPerson(Map<String, Object> object, Person base) {
+    Person person = base != null ? new Person(base) : new Person(null, null, null);
+    if (object.containsKey("name")) {
+      person.setName(Json.getString(object, "name"));
+    }
+    if (object.containsKey("phone")) {
+      person.setPhoneNumber(Json.getString(object, "phone"));
+    }
+    if (object.containsKey("email")) {
+      person.setEmail(Json.getString(object, "email"));
+    }
+    if (object.containsKey("version")) {
+      person.setVersion((int) number(object, "version"));
+    }
+    if (person.getName() == null) {
+      throw new IllegalArgumentException("name is required.");
+    }
+    return person;
+  }
+
+  /**
+   * Gets a field as a number.
+   *
+   * @throws IllegalArgumentException if the field is missing or not a number
+   */
+  static double number(Map<String, Object> object, String key) {
+    Object value = object.get(key);
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    try {
+      return Double.parseDouble(String.valueOf(value));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid " + key + ": " + value);
+    }
+  }
+
+  /**
+   * Gets a field as an ISO date.
+   *
+   * @throws IllegalArgumentException if the field is missing or not a date
+   */
+  static LocalDate date(Map<String, Object> object, String key) {
+    String value = Json.getString(object, key);
+    try {
+      return LocalDate.parse(String.valueOf(value));
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid " + key + ": " + value);
+    }
+  }
+
+  /**
+   * Gets a field as a list of IDs, given either as a JSON array of numbers
+   * or as a comma-separated string.
+   *
+   * @throws IllegalArgumentException if the field is missing or invalid
+   */
+  static List<Integer> ids(Map<String, Object> object, String key) {
+    Object value = object.get(key);
+    List<?> items;
+    if (value instanceof List) {
+      items = (List<?>) value;
+    } else if (value instanceof String && !((String) value).trim().isEmpty()) {
+      items = Arrays.asList(((String) value).split("\\s*,\\s*"));
+    } else {
+      throw new IllegalArgumentException("Expected a list of " + key + ".");
+    }
+    List<Integer> ids = new ArrayList<>(items.size());
+    for (Object item : items) {
+      try {
+        ids.add(item instanceof Number ? ((Number) item).intValue()
+            : Integer.parseInt(String.valueOf(item).trim()));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid ID in " + key + ": " + item);
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Gets a field as a role slug.
+   *
+   * @throws IllegalArgumentException if the field is not a known role
+   */
+  static PersonRole role(Map<String, Object> object, String key) {
+    String slug = Json.getString(object, key);
+    PersonRole role = PersonRole.fromSlug(slug);
+    if (role == null) {
+      throw new IllegalArgumentException("Unknown role: " + slug);
+    }
+    return role;
+  }
+
+  private static void appendWorkloads(StringBuilder out, List<PortfolioReport.Workload> list) {
+    out.append('[');
+    for (int i = 0; i < list.size(); i++) {
+      PortfolioReport.Workload workload = list.get(i);
+      out.append(i > 0 ? ",{" : "{");
+      out.append("\"id\":").append(workload.getPersonId());
+      out.append(",\"unfinished\":").append(workload.getUnfinished());
+      out.append(",\"past_due\":").append(workload.getPastDue()).append('}');
+    }
+    out.append(']');
+  }
+
+  private static void field(StringBuilder out, String name, Object value) {
+    out.append(',');
+    Json.quote(out, name).append(':');
+    Json.quote(out, value == null ? null : value.toString());
+  }
+}
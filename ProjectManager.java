@@ -4,7 +4,19 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
@@ -14,30 +26,184 @@ import java.util.logging.Logger;
 public class ProjectManager {
   private static final Logger logger = Logger.getLogger(ProjectManager.class.getName());
 
+  static final String INSERT_PROJECT_SQL = "INSERT INTO Project (project_name, building_type, "
+      + "physical_address, total_fee, deadline, erf_number, architect_id, "
+      + "engineer_id, manager_id, contractor_id, customer_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+  // Role directories change rarely but are read on every project edit
+  private static final RoleDirectoryCache roleDirectories =
+      new RoleDirectoryCache(Long.getLong("poisepms.cache.roleDirectoryTtlMs", 60_000L));
+
+  // Project reads outnumber writes by orders of magnitude; entries expire so
+  // that writes from other processes are seen
+  private static final ProjectCache projectCache =
+      new ProjectCache(Integer.getInteger("poisepms.cache.projectCapacity", 10_000),
+          Long.getLong("poisepms.cache.projectTtlMs", 60_000L));
+
+  // Built from the project table on first search and kept current by writes
+  // from this process; rebuilt after a time-to-live to pick up other writers
+  private static final ProjectSearchIndex searchIndex = new ProjectSearchIndex();
+  private static final long SEARCH_INDEX_TTL_NANOS =
+      Long.getLong("poisepms.cache.searchIndexTtlMs", 60_000L) * 1_000_000L;
+  private static boolean searchIndexLoaded;
+  private static long searchIndexLoadedAt;
+
+  // Unfinished projects by deadline, loaded on first use and kept current by
+  // writes from this process; reloaded after a time-to-live like the search index
+  private static final DeadlineIndex deadlineIndex = new DeadlineIndex();
+  private static final long DEADLINE_INDEX_TTL_NANOS =
+      Long.getLong("poisepms.cache.deadlineIndexTtlMs", 60_000L) * 1_000_000L;
+  private static boolean deadlineIndexLoaded;
+  private static long deadlineIndexLoadedAt;
+
+  // Upper bound on IDs bound into a single IN (...) list
+  private static final int MAX_IN_LIST = 500;
+
+  // Pads a role directory row to the project columns of the form query
+  private static final String FORM_PADDING = String.join("", Collections.nCopies(13, ", NULL"));
+
+  // Latency, row and error counts for each public operation, exposed over JMX
+  private static final OperationMetrics GET_PROJECT_PAGE = Metrics.operation("getProjectPage");
+  private static final OperationMetrics STREAM_PROJECTS = Metrics.operation("streamProjects");
+  private static final OperationMetrics FINALIZE_PROJECT = Metrics.operation("finalizeProject");
+  private static final OperationMetrics FINALIZE_PROJECTS = Metrics.operation("finalizeProjects");
+  private static final OperationMetrics FINALIZE_DUE_BEFORE =
+      Metrics.operation("finalizeProjectsDueBefore");
+  private static final OperationMetrics ADD_PROJECT = Metrics.operation("addProject");
+  private static final OperationMetrics UPDATE_PROJECT = Metrics.operation("updateProject");
+  private static final OperationMetrics DELETE_PROJECT =
+      Metrics.operation("deleteProjectAndAssociatedPersons");
+  private static final OperationMetrics DELETE_PROJECTS =
+      Metrics.operation("deleteProjectsAndAssociatedPersons");
+  private static final OperationMetrics DELETE_COMPLETED_BEFORE =
+      Metrics.operation("deleteProjectsCompletedBefore");
+  private static final OperationMetrics GET_PROJECT_BY_ID = Metrics.operation("getProjectById");
+  private static final OperationMetrics GET_PROJECT_FORM = Metrics.operation("getProjectForm");
+  private static final OperationMetrics GET_BY_ID_OR_NAME =
+      Metrics.operation("getProjectsByIdOrName");
+  private static final OperationMetrics SEARCH_PROJECTS = Metrics.operation("searchProjects");
+  private static final OperationMetrics GET_PAST_DUE = Metrics.operation("getPastDueProjects");
+  private static final OperationMetrics GET_UNFINISHED = Metrics.operation("getUnfinishedProjects");
+  private static final OperationMetrics GET_DUE_WITHIN = Metrics.operation("getProjectsDueWithin");
+  private static final OperationMetrics GET_NEXT_DUE = Metrics.operation("getNextDueProjects");
+  private static final OperationMetrics GET_IDS_DUE_BEFORE =
+      Metrics.operation("getProjectIdsDueBefore");
+  private static final OperationMetrics GET_IDS_COMPLETED_BEFORE =
+      Metrics.operation("getProjectIdsCompletedBefore");
+  private static final OperationMetrics GET_PORTFOLIO_REPORT =
+      Metrics.operation("getPortfolioReport");
+  private static final OperationMetrics ADD_PERSON = Metrics.operation("addPerson");
+  private static final OperationMetrics UPDATE_PERSON = Metrics.operation("updatePerson");
+  private static final OperationMetrics DELETE_PERSON = Metrics.operation("deletePerson");
+  private static final OperationMetrics GET_PERSONS = Metrics.operation("getPersons");
+  private static final OperationMetrics GET_PERSON_ID_BY_NAME =
+      Metrics.operation("getPersonIdByName");
+  private static final OperationMetrics GET_PERSON_BY_ID = Metrics.operation("getPersonById");
+
   /**
-   * Displays all projects from the database.
+   * Displays all projects from the database. Rows are streamed from the
+   * server rather than buffered, so memory use does not grow with the
+   * size of the table.
    *
    * @param connection The database connection
    */
   public static void displayProjects(Connection connection) {
-    String query = "SELECT * FROM Project";
-    try (PreparedStatement pstmt = connection.prepareStatement(query);
-         ResultSet rs = pstmt.executeQuery()) {
-      System.out.println("\n=== Projects ===");
-      while (rs.next()) {
-        System.out.printf("ID: %d, Name: %s, Type: %s, Address: %s, Fee: %.2f, "
-            + "Deadline: %s, Finalized: %s\n",
-            rs.getInt("project_id"),
-            rs.getString("project_name"),
-            rs.getString("building_type"),
-            rs.getString("physical_address"),
-            rs.getFloat("total_fee"),
-            rs.getDate("deadline").toLocalDate(),
-            rs.getInt("is_finalised") == 1 ? "Yes" : "No");
+    System.out.println("\n=== Projects ===");
+    if (!streamProjects(connection, Integer.MIN_VALUE, ProjectManager::printProject)) {
+      System.out.println("Error retrieving projects.");
+    }
+  }
+
+  /**
+   * Displays one page of projects, ordered by ID.
+   *
+   * @param connection The database connection
+   * @param afterId    Only projects with an ID greater than this are shown;
+   *                   pass 0 for the first page
+   * @param pageSize   The maximum number of projects to show
+   * @return The page that was displayed, or null if an error occurred
+   */
+  public static ProjectPage displayProjectPage(Connection connection, int afterId,
+      int pageSize) {
+    ProjectPage page = getProjectPage(connection, afterId, pageSize);
+    if (page == null) {
+      System.out.println("Error retrieving projects.");
+      return null;
+    }
+    for (Project project : page.getProjects()) {
+      printProject(project);
+    }
+    return page;
+  }
+
+  /**
+   * Retrieves one page of projects using keyset pagination on project_id,
+   * so later pages cost the same as the first.
+   *
+   * @param connection The database connection
+   * @param afterId    Only projects with an ID greater than this are returned;
+   *                   pass 0 for the first page
+   * @param pageSize   The maximum number of projects to return
+   * @return The page of projects, or null if an error occurred
+   */
+  public static ProjectPage getProjectPage(Connection connection, int afterId,
+      int pageSize) {
+    long start = System.nanoTime();
+    String query = "SELECT * FROM Project WHERE project_id > ? "
+        + "ORDER BY project_id LIMIT ?";
+    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+      pstmt.setInt(1, afterId);
+      pstmt.setInt(2, pageSize + 1); // One extra row tells us if more follow
+      try (ResultSet rs = pstmt.executeQuery()) {
+        List<Project> projects = new ArrayList<>(pageSize);
+        boolean hasMore = false;
+        while (rs.next()) {
+          if (projects.size() == pageSize) {
+            hasMore = true;
+            break;
+          }
+          projects.add(mapProject(rs));
+        }
+        int lastId = projects.isEmpty()
+            ? afterId : projects.get(projects.size() - 1).getId();
+        return GET_PROJECT_PAGE.success(start, new ProjectPage(projects, lastId, hasMore),
+            projects.size());
       }
     } catch (SQLException e) {
-      System.out.println("Error retrieving projects.");
-      logger.severe("Error retrieving projects: " + e.getMessage());
+      logger.severe("Error retrieving project page: " + e.getMessage());
+      return GET_PROJECT_PAGE.failure(start, null);
+    }
+  }
+
+  /**
+   * Streams every project to a consumer without materialising the result
+   * set. With MySQL Connector/J a fetch size of {@link Integer#MIN_VALUE}
+   * streams rows one at a time; a positive fetch size uses a server-side
+   * cursor when the connection has {@code useCursorFetch=true}.
+   *
+   * @param connection The database connection
+   * @param fetchSize  The JDBC fetch size hint
+   * @param consumer   Receives each project in ID order
+   * @return true if all rows were streamed, false if an error occurred
+   */
+  public static boolean streamProjects(Connection connection, int fetchSize,
+      Consumer<Project> consumer) {
+    long start = System.nanoTime();
+    int rows = 0;
+    String query = "SELECT * FROM Project ORDER BY project_id";
+    try (PreparedStatement pstmt = connection.prepareStatement(query,
+        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+      setFetchSize(pstmt, fetchSize);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          consumer.accept(mapProject(rs));
+          rows++;
+        }
+      }
+      return STREAM_PROJECTS.success(start, true, rows);
+    } catch (SQLException e) {
+      logger.severe("Error streaming projects: " + e.getMessage());
+      return STREAM_PROJECTS.failure(start, false);
     }
   }
 
@@ -46,18 +212,170 @@ public class ProjectManager {
    *
    * @param connection The database connection
    * @param projectId  The ID of the project to be finalized
+   * @return true if the project was finalized, false if it was not found
+   *         or already finalized
    */
-  public static void finalizeProject(Connection connection, int projectId) {
-    String query = "UPDATE Project SET is_finalised = 1, completion_date = ? "
-        + "WHERE project_id = ?";
-    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-      pstmt.setDate(1, java.sql.Date.valueOf(LocalDate.now()));
-      pstmt.setInt(2, projectId);
-      pstmt.executeUpdate();
-      System.out.println("Project finalized successfully.");
+  public static boolean finalizeProject(Connection connection, int projectId) {
+    return finalizeProject(connection, projectId, LocalDate.now());
+  }
+
+  /**
+   * Finalizes a project, recording the given completion date.
+   *
+   * @param connection     The database connection
+   * @param projectId      The ID of the project to be finalized
+   * @param completionDate The completion date to record
+   * @return true if the project was finalized, false if it was not found
+   *         or already finalized
+   */
+  public static boolean finalizeProject(Connection connection, int projectId,
+      LocalDate completionDate) {
+    try {
+      return finalizeProjectChecked(connection, projectId, completionDate);
     } catch (SQLException e) {
       System.out.println("Error finalizing project.");
       logger.severe("Error finalizing project: " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Finalizes a project as {@link #finalizeProject(Connection, int, LocalDate)}
+   * does, but throws a database error rather than printing it.
+   *
+   * @param connection     The database connection
+   * @param projectId      The ID of the project to be finalized
+   * @param completionDate The completion date to record
+   * @return true if the project was finalized, false if it was not found
+   *         or already finalized
+   * @throws SQLException if the project cannot be written
+   */
+  static boolean finalizeProjectChecked(Connection connection, int projectId,
+      LocalDate completionDate) throws SQLException {
+    long start = System.nanoTime();
+    String query = "UPDATE Project SET is_finalised = 1, completion_date = ?, "
+        + "version = version + 1 WHERE project_id = ? AND COALESCE(is_finalised, 0) = 0";
+    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+      pstmt.setDate(1, java.sql.Date.valueOf(completionDate));
+      pstmt.setInt(2, projectId);
+      boolean finalized = pstmt.executeUpdate() > 0;
+      if (finalized && connection.getAutoCommit()) {
+        projectCache.finalizeProject(projectId, completionDate);
+      } else {
+        projectCache.evict(projectId);
+      }
+      if (finalized) {
+        removeDeadlines(connection, Collections.singletonList(projectId));
+      }
+      return FINALIZE_PROJECT.success(start, finalized, finalized ? 1 : 0);
+    } catch (SQLException e) {
+      projectCache.evict(projectId);
+      throw FINALIZE_PROJECT.failure(start, e);
+    }
+  }
+
+  /**
+   * Finalizes every unfinished project in a set, using one UPDATE per
+   * {@value #MAX_IN_LIST} IDs inside a single transaction.
+   *
+   * @param connection The database connection
+   * @param projectIds The IDs of the projects to finalize
+   * @return The number of projects finalized, or -1 if an error occurred
+   *         and nothing was changed
+   */
+  public static int finalizeProjects(Connection connection, Collection<Integer> projectIds) {
+    return finalizeProjects(connection, projectIds, LocalDate.now());
+  }
+
+  /**
+   * Finalizes every unfinished project in a set, recording the given
+   * completion date.
+   *
+   * @param connection     The database connection
+   * @param projectIds     The IDs of the projects to finalize
+   * @param completionDate The completion date to record
+   * @return The number of projects finalized, or -1 if an error occurred
+   *         and nothing was changed
+   */
+  public static int finalizeProjects(Connection connection, Collection<Integer> projectIds,
+      LocalDate completionDate) {
+    long start = System.nanoTime();
+    List<Integer> ids = new ArrayList<>(projectIds);
+    try {
+      int result = inTransaction(connection, () -> {
+        int finalized = 0;
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+          List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IN_LIST));
+          String query = "UPDATE Project SET is_finalised = 1, completion_date = ?, "
+              + "version = version + 1 WHERE COALESCE(is_finalised, 0) = 0 AND project_id IN ("
+              + placeholders(chunk.size()) + ")";
+          try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(completionDate));
+            bindIds(pstmt, 2, chunk);
+            finalized += pstmt.executeUpdate();
+          }
+        }
+        return finalized;
+      });
+      removeDeadlines(connection, ids);
+      return FINALIZE_PROJECTS.success(start, result, result);
+    } catch (SQLException e) {
+      System.out.println("Error finalizing projects.");
+      logger.severe("Error finalizing projects: " + e.getMessage());
+      return FINALIZE_PROJECTS.failure(start, -1);
+    } finally {
+      projectCache.evictAll(ids);
+    }
+  }
+
+  /**
+   * Finalizes every unfinished project whose deadline is before a date,
+   * in a single statement.
+   *
+   * @param connection The database connection
+   * @param date       Projects due strictly before this date are finalized
+   * @return The number of projects finalized, or -1 if an error occurred
+   */
+  public static int finalizeProjectsDueBefore(Connection connection, LocalDate date) {
+    return finalizeProjectsDueBefore(connection, date, LocalDate.now());
+  }
+
+  /**
+   * Finalizes every unfinished project whose deadline is before a date,
+   * recording the given completion date.
+   *
+   * @param connection     The database connection
+   * @param date           Projects due strictly before this date are finalized
+   * @param completionDate The completion date to record
+   * @return The number of projects finalized, or -1 if an error occurred
+   */
+  public static int finalizeProjectsDueBefore(Connection connection, LocalDate date,
+      LocalDate completionDate) {
+    long start = System.nanoTime();
+    String query = "UPDATE Project SET is_finalised = 1, completion_date = ?, "
+        + "version = version + 1 WHERE COALESCE(is_finalised, 0) = 0 AND deadline < ?";
+    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+      pstmt.setDate(1, java.sql.Date.valueOf(completionDate));
+      pstmt.setDate(2, java.sql.Date.valueOf(date));
+      int finalized = pstmt.executeUpdate();
+      boolean autoCommit = connection.getAutoCommit();
+      synchronized (deadlineIndex) {
+        if (deadlineIndexLoaded) {
+          if (autoCommit) {
+            deadlineIndex.removeDueBefore(date);
+          } else {
+            invalidateDeadlineIndex();
+          }
+        }
+      }
+      return FINALIZE_DUE_BEFORE.success(start, finalized, finalized);
+    } catch (SQLException e) {
+      System.out.println("Error finalizing projects.");
+      logger.severe("Error finalizing projects: " + e.getMessage());
+      return FINALIZE_DUE_BEFORE.failure(start, -1);
+    } finally {
+      projectCache.evictIf(p -> p.isFinalised() == 0 && p.getDeadline() != null
+          && p.getDeadline().isBefore(date));
     }
   }
 
@@ -66,116 +384,373 @@ public class ProjectManager {
    *
    * @param connection The database connection
    * @param project    The project to be added
+   * @return The generated project ID, or -1 if the project was not added
    */
-  public static void addProject(Connection connection, Project project) {
-    String query = "INSERT INTO Project (project_name, building_type, "
-        + "physical_address, total_fee, deadline, erf_number, architect_id, "
-        + "engineer_id, manager_id, contractor_id, customer_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-      pstmt.setString(1, project.getProjectName());
-      pstmt.setString(2, project.getBuildingType());
-      pstmt.setString(3, project.getPhysicalAddress());
-      pstmt.setFloat(4, project.getTotalFee());
-      pstmt.setDate(5, java.sql.Date.valueOf(project.getDeadline()));
-      pstmt.setString(6, project.getErfNumber());
-      pstmt.setInt(7, project.getArchitectId());
-      pstmt.setInt(8, project.getEngineerId());
-      pstmt.setInt(9, project.getManagerId());
-      pstmt.setInt(10, project.getContractorId());
-      pstmt.setInt(11, project.getCustomerId());
+  public static int addProject(Connection connection, Project project) {
+    long start = System.nanoTime();
+    try (PreparedStatement pstmt = connection.prepareStatement(INSERT_PROJECT_SQL,
+        Statement.RETURN_GENERATED_KEYS)) {
+      bindProject(pstmt, project);
       pstmt.executeUpdate();
-      System.out.println("Project added successfully.");
+      try (ResultSet keys = pstmt.getGeneratedKeys()) {
+        int projectId = keys.next() ? keys.getInt(1) : -1;
+        project.setId(projectId);
+        if (projectId > 0) {
+          project.setVersion(1);
+          indexProject(connection, project);
+          return ADD_PROJECT.success(start, projectId, 1);
+        }
+        return ADD_PROJECT.failure(start, projectId);
+      }
     } catch (SQLException e) {
       System.out.println("Error adding project.");
       logger.severe("Error adding project: " + e.getMessage());
+      return ADD_PROJECT.failure(start, -1);
     }
   }
 
   /**
-   * Updates an existing project in the database.
+   * Updates an existing project in the database. Only the columns of
+   * fields changed since the project was loaded are written, and nothing
+   * is sent when no field changed; a project that was not loaded has every
+   * field written.
+   *
+   * <p>A project with a version is only written while the stored row still
+   * has that version, so a concurrent edit is reported rather than
+   * silently overwritten. On success the project moves to the new version.
    *
    * @param connection The database connection
    * @param project    The updated project information
+   * @return true if the project was updated or had no changes
+   * @throws ConcurrentUpdateException if the project was changed since it
+   *                                   was read; it carries the stored project
    */
-  public static void updateProject(Connection connection, Project project) {
-    String query = "UPDATE Project SET project_name = ?, building_type = ?, "
-        + "physical_address = ?, total_fee = ?, deadline = ?, architect_id = ?, "
-        + "engineer_id = ?, manager_id = ?, contractor_id = ?, customer_id = ? "
-        + "WHERE project_id = ?";
-    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-      pstmt.setString(1, project.getProjectName());
-      pstmt.setString(2, project.getBuildingType());
-      pstmt.setString(3, project.getPhysicalAddress());
-      pstmt.setFloat(4, project.getTotalFee());
-      pstmt.setDate(5, java.sql.Date.valueOf(project.getDeadline()));
-      pstmt.setInt(6, project.getArchitectId());
-      pstmt.setInt(7, project.getEngineerId());
-      pstmt.setInt(8, project.getManagerId());
-      pstmt.setInt(9, project.getContractorId());
-      pstmt.setInt(10, project.getCustomerId());
-      pstmt.setInt(11, project.getId());
-      pstmt.executeUpdate();
-      System.out.println("Project updated successfully.");
+  public static boolean updateProject(Connection connection, Project project) {
+    try {
+      return updateProjectChecked(connection, project);
     } catch (SQLException e) {
       System.out.println("Error updating project.");
       logger.severe("Error updating project: " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Updates a project as {@link #updateProject(Connection, Project)} does,
+   * but throws a database error rather than printing it.
+   *
+   * @param connection The database connection
+   * @param project    The updated project information
+   * @return true if the project was updated or had no changes
+   * @throws SQLException if the project cannot be written
+   */
+  static boolean updateProjectChecked(Connection connection, Project project)
+      throws SQLException {
+    long start = System.nanoTime();
+    Set<Project.Field> fields = project.getChangedFields();
+    if (fields.isEmpty()) {
+      return UPDATE_PROJECT.success(start, true, 0);
+    }
+    int version = project.getVersion();
+    StringBuilder query = new StringBuilder("UPDATE Project SET ");
+    for (Project.Field field : fields) {
+      query.append(field.getColumn()).append(" = ?, ");
+    }
+    query.append("version = version + 1 WHERE project_id = ?");
+    if (version > 0) {
+      query.append(" AND version = ?");
+    }
+    try (PreparedStatement pstmt = connection.prepareStatement(query.toString())) {
+      int index = 1;
+      for (Project.Field field : fields) {
+        bindField(pstmt, index++, project, field);
+      }
+      pstmt.setInt(index++, project.getId());
+      if (version > 0) {
+        pstmt.setInt(index, version);
+      }
+      boolean updated = pstmt.executeUpdate() > 0;
+      if (!updated && version > 0) {
+        projectCache.evict(project.getId());
+        Project current = getProjectByIdChecked(connection, project.getId());
+        if (current != null) {
+          throw UPDATE_PROJECT.failure(start, new ConcurrentUpdateException("Project "
+              + project.getId() + " was changed by someone else.", current));
+        }
+        return UPDATE_PROJECT.success(start, false, 0);
+      }
+      if (updated) {
+        // An unchecked update leaves the new version unknown until reread
+        project.setVersion(version > 0 ? version + 1 : 0);
+      }
+      if (updated && version > 0 && connection.getAutoCommit()) {
+        projectCache.update(project, fields);
+      } else {
+        projectCache.evict(project.getId());
+      }
+      if (updated) {
+        indexProject(connection, project);
+        project.markClean();
+      }
+      return UPDATE_PROJECT.success(start, updated, updated ? 1 : 0);
+    } catch (SQLException e) {
+      projectCache.evict(project.getId());
+      throw UPDATE_PROJECT.failure(start, e);
     }
   }
 
   /**
    * Deletes a project by ID from the database and removes associated people.
+   * The people go with the project through the ON DELETE CASCADE key on
+   * person.project_id, so this is one atomic statement and one round trip.
    *
    * @param connection The database connection
    * @param projectId  The ID of the project to be deleted
+   * @return true if the project was deleted
    */
-  public static void deleteProjectAndAssociatedPersons(Connection connection, int projectId) {
-    deleteAssociatedPersons(connection, projectId);
+  public static boolean deleteProjectAndAssociatedPersons(Connection connection, int projectId) {
+    try {
+      return deleteProjectChecked(connection, projectId);
+    } catch (SQLException e) {
+      System.out.println("Error deleting project.");
+      logger.severe("Error deleting project: " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Deletes a project as {@link #deleteProjectAndAssociatedPersons} does,
+   * but throws a database error rather than printing it.
+   *
+   * @param connection The database connection
+   * @param projectId  The ID of the project to be deleted
+   * @return true if the project was deleted
+   * @throws SQLException if the project cannot be deleted
+   */
+  static boolean deleteProjectChecked(Connection connection, int projectId)
+      throws SQLException {
+    long start = System.nanoTime();
     String query = "DELETE FROM Project WHERE project_id = ?";
     try (PreparedStatement pstmt = connection.prepareStatement(query)) {
       pstmt.setInt(1, projectId);
-      pstmt.executeUpdate();
-      System.out.println("Project deleted successfully.");
+      boolean deleted = pstmt.executeUpdate() > 0;
+      if (deleted) {
+        unindexProjects(connection, Collections.singletonList(projectId));
+      }
+      return DELETE_PROJECT.success(start, deleted, deleted ? 1 : 0);
     } catch (SQLException e) {
-      System.out.println("Error deleting project.");
-      logger.severe("Error deleting project: " + e.getMessage());
+      throw DELETE_PROJECT.failure(start, e);
+    } finally {
+      projectCache.evict(projectId);
     }
   }
 
   /**
-   * Retrieves a project by its ID.
+   * Deletes a set of projects and their associated persons in a single
+   * transaction, using one DELETE for every {@value #MAX_IN_LIST} IDs; the
+   * persons are removed by the cascading key on person.project_id.
+   *
+   * @param connection The database connection
+   * @param projectIds The IDs of the projects to delete
+   * @return The number of projects deleted, or -1 if an error occurred
+   *         and nothing was changed
+   */
+  public static int deleteProjectsAndAssociatedPersons(Connection connection,
+      Collection<Integer> projectIds) {
+    long start = System.nanoTime();
+    List<Integer> ids = new ArrayList<>(projectIds);
+    try {
+      int result = inTransaction(connection, () -> {
+        int deleted = 0;
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+          List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IN_LIST));
+          try (PreparedStatement pstmt = connection.prepareStatement(
+              "DELETE FROM Project WHERE project_id IN (" + placeholders(chunk.size()) + ")")) {
+            bindIds(pstmt, 1, chunk);
+            deleted += pstmt.executeUpdate();
+          }
+        }
+        return deleted;
+      });
+      unindexProjects(connection, ids);
+      return DELETE_PROJECTS.success(start, result, result);
+    } catch (SQLException e) {
+      System.out.println("Error deleting projects.");
+      logger.severe("Error deleting projects: " + e.getMessage());
+      return DELETE_PROJECTS.failure(start, -1);
+    } finally {
+      projectCache.evictAll(ids);
+    }
+  }
+
+  /**
+   * Deletes every finalized project completed before a date, and its
+   * associated persons, for archive purges. This is a single cascading
+   * statement, so the purge is atomic and takes one round trip.
+   *
+   * @param connection The database connection
+   * @param date       Projects completed strictly before this date are deleted
+   * @return The number of projects deleted, or -1 if an error occurred
+   *         and nothing was changed
+   */
+  public static int deleteProjectsCompletedBefore(Connection connection, LocalDate date) {
+    long start = System.nanoTime();
+    String query = "DELETE FROM Project WHERE is_finalised = 1 AND completion_date < ?";
+    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+      pstmt.setDate(1, java.sql.Date.valueOf(date));
+      int result = pstmt.executeUpdate();
+      if (result > 0) {
+        // The deleted IDs are not known here, so rebuild on the next search
+        invalidateSearchIndex();
+      }
+      return DELETE_COMPLETED_BEFORE.success(start, result, result);
+    } catch (SQLException e) {
+      System.out.println("Error deleting projects.");
+      logger.severe("Error deleting projects: " + e.getMessage());
+      return DELETE_COMPLETED_BEFORE.failure(start, -1);
+    } finally {
+      projectCache.evictIf(p -> p.isFinalised() == 1 && p.getCompletionDate() != null
+          && p.getCompletionDate().isBefore(date));
+    }
+  }
+
+  /**
+   * Retrieves a project by its ID, from the project cache when possible.
+   * A project read while auto-commit is off is not cached, since the
+   * transaction may be rolled back.
    *
    * @param connection The database connection
    * @param projectId  The ID of the project
    * @return The Project object if found, null otherwise
    */
   public static Project getProjectById(Connection connection, int projectId) {
+    try {
+      return getProjectByIdChecked(connection, projectId);
+    } catch (SQLException e) {
+      System.out.println("Error retrieving project.");
+      logger.severe("Error retrieving project: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Retrieves a project as {@link #getProjectById(Connection, int)} does,
+   * but throws a database error, so it is not mistaken for a missing
+   * project.
+   *
+   * @param connection The database connection
+   * @param projectId  The ID of the project
+   * @return The Project object if found, null otherwise
+   * @throws SQLException if the project cannot be read
+   */
+  static Project getProjectByIdChecked(Connection connection, int projectId)
+      throws SQLException {
+    long start = System.nanoTime();
+    Project cached = projectCache.get(projectId);
+    if (cached != null) {
+      return GET_PROJECT_BY_ID.success(start, cached, 1);
+    }
+    long readStamp = projectCache.readStamp();
     String query = "SELECT * FROM Project WHERE project_id = ?";
     try (PreparedStatement pstmt = connection.prepareStatement(query)) {
       pstmt.setInt(1, projectId);
       ResultSet rs = pstmt.executeQuery();
       if (rs.next()) {
-        return new Project(
-            rs.getInt("project_id"),
-            rs.getString("project_name"),
-            rs.getString("building_type"),
-            rs.getString("physical_address"),
-            rs.getFloat("total_fee"),
-            rs.getDate("deadline").toLocalDate(),
-            rs.getString("erf_number"),
-            rs.getInt("architect_id"),
-            rs.getInt("engineer_id"),
-            rs.getInt("manager_id"),
-            rs.getInt("contractor_id"),
-            rs.getInt("customer_id"),
-            rs.getInt("is_finalised"),
-            rs.getDate("completion_date") != null ? rs.getDate("completion_date").toLocalDate() : null
-        );
+        Project project = mapProject(rs);
+        // A row read inside a transaction may yet be rolled back
+        if (connection.getAutoCommit()) {
+          projectCache.put(project, readStamp);
+        }
+        return GET_PROJECT_BY_ID.success(start, project, 1);
       }
     } catch (SQLException e) {
-      System.out.println("Error retrieving project.");
-      logger.severe("Error retrieving project: " + e.getMessage());
+      throw GET_PROJECT_BY_ID.failure(start, e);
     }
-    return null;
+    return GET_PROJECT_BY_ID.success(start, null, 0);
+  }
+
+  /**
+   * Loads the add or update project form in at most one round trip. The
+   * project and every role directory not already cached are read with a
+   * single UNION ALL statement, and the caches are refreshed from it; as
+   * in {@link #getProjectById}, the project is not cached inside a
+   * transaction.
+   *
+   * @param connection The database connection
+   * @param projectId  The ID of the project being edited, or 0 for a new one
+   * @return The form data, or null if an error occurred
+   */
+  public static ProjectForm getProjectForm(Connection connection, int projectId) {
+    long start = System.nanoTime();
+    Map<PersonRole, Map<Integer, String>> directories = new EnumMap<>(PersonRole.class);
+    Map<PersonRole, Map<Integer, String>> missing = new EnumMap<>(PersonRole.class);
+    for (PersonRole role : PersonRole.values()) {
+      Map<Integer, String> names = roleDirectories.getNamesIfFresh(role);
+      if (names != null) {
+        directories.put(role, names);
+      } else {
+        missing.put(role, new LinkedHashMap<>());
+      }
+    }
+    Project project = projectId > 0 ? projectCache.get(projectId) : null;
+    boolean loadProject = projectId > 0 && project == null;
+    if (!loadProject && missing.isEmpty()) {
+      return GET_PROJECT_FORM.success(start, new ProjectForm(project, directories), 0);
+    }
+
+    // Directory rows carry the role's ordinal + 1 as their source and are
+    // padded with NULLs to the project columns when the project is read too
+    StringBuilder query = new StringBuilder();
+    if (loadProject) {
+      query.append("SELECT 0 AS source, project_id, project_name, building_type, ")
+          .append("physical_address, total_fee, deadline, erf_number, architect_id, ")
+          .append("engineer_id, manager_id, contractor_id, customer_id, is_finalised, ")
+          .append("completion_date, version FROM Project WHERE project_id = ?");
+    }
+    for (PersonRole role : missing.keySet()) {
+      if (query.length() > 0) {
+        query.append(" UNION ALL ");
+      }
+      query.append("SELECT ").append(role.ordinal() + 1).append(" AS source, ")
+          .append(role.getIdColumn()).append(" AS project_id, name AS project_name");
+      if (loadProject) {
+        query.append(FORM_PADDING);
+      }
+      query.append(" FROM ").append(role.getTable());
+    }
+    query.append(" ORDER BY source, project_id");
+
+    PersonRole[] roles = PersonRole.values();
+    long readStamp = projectCache.readStamp();
+    int rows = 0;
+    try (PreparedStatement pstmt = connection.prepareStatement(query.toString())) {
+      if (loadProject) {
+        pstmt.setInt(1, projectId);
+      }
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          rows++;
+          int source = rs.getInt(1);
+          if (source == 0) {
+            project = mapProject(rs);
+          } else {
+            missing.get(roles[source - 1]).put(rs.getInt(2), rs.getString(3));
+          }
+        }
+      }
+      if (loadProject && project != null && connection.getAutoCommit()) {
+        projectCache.put(project, readStamp);
+      }
+    } catch (SQLException e) {
+      System.out.println("Error loading project form.");
+      logger.severe("Error loading project form: " + e.getMessage());
+      return GET_PROJECT_FORM.failure(start, null);
+    }
+
+    for (Map.Entry<PersonRole, Map<Integer, String>> loaded : missing.entrySet()) {
+      directories.put(loaded.getKey(), roleDirectories.put(loaded.getKey(), loaded.getValue()));
+    }
+    return GET_PROJECT_FORM.success(start, new ProjectForm(project, directories), rows);
   }
 
   /**
@@ -185,6 +760,27 @@ public class ProjectManager {
    * @param input      The project ID or name
    */
   public static void findProjectByIdOrName(Connection connection, String input) {
+    List<Project> matches = getProjectsByIdOrName(connection, input);
+    if (matches == null) {
+      System.out.println("Error finding project.");
+    } else if (matches.isEmpty()) {
+      System.out.println("No project found with ID or name: " + input);
+    } else {
+      for (Project project : matches) {
+        printProject(project);
+      }
+    }
+  }
+
+  /**
+   * Retrieves projects whose ID or name matches the input exactly.
+   *
+   * @param connection The database connection
+   * @param input      The project ID or name
+   * @return The matching projects, or null if an error occurred
+   */
+  public static List<Project> getProjectsByIdOrName(Connection connection, String input) {
+    long start = System.nanoTime();
     String query = "SELECT * FROM Project WHERE project_id = ? OR project_name = ?";
     try (PreparedStatement pstmt = connection.prepareStatement(query)) {
       try {
@@ -193,43 +789,95 @@ public class ProjectManager {
         pstmt.setNull(1, java.sql.Types.INTEGER); // Set to null if parsing fails
       }
       pstmt.setString(2, input);
-      ResultSet rs = pstmt.executeQuery();
-      if (rs.next()) {
-        System.out.printf("ID: %d, Name: %s, Type: %s, Address: %s, Fee: %.2f, Deadline: %s\n",
-            rs.getInt("project_id"),
-            rs.getString("project_name"),
-            rs.getString("building_type"),
-            rs.getString("physical_address"),
-            rs.getFloat("total_fee"),
-            rs.getDate("deadline").toLocalDate());
-      } else {
-        System.out.println("No project found with ID or name: " + input);
-      }
+      List<Project> projects = queryProjects(pstmt);
+      return GET_BY_ID_OR_NAME.success(start, projects, projects.size());
     } catch (SQLException e) {
-      System.out.println("Error finding project.");
       logger.severe("Error finding project: " + e.getMessage());
+      return GET_BY_ID_OR_NAME.failure(start, null);
     }
   }
 
   /**
-   * Finds past due projects.
+   * Searches projects by name, physical address and ERF number, accepting
+   * prefixes, substrings and small misspellings. The search index is
+   * loaded from the database on first use and reloaded once it is older
+   * than {@code poisepms.cache.searchIndexTtlMs}, so projects written by
+   * other processes are found.
    *
    * @param connection The database connection
+   * @param query      The search text
+   * @param limit      The maximum number of results, or 0 for all of them
+   * @return The matching projects, best match first, or null if an error
+   *         occurred
    */
-  public static void findPastDueProjects(Connection connection) {
-    String query = "SELECT * FROM Project WHERE deadline < CURRENT_DATE AND is_finalised = 0";
-    try (PreparedStatement pstmt = connection.prepareStatement(query);
-         ResultSet rs = pstmt.executeQuery()) {
-      System.out.println("\n=== Past Due Projects ===");
-      while (rs.next()) {
-        System.out.printf("ID: %d, Name: %s, Deadline: %s\n",
-            rs.getInt("project_id"),
-            rs.getString("project_name"),
-            rs.getDate("deadline").toLocalDate());
+  public static List<Project> searchProjects(Connection connection, String query, int limit) {
+    long start = System.nanoTime();
+    synchronized (searchIndex) {
+      if (!searchIndexLoaded || start - searchIndexLoadedAt > SEARCH_INDEX_TTL_NANOS) {
+        searchIndexLoaded = false;
+        searchIndex.clear();
+        if (!streamProjects(connection, Integer.MIN_VALUE, searchIndex::put)) {
+          searchIndex.clear();
+          return SEARCH_PROJECTS.failure(start, null);
+        }
+        searchIndexLoaded = true;
+        searchIndexLoadedAt = start;
       }
+    }
+    List<Integer> ids = searchIndex.search(query, limit);
+    try {
+      List<Project> projects = getProjectsByIds(connection, ids);
+      return SEARCH_PROJECTS.success(start, projects, projects.size());
     } catch (SQLException e) {
+      logger.severe("Error searching projects: " + e.getMessage());
+      return SEARCH_PROJECTS.failure(start, null);
+    }
+  }
+
+  /**
+   * Drops the search index so the next search reloads it from the
+   * database. Call after writing to the project table outside
+   * ProjectManager.
+   */
+  public static void invalidateSearchIndex() {
+    synchronized (searchIndex) {
+      searchIndexLoaded = false;
+      searchIndex.clear();
+    }
+  }
+
+  /**
+   * Finds past due projects.
+   *
+   * @param connection The database connection
+   */
+  public static void findPastDueProjects(Connection connection) {
+    List<Project> projects = getPastDueProjects(connection);
+    if (projects == null) {
       System.out.println("Error retrieving past due projects.");
+      return;
+    }
+    System.out.println("\n=== Past Due Projects ===");
+    for (Project project : projects) {
+      printProjectSummary(project);
+    }
+  }
+
+  /**
+   * Retrieves unfinished projects whose deadline has passed.
+   *
+   * @param connection The database connection
+   * @return The past due projects, or null if an error occurred
+   */
+  public static List<Project> getPastDueProjects(Connection connection) {
+    long start = System.nanoTime();
+    try {
+      List<Project> projects = getProjectsByIds(connection,
+          loadDeadlineIndex(connection).getDueBefore(LocalDate.now()));
+      return GET_PAST_DUE.success(start, projects, projects.size());
+    } catch (SQLException e) {
       logger.severe("Error retrieving past due projects: " + e.getMessage());
+      return GET_PAST_DUE.failure(start, null);
     }
   }
 
@@ -239,103 +887,278 @@ public class ProjectManager {
    * @param connection The database connection
    */
   public static void findUnfinishedProjects(Connection connection) {
-    String query = "SELECT * FROM Project WHERE is_finalised = 0";
-    try (PreparedStatement pstmt = connection.prepareStatement(query);
-         ResultSet rs = pstmt.executeQuery()) {
-      System.out.println("\n=== Unfinished Projects ===");
-      while (rs.next()) {
-        System.out.printf("ID: %d, Name: %s, Deadline: %s\n",
-            rs.getInt("project_id"),
-            rs.getString("project_name"),
-            rs.getDate("deadline").toLocalDate());
-      }
-    } catch (SQLException e) {
+    List<Project> projects = getUnfinishedProjects(connection);
+    if (projects == null) {
       System.out.println("Error retrieving unfinished projects.");
+      return;
+    }
+    System.out.println("\n=== Unfinished Projects ===");
+    for (Project project : projects) {
+      printProjectSummary(project);
+    }
+  }
+
+  /**
+   * Retrieves projects that have not been finalized.
+   *
+   * @param connection The database connection
+   * @return The unfinished projects, or null if an error occurred
+   */
+  public static List<Project> getUnfinishedProjects(Connection connection) {
+    long start = System.nanoTime();
+    try {
+      List<Project> projects =
+          getProjectsByIds(connection, loadDeadlineIndex(connection).getUnfinished());
+      return GET_UNFINISHED.success(start, projects, projects.size());
+    } catch (SQLException e) {
       logger.severe("Error retrieving unfinished projects: " + e.getMessage());
+      return GET_UNFINISHED.failure(start, null);
     }
   }
 
   /**
-   * Lists all persons of a specified type.
+   * Retrieves unfinished projects due between today and a number of days
+   * from now, inclusive.
    *
    * @param connection The database connection
-   * @param personType The type of person (e.g., Architect, Engineer)
+   * @param days       The number of days ahead to look
+   * @return The projects, earliest deadline first, or null if an error
+   *         occurred
    */
-  public static void listPersons(Connection connection, String personType) {
-    String query = "";
-    switch (personType) {
-      case "Architect":
-        query = "SELECT architect_id, name FROM Architect";
-        break;
-      case "Engineer":
-        query = "SELECT engineer_id, name FROM StructuralEngineer";
-        break;
-      case "Contractor":
-        query = "SELECT contractor_id, name FROM Contractor";
-        break;
-      case "Project Manager":
-        query = "SELECT manager_id, name FROM ProjectManager";
-        break;
-      case "Customer":
-        query = "SELECT customer_id, name FROM Customer";
-        break;
-      default:
-        System.out.println("Unknown person type.");
-        return;
+  public static List<Project> getProjectsDueWithin(Connection connection, int days) {
+    long start = System.nanoTime();
+    LocalDate today = LocalDate.now();
+    try {
+      List<Project> projects = getProjectsByIds(connection,
+          loadDeadlineIndex(connection).getDueBetween(today, today.plusDays(days)));
+      return GET_DUE_WITHIN.success(start, projects, projects.size());
+    } catch (SQLException e) {
+      logger.severe("Error retrieving projects due soon: " + e.getMessage());
+      return GET_DUE_WITHIN.failure(start, null);
     }
+  }
 
-    try (PreparedStatement pstmt = connection.prepareStatement(query);
-         ResultSet rs = pstmt.executeQuery()) {
-      while (rs.next()) {
-        System.out.printf("ID: %d, Name: %s\n",
-            rs.getInt(1), // Column 1: ID
-            rs.getString("name")); // Column 2: Name
+  /**
+   * Retrieves the next unfinished projects to fall due, from today on.
+   *
+   * @param connection The database connection
+   * @param count      The maximum number of projects
+   * @return The projects, earliest deadline first, or null if an error
+   *         occurred
+   */
+  public static List<Project> getNextDueProjects(Connection connection, int count) {
+    long start = System.nanoTime();
+    try {
+      List<Project> projects = getProjectsByIds(connection,
+          loadDeadlineIndex(connection).getNextDue(LocalDate.now(), count));
+      return GET_NEXT_DUE.success(start, projects, projects.size());
+    } catch (SQLException e) {
+      logger.severe("Error retrieving next due projects: " + e.getMessage());
+      return GET_NEXT_DUE.failure(start, null);
+    }
+  }
+
+  /**
+   * Finds the unfinished projects due before a date, which
+   * {@link #finalizeProjectsDueBefore} would finalize. The database is
+   * asked directly rather than the deadline index, which may be stale.
+   *
+   * @param connection The database connection
+   * @param date       Projects due strictly before this date are found
+   * @return The project IDs, or null if an error occurred
+   */
+  public static List<Integer> getProjectIdsDueBefore(Connection connection, LocalDate date) {
+    long start = System.nanoTime();
+    try {
+      List<Integer> ids = getProjectIds(connection,
+          "WHERE COALESCE(is_finalised, 0) = 0 AND deadline < ?", date);
+      return GET_IDS_DUE_BEFORE.success(start, ids, ids.size());
+    } catch (SQLException e) {
+      logger.severe("Error retrieving projects due before a date: " + e.getMessage());
+      return GET_IDS_DUE_BEFORE.failure(start, null);
+    }
+  }
+
+  /**
+   * Finds the finalized projects completed before a date, which
+   * {@link #deleteProjectsCompletedBefore} would delete.
+   *
+   * @param connection The database connection
+   * @param date       Projects completed strictly before this date are found
+   * @return The project IDs, or null if an error occurred
+   */
+  public static List<Integer> getProjectIdsCompletedBefore(Connection connection,
+      LocalDate date) {
+    long start = System.nanoTime();
+    try {
+      List<Integer> ids = getProjectIds(connection,
+          "WHERE is_finalised = 1 AND completion_date < ?", date);
+      return GET_IDS_COMPLETED_BEFORE.success(start, ids, ids.size());
+    } catch (SQLException e) {
+      logger.severe("Error retrieving projects completed before a date: " + e.getMessage());
+      return GET_IDS_COMPLETED_BEFORE.failure(start, null);
+    }
+  }
+
+  private static List<Integer> getProjectIds(Connection connection, String where,
+      LocalDate date) throws SQLException {
+    List<Integer> ids = new ArrayList<>();
+    try (PreparedStatement pstmt = connection.prepareStatement(
+        "SELECT project_id FROM Project " + where + " ORDER BY project_id")) {
+      pstmt.setDate(1, java.sql.Date.valueOf(date));
+      try (ResultSet rs = pstmt.executeQuery()) {
+        while (rs.next()) {
+          ids.add(rs.getInt(1));
+        }
       }
+    }
+    return ids;
+  }
+
+  /**
+   * Drops the deadline index so the next deadline query reloads it from
+   * the database. Call after writing to the project table outside
+   * ProjectManager.
+   */
+  public static void invalidateDeadlineIndex() {
+    synchronized (deadlineIndex) {
+      deadlineIndexLoaded = false;
+      deadlineIndex.clear();
+    }
+  }
+
+  /**
+   * Computes fee, balance and workload totals in one pass over the
+   * project table.
+   *
+   * @param connection The database connection
+   * @return The report, or null if an error occurred
+   */
+  public static PortfolioReport getPortfolioReport(Connection connection) {
+    long start = System.nanoTime();
+    try {
+      PortfolioReport report = new PortfolioAnalytics(LocalDate.now()).analyze(connection);
+      return GET_PORTFOLIO_REPORT.success(start, report, report.getProjectCount());
     } catch (SQLException e) {
+      logger.severe("Error computing portfolio report: " + e.getMessage());
+      return GET_PORTFOLIO_REPORT.failure(start, null);
+    }
+  }
+
+  /**
+   * Lists all persons of a specified type.
+   *
+   * @param connection The database connection
+   * @param personType The type of person (e.g., Architect, Engineer)
+   */
+  public static void listPersons(Connection connection, String personType) {
+    PersonRole role = PersonRole.fromLabel(personType);
+    if (role == null) {
+      System.out.println("Unknown person type.");
+      return;
+    }
+    Map<Integer, String> persons = getPersons(connection, role);
+    if (persons == null) {
       System.out.println("Error retrieving persons.");
-      logger.severe("Error retrieving persons: " + e.getMessage());
+      return;
+    }
+    for (Map.Entry<Integer, String> person : persons.entrySet()) {
+      printPerson(person.getKey(), person.getValue());
     }
   }
 
   /**
-   * Adds a new person to the database.
+   * Adds a new person to the database and assigns the generated ID.
    *
    * @param connection The database connection
    * @param person     The person to be added
    */
   public static void addPerson(Connection connection, Person person) throws SQLException {
+    long start = System.nanoTime();
     String query = "INSERT INTO Person (name, phone, email) VALUES (?, ?, ?)";
-    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+    try (PreparedStatement pstmt = connection.prepareStatement(query,
+        Statement.RETURN_GENERATED_KEYS)) {
       pstmt.setString(1, person.getName());
       pstmt.setString(2, person.getPhoneNumber());
       pstmt.setString(3, person.getEmail());
       pstmt.executeUpdate();
-      System.out.println("Person added successfully.");
+      try (ResultSet keys = pstmt.getGeneratedKeys()) {
+        if (keys.next()) {
+          person.setId(keys.getInt(1));
+          person.setVersion(1);
+        }
+      }
+      ADD_PERSON.success(start, person, 1);
     } catch (SQLException e) {
       System.out.println("Error adding person.");
       logger.severe("Error adding person: " + e.getMessage());
-      throw e; 
+      throw ADD_PERSON.failure(start, e);
     }
   }
 
   /**
-   * Updates an existing person's information in the database.
+   * Updates an existing person's information in the database, writing only
+   * the fields changed since the person was loaded. As with projects, a
+   * person with a version is only written while the stored row still has it.
    *
    * @param connection The database connection
    * @param person     The updated person information
+   * @return true if the person was updated or had no changes
+   * @throws ConcurrentUpdateException if the person was changed since they
+   *                                   were read; it carries the stored person
    */
-  public static void updatePerson(Connection connection, Person person) {
-    String query = "UPDATE Person SET name = ?, phone = ?, email = ? WHERE person_id = ?";
-    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-      pstmt.setString(1, person.getName());
-      pstmt.setString(2, person.getPhoneNumber());
-      pstmt.setString(3, person.getEmail());
-      pstmt.setInt(4, person.getId());
-      pstmt.executeUpdate();
-      System.out.println("Person updated successfully.");
+  public static boolean updatePerson(Connection connection, Person person) {
+    long start = System.nanoTime();
+    Set<Person.Field> fields = person.getChangedFields();
+    if (fields.isEmpty()) {
+      return UPDATE_PERSON.success(start, true, 0);
+    }
+    int version = person.getVersion();
+    StringBuilder query = new StringBuilder("UPDATE Person SET ");
+    for (Person.Field field : fields) {
+      query.append(field.getColumn()).append(" = ?, ");
+    }
+    query.append("version = version + 1 WHERE person_id = ?");
+    if (version > 0) {
+      query.append(" AND version = ?");
+    }
+    try (PreparedStatement pstmt = connection.prepareStatement(query.toString())) {
+      int index = 1;
+      for (Person.Field field : fields) {
+        switch (field) {
+          case NAME:
+            pstmt.setString(index++, person.getName());
+            break;
+          case PHONE:
+            pstmt.setString(index++, person.getPhoneNumber());
+            break;
+          default:
+            pstmt.setString(index++, person.getEmail());
+            break;
+        }
+      }
+      pstmt.setInt(index++, person.getId());
+      if (version > 0) {
+        pstmt.setInt(index, version);
+      }
+      boolean updated = pstmt.executeUpdate() > 0;
+      if (!updated && version > 0) {
+        Person current = getPersonById(connection, person.getId());
+        if (current != null) {
+          throw UPDATE_PERSON.failure(start, new ConcurrentUpdateException("Person "
+              + person.getId() + " was changed by someone else.", current));
+        }
+        return UPDATE_PERSON.success(start, false, 0);
+      }
+      if (updated) {
+        person.setVersion(version > 0 ? version + 1 : 0);
+        person.markClean();
+      }
+      return UPDATE_PERSON.success(start, updated, updated ? 1 : 0);
     } catch (SQLException e) {
       System.out.println("Error updating person.");
       logger.severe("Error updating person: " + e.getMessage());
+      return UPDATE_PERSON.failure(start, false);
     }
   }
 
@@ -344,39 +1167,45 @@ public class ProjectManager {
    *
    * @param connection The database connection
    * @param personId   The ID of the person to be deleted
+   * @return true if the person was deleted
    */
-  public static void deletePerson(Connection connection, int personId) {
+  public static boolean deletePerson(Connection connection, int personId) {
+    long start = System.nanoTime();
     String query = "DELETE FROM Person WHERE person_id = ?";
     try (PreparedStatement pstmt = connection.prepareStatement(query)) {
       pstmt.setInt(1, personId);
-      pstmt.executeUpdate();
-      System.out.println("Person deleted successfully.");
+      boolean deleted = pstmt.executeUpdate() > 0;
+      return DELETE_PERSON.success(start, deleted, deleted ? 1 : 0);
     } catch (SQLException e) {
       System.out.println("Error deleting person.");
       logger.severe("Error deleting person: " + e.getMessage());
+      return DELETE_PERSON.failure(start, false);
     }
   }
 
   /**
-   * Deletes all persons associated with a given project ID.
+   * Retrieves every person in a role directory. Directories are served
+   * from a cache that is refreshed after a time-to-live, or cleared with
+   * {@link #invalidateRoleDirectories()} after the role tables are written.
    *
    * @param connection The database connection
-   * @param projectId  The project ID for which associated persons should be deleted
+   * @param role       The role whose directory to read
+   * @return The names keyed by ID in ID order, or null if an error occurred
    */
-  private static void deleteAssociatedPersons(Connection connection, int projectId) {
-    String query = "DELETE FROM Person WHERE project_id = ?"; // Ensure this column exists in the database
-    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-      pstmt.setInt(1, projectId);
-      pstmt.executeUpdate();
-      System.out.println("Associated persons deleted successfully.");
+  public static Map<Integer, String> getPersons(Connection connection, PersonRole role) {
+    long start = System.nanoTime();
+    try {
+      Map<Integer, String> names = roleDirectories.getNames(role, r -> loadPersons(connection, r));
+      return GET_PERSONS.success(start, names, names.size());
     } catch (SQLException e) {
-      System.out.println("Error deleting associated persons.");
-      logger.severe("Error deleting associated persons: " + e.getMessage());
+      logger.severe("Error retrieving " + role.getLabel() + " directory: " + e.getMessage());
+      return GET_PERSONS.failure(start, null);
     }
   }
 
   /**
-   * Retrieves a person's ID based on their name from the database.
+   * Retrieves a person's ID based on their name, using the cached role
+   * directory.
    *
    * @param connection The database connection
    * @param personType The type of person (e.g., Architect, Engineer)
@@ -384,39 +1213,90 @@ public class ProjectManager {
    * @return The person's ID or -1 if not found
    */
   public static int getPersonIdByName(Connection connection, String personType, String personName) {
-    String query = "";
-    switch (personType) {
-      case "Architect":
-        query = "SELECT architect_id FROM Architect WHERE name = ?";
-        break;
-      case "Engineer":
-        query = "SELECT engineer_id FROM StructuralEngineer WHERE name = ?"; 
-        break;
-      case "Contractor":
-        query = "SELECT contractor_id FROM Contractor WHERE name = ?";
-        break;
-      case "Project Manager":
-        query = "SELECT manager_id FROM ProjectManager WHERE name = ?"; 
-        break;
-      case "Customer":
-        query = "SELECT customer_id FROM Customer WHERE name = ?";
-        break;
-      default:
-        System.out.println("Unknown person type.");
-        return -1;
+    PersonRole role = PersonRole.fromLabel(personType);
+    if (role == null) {
+      System.out.println("Unknown person type.");
+      return -1;
     }
 
-    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-      pstmt.setString(1, personName);
-      ResultSet rs = pstmt.executeQuery();
-      if (rs.next()) {
-        return rs.getInt(1);
-      }
+    try {
+      return getPersonIdByNameChecked(connection, role, personName);
     } catch (SQLException e) {
       System.out.println("Error retrieving person ID.");
       logger.severe("Error retrieving person ID: " + e.getMessage());
+      return -1;
+    }
+  }
+
+  /**
+   * Retrieves a person's ID as {@link #getPersonIdByName} does, but throws
+   * a database error, so it is not mistaken for an unknown name.
+   *
+   * @param connection The database connection
+   * @param role       The role directory to look in
+   * @param personName The name of the person to look for
+   * @return The person's ID or -1 if not found
+   * @throws SQLException if the directory cannot be read
+   */
+  static int getPersonIdByNameChecked(Connection connection, PersonRole role, String personName)
+      throws SQLException {
+    long start = System.nanoTime();
+    try {
+      int personId = roleDirectories.getId(role, personName, r -> loadPersons(connection, r));
+      return GET_PERSON_ID_BY_NAME.success(start, personId, personId > 0 ? 1 : 0);
+    } catch (SQLException e) {
+      throw GET_PERSON_ID_BY_NAME.failure(start, e);
+    }
+  }
+
+  /**
+   * Clears the cached role directories so the next read goes to the
+   * database. Call after writing to a role table outside ProjectManager.
+   */
+  public static void invalidateRoleDirectories() {
+    roleDirectories.invalidateAll();
+  }
+
+  /**
+   * Gets the role directory cache statistics.
+   *
+   * @return The role directory cache statistics; entries expire rather
+   *         than being evicted, so evictions are not counted
+   */
+  public static CacheStats getRoleDirectoryCacheStats() {
+    return new CacheStats(roleDirectories.getHits(), roleDirectories.getMisses(), 0);
+  }
+
+  /**
+   * Clears the project cache so the next reads go to the database. Call
+   * after writing to the project table outside ProjectManager.
+   */
+  public static void invalidateProjectCache() {
+    projectCache.clear();
+  }
+
+  /**
+   * Gets the project cache statistics.
+   *
+   * @return The project cache statistics
+   */
+  public static CacheStats getProjectCacheStats() {
+    return new CacheStats(projectCache.getHits(), projectCache.getMisses(),
+        projectCache.getEvictions());
+  }
+
+  private static Map<Integer, String> loadPersons(Connection connection, PersonRole role)
+      throws SQLException {
+    String query = "SELECT " + role.getIdColumn() + ", name FROM " + role.getTable()
+        + " ORDER BY " + role.getIdColumn();
+    try (PreparedStatement pstmt = connection.prepareStatement(query);
+         ResultSet rs = pstmt.executeQuery()) {
+      Map<Integer, String> persons = new LinkedHashMap<>();
+      while (rs.next()) {
+        persons.put(rs.getInt(1), rs.getString(2));
+      }
+      return persons;
     }
-    return -1; // Return -1 if not found
   }
 
   /**
@@ -427,25 +1307,463 @@ public class ProjectManager {
    * @return The Person object if found, null otherwise
    */
   public static Person getPersonById(Connection connection, int personId) {
+    long start = System.nanoTime();
     String query = "SELECT * FROM Person WHERE person_id = ?";
     try (PreparedStatement pstmt = connection.prepareStatement(query)) {
       pstmt.setInt(1, personId);
       ResultSet rs = pstmt.executeQuery();
       if (rs.next()) {
-        return new Person(
+        Person person = new Person(
             rs.getInt("person_id"),
             rs.getString("name"),
             rs.getString("phone"),
             rs.getString("email")
         );
+        person.setVersion(rs.getInt("version"));
+        person.markClean();
+        return GET_PERSON_BY_ID.success(start, person, 1);
       }
     } catch (SQLException e) {
       System.out.println("Error retrieving person.");
       logger.severe("Error retrieving person: " + e.getMessage());
+      return GET_PERSON_BY_ID.failure(start, null);
     }
-    return null;
+    return GET_PERSON_BY_ID.success(start, null, 0);
   }
-}
 
+  /**
+   * Binds a project's fields to the parameters of {@link #INSERT_PROJECT_SQL}.
+   *
+   * @param pstmt   The insert statement
+   * @param project The project to bind
+   * @throws SQLException if a parameter cannot be set
+   */
+  static void bindProject(PreparedStatement pstmt, Project project) throws SQLException {
+    pstmt.setString(1, project.getProjectName());
+    pstmt.setString(2, project.getBuildingType());
+    pstmt.setString(3, project.getPhysicalAddress());
+    pstmt.setFloat(4, project.getTotalFee());
+    pstmt.setDate(5, java.sql.Date.valueOf(project.getDeadline()));
+    pstmt.setString(6, project.getErfNumber());
+    pstmt.setInt(7, project.getArchitectId());
+    pstmt.setInt(8, project.getEngineerId());
+    pstmt.setInt(9, project.getManagerId());
+    pstmt.setInt(10, project.getContractorId());
+    pstmt.setInt(11, project.getCustomerId());
+  }
 
+  /**
+   * Builds a Project from the current row of a result set.
+   *
+   * @param rs The result set positioned on a project row
+   * @return The mapped project
+   * @throws SQLException if a column cannot be read
+   */
+  private static Project mapProject(ResultSet rs) throws SQLException {
+    java.sql.Date deadline = rs.getDate("deadline");
+    java.sql.Date completionDate = rs.getDate("completion_date");
+    Project project = new Project(
+        rs.getInt("project_id"),
+        rs.getString("project_name"),
+        rs.getString("building_type"),
+        rs.getString("physical_address"),
+        rs.getFloat("total_fee"),
+        deadline != null ? deadline.toLocalDate() : null,
+        rs.getString("erf_number"),
+        rs.getInt("architect_id"),
+        rs.getInt("engineer_id"),
+        rs.getInt("manager_id"),
+        rs.getInt("contractor_id"),
+        rs.getInt("customer_id"),
+        rs.getInt("is_finalised"),
+        completionDate != null ? completionDate.toLocalDate() : null
+    );
+    project.setVersion(rs.getInt("version"));
+    project.markClean();
+    return project;
+  }
 
+  /**
+   * Binds one updatable field of a project to a statement parameter.
+   *
+   * @param pstmt   The statement
+   * @param index   The parameter index
+   * @param project The project
+   * @param field   The field to bind
+   * @throws SQLException if the parameter cannot be set
+   */
+  private static void bindField(PreparedStatement pstmt, int index, Project project,
+      Project.Field field) throws SQLException {
+    switch (field) {
+      case PROJECT_NAME:
+        pstmt.setString(index, project.getProjectName());
+        break;
+      case BUILDING_TYPE:
+        pstmt.setString(index, project.getBuildingType());
+        break;
+      case PHYSICAL_ADDRESS:
+        pstmt.setString(index, project.getPhysicalAddress());
+        break;
+      case TOTAL_FEE:
+        pstmt.setFloat(index, project.getTotalFee());
+        break;
+      case DEADLINE:
+        pstmt.setDate(index, project.getDeadline() != null
+            ? java.sql.Date.valueOf(project.getDeadline()) : null);
+        break;
+      case ERF_NUMBER:
+        pstmt.setString(index, project.getErfNumber());
+        break;
+      case ARCHITECT_ID:
+        pstmt.setInt(index, project.getArchitectId());
+        break;
+      case ENGINEER_ID:
+        pstmt.setInt(index, project.getEngineerId());
+        break;
+      case MANAGER_ID:
+        pstmt.setInt(index, project.getManagerId());
+        break;
+      case CONTRACTOR_ID:
+        pstmt.setInt(index, project.getContractorId());
+        break;
+      default:
+        pstmt.setInt(index, project.getCustomerId());
+        break;
+    }
+  }
+
+  /**
+   * Runs a project query and maps every row.
+   *
+   * @param pstmt The query, with parameters bound
+   * @return The matching projects
+   * @throws SQLException if the query fails
+   */
+  private static List<Project> queryProjects(PreparedStatement pstmt) throws SQLException {
+    try (ResultSet rs = pstmt.executeQuery()) {
+      List<Project> projects = new ArrayList<>();
+      while (rs.next()) {
+        projects.add(mapProject(rs));
+      }
+      return projects;
+    }
+  }
+
+  /**
+   * Prints a single project as one line of a project listing.
+   *
+   * @param project The project to print
+   */
+  static void printProject(Project project) {
+    System.out.printf("ID: %d, Name: %s, Type: %s, Address: %s, Fee: %.2f, "
+        + "Deadline: %s, Finalized: %s\n",
+        project.getId(),
+        project.getProjectName(),
+        project.getBuildingType(),
+        project.getPhysicalAddress(),
+        project.getTotalFee(),
+        project.getDeadline(),
+        project.isFinalised() == 1 ? "Yes" : "No");
+  }
+
+  /**
+   * Reads the ID and version of every project, the cheap first step of an
+   * incremental refresh: only rows whose version differs need to be read.
+   *
+   * @param connection The database connection
+   * @return The IDs and the versions, as two arrays in ID order
+   * @throws SQLException if the projects cannot be read
+   */
+  static int[][] getProjectVersions(Connection connection) throws SQLException {
+    String query = "SELECT project_id, version FROM Project ORDER BY project_id";
+    try (PreparedStatement pstmt = connection.prepareStatement(query,
+        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+      setFetchSize(pstmt, Integer.MIN_VALUE);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        int[] ids = new int[1024];
+        int[] versions = new int[1024];
+        int count = 0;
+        while (rs.next()) {
+          if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+            versions = Arrays.copyOf(versions, count * 2);
+          }
+          ids[count] = rs.getInt(1);
+          versions[count++] = rs.getInt(2);
+        }
+        return new int[][] {Arrays.copyOf(ids, count), Arrays.copyOf(versions, count)};
+      }
+    }
+  }
+
+  /**
+   * Retrieves projects by ID, keeping the order of the IDs given.
+   */
+  static List<Project> getProjectsByIds(Connection connection, List<Integer> ids)
+      throws SQLException {
+    Map<Integer, Project> byId = new HashMap<>();
+    for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+      List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IN_LIST));
+      String query = "SELECT * FROM Project WHERE project_id IN ("
+          + placeholders(chunk.size()) + ")";
+      try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        bindIds(pstmt, 1, chunk);
+        for (Project project : queryProjects(pstmt)) {
+          byId.put(project.getId(), project);
+        }
+      }
+    }
+    List<Project> projects = new ArrayList<>(byId.size());
+    for (Integer projectId : ids) {
+      Project project = byId.get(projectId);
+      if (project != null) {
+        projects.add(project);
+      }
+    }
+    return projects;
+  }
+
+  /**
+   * Loads the deadline index from the unfinished projects on first use,
+   * and again once it is older than {@code poisepms.cache.deadlineIndexTtlMs}
+   * so projects written by other processes are picked up.
+   */
+  private static DeadlineIndex loadDeadlineIndex(Connection connection) throws SQLException {
+    synchronized (deadlineIndex) {
+      long now = System.nanoTime();
+      if (!deadlineIndexLoaded || now - deadlineIndexLoadedAt > DEADLINE_INDEX_TTL_NANOS) {
+        deadlineIndexLoaded = false;
+        deadlineIndex.clear();
+        String query = "SELECT project_id, deadline FROM Project "
+            + "WHERE COALESCE(is_finalised, 0) = 0";
+        try (PreparedStatement pstmt = connection.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+          while (rs.next()) {
+            java.sql.Date deadline = rs.getDate(2);
+            deadlineIndex.put(rs.getInt(1), deadline != null ? deadline.toLocalDate() : null);
+          }
+        } catch (SQLException e) {
+          deadlineIndex.clear();
+          throw e;
+        }
+        deadlineIndexLoaded = true;
+        deadlineIndexLoadedAt = now;
+      }
+      return deadlineIndex;
+    }
+  }
+
+  /**
+   * Applies a written project to the search and deadline indexes. Writes
+   * inside a caller's transaction may still be rolled back, so they drop
+   * the indexes instead.
+   */
+  private static void indexProject(Connection connection, Project project)
+      throws SQLException {
+    boolean autoCommit = connection.getAutoCommit();
+    synchronized (searchIndex) {
+      if (searchIndexLoaded) {
+        if (autoCommit) {
+          searchIndex.put(project);
+        } else {
+          invalidateSearchIndex();
+        }
+      }
+    }
+    synchronized (deadlineIndex) {
+      if (deadlineIndexLoaded) {
+        if (autoCommit) {
+          deadlineIndex.put(project);
+        } else {
+          invalidateDeadlineIndex();
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes deleted projects from the search and deadline indexes, or
+   * drops the indexes if the delete may still be rolled back.
+   */
+  private static void unindexProjects(Connection connection, Collection<Integer> projectIds)
+      throws SQLException {
+    boolean autoCommit = connection.getAutoCommit();
+    synchronized (searchIndex) {
+      if (searchIndexLoaded) {
+        if (autoCommit) {
+          for (Integer projectId : projectIds) {
+            searchIndex.remove(projectId);
+          }
+        } else {
+          invalidateSearchIndex();
+        }
+      }
+    }
+    removeDeadlines(connection, projectIds);
+  }
+
+  /**
+   * Removes finalised or deleted projects from the deadline index, or
+   * drops the index if the change may still be rolled back.
+   */
+  private static void removeDeadlines(Connection connection, Collection<Integer> projectIds)
+      throws SQLException {
+    boolean autoCommit = connection.getAutoCommit();
+    synchronized (deadlineIndex) {
+      if (deadlineIndexLoaded) {
+        if (autoCommit) {
+          for (Integer projectId : projectIds) {
+            deadlineIndex.remove(projectId);
+          }
+        } else {
+          invalidateDeadlineIndex();
+        }
+      }
+    }
+  }
+
+  /**
+   * A unit of database work that produces an affected-row count.
+   */
+  private interface SqlWork {
+    int run() throws SQLException;
+  }
+
+  /**
+   * Runs work in a transaction. If the connection is already inside a
+   * transaction the work joins it and the caller decides when to commit.
+   *
+   * @param connection The database connection
+   * @param work       The statements to run
+   * @return The result of the work
+   * @throws SQLException if the work fails; an owned transaction is rolled back
+   */
+  private static int inTransaction(Connection connection, SqlWork work) throws SQLException {
+    if (!connection.getAutoCommit()) {
+      return work.run();
+    }
+    connection.setAutoCommit(false);
+    try {
+      int result = work.run();
+      connection.commit();
+      return result;
+    } catch (SQLException | RuntimeException e) {
+      connection.rollback();
+      throw e;
+    } finally {
+      connection.setAutoCommit(true);
+    }
+  }
+
+  /**
+   * Sets a fetch size hint. Drivers other than Connector/J reject the
+   * negative {@link Integer#MIN_VALUE} that asks it to stream rows; they
+   * keep their default fetch size instead.
+   *
+   * @param pstmt     The statement
+   * @param fetchSize The JDBC fetch size hint
+   * @throws SQLException if a non-negative fetch size is rejected
+   */
+  static void setFetchSize(PreparedStatement pstmt, int fetchSize) throws SQLException {
+    try {
+      pstmt.setFetchSize(fetchSize);
+    } catch (SQLException e) {
+      if (fetchSize >= 0) {
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Builds a comma-separated list of JDBC placeholders.
+   *
+   * @param count The number of placeholders
+   * @return The placeholder list, e.g. "?, ?, ?"
+   */
+  private static String placeholders(int count) {
+    StringBuilder sb = new StringBuilder(count * 3);
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append('?');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Binds IDs to consecutive statement parameters.
+   *
+   * @param pstmt The statement
+   * @param first The index of the first parameter to bind
+   * @param ids   The IDs to bind
+   * @throws SQLException if a parameter cannot be set
+   */
+  private static void bindIds(PreparedStatement pstmt, int first, List<Integer> ids)
+      throws SQLException {
+    for (int i = 0; i < ids.size(); i++) {
+      pstmt.setInt(first + i, ids.get(i));
+    }
+  }
+
+  /**
+   * Prints the ID, name and deadline of a project.
+   *
+   * @param project The project to print
+   */
+  static void printProjectSummary(Project project) {
+    System.out.printf("ID: %d, Name: %s, Deadline: %s\n",
+        project.getId(),
+        project.getProjectName(),
+        project.getDeadline());
+  }
+
+  /**
+   * Prints one entry of a person directory.
+   *
+   * @param id   The person's ID
+   * @param name The person's name
+   */
+  static void printPerson(int id, String name) {
+    System.out.printf("ID: %d, Name: %s\n", id, name);
+  }
+
+  /**
+   * Prints a portfolio report.
+   *
+   * @param report The report to print
+   */
+  static void printPortfolioReport(PortfolioReport report) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("Projects: %d, Unfinished: %d, Past Due: %d (as of %s)%n",
+        report.getProjectCount(), report.getUnfinishedCount(), report.getPastDueCount(),
+        report.getAsOf()));
+    sb.append(String.format("Total Fees: %s, Paid: %s, Outstanding: %s%n",
+        money(report.getTotalFeeCents()), money(report.getAmountPaidCents()),
+        money(report.getOutstandingCents())));
+    sb.append(String.format("%n=== Fees by Building Type ===%n"));
+    for (PortfolioReport.BuildingTypeTotals type : report.getBuildingTypes()) {
+      sb.append(String.format("Type: %s, Projects: %d, Total: %s, Average: %s%n",
+          type.getBuildingType(), type.getCount(), money(type.getTotalFeeCents()),
+          money(type.getAverageFeeCents())));
+    }
+    appendWorkloads(sb, "Project Manager", report.getManagers());
+    appendWorkloads(sb, "Architect", report.getArchitects());
+    System.out.print(sb);
+  }
+
+  private static void appendWorkloads(StringBuilder sb, String label,
+      List<PortfolioReport.Workload> workloads) {
+    sb.append(String.format("%n=== Open Projects by %s ===%n", label));
+    for (PortfolioReport.Workload workload : workloads) {
+      sb.append(String.format("%s ID: %d, Unfinished: %d, Past Due: %d%n", label,
+          workload.getPersonId(), workload.getUnfinished(), workload.getPastDue()));
+    }
+  }
+
+  private static String money(long cents) {
+    // The sign is taken first, since -50 / 100 is 0 and would lose it
+    long magnitude = Math.abs(cents);
+    return String.format("%s%d.%02d", cents < 0 ? "-" : "", magnitude / 100, magnitude % 100);
+  }
+}
@@ -0,0 +1,55 @@
+package poised;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ProjectPage class holds one page of projects from a keyset-paginated
+ * listing, together with the cursor needed to fetch the next page.
+ */
+public class ProjectPage {
+  private final List<Project> projects;
+  private final int lastProjectId;
+  private final boolean hasMore;
+
+  /**
+   * Constructor for a page of projects.
+   *
+   * @param projects      The projects on this page, ordered by ID
+   * @param lastProjectId The ID of the last project on this page
+   * @param hasMore       Whether more projects follow this page
+   */
+  public ProjectPage(List<Project> projects, int lastProjectId, boolean hasMore) {
+    this.projects = Collections.unmodifiableList(projects);
+    this.lastProjectId = lastProjectId;
+    this.hasMore = hasMore;
+  }
+
+  /**
+   * Gets the projects on this page.
+   *
+   * @return The projects, ordered by ID
+   */
+  public List<Project> getProjects() {
+    return projects;
+  }
+
+  /**
+   * Gets the cursor for the next page. Pass it as the {@code afterId}
+   * of the next page request.
+   *
+   * @return The ID of the last project on this page
+   */
+  public int getLastProjectId() {
+    return lastProjectId;
+  }
+
+  /**
+   * Checks whether more projects follow this page.
+   *
+   * @return true if another page is available
+   */
+  public boolean hasMore() {
+    return hasMore;
+  }
+}
@@ -0,0 +1,240 @@
+package poised;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+
+/**
+ * The ProjectRepository interface abstracts how projects are stored, so
+ * the application can run against the MySQL database or an in-memory
+ * engine.
+ */
+public interface ProjectRepository {
+
+  /**
+   * Retrieves a project by its ID.
+   *
+   * @param projectId The ID of the project
+   * @return The project, or null if not found
+   */
+  Project findById(int projectId);
+
+  /**
+   * Retrieves one page of projects ordered by ID.
+   *
+   * @param afterId  Only projects with an ID greater than this are returned
+   * @param pageSize The maximum number of projects to return
+   * @return The page, or null if an error occurred
+   */
+  ProjectPage findPage(int afterId, int pageSize);
+
+  /**
+   * Retrieves projects whose ID or name matches the input exactly.
+   *
+   * @param input The project ID or name
+   * @return The matching projects, or null if an error occurred
+   */
+  List<Project> findByIdOrName(String input);
+
+  /**
+   * Searches projects by name, physical address and ERF number, matching
+   * prefixes, substrings and small misspellings.
+   *
+   * @param query The search text
+   * @param limit The maximum number of results, or 0 for all of them
+   * @return The matching projects, best match first, or null if an error
+   *         occurred
+   */
+  List<Project> search(String query, int limit);
+
+  /**
+   * Retrieves projects that have not been finalized.
+   *
+   * @return The unfinished projects, or null if an error occurred
+   */
+  List<Project> findUnfinished();
+
+  /**
+   * Retrieves unfinished projects whose deadline has passed.
+   *
+   * @return The past due projects, or null if an error occurred
+   */
+  List<Project> findPastDue();
+
+  /**
+   * Retrieves unfinished projects due between today and a number of days
+   * from now, inclusive.
+   *
+   * @param days The number of days ahead to look
+   * @return The projects, earliest deadline first, or null if an error
+   *         occurred
+   */
+  List<Project> findDueWithin(int days);
+
+  /**
+   * Retrieves the next unfinished projects to fall due, from today on.
+   *
+   * @param count The maximum number of projects
+   * @return The projects, earliest deadline first, or null if an error
+   *         occurred
+   */
+  List<Project> findNextDue(int count);
+
+  /**
+   * Finds the projects {@link #finalizeDueBefore} would finalize.
+   *
+   * @param date Projects due strictly before this date are found
+   * @return The IDs of the unfinished projects, or null if an error
+   *         occurred
+   */
+  List<Integer> findIdsDueBefore(LocalDate date);
+
+  /**
+   * Finds the projects {@link #deleteCompletedBefore} would delete.
+   *
+   * @param date Projects completed strictly before this date are found
+   * @return The IDs of the finalized projects, or null if an error
+   *         occurred
+   */
+  List<Integer> findIdsCompletedBefore(LocalDate date);
+
+  /**
+   * Computes fee, balance and workload totals over every project.
+   *
+   * @return The report, or null if an error occurred
+   */
+  PortfolioReport report();
+
+  /**
+   * Loads the data for the add or update project form: the project being
+   * edited and every role directory.
+   *
+   * @param projectId The ID of the project being edited, or 0 for a new one
+   * @param persons   The repository the role directories are read from
+   * @return The form data, or null if it could not be read
+   */
+  default ProjectForm loadForm(int projectId, PersonRepository persons) {
+    Map<PersonRole, Map<Integer, String>> directories = new EnumMap<>(PersonRole.class);
+    for (PersonRole role : PersonRole.values()) {
+      Map<Integer, String> names = persons.listByRole(role);
+      if (names == null) {
+        return null;
+      }
+      directories.put(role, names);
+    }
+    return new ProjectForm(projectId > 0 ? findById(projectId) : null, directories);
+  }
+
+  /**
+   * Adds a new project and assigns its ID.
+   *
+   * @param project The project to add
+   * @return The new project ID, or -1 if the project was not added
+   */
+  int add(Project project);
+
+  /**
+   * Updates an existing project. A project read from the repository is
+   * only written if nobody else has updated it since.
+   *
+   * @param project The updated project
+   * @return true if the project was updated
+   * @throws ConcurrentUpdateException if the project was changed since it
+   *                                   was read
+   */
+  boolean update(Project project);
+
+  /**
+   * Updates an existing project, merging and retrying when someone else
+   * changed it first. On each conflict the merge function is given the
+   * rejected update and the stored project, and returns the update to try
+   * next, or null to give up. {@link Project#rebase} keeps both sides'
+   * changes, with this update winning on fields both changed.
+   *
+   * @param project The updated project; on success it holds what was stored
+   * @param merge   Builds the next attempt from the update and the stored project
+   * @return true if the project was updated
+   * @throws ConcurrentUpdateException if the merge gave up or the project
+   *                                   kept changing
+   */
+  default boolean update(Project project, BinaryOperator<Project> merge) {
+    Project attempt = project;
+    for (int tries = 1; ; tries++) {
+      try {
+        boolean updated = update(attempt);
+        if (updated && attempt != project) {
+          project.copyFields(attempt, EnumSet.allOf(Project.Field.class));
+          project.setFinalised(attempt.isFinalised());
+          project.setCompletionDate(attempt.getCompletionDate());
+          project.setVersion(attempt.getVersion());
+          project.markClean();
+        }
+        return updated;
+      } catch (ConcurrentUpdateException e) {
+        // Three attempts; a project still changing after that needs a person
+        Project next = tries < 3 ? merge.apply(attempt, e.getCurrent(Project.class)) : null;
+        if (next == null) {
+          throw e;
+        }
+        attempt = next;
+      }
+    }
+  }
+
+  /**
+   * Marks a project as finalized. A project that is already finalized keeps
+   * its completion date.
+   *
+   * @param projectId      The ID of the project
+   * @param completionDate The completion date to record
+   * @return true if the project was finalized, false if it was not found
+   *         or already finalized
+   */
+  boolean finalizeProject(int projectId, LocalDate completionDate);
+
+  /**
+   * Deletes a project and its associated persons.
+   *
+   * @param projectId The ID of the project
+   * @return true if the project was deleted
+   */
+  boolean delete(int projectId);
+
+  /**
+   * Finalizes every unfinished project in a set as one operation.
+   *
+   * @param projectIds     The IDs of the projects to finalize
+   * @param completionDate The completion date to record
+   * @return The number of projects finalized, or -1 if an error occurred
+   */
+  int finalizeAll(Collection<Integer> projectIds, LocalDate completionDate);
+
+  /**
+   * Finalizes every unfinished project due before a date.
+   *
+   * @param date           Projects due strictly before this date are finalized
+   * @param completionDate The completion date to record
+   * @return The number of projects finalized, or -1 if an error occurred
+   */
+  int finalizeDueBefore(LocalDate date, LocalDate completionDate);
+
+  /**
+   * Deletes a set of projects and their associated persons as one operation.
+   *
+   * @param projectIds The IDs of the projects to delete
+   * @return The number of projects deleted, or -1 if an error occurred
+   */
+  int deleteAll(Collection<Integer> projectIds);
+
+  /**
+   * Deletes every finalized project completed before a date.
+   *
+   * @param date Projects completed strictly before this date are deleted
+   * @return The number of projects deleted, or -1 if an error occurred
+   */
+  int deleteCompletedBefore(LocalDate date);
+}
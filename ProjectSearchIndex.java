@@ -0,0 +1,405 @@
+package poised;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory full-text index over project name, physical address and
+ * ERF number.
+ *
+ * <p>Text is split into lower-case tokens. A sorted token dictionary maps
+ * each token to the projects containing it and answers prefix queries; a
+ * trigram index over the dictionary finds tokens containing a query token
+ * or within a small edit distance of it. Every query token must match some
+ * token of a project, as an exact word, a prefix, a substring or a close
+ * misspelling, and projects are ranked by how well they match. The index
+ * is updated incrementally as projects are written.
+ */
+public class ProjectSearchIndex {
+  private static final double EXACT = 4;
+  private static final double PREFIX = 3;
+  private static final double SUBSTRING = 2;
+  private static final double FUZZY = 1.5;
+
+  private final Map<Integer, Document> documents = new HashMap<>();
+  private final TreeMap<String, Set<Integer>> postings = new TreeMap<>();
+  private final Map<String, Set<String>> tokensByGram = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Adds a project to the index, replacing any earlier version of it.
+   *
+   * @param project The project to index
+   */
+  public void put(Project project) {
+    Document document = new Document(project);
+    lock.writeLock().lock();
+    try {
+      unindex(documents.put(document.id, document));
+      for (String token : document.tokens) {
+        Set<Integer> ids = postings.get(token);
+        if (ids == null) {
+          ids = new HashSet<>();
+          postings.put(token, ids);
+          for (String gram : grams(token)) {
+            tokensByGram.computeIfAbsent(gram, k -> new HashSet<>()).add(token);
+          }
+        }
+        ids.add(document.id);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a project from the index.
+   *
+   * @param projectId The ID of the project
+   */
+  public void remove(int projectId) {
+    lock.writeLock().lock();
+    try {
+      unindex(documents.remove(projectId));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes every project from the index.
+   */
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      documents.clear();
+      postings.clear();
+      tokensByGram.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the number of indexed projects.
+   *
+   * @return The project count
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Searches the index. An exact project ID ranks first, then whole-name
+   * matches, then projects by the quality of their token matches.
+   *
+   * @param query The search text
+   * @param limit The maximum number of results, or 0 for all of them
+   * @return The IDs of the matching projects, best match first
+   */
+  public List<Integer> search(String query, int limit) {
+    List<String> queryTokens = tokenize(query);
+    if (queryTokens.isEmpty()) {
+      return Collections.emptyList();
+    }
+    String phrase = String.join(" ", queryTokens);
+
+    lock.readLock().lock();
+    try {
+      // Expand each query token to the dictionary tokens it matches, then
+      // start from the most selective so later tokens only filter
+      List<Map<String, Double>> expansions = new ArrayList<>();
+      for (String queryToken : queryTokens) {
+        expansions.add(expand(queryToken));
+      }
+      expansions.sort((a, b) -> Long.compare(postingCount(a), postingCount(b)));
+
+      Map<Integer, Double> scores = new HashMap<>();
+      for (Map.Entry<String, Double> token : expansions.get(0).entrySet()) {
+        for (Integer projectId : postings.get(token.getKey())) {
+          scores.merge(projectId, token.getValue(), Math::max);
+        }
+      }
+      for (int i = 1; i < expansions.size() && !scores.isEmpty(); i++) {
+        // Every query token has to match; keep projects matched by all
+        Map<String, Double> tokens = expansions.get(i);
+        Map<Integer, Double> both = new HashMap<>();
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+          double best = 0;
+          for (String token : documents.get(entry.getKey()).tokens) {
+            Double weight = tokens.get(token);
+            if (weight != null && weight > best) {
+              best = weight;
+            }
+          }
+          if (best > 0) {
+            both.put(entry.getKey(), entry.getValue() + best);
+          }
+        }
+        scores = both;
+      }
+      Integer exactId = parseId(phrase);
+      if (exactId != null && documents.containsKey(exactId)) {
+        scores.put(exactId, Double.MAX_VALUE);
+      }
+      return rank(scores, phrase, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the dictionary tokens matching one query token, each weighted by
+   * how closely it matches.
+   */
+  private Map<String, Double> expand(String queryToken) {
+    Map<String, Double> tokens = new HashMap<>();
+    String upper = queryToken + Character.MAX_VALUE;
+    for (String token : postings.subMap(queryToken, true, upper, false).keySet()) {
+      tokens.put(token, token.equals(queryToken) ? EXACT : PREFIX);
+    }
+    int maxEdits = queryToken.length() >= 8 ? 2 : queryToken.length() >= 4 ? 1 : 0;
+    if (queryToken.length() >= 3) {
+      for (String token : candidateTokens(queryToken)) {
+        if (tokens.containsKey(token)) {
+          continue;
+        }
+        if (token.contains(queryToken)) {
+          tokens.put(token, SUBSTRING);
+        } else if (maxEdits > 0) {
+          int distance = editDistance(queryToken, token, maxEdits);
+          if (distance <= maxEdits) {
+            tokens.put(token, FUZZY - 0.25 * distance);
+          }
+        }
+      }
+    }
+    return tokens;
+  }
+
+  private long postingCount(Map<String, Double> tokens) {
+    long count = 0;
+    for (String token : tokens.keySet()) {
+      count += postings.get(token).size();
+    }
+    return count;
+  }
+
+  /**
+   * Finds dictionary tokens sharing a trigram with the query token. Any
+   * token containing the query token, or within two edits of it, shares
+   * at least one.
+   */
+  private Set<String> candidateTokens(String queryToken) {
+    Set<String> candidates = new HashSet<>();
+    for (String gram : grams(queryToken)) {
+      Set<String> tokens = tokensByGram.get(gram);
+      if (tokens != null) {
+        candidates.addAll(tokens);
+      }
+    }
+    // Unpadded trigrams also catch the query inside a longer token
+    for (int i = 0; i + 3 <= queryToken.length(); i++) {
+      Set<String> tokens = tokensByGram.get(queryToken.substring(i, i + 3));
+      if (tokens != null) {
+        candidates.addAll(tokens);
+      }
+    }
+    return candidates;
+  }
+
+  private List<Integer> rank(Map<Integer, Double> scores, String phrase, int limit) {
+    if (scores.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Ranked> ranked = new ArrayList<>(scores.size());
+    for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+      Document document = documents.get(entry.getKey());
+      double score = entry.getValue();
+      if (document.name.equals(phrase)) {
+        score += 10;
+      } else if (document.name.startsWith(phrase)) {
+        score += 5;
+      } else if (document.name.contains(phrase) || document.address.contains(phrase)
+          || document.erfNumber.contains(phrase)) {
+        score += 2;
+      }
+      ranked.add(new Ranked(entry.getKey(), score));
+    }
+
+    List<Integer> ids = new ArrayList<>();
+    if (limit > 0 && limit < ranked.size()) {
+      // Keep only the best results in a bounded heap, worst on top
+      PriorityQueue<Ranked> best = new PriorityQueue<>(limit + 1, Collections.reverseOrder());
+      for (Ranked result : ranked) {
+        best.add(result);
+        if (best.size() > limit) {
+          best.poll();
+        }
+      }
+      ranked = new ArrayList<>(best);
+    }
+    Collections.sort(ranked);
+    for (Ranked result : ranked) {
+      ids.add(result.id);
+    }
+    return ids;
+  }
+
+  private void unindex(Document document) {
+    if (document == null) {
+      return;
+    }
+    for (String token : document.tokens) {
+      Set<Integer> ids = postings.get(token);
+      if (ids == null) {
+        continue;
+      }
+      ids.remove(document.id);
+      if (ids.isEmpty()) {
+        postings.remove(token);
+        for (String gram : grams(token)) {
+          Set<String> tokens = tokensByGram.get(gram);
+          if (tokens != null) {
+            tokens.remove(token);
+            if (tokens.isEmpty()) {
+              tokensByGram.remove(gram);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Splits text into lower-case tokens of letters and digits.
+   */
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null) {
+      return tokens;
+    }
+    String lower = text.toLowerCase(Locale.ROOT);
+    int start = -1;
+    for (int i = 0; i <= lower.length(); i++) {
+      boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        tokens.add(lower.substring(start, i));
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Gets the trigrams of a token padded with a boundary marker at each
+   * end, so short tokens still have several trigrams.
+   */
+  private static Set<String> grams(String token) {
+    String padded = "^" + token + "$";
+    Set<String> grams = new HashSet<>();
+    for (int i = 0; i + 3 <= padded.length(); i++) {
+      grams.add(padded.substring(i, i + 3));
+    }
+    return grams;
+  }
+
+  /**
+   * Computes the Levenshtein distance between two strings, stopping early
+   * once it exceeds a bound.
+   *
+   * @return The distance, or bound + 1 if it is greater than the bound
+   */
+  static int editDistance(String a, String b, int bound) {
+    if (Math.abs(a.length() - b.length()) > bound) {
+      return bound + 1;
+    }
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      int rowMin = current[0];
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1),
+            previous[j - 1] + cost);
+        rowMin = Math.min(rowMin, current[j]);
+      }
+      if (rowMin > bound) {
+        return bound + 1;
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+
+  private static Integer parseId(String phrase) {
+    try {
+      return Integer.parseInt(phrase);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * The normalised text of one indexed project.
+   */
+  private static final class Document {
+    private final int id;
+    private final String name;
+    private final String address;
+    private final String erfNumber;
+    private final Set<String> tokens = new HashSet<>();
+
+    Document(Project project) {
+      this.id = project.getId();
+      this.name = String.join(" ", tokenize(project.getProjectName()));
+      this.address = String.join(" ", tokenize(project.getPhysicalAddress()));
+      this.erfNumber = String.join(" ", tokenize(project.getErfNumber()));
+      tokens.addAll(tokenize(project.getProjectName()));
+      tokens.addAll(tokenize(project.getPhysicalAddress()));
+      tokens.addAll(tokenize(project.getErfNumber()));
+    }
+  }
+
+  /**
+   * A search result ordered by descending score, then ascending ID.
+   */
+  private static final class Ranked implements Comparable<Ranked> {
+    private final int id;
+    private final double score;
+
+    Ranked(int id, double score) {
+      this.id = id;
+      this.score = score;
+    }
+
+    @Override
+    public int compareTo(Ranked other) {
+      int byScore = Double.compare(other.score, score);
+      return byScore != 0 ? byScore : Integer.compare(id, other.id);
+    }
+  }
+}
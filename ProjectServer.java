@@ -0,0 +1,581 @@
+package poised;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An HTTP server exposing the menu operations as JSON endpoints, so many
+ * coordinators can share one process and one connection pool.
+ *
+ * <p>Requests are handled on the task executor from
+ * {@link AsyncProjectManager#newTaskExecutor()}, a virtual thread each
+ * where the JVM supports them. Each request opens a
+ * {@link RepositorySession}, which for the database borrows one pooled
+ * connection for the length of the request. Responses always carry a
+ * Content-Length, so HTTP/1.1 clients keep their connections alive.
+ *
+ * <p>Endpoints:
+ * <pre>
+ * GET    /projects?after=&amp;limit=        One page of projects in ID order
+ * POST   /projects                       Add a project
+ * GET    /projects/{id}                  Get a project
+ * PUT    /projects/{id}?merge=           Update the fields given
+ * DELETE /projects/{id}                  Delete a project
+ * POST   /projects/{id}/finalize         Finalize a project today
+ * POST   /projects/finalize              Finalize {"ids":[..]} or {"due_before":date}
+ * POST   /projects/delete                Delete {"ids":[..]} or {"completed_before":date}
+ * GET    /projects/search?q=&amp;limit=      Search by name, address and ERF number
+ * GET    /projects/unfinished            Unfinished projects
+ * GET    /projects/past-due              Past due projects
+ * GET    /projects/due-soon?days=        Projects due in the next days
+ * GET    /projects/next-due?count=       The next projects to fall due
+ * GET    /report                         Portfolio report
+ * GET    /roles/{role}                   A role directory
+ * GET    /roles/{role}/lookup?name=      A person's ID in a role directory
+ * POST   /persons                        Add a person
+ * GET    /persons/{id}                   Get a person
+ * PUT    /persons/{id}?merge=            Update the fields given
+ * DELETE /persons/{id}                   Delete a person
+ * GET    /metrics                        Request counts and latencies, and
+ *                                        database operation metrics
+ * </pre>
+ * Roles are named architect, engineer, project-manager, contractor and
+ * customer. Errors are returned as {"error": message} with status 400 for
+ * invalid input, 404 for unknown IDs and endpoints, 413 for request
+ * bodies over {@code poisepms.server.maxBodyBytes} (default 1 MiB), and
+ * 500 otherwise; the detail of a 500 is logged rather than returned.
+ *
+ * <p>Updates carry the "version" the client read. If someone else has
+ * updated the row since, the response is 409 with the stored row as
+ * "current"; with merge=true the given fields are instead reapplied on top
+ * of the stored row.
+ */
+public class ProjectServer implements AutoCloseable {
+  private static final Logger logger = Logger.getLogger(ProjectServer.class.getName());
+  private static final int PAGE_SIZE = Integer.getInteger("poisepms.pageSize", 20);
+  private static final int MAX_PAGE_SIZE = Integer.getInteger("poisepms.server.maxPageSize", 1000);
+  private static final int DUE_SOON_DAYS = Integer.getInteger("poisepms.dueSoonDays", 7);
+  private static final int BACKLOG = Integer.getInteger("poisepms.server.backlog", 0);
+  private static final int MAX_BODY_BYTES =
+      Integer.getInteger("poisepms.server.maxBodyBytes", 1 << 20);
+  private static final String UNMATCHED = "unmatched";
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final RepositorySession.Source sessions;
+  private final boolean pooled;
+  private final Map<String, RouteMetrics> metrics = new ConcurrentHashMap<>();
+  private final long startedAt = System.currentTimeMillis();
+
+  /**
+   * Constructor for a server on the given port. Call {@link #start()} to
+   * begin accepting requests.
+   *
+   * @param port     The TCP port, or 0 for any free port
+   * @param sessions The source of a repository session per request
+   * @param pooled   true if sessions borrow from the database pool, so
+   *                 pool usage is reported in the metrics
+   * @throws IOException if the port cannot be bound
+   */
+  public ProjectServer(int port, RepositorySession.Source sessions, boolean pooled)
+      throws IOException {
+    this.sessions = sessions;
+    this.pooled = pooled;
+    this.executor = AsyncProjectManager.newTaskExecutor();
+    this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+  }
+
+  /**
+   * Starts accepting requests.
+   */
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Gets the port the server is bound to.
+   *
+   * @return The port
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Stops accepting requests, waits up to a second for requests in
+   * progress and shuts down the executor.
+   */
+  @Override
+  public void close() {
+    server.stop(1);
+    executor.shutdown();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    long start = System.nanoTime();
+    String route = UNMATCHED;
+    // Only a dispatched route gets its own metrics, so a client cannot add keys
+    String metricsKey = UNMATCHED;
+    int status;
+    StringBuilder body = new StringBuilder();
+    try {
+      String[] path = segments(exchange.getRequestURI().getRawPath());
+      route = exchange.getRequestMethod() + " " + pattern(path);
+      Request request = new Request(path, query(exchange.getRequestURI().getRawQuery()),
+          exchange);
+      if ("GET /metrics".equals(route)) {
+        metricsKey = route;
+        status = 200;
+        appendMetrics(body);
+      } else {
+        try (RepositorySession session = sessions.open()) {
+          metricsKey = route;
+          status = dispatch(route, request, session, body);
+        }
+      }
+    } catch (HttpError e) {
+      status = e.status;
+      if (status == 404 && e.unrouted) {
+        metricsKey = UNMATCHED;
+      }
+      error(body, e.getMessage());
+    } catch (ConcurrentUpdateException e) {
+      status = 409;
+      conflict(body, e);
+    } catch (IllegalArgumentException e) {
+      status = 400;
+      error(body, e.getMessage());
+    } catch (SQLException | RuntimeException e) {
+      status = 500;
+      // The detail may describe the database, so it stays in the log
+      logger.log(Level.SEVERE, "Error handling " + route, e);
+      error(body, "Internal error.");
+    }
+
+    try {
+      byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+      exchange.sendResponseHeaders(status, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    } finally {
+      exchange.close();
+      metrics.computeIfAbsent(metricsKey, k -> new RouteMetrics())
+          .record(System.nanoTime() - start, status >= 500);
+    }
+  }
+
+  private int dispatch(String route, Request request, RepositorySession session,
+      StringBuilder out) throws IOException {
+    ProjectRepository projects = session.getProjects();
+    PersonRepository persons = session.getPersons();
+    switch (route) {
+      case "GET /projects": {
+        int afterId = request.intParam("after", 0);
+        int limit = Math.min(request.intParam("limit", PAGE_SIZE), MAX_PAGE_SIZE);
+        ProjectPage page = required(projects.findPage(afterId, limit), "projects");
+        out.append("{\"projects\":");
+        ProjectJson.appendProjects(out, page.getProjects());
+        out.append(",\"last_id\":").append(page.getLastProjectId());
+        out.append(",\"has_more\":").append(page.hasMore()).append('}');
+        return 200;
+      }
+      case "POST /projects": {
+        Project project = ProjectJson.toProject(request.body(), null);
+        if (projects.add(project) < 0) {
+          throw new HttpError(500, "Could not add project.");
+        }
+        ProjectJson.appendProject(out, project);
+        return 201;
+      }
+      case "GET /projects/{id}":
+        ProjectJson.appendProject(out, findProject(projects, request.id(1)));
+        return 200;
+      case "PUT /projects/{id}": {
+        Project project = ProjectJson.toProject(request.body(),
+            findProject(projects, request.id(1)));
+        boolean updated = request.booleanParam("merge")
+            ? projects.update(project, Project::rebase) : projects.update(project);
+        if (!updated) {
+          throw new HttpError(404, "Project not found: " + project.getId());
+        }
+        ProjectJson.appendProject(out, project);
+        return 200;
+      }
+      case "DELETE /projects/{id}": {
+        int projectId = request.id(1);
+        if (!projects.delete(projectId)) {
+          throw new HttpError(404, "Project not found: " + projectId);
+        }
+        return count(out, "deleted", 1);
+      }
+      case "POST /projects/{id}/finalize": {
+        int projectId = request.id(1);
+        if (!projects.finalizeProject(projectId, LocalDate.now())) {
+          throw new HttpError(404, "Project not found or already finalised: " + projectId);
+        }
+        ProjectJson.appendProject(out, findProject(projects, projectId));
+        return 200;
+      }
+      case "POST /projects/finalize": {
+        Map<String, Object> body = request.body();
+        int finalized = body.containsKey("due_before")
+            ? projects.finalizeDueBefore(ProjectJson.date(body, "due_before"), LocalDate.now())
+            : projects.finalizeAll(ProjectJson.ids(body, "ids"), LocalDate.now());
+        return count(out, "finalized", required(finalized, "finalize projects"));
+      }
+      case "POST /projects/delete": {
+        Map<String, Object> body = request.body();
+        int deleted = body.containsKey("completed_before")
+            ? projects.deleteCompletedBefore(ProjectJson.date(body, "completed_before"))
+            : projects.deleteAll(ProjectJson.ids(body, "ids"));
+        return count(out, "deleted", required(deleted, "delete projects"));
+      }
+      case "GET /projects/search": {
+        String query = request.param("q");
+        if (query == null || query.trim().isEmpty()) {
+          throw new IllegalArgumentException("Missing q parameter.");
+        }
+        int limit = Math.min(request.intParam("limit", PAGE_SIZE), MAX_PAGE_SIZE);
+        ProjectJson.appendProjects(out, required(projects.search(query, limit), "projects"));
+        return 200;
+      }
+      case "GET /projects/unfinished":
+        ProjectJson.appendProjects(out, required(projects.findUnfinished(), "projects"));
+        return 200;
+      case "GET /projects/past-due":
+        ProjectJson.appendProjects(out, required(projects.findPastDue(), "projects"));
+        return 200;
+      case "GET /projects/due-soon":
+        ProjectJson.appendProjects(out, required(
+            projects.findDueWithin(request.intParam("days", DUE_SOON_DAYS)), "projects"));
+        return 200;
+      case "GET /projects/next-due":
+        ProjectJson.appendProjects(out, required(
+            projects.findNextDue(request.intParam("count", PAGE_SIZE)), "projects"));
+        return 200;
+      case "GET /report":
+        ProjectJson.appendReport(out, required(projects.report(), "portfolio report"));
+        return 200;
+      case "GET /roles/{role}":
+        ProjectJson.appendDirectory(out,
+            required(persons.listByRole(role(request.segment(1))), "persons"));
+        return 200;
+      case "GET /roles/{role}/lookup": {
+        PersonRole role = role(request.segment(1));
+        String name = request.param("name");
+        int personId = name == null ? -1 : persons.findIdByName(role, name);
+        if (personId < 0) {
+          throw new HttpError(404, role.getLabel() + " not found: " + name);
+        }
+        out.append("{\"id\":").append(personId).append('}');
+        return 200;
+      }
+      case "POST /persons": {
+        Person person = ProjectJson.toPerson(request.body(), null);
+        if (!persons.add(person)) {
+          throw new HttpError(500, "Could not add person.");
+        }
+        ProjectJson.appendPerson(out, person);
+        return 201;
+      }
+      case "GET /persons/{id}":
+        ProjectJson.appendPerson(out, findPerson(persons, request.id(1)));
+        return 200;
+      case "PUT /persons/{id}": {
+        Person person = ProjectJson.toPerson(request.body(),
+            findPerson(persons, request.id(1)));
+        boolean updated = request.booleanParam("merge")
+            ? persons.update(person, Person::rebase) : persons.update(person);
+        if (!updated) {
+          throw new HttpError(404, "Person not found: " + person.getId());
+        }
+        ProjectJson.appendPerson(out, person);
+        return 200;
+      }
+      case "DELETE /persons/{id}": {
+        int personId = request.id(1);
+        if (!persons.delete(personId)) {
+          throw new HttpError(404, "Person not found: " + personId);
+        }
+        return count(out, "deleted", 1);
+      }
+      default:
+        throw new HttpError(404, "Unknown endpoint: " + route, true);
+    }
+  }
+
+  private void appendMetrics(StringBuilder out) {
+    out.append("{\"uptime_ms\":").append(System.currentTimeMillis() - startedAt);
+    out.append(",\"routes\":{");
+    boolean first = true;
+    for (Map.Entry<String, RouteMetrics> entry : new TreeMap<>(metrics).entrySet()) {
+      if (!first) {
+        out.append(',');
+      }
+      first = false;
+      RouteMetrics route = entry.getValue();
+      long count = route.count.sum();
+      Json.quote(out, entry.getKey());
+      out.append(":{\"count\":").append(count);
+      out.append(",\"errors\":").append(route.errors.sum());
+      out.append(",\"mean_ms\":").append(count == 0 ? 0.0
+          : Math.round(route.nanos.sum() / (double) count / 1_000) / 1_000.0);
+      out.append(",\"max_ms\":").append(Math.round(route.maxNanos.get() / 1_000.0) / 1_000.0);
+      out.append('}');
+    }
+    out.append('}');
+    out.append(",\"operations\":");
+    Metrics.appendJson(out);
+    if (pooled) {
+      int[] pool = Database.getPoolUsage();
+      CacheStats statements = Database.getStatementCacheStats();
+      CacheStats projectCache = ProjectManager.getProjectCacheStats();
+      out.append(",\"pool\":{\"active\":").append(pool[0]);
+      out.append(",\"idle\":").append(pool[1]).append('}');
+      out.append(",\"statement_cache\":{\"hits\":").append(statements.getHits());
+      out.append(",\"misses\":").append(statements.getMisses()).append('}');
+      out.append(",\"project_cache\":{\"hits\":").append(projectCache.getHits());
+      out.append(",\"misses\":").append(projectCache.getMisses());
+      out.append(",\"evictions\":").append(projectCache.getEvictions()).append('}');
+    }
+    out.append('}');
+  }
+
+  private static Project findProject(ProjectRepository projects, int projectId) {
+    Project project = projects.findById(projectId);
+    if (project == null) {
+      throw new HttpError(404, "Project not found: " + projectId);
+    }
+    return project;
+  }
+
+  private static Person findPerson(PersonRepository persons, int personId) {
+    Person person = persons.findById(personId);
+    if (person == null) {
+      throw new HttpError(404, "Person not found: " + personId);
+    }
+    return person;
+  }
+
+  private static PersonRole role(String slug) {
+    PersonRole role = PersonRole.fromSlug(slug);
+    if (role == null) {
+      throw new HttpError(404, "Unknown role: " + slug);
+    }
+    return role;
+  }
+
+  private static <T> T required(T result, String what) {
+    if (result == null) {
+      throw new HttpError(500, "Could not retrieve " + what + ".");
+    }
+    return result;
+  }
+
+  private static int required(int result, String what) {
+    if (result < 0) {
+      throw new HttpError(500, "Could not " + what + ".");
+    }
+    return result;
+  }
+
+  private static int count(StringBuilder out, String name, int count) {
+    out.append('{');
+    Json.quote(out, name).append(':').append(count).append('}');
+    return 200;
+  }
+
+  private static void error(StringBuilder out, String message) {
+    out.setLength(0);
+    out.append("{\"error\":");
+    Json.quote(out, message).append('}');
+  }
+
+  private static void conflict(StringBuilder out, ConcurrentUpdateException e) {
+    error(out, e.getMessage());
+    out.setLength(out.length() - 1);
+    out.append(",\"current\":");
+    Object current = e.getCurrent(Object.class);
+    if (current instanceof Project) {
+      ProjectJson.appendProject(out, (Project) current);
+    } else {
+      ProjectJson.appendPerson(out, (Person) current);
+    }
+    out.append('}');
+  }
+
+  private static String[] segments(String path) {
+    String trimmed = path.replaceAll("^/+|/+$", "");
+    return trimmed.isEmpty() ? new String[0] : trimmed.split("/+");
+  }
+
+  /**
+   * Builds the route pattern for a path, replacing IDs and role names with
+   * placeholders so metrics are kept per endpoint rather than per URL.
+   */
+  private static String pattern(String[] path) {
+    StringBuilder pattern = new StringBuilder();
+    for (int i = 0; i < path.length; i++) {
+      pattern.append('/');
+      if (i == 1 && "roles".equals(path[0])) {
+        pattern.append("{role}");
+      } else if (path[i].matches("\\d{1,9}")) {
+        pattern.append("{id}");
+      } else {
+        pattern.append(path[i]);
+      }
+    }
+    return pattern.length() == 0 ? "/" : pattern.toString();
+  }
+
+  private static Map<String, String> query(String rawQuery) {
+    Map<String, String> params = new HashMap<>();
+    if (rawQuery == null) {
+      return params;
+    }
+    for (String pair : rawQuery.split("&")) {
+      int equals = pair.indexOf('=');
+      String name = equals < 0 ? pair : pair.substring(0, equals);
+      String value = equals < 0 ? "" : pair.substring(equals + 1);
+      params.put(decode(name), decode(value));
+    }
+    return params;
+  }
+
+  private static String decode(String text) {
+    try {
+      return URLDecoder.decode(text, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The parsed parts of one request.
+   */
+  private static final class Request {
+    private final String[] path;
+    private final Map<String, String> params;
+    private final HttpExchange exchange;
+
+    Request(String[] path, Map<String, String> params, HttpExchange exchange) {
+      this.path = path;
+      this.params = params;
+      this.exchange = exchange;
+    }
+
+    String segment(int index) {
+      return path[index];
+    }
+
+    int id(int index) {
+      return Integer.parseInt(path[index]);
+    }
+
+    String param(String name) {
+      return params.get(name);
+    }
+
+    boolean booleanParam(String name) {
+      return Boolean.parseBoolean(params.get(name));
+    }
+
+    int intParam(String name, int defaultValue) {
+      String value = params.get(name);
+      if (value == null || value.isEmpty()) {
+        return defaultValue;
+      }
+      try {
+        return Integer.parseInt(value);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid " + name + ": " + value);
+      }
+    }
+
+    Map<String, Object> body() throws IOException {
+      String length = exchange.getRequestHeaders().getFirst("Content-Length");
+      if (length != null && length.matches("\\d+")
+          && (length.length() > 18 || Long.parseLong(length) > MAX_BODY_BYTES)) {
+        throw tooLarge();
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      try (InputStream in = exchange.getRequestBody()) {
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+          if (bytes.size() + read > MAX_BODY_BYTES) {
+            throw tooLarge();
+          }
+          bytes.write(buffer, 0, read);
+        }
+      }
+      return Json.parseObject(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private HttpError tooLarge() {
+      return new HttpError(413, "Request body larger than " + MAX_BODY_BYTES + " bytes.");
+    }
+  }
+
+  /**
+   * Request count, error count and latency totals for one route.
+   */
+  private static final class RouteMetrics {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(long elapsedNanos, boolean error) {
+      count.increment();
+      nanos.add(elapsedNanos);
+      if (error) {
+        errors.increment();
+      }
+      maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+    }
+  }
+
+  /**
+   * A failure reported to the client with a specific HTTP status.
+   */
+  private static final class HttpError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+    private final boolean unrouted;
+
+    HttpError(int status, String message) {
+      this(status, message, false);
+    }
+
+    HttpError(int status, String message, boolean unrouted) {
+      super(message);
+      this.status = status;
+      this.unrouted = unrouted;
+    }
+  }
+}
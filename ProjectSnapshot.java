@@ -0,0 +1,419 @@
+package poised;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A read-only snapshot of every project and the five role directories,
+ * memory-mapped from a compact binary file.
+ *
+ * <p>The file starts with a fixed header holding the counts and a CRC32 of
+ * everything after it. Projects follow as fixed-size records in ID order,
+ * so any record is found by binary search without reading the rest of the
+ * file; then the role directories; then a pool of length-prefixed UTF-8
+ * strings that records refer to by offset, each distinct string stored
+ * once. Opening the file maps it and checks the checksum, and nothing is
+ * decoded until it is read.
+ *
+ * <p>Files are written to a temporary file and moved into place, so a
+ * reader never sees a partly written snapshot.
+ */
+public final class ProjectSnapshot {
+  private static final int MAGIC = 0x50504D53; // "PPMS"
+  private static final int FORMAT = 1;
+  private static final int HEADER_BYTES = 36;
+  private static final int RECORD_BYTES = 64;
+  private static final int NO_DATE = Integer.MIN_VALUE;
+  private static final int NO_STRING = -1;
+
+  // Record layout, as byte offsets within a record
+  private static final int ID = 0;
+  private static final int VERSION = 4;
+  private static final int FINALISED = 8;
+  private static final int DEADLINE = 12;
+  private static final int COMPLETION = 16;
+  private static final int ARCHITECT = 20;
+  private static final int ENGINEER = 24;
+  private static final int MANAGER = 28;
+  private static final int CONTRACTOR = 32;
+  private static final int CUSTOMER = 36;
+  private static final int FEE = 40;
+  private static final int NAME = 48;
+  private static final int TYPE = 52;
+  private static final int ADDRESS = 56;
+  private static final int ERF = 60;
+
+  private final ByteBuffer buffer;
+  private final long createdAt;
+  private final int projectCount;
+  private final int stringsStart;
+  private final Map<PersonRole, Map<Integer, String>> directories;
+
+  private ProjectSnapshot(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a project snapshot.");
+    }
+    if (buffer.getInt(4) != FORMAT) {
+      throw new IOException("Unsupported snapshot format " + buffer.getInt(4) + ".");
+    }
+    createdAt = buffer.getLong(8);
+    projectCount = buffer.getInt(16);
+    int directoryEntries = buffer.getInt(20);
+    int stringBytes = buffer.getInt(24);
+    int directoriesStart = HEADER_BYTES + projectCount * RECORD_BYTES;
+    stringsStart = directoriesStart + PersonRole.values().length * 4 + directoryEntries * 8;
+    if (buffer.capacity() != stringsStart + stringBytes) {
+      throw new IOException("Snapshot is truncated.");
+    }
+    if (checksum(buffer) != buffer.getLong(28)) {
+      throw new IOException("Snapshot checksum does not match.");
+    }
+
+    Map<PersonRole, Map<Integer, String>> roles = new EnumMap<>(PersonRole.class);
+    int position = directoriesStart;
+    for (PersonRole role : PersonRole.values()) {
+      int count = buffer.getInt(position);
+      position += 4;
+      Map<Integer, String> names = new LinkedHashMap<>();
+      for (int i = 0; i < count; i++, position += 8) {
+        names.put(buffer.getInt(position), string(buffer.getInt(position + 4)));
+      }
+      roles.put(role, Collections.unmodifiableMap(names));
+    }
+    directories = Collections.unmodifiableMap(roles);
+  }
+
+  /**
+   * Maps a snapshot file and validates it.
+   *
+   * @param file The snapshot file
+   * @return The snapshot
+   * @throws IOException if the file cannot be read, is not a snapshot or
+   *                     fails its checksum
+   */
+  public static ProjectSnapshot open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // The mapping stays valid after the channel is closed
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new ProjectSnapshot(mapped);
+    }
+  }
+
+  /**
+   * Writes a snapshot file, replacing any existing one atomically.
+   *
+   * @param file        The snapshot file
+   * @param projects    Every project, in ID order
+   * @param directories The names keyed by ID for every role
+   * @param createdAt   When the data was read, in epoch milliseconds
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(Path file, Iterable<Project> projects,
+      Map<PersonRole, Map<Integer, String>> directories, long createdAt) throws IOException {
+    StringPool strings = new StringPool();
+    Growable records = new Growable(RECORD_BYTES * 1024);
+    int projectCount = 0;
+    int lastId = Integer.MIN_VALUE;
+    for (Project project : projects) {
+      if (project.getId() <= lastId) {
+        throw new IllegalArgumentException("Projects must be in ID order.");
+      }
+      lastId = project.getId();
+      ByteBuffer record = records.reserve(RECORD_BYTES);
+      record.putInt(project.getId())
+          .putInt(project.getVersion())
+          .putInt(project.isFinalised())
+          .putInt(epochDay(project.getDeadline()))
+          .putInt(epochDay(project.getCompletionDate()))
+          .putInt(project.getArchitectId())
+          .putInt(project.getEngineerId())
+          .putInt(project.getManagerId())
+          .putInt(project.getContractorId())
+          .putInt(project.getCustomerId())
+          .putLong(Math.round(project.getTotalFee() * 100.0))
+          .putInt(strings.offset(project.getProjectName()))
+          .putInt(strings.offset(project.getBuildingType()))
+          .putInt(strings.offset(project.getPhysicalAddress()))
+          .putInt(strings.offset(project.getErfNumber()));
+      projectCount++;
+    }
+
+    Growable roles = new Growable(4096);
+    int directoryEntries = 0;
+    for (PersonRole role : PersonRole.values()) {
+      Map<Integer, String> names = directories.get(role);
+      names = names != null ? names : Collections.<Integer, String>emptyMap();
+      roles.reserve(4).putInt(names.size());
+      for (Map.Entry<Integer, String> entry : names.entrySet()) {
+        roles.reserve(8).putInt(entry.getKey()).putInt(strings.offset(entry.getValue()));
+        directoryEntries++;
+      }
+    }
+
+    ByteBuffer[] body = {records.flip(), roles.flip(), strings.bytes.flip()};
+    CRC32 crc = new CRC32();
+    for (ByteBuffer section : body) {
+      crc.update(section.duplicate());
+    }
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    header.putInt(MAGIC).putInt(FORMAT).putLong(createdAt).putInt(projectCount)
+        .putInt(directoryEntries).putInt(body[2].remaining()).putLong(crc.getValue());
+    header.flip();
+
+    Path directory = file.toAbsolutePath().getParent();
+    Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        channel.write(header);
+        for (ByteBuffer section : body) {
+          while (section.hasRemaining()) {
+            channel.write(section);
+          }
+        }
+        channel.force(true);
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Gets when the snapshot's data was read from the database.
+   *
+   * @return The time in epoch milliseconds
+   */
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  /**
+   * Gets the number of projects.
+   *
+   * @return The project count
+   */
+  public int size() {
+    return projectCount;
+  }
+
+  /**
+   * Finds the position of a project.
+   *
+   * @param projectId The project ID
+   * @return The index, or (-(insertion point) - 1) if there is no such project
+   */
+  public int indexOf(int projectId) {
+    int low = 0;
+    int high = projectCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int id = getId(middle);
+      if (id < projectId) {
+        low = middle + 1;
+      } else if (id > projectId) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * Gets the ID of the project at an index.
+   *
+   * @param index The index, from 0 to {@link #size()} - 1
+   * @return The project ID
+   */
+  public int getId(int index) {
+    return buffer.getInt(record(index) + ID);
+  }
+
+  /**
+   * Gets the version of the project at an index.
+   *
+   * @param index The index
+   * @return The row version
+   */
+  public int getVersion(int index) {
+    return buffer.getInt(record(index) + VERSION);
+  }
+
+  /**
+   * Checks whether the project at an index is finalised.
+   *
+   * @param index The index
+   * @return true if finalised
+   */
+  public boolean isFinalised(int index) {
+    return buffer.getInt(record(index) + FINALISED) != 0;
+  }
+
+  /**
+   * Gets the deadline of the project at an index as an epoch day.
+   *
+   * @param index The index
+   * @return The epoch day, or {@link Integer#MIN_VALUE} if there is none
+   */
+  public int getDeadlineDay(int index) {
+    return buffer.getInt(record(index) + DEADLINE);
+  }
+
+  /**
+   * Gets the name of the project at an index.
+   *
+   * @param index The index
+   * @return The project name
+   */
+  public String getProjectName(int index) {
+    return string(buffer.getInt(record(index) + NAME));
+  }
+
+  /**
+   * Decodes the project at an index.
+   *
+   * @param index The index
+   * @return The project, at its snapshot version
+   */
+  public Project get(int index) {
+    int at = record(index);
+    Project project = new Project(
+        buffer.getInt(at + ID),
+        string(buffer.getInt(at + NAME)),
+        string(buffer.getInt(at + TYPE)),
+        string(buffer.getInt(at + ADDRESS)),
+        buffer.getLong(at + FEE) / 100f,
+        date(buffer.getInt(at + DEADLINE)),
+        string(buffer.getInt(at + ERF)),
+        buffer.getInt(at + ARCHITECT),
+        buffer.getInt(at + ENGINEER),
+        buffer.getInt(at + MANAGER),
+        buffer.getInt(at + CONTRACTOR),
+        buffer.getInt(at + CUSTOMER),
+        buffer.getInt(at + FINALISED),
+        date(buffer.getInt(at + COMPLETION)));
+    project.setVersion(buffer.getInt(at + VERSION));
+    project.markClean();
+    return project;
+  }
+
+  /**
+   * Gets a role directory.
+   *
+   * @param role The role
+   * @return The names keyed by ID in ID order
+   */
+  public Map<Integer, String> getDirectory(PersonRole role) {
+    return directories.get(role);
+  }
+
+  /**
+   * Gets every role directory.
+   *
+   * @return The names keyed by ID for every role
+   */
+  public Map<PersonRole, Map<Integer, String>> getDirectories() {
+    return directories;
+  }
+
+  private int record(int index) {
+    if (index < 0 || index >= projectCount) {
+      throw new IndexOutOfBoundsException("Index: " + index);
+    }
+    return HEADER_BYTES + index * RECORD_BYTES;
+  }
+
+  private String string(int offset) {
+    if (offset == NO_STRING) {
+      return null;
+    }
+    int at = stringsStart + offset;
+    byte[] bytes = new byte[buffer.getInt(at)];
+    ByteBuffer view = buffer.duplicate();
+    view.position(at + 4);
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static long checksum(ByteBuffer buffer) {
+    ByteBuffer body = buffer.duplicate();
+    body.position(HEADER_BYTES);
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    return crc.getValue();
+  }
+
+  private static int epochDay(LocalDate date) {
+    return date != null ? (int) date.toEpochDay() : NO_DATE;
+  }
+
+  private static LocalDate date(int epochDay) {
+    return epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+  }
+
+  /**
+   * A heap buffer that doubles as it fills.
+   */
+  private static final class Growable {
+    private ByteBuffer buffer;
+
+    Growable(int capacity) {
+      buffer = ByteBuffer.allocate(capacity);
+    }
+
+    ByteBuffer reserve(int bytes) {
+      if (buffer.remaining() < bytes) {
+        ByteBuffer grown = ByteBuffer.allocate(
+            Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+      }
+      return buffer;
+    }
+
+    ByteBuffer flip() {
+      buffer.flip();
+      return buffer;
+    }
+  }
+
+  /**
+   * The string section, storing each distinct string once.
+   */
+  private static final class StringPool {
+    private final Growable bytes = new Growable(64 * 1024);
+    private final Map<String, Integer> offsets = new HashMap<>();
+
+    int offset(String value) {
+      if (value == null) {
+        return NO_STRING;
+      }
+      Integer offset = offsets.get(value);
+      if (offset == null) {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer target = bytes.reserve(4 + encoded.length);
+        offset = target.position();
+        target.putInt(encoded.length).put(encoded);
+        offsets.put(value, offset);
+      }
+      return offset;
+    }
+  }
+}
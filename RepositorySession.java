@@ -0,0 +1,88 @@
+package poised;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A project and person repository pair used for one unit of work, such as
+ * one HTTP request. JDBC sessions hold a connection borrowed from the
+ * {@link Database} pool and give it back on close; in-memory sessions
+ * share the same repositories and hold nothing.
+ */
+class RepositorySession implements AutoCloseable {
+  private final ProjectRepository projects;
+  private final PersonRepository persons;
+  private final Connection connection;
+
+  private RepositorySession(ProjectRepository projects, PersonRepository persons,
+      Connection connection) {
+    this.projects = projects;
+    this.persons = persons;
+    this.connection = connection;
+  }
+
+  /**
+   * Opens sessions for a unit of work.
+   */
+  interface Source {
+    RepositorySession open() throws SQLException;
+  }
+
+  /**
+   * Opens a session on a pooled database connection.
+   *
+   * @return The session
+   * @throws SQLException if no connection could be borrowed
+   */
+  static RepositorySession openJdbc() throws SQLException {
+    Connection connection = Database.getConnection();
+    return new RepositorySession(new JdbcProjectRepository(connection),
+        new JdbcPersonRepository(connection), connection);
+  }
+
+  /**
+   * Creates a source whose sessions all share the given in-memory
+   * repositories.
+   *
+   * @param projects The project repository
+   * @param persons  The person repository
+   * @return The source
+   */
+  static Source inMemory(ProjectRepository projects, PersonRepository persons) {
+    return () -> new RepositorySession(projects, persons, null);
+  }
+
+  /**
+   * Gets the project repository.
+   *
+   * @return The project repository
+   */
+  ProjectRepository getProjects() {
+    return projects;
+  }
+
+  /**
+   * Gets the person repository.
+   *
+   * @return The person repository
+   */
+  PersonRepository getPersons() {
+    return persons;
+  }
+
+  /**
+   * Gets the borrowed connection.
+   *
+   * @return The connection, or null for an in-memory session
+   */
+  Connection getConnection() {
+    return connection;
+  }
+
+  @Override
+  public void close() throws SQLException {
+    if (connection != null) {
+      connection.close();
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package poised;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A read-through cache of the five role directories.
+ *
+ * <p>Each role holds an ID-to-name map in ID order and a case-insensitive
+ * name-to-ID map, where the lowest ID wins for duplicate names. An entry
+ * is reloaded once it is older than the time-to-live, or after it has been
+ * invalidated by a write. Concurrent misses on the same role load the
+ * directory once.
+ */
+class RoleDirectoryCache {
+  private final long ttlNanos;
+  private final Map<PersonRole, Directory> entries = new ConcurrentHashMap<>();
+  private final Map<PersonRole, Object> locks = new EnumMap<>(PersonRole.class);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Loads a role directory from its source.
+   */
+  interface Loader {
+    Map<Integer, String> load(PersonRole role) throws SQLException;
+  }
+
+  /**
+   * Creates a role directory cache.
+   *
+   * @param ttlMillis How long a loaded directory is served before reloading
+   */
+  RoleDirectoryCache(long ttlMillis) {
+    this.ttlNanos = ttlMillis * 1_000_000L;
+    for (PersonRole role : PersonRole.values()) {
+      locks.put(role, new Object());
+    }
+  }
+
+  /**
+   * Gets a role directory's names keyed by ID, loading it if needed.
+   *
+   * @param role   The role
+   * @param loader Reads the directory on a miss
+   * @return The unmodifiable directory in ID order
+   * @throws SQLException if the directory has to be loaded and cannot be
+   */
+  Map<Integer, String> getNames(PersonRole role, Loader loader) throws SQLException {
+    return get(role, loader).namesById;
+  }
+
+  /**
+   * Looks up an ID by name, ignoring case, loading the directory if needed.
+   *
+   * @param role   The role
+   * @param name   The name to look up
+   * @param loader Reads the directory on a miss
+   * @return The ID, or -1 if no entry has that name
+   * @throws SQLException if the directory has to be loaded and cannot be
+   */
+  int getId(PersonRole role, String name, Loader loader) throws SQLException {
+    if (name == null) {
+      return -1;
+    }
+    Integer id = get(role, loader).idsByName.get(name.toLowerCase(Locale.ROOT));
+    return id != null ? id : -1;
+  }
+
+  /**
+   * Gets a role directory's names only if a fresh copy is cached.
+   *
+   * @param role The role
+   * @return The unmodifiable directory in ID order, or null on a miss
+   */
+  Map<Integer, String> getNamesIfFresh(PersonRole role) {
+    Directory directory = entries.get(role);
+    if (isFresh(directory)) {
+      hits.increment();
+      return directory.namesById;
+    }
+    return null;
+  }
+
+  /**
+   * Stores a directory loaded by the caller, for example together with
+   * other data in one query.
+   *
+   * @param role  The role
+   * @param names The names keyed by ID in ID order
+   * @return The unmodifiable directory as cached
+   */
+  Map<Integer, String> put(PersonRole role, Map<Integer, String> names) {
+    synchronized (locks.get(role)) {
+      misses.increment();
+      Directory directory = new Directory(names);
+      entries.put(role, directory);
+      return directory.namesById;
+    }
+  }
+
+  /**
+   * Drops one role directory so the next read reloads it.
+   *
+   * @param role The role
+   */
+  void invalidate(PersonRole role) {
+    synchronized (locks.get(role)) {
+      entries.remove(role);
+    }
+  }
+
+  /**
+   * Drops every role directory.
+   */
+  void invalidateAll() {
+    for (PersonRole role : PersonRole.values()) {
+      invalidate(role);
+    }
+  }
+
+  long getHits() {
+    return hits.sum();
+  }
+
+  long getMisses() {
+    return misses.sum();
+  }
+
+  private Directory get(PersonRole role, Loader loader) throws SQLException {
+    Directory directory = entries.get(role);
+    if (isFresh(directory)) {
+      hits.increment();
+      return directory;
+    }
+    synchronized (locks.get(role)) {
+      directory = entries.get(role);
+      if (isFresh(directory)) {
+        hits.increment();
+        return directory;
+      }
+      misses.increment();
+      Map<Integer, String> names = loader.load(role);
+      directory = new Directory(names);
+      entries.put(role, directory);
+      return directory;
+    }
+  }
+
+  private boolean isFresh(Directory directory) {
+    return directory != null && System.nanoTime() - directory.loadedAt < ttlNanos;
+  }
+
+  /**
+   * One loaded role directory.
+   */
+  private static final class Directory {
+    private final Map<Integer, String> namesById;
+    private final Map<String, Integer> idsByName = new HashMap<>();
+    private final long loadedAt = System.nanoTime();
+
+    Directory(Map<Integer, String> names) {
+      this.namesById = Collections.unmodifiableMap(names);
+      for (Map.Entry<Integer, String> entry : names.entrySet()) {
+        if (entry.getValue() != null) {
+          idsByName.putIfAbsent(entry.getValue().toLowerCase(Locale.ROOT), entry.getKey());
+        }
+      }
+    }
+  }
+}
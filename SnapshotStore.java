@@ -0,0 +1,250 @@
+package poised;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a {@link ProjectSnapshot} file up to date and serves reads from it.
+ *
+ * <p>The last snapshot is opened when the store is created, so projects can
+ * be listed before the database is reachable, or when it is not reachable
+ * at all. A refresh reads only the ID and version of every project, fetches
+ * the projects that are new or have changed since the snapshot, takes the
+ * rest from the snapshot itself, and swaps in the new file. Readers keep
+ * the mapping they started with until the swap.
+ */
+public class SnapshotStore implements AutoCloseable {
+  private static final Logger logger = Logger.getLogger(SnapshotStore.class.getName());
+
+  private final Path file;
+  private final Object refreshLock = new Object();
+  private volatile ProjectSnapshot snapshot;
+  private ScheduledExecutorService refresher;
+
+  /**
+   * Constructor. Opens the snapshot file if there is one; a file that is
+   * missing, truncated or fails its checksum is ignored and replaced on
+   * the next refresh.
+   *
+   * @param file The snapshot file
+   */
+  public SnapshotStore(Path file) {
+    this.file = file;
+    if (Files.exists(file)) {
+      try {
+        snapshot = ProjectSnapshot.open(file);
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Ignoring unreadable snapshot " + file, e);
+      }
+    }
+  }
+
+  /**
+   * Gets the snapshot file named by {@code poisepms.snapshot.file}.
+   *
+   * @return The file, poisepms.snapshot in the working directory by default
+   */
+  public static Path defaultFile() {
+    return Paths.get(System.getProperty("poisepms.snapshot.file", "poisepms.snapshot"));
+  }
+
+  /**
+   * Gets the current snapshot.
+   *
+   * @return The snapshot, or null if none has been opened or written yet
+   */
+  public ProjectSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Brings the snapshot up to date with the database. Only projects whose
+   * version differs from the snapshot are read in full, and the file is
+   * rewritten only if something changed.
+   *
+   * @param connection The connection to read from
+   * @return True if a new snapshot was written
+   * @throws SQLException if the database could not be read
+   * @throws IOException  if the snapshot could not be written
+   */
+  public boolean refresh(Connection connection) throws SQLException, IOException {
+    synchronized (refreshLock) {
+      return refresh(connection, snapshot);
+    }
+  }
+
+  private boolean refresh(Connection connection, ProjectSnapshot previous)
+      throws SQLException, IOException {
+    long startedAt = System.currentTimeMillis();
+    int[][] current = ProjectManager.getProjectVersions(connection);
+    int[] ids = current[0];
+    int[] versions = current[1];
+    List<Integer> changed = new ArrayList<>();
+    for (int i = 0; i < ids.length; i++) {
+      int index = previous != null ? previous.indexOf(ids[i]) : -1;
+      if (index < 0 || previous.getVersion(index) != versions[i]) {
+        changed.add(ids[i]);
+      }
+    }
+    Map<PersonRole, Map<Integer, String>> directories = new EnumMap<>(PersonRole.class);
+    for (PersonRole role : PersonRole.values()) {
+      Map<Integer, String> directory = ProjectManager.getPersons(connection, role);
+      if (directory == null) {
+        throw new SQLException("Could not read the " + role.getLabel() + " directory.");
+      }
+      directories.put(role, directory);
+    }
+    // With nothing new or changed, equal sizes also rule out deletions
+    if (previous != null && changed.isEmpty() && previous.size() == ids.length
+        && previous.getDirectories().equals(directories)) {
+      return false;
+    }
+    Map<Integer, Project> fetched = new HashMap<>();
+    for (Project project : ProjectManager.getProjectsByIds(connection, changed)) {
+      fetched.put(project.getId(), project);
+    }
+    ProjectSnapshot.write(file, merge(ids, previous, new HashSet<>(changed), fetched),
+        directories, startedAt);
+    snapshot = ProjectSnapshot.open(file);
+    logger.info("Wrote snapshot of " + snapshot.size() + " projects, "
+        + changed.size() + " read from the database.");
+    return true;
+  }
+
+  /**
+   * Refreshes the snapshot now and then every {@code periodSeconds} on a
+   * background thread, using pooled connections. Failed refreshes are
+   * logged and retried on the next run.
+   *
+   * @param periodSeconds The time between refreshes; 0 or less refreshes
+   *                      once only
+   */
+  public synchronized void startRefreshing(long periodSeconds) {
+    if (refresher != null) {
+      return;
+    }
+    refresher = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "snapshot-refresh");
+      thread.setDaemon(true);
+      return thread;
+    });
+    Runnable refresh = () -> {
+      try (Connection connection = Database.getConnection()) {
+        refresh(connection);
+      } catch (SQLException | IOException e) {
+        logger.log(Level.WARNING, "Snapshot refresh failed", e);
+      } catch (RuntimeException e) {
+        // Letting it escape would cancel every later refresh
+        logger.log(Level.SEVERE, "Snapshot refresh failed", e);
+      }
+    };
+    if (periodSeconds > 0) {
+      refresher.scheduleWithFixedDelay(refresh, 0, periodSeconds, TimeUnit.SECONDS);
+    } else {
+      refresher.execute(refresh);
+    }
+  }
+
+  /**
+   * Copies the current snapshot into in-memory repositories for working
+   * offline. Person contact details are not in the snapshot, so only the
+   * role directories are copied.
+   *
+   * @param projects The repository to load the projects into
+   * @param persons  The repository to load the role directories into
+   * @return true if there was a snapshot to copy
+   */
+  public boolean copyTo(InMemoryProjectRepository projects, InMemoryPersonRepository persons) {
+    ProjectSnapshot s = snapshot;
+    if (s == null) {
+      return false;
+    }
+    for (int i = 0; i < s.size(); i++) {
+      projects.load(s.get(i));
+    }
+    for (Map.Entry<PersonRole, Map<Integer, String>> directory
+        : s.getDirectories().entrySet()) {
+      for (Map.Entry<Integer, String> entry : directory.getValue().entrySet()) {
+        persons.loadRole(directory.getKey(), entry.getKey(), entry.getValue());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stops the background refresh, waiting briefly for a running one.
+   */
+  @Override
+  public synchronized void close() {
+    if (refresher != null) {
+      refresher.shutdownNow();
+      try {
+        refresher.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      refresher = null;
+    }
+  }
+
+  /**
+   * Lists the projects in ID order, taking fetched projects from the map
+   * and unchanged ones from the previous snapshot. Changed IDs that were
+   * not fetched were deleted in between and are skipped.
+   */
+  private static Iterable<Project> merge(int[] ids, ProjectSnapshot previous,
+      Set<Integer> changed, Map<Integer, Project> fetched) {
+    return () -> new Iterator<Project>() {
+      private int position;
+      private Project next = advance();
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Project next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        Project project = next;
+        next = advance();
+        return project;
+      }
+
+      private Project advance() {
+        while (position < ids.length) {
+          int projectId = ids[position++];
+          if (changed.contains(projectId)) {
+            Project project = fetched.get(projectId);
+            if (project != null) {
+              return project;
+            }
+          } else {
+            return previous.get(previous.indexOf(projectId));
+          }
+        }
+        return null;
+      }
+    };
+  }
+}
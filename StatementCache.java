@@ -0,0 +1,251 @@
+package poised;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An LRU cache of prepared statements for one physical connection, keyed
+ * by SQL text.
+ *
+ * <p>Statements handed out are proxies; closing one closes its current
+ * result set, clears its parameters, resets any fetch size, row limit or
+ * query timeout a caller set, and keeps it for the next caller preparing
+ * the same SQL. Their {@code getConnection()} returns the pooled
+ * connection they were prepared on and their result sets'
+ * {@code getStatement()} returns the proxy, so the physical objects never
+ * escape. A statement that is still open when the same SQL is prepared
+ * again is not shared; the second caller gets an uncached statement
+ * instead.
+ */
+class StatementCache {
+  private static final Logger logger =
+      Logger.getLogger(StatementCache.class.getName());
+
+  private final Connection physical;
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final Map<String, CachedStatement> entries;
+
+  /**
+   * Creates a statement cache.
+   *
+   * @param physical The physical connection statements are prepared on
+   * @param capacity The maximum number of cached statements
+   * @param hits     Counter incremented on every cache hit
+   * @param misses   Counter incremented on every cache miss
+   */
+  StatementCache(Connection physical, final int capacity, LongAdder hits,
+      LongAdder misses) {
+    this.physical = physical;
+    this.hits = hits;
+    this.misses = misses;
+    this.entries = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+        if (size() <= capacity) {
+          return false;
+        }
+        eldest.getValue().evict();
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Returns a statement for the given SQL, reusing a cached one if possible.
+   *
+   * @param logical           The pooled connection the caller holds
+   * @param sql               The SQL text
+   * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS},
+   *                          {@link Statement#NO_GENERATED_KEYS}, or -1 for
+   *                          the driver default
+   * @return A prepared statement whose close() returns it to the cache
+   * @throws SQLException if the statement cannot be prepared
+   */
+  synchronized PreparedStatement prepare(Connection logical, String sql,
+      int autoGeneratedKeys) throws SQLException {
+    String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS
+        ? "K:" + sql : sql;
+    CachedStatement cached = entries.get(key);
+    if (cached != null) {
+      if (cached.inUse) {
+        misses.increment();
+        return create(sql, autoGeneratedKeys);
+      }
+      hits.increment();
+      cached.inUse = true;
+      cached.logical = logical;
+      return cached.proxy;
+    }
+    misses.increment();
+    cached = new CachedStatement(create(sql, autoGeneratedKeys));
+    cached.inUse = true;
+    cached.logical = logical;
+    entries.put(key, cached);
+    return cached.proxy;
+  }
+
+  /**
+   * Closes every cached statement. Called before the physical connection
+   * is closed.
+   */
+  synchronized void clear() {
+    List<CachedStatement> all = new ArrayList<>(entries.values());
+    entries.clear();
+    for (CachedStatement cached : all) {
+      cached.evict();
+    }
+  }
+
+  private PreparedStatement create(String sql, int autoGeneratedKeys)
+      throws SQLException {
+    return autoGeneratedKeys < 0
+        ? physical.prepareStatement(sql)
+        : physical.prepareStatement(sql, autoGeneratedKeys);
+  }
+
+  private synchronized void release(CachedStatement cached) {
+    cached.inUse = false;
+    cached.logical = null;
+    if (cached.evicted) {
+      cached.closeQuietly();
+      return;
+    }
+    try {
+      // Closing a statement closes its result set, even when it is cached
+      ResultSet rs = cached.statement.getResultSet();
+      if (rs != null) {
+        rs.close();
+      }
+      cached.statement.clearParameters();
+      cached.statement.clearBatch();
+      if (cached.limited) {
+        // A streaming fetch size left behind would make the next caller stream
+        cached.statement.setFetchSize(0);
+        cached.statement.setMaxRows(0);
+        cached.statement.setQueryTimeout(0);
+        cached.limited = false;
+      }
+    } catch (SQLException e) {
+      entries.values().remove(cached);
+      cached.closeQuietly();
+    }
+  }
+
+  /**
+   * A cached physical statement and the proxy handed to callers.
+   */
+  private final class CachedStatement implements InvocationHandler {
+    private final PreparedStatement statement;
+    private final PreparedStatement proxy;
+    private Connection logical;
+    private boolean inUse;
+    private boolean evicted;
+    // Set once a caller changes the fetch size, row limit or query timeout
+    private boolean limited;
+
+    CachedStatement(PreparedStatement statement) {
+      this.statement = statement;
+      this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+          PreparedStatement.class.getClassLoader(),
+          new Class<?>[] {PreparedStatement.class}, this);
+    }
+
+    void evict() {
+      evicted = true;
+      if (!inUse) {
+        closeQuietly();
+      }
+    }
+
+    void closeQuietly() {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        logger.log(Level.FINE, "Error closing cached statement.", e);
+      }
+    }
+
+    @Override
+    public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (inUse) {
+            release(this);
+          }
+          return null;
+        case "isClosed":
+          return !inUse || statement.isClosed();
+        case "equals":
+          return self == args[0];
+        case "hashCode":
+          return System.identityHashCode(self);
+        default:
+          break;
+      }
+      if (!inUse) {
+        throw new SQLException("Statement is closed.");
+      }
+      switch (method.getName()) {
+        case "getConnection":
+          return logical;
+        case "setFetchSize":
+        case "setMaxRows":
+        case "setLargeMaxRows":
+        case "setQueryTimeout":
+          limited = true;
+          break;
+        default:
+          break;
+      }
+      Object result;
+      try {
+        result = method.invoke(statement, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+      return result instanceof ResultSet ? wrap((ResultSet) result) : result;
+    }
+
+    /**
+     * Wraps a result set so that its getStatement() returns the proxy
+     * rather than the cached physical statement.
+     */
+    private ResultSet wrap(ResultSet rs) {
+      return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+          new Class<?>[] {ResultSet.class}, (self, method, args) -> {
+            switch (method.getName()) {
+              case "getStatement":
+                return proxy;
+              case "equals":
+                return self == args[0];
+              case "hashCode":
+                return System.identityHashCode(self);
+              default:
+                break;
+            }
+            try {
+              return method.invoke(rs, args);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          });
+    }
+  }
+}
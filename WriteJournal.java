@@ -0,0 +1,601 @@
+package poised;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * An append-only local journal of project and person writes that could
+ * not be sent to the database, replayed once it is reachable again.
+ *
+ * <p>Each write is one line of JSON holding a random idempotency key, the
+ * operation and its arguments, and the line is forced to disk before the
+ * write is reported as saved. Projects and persons added while offline
+ * get negative local IDs, which later entries may refer to; replay maps
+ * them to the IDs the database assigns. Updates carry only the fields the
+ * user changed and are replayed on top of the row as it is by then, as an
+ * update with merge would be.
+ *
+ * <p>Replay runs the entries in order in transactions of
+ * {@code poisepms.journal.replayBatch} entries. Each entry first claims
+ * its key in the journal_applied table, so an entry whose transaction
+ * committed is skipped if the replay is interrupted and run again. An
+ * entry the database refuses, such as an update of a project deleted in
+ * the meantime, is set aside in a ".rejected" file next to the journal
+ * instead of blocking the rest. Once every entry has been replayed the
+ * journal is emptied.
+ */
+public class WriteJournal {
+  private static final Logger logger = Logger.getLogger(WriteJournal.class.getName());
+  private static final int REPLAY_BATCH = Integer.getInteger("poisepms.journal.replayBatch", 100);
+
+  private final Path file;
+  private final Path rejectedFile;
+  private final List<String> lines = new ArrayList<>();
+  private int nextLocalId = -1;
+
+  /**
+   * Constructor. Reads the entries already in the journal file, if any.
+   *
+   * @param file The journal file
+   * @throws IOException if the file exists but cannot be read
+   */
+  public WriteJournal(Path file) throws IOException {
+    this.file = file;
+    this.rejectedFile = file.resolveSibling(file.getFileName() + ".rejected");
+    if (Files.exists(file)) {
+      for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+        lines.add(line);
+        Map<String, Object> entry = parse(line);
+        if (entry != null && entry.containsKey("local_id")) {
+          nextLocalId = Math.min(nextLocalId, (int) ProjectJson.number(entry, "local_id") - 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the journal file named by {@code poisepms.journal.file}.
+   *
+   * @return The file, poisepms.journal in the working directory by default
+   */
+  public static Path defaultFile() {
+    return Paths.get(System.getProperty("poisepms.journal.file", "poisepms.journal"));
+  }
+
+  /**
+   * Gets the number of entries waiting to be replayed.
+   *
+   * @return The entry count
+   */
+  public synchronized int size() {
+    return lines.size();
+  }
+
+  /**
+   * Allocates a local ID for a project or person added while offline.
+   *
+   * @return A negative ID not used by any entry in the journal
+   */
+  public synchronized int nextLocalId() {
+    return nextLocalId--;
+  }
+
+  /**
+   * Records a project added while offline. The project must already have
+   * its local ID.
+   *
+   * @param project The project
+   * @return true if the entry was saved
+   */
+  public boolean addProject(Project project) {
+    StringBuilder entry = start("add-project");
+    entry.append(",\"local_id\":").append(project.getId()).append(",\"project\":");
+    ProjectJson.appendProject(entry, project);
+    return append(entry);
+  }
+
+  /**
+   * Records the changed fields of a project update.
+   *
+   * @param project The updated project, before it is marked clean
+   * @return true if the entry was saved
+   */
+  public boolean updateProject(Project project) {
+    StringBuilder entry = start("update-project");
+    entry.append(",\"id\":").append(project.getId()).append(",\"fields\":[");
+    boolean first = true;
+    for (Project.Field field : project.getChangedFields()) {
+      entry.append(first ? "" : ",");
+      Json.quote(entry, field.getColumn());
+      first = false;
+    }
+    entry.append("],\"project\":");
+    ProjectJson.appendProject(entry, project);
+    return append(entry);
+  }
+
+  /**
+   * Records a project being finalized.
+   *
+   * @param projectId      The project ID
+   * @param completionDate The completion date
+   * @return true if the entry was saved
+   */
+  public boolean finalizeProject(int projectId, LocalDate completionDate) {
+    StringBuilder entry = start("finalize-project");
+    entry.append(",\"id\":").append(projectId);
+    entry.append(",\"date\":\"").append(completionDate).append('"');
+    return append(entry);
+  }
+
+  /**
+   * Records a project being deleted.
+   *
+   * @param projectId The project ID
+   * @return true if the entry was saved
+   */
+  public boolean deleteProject(int projectId) {
+    StringBuilder entry = start("delete-project");
+    entry.append(",\"id\":").append(projectId);
+    return append(entry);
+  }
+
+  /**
+   * Records a set of projects being finalized.
+   *
+   * @param projectIds     The project IDs
+   * @param completionDate The completion date
+   * @return true if the entry was saved
+   */
+  public boolean finalizeProjects(Collection<Integer> projectIds, LocalDate completionDate) {
+    StringBuilder entry = start("finalize-projects");
+    entry.append(",\"date\":\"").append(completionDate).append('"');
+    return appendIds(entry, projectIds);
+  }
+
+  /**
+   * Records a set of projects being deleted.
+   *
+   * @param projectIds The project IDs
+   * @return true if the entry was saved
+   */
+  public boolean deleteProjects(Collection<Integer> projectIds) {
+    return appendIds(start("delete-projects"), projectIds);
+  }
+
+  /**
+   * Records a person added while offline. The person must already have
+   * their local ID.
+   *
+   * @param person The person
+   * @return true if the entry was saved
+   */
+  public boolean addPerson(Person person) {
+    StringBuilder entry = start("add-person");
+    entry.append(",\"local_id\":").append(person.getId()).append(",\"person\":");
+    ProjectJson.appendPerson(entry, person);
+    return append(entry);
+  }
+
+  /**
+   * Records the changed fields of a person update.
+   *
+   * @param person The updated person, before they are marked clean
+   * @return true if the entry was saved
+   */
+  public boolean updatePerson(Person person) {
+    StringBuilder entry = start("update-person");
+    entry.append(",\"id\":").append(person.getId()).append(",\"fields\":[");
+    boolean first = true;
+    for (Person.Field field : person.getChangedFields()) {
+      entry.append(first ? "" : ",");
+      Json.quote(entry, field.getColumn());
+      first = false;
+    }
+    entry.append("],\"person\":");
+    ProjectJson.appendPerson(entry, person);
+    return append(entry);
+  }
+
+  /**
+   * Records a person being deleted.
+   *
+   * @param personId The person ID
+   * @return true if the entry was saved
+   */
+  public boolean deletePerson(int personId) {
+    StringBuilder entry = start("delete-person");
+    entry.append(",\"id\":").append(personId);
+    return append(entry);
+  }
+
+  /**
+   * Applies the journaled writes to in-memory repositories holding the
+   * last snapshot, so the offline menu shows work saved in earlier
+   * sessions. Added projects and persons keep their local IDs.
+   *
+   * @param projects The projects
+   * @param persons  The persons
+   */
+  public synchronized void applyTo(InMemoryProjectRepository projects,
+      InMemoryPersonRepository persons) {
+    for (String line : lines) {
+      Map<String, Object> entry = parse(line);
+      if (entry == null) {
+        continue;
+      }
+      String op = Json.getString(entry, "op");
+      if ("add-project".equals(op)) {
+        Project project = ProjectJson.toProject(object(entry, "project"), null);
+        project.setId((int) ProjectJson.number(entry, "local_id"));
+        projects.load(project);
+      } else if ("add-person".equals(op)) {
+        Person person = ProjectJson.toPerson(object(entry, "person"), null);
+        person.setId((int) ProjectJson.number(entry, "local_id"));
+        persons.load(person);
+      } else {
+        try {
+          apply(entry, projects, persons, id -> id);
+        } catch (ConcurrentUpdateException e) {
+          // Cannot happen: replayed updates carry no version
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends the journaled writes to the database and empties the journal.
+   * If the connection fails part way, the transactions already committed
+   * stay applied, the journal is kept, and a later replay skips them.
+   *
+   * @param connection The database connection
+   * @return The replay counts
+   * @throws SQLException if the database could not be written
+   * @throws IOException  if the journal could not be emptied
+   */
+  public synchronized ReplayResult replay(Connection connection)
+      throws SQLException, IOException {
+    ReplayResult result = new ReplayResult();
+    if (lines.isEmpty()) {
+      return result;
+    }
+    ProjectRepository projects = new JdbcProjectRepository(connection);
+    PersonRepository persons = new JdbcPersonRepository(connection);
+    Map<Integer, Integer> projectIds = new HashMap<>();
+    Map<Integer, Integer> personIds = new HashMap<>();
+    boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(false);
+    try {
+      for (int from = 0; from < lines.size(); from += REPLAY_BATCH) {
+        StringBuilder rejected = new StringBuilder();
+        for (String line : lines.subList(from, Math.min(lines.size(), from + REPLAY_BATCH))) {
+          String reason = replay(connection, line, projects, persons, projectIds, personIds,
+              result);
+          if (reason != null) {
+            rejected.append("{\"reason\":");
+            Json.quote(rejected, reason).append(",\"entry\":");
+            rejected.append(parse(line) != null ? line : "null").append("}\n");
+            result.rejected++;
+          }
+        }
+        // Set aside before the commit claims the keys, so a crash between
+        // the two repeats the rejections on the next replay instead of losing them
+        if (rejected.length() > 0) {
+          write(rejectedFile, rejected.toString());
+        }
+        connection.commit();
+      }
+    } catch (SQLException | IOException | RuntimeException e) {
+      connection.rollback();
+      throw e;
+    } finally {
+      connection.setAutoCommit(autoCommit);
+      // Replayed rows bypassed the caches' write-through
+      ProjectManager.invalidateProjectCache();
+      ProjectManager.invalidateSearchIndex();
+      ProjectManager.invalidateDeadlineIndex();
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(0);
+      channel.force(true);
+    }
+    lines.clear();
+    if (result.rejected > 0) {
+      logger.warning(result.rejected + " journaled writes were rejected; see " + rejectedFile);
+    }
+    return result;
+  }
+
+  /**
+   * Replays one entry unless its key shows it was already applied.
+   *
+   * @return null if the entry was applied or skipped, or why it was rejected
+   */
+  private static String replay(Connection connection, String line, ProjectRepository projects,
+      PersonRepository persons, Map<Integer, Integer> projectIds,
+      Map<Integer, Integer> personIds, ReplayResult result) throws SQLException {
+    Map<String, Object> entry = parse(line);
+    if (entry == null) {
+      return "Unreadable entry: " + line;
+    }
+    String key = Json.getString(entry, "key");
+    String op = Json.getString(entry, "op");
+    boolean claimed;
+    try (PreparedStatement pstmt = connection.prepareStatement(
+        "INSERT IGNORE INTO journal_applied (idempotency_key) VALUES (?)")) {
+      pstmt.setString(1, key);
+      claimed = pstmt.executeUpdate() > 0;
+    }
+    boolean adds = "add-project".equals(op) || "add-person".equals(op);
+    Map<Integer, Integer> ids = op.endsWith("-person") ? personIds : projectIds;
+    if (!claimed) {
+      if (adds) {
+        int resultId = appliedId(connection, key);
+        if (resultId > 0) {
+          ids.put((int) ProjectJson.number(entry, "local_id"), resultId);
+        }
+      }
+      result.skipped++;
+      return null;
+    }
+
+    String reason;
+    try {
+      if (adds) {
+        int resultId;
+        if ("add-project".equals(op)) {
+          resultId = projects.add(ProjectJson.toProject(object(entry, "project"), null));
+        } else {
+          Person person = ProjectJson.toPerson(object(entry, "person"), null);
+          resultId = persons.add(person) ? person.getId() : -1;
+        }
+        reason = resultId > 0 ? null : "The database refused the add.";
+        if (resultId > 0) {
+          ids.put((int) ProjectJson.number(entry, "local_id"), resultId);
+          try (PreparedStatement pstmt = connection.prepareStatement(
+              "UPDATE journal_applied SET result_id = ? WHERE idempotency_key = ?")) {
+            pstmt.setInt(1, resultId);
+            pstmt.setString(2, key);
+            pstmt.executeUpdate();
+          }
+        }
+      } else {
+        reason = apply(entry, projects, persons, id -> {
+          Integer mapped = id < 0 ? ids.get(id) : Integer.valueOf(id);
+          return mapped != null ? mapped : 0;
+        });
+      }
+    } catch (ConcurrentUpdateException | IllegalArgumentException e) {
+      reason = e.getMessage();
+    }
+    if (reason != null && !connection.isValid(5)) {
+      throw new SQLException("Lost the database connection during replay.");
+    }
+    if (reason == null) {
+      result.applied++;
+    }
+    return reason;
+  }
+
+  /**
+   * Applies an entry other than an add.
+   *
+   * @return null if it was applied, or why it was not
+   */
+  private static String apply(Map<String, Object> entry, ProjectRepository projects,
+      PersonRepository persons, IdMapper ids) {
+    String op = Json.getString(entry, "op");
+    switch (op) {
+      case "update-project": {
+        Project current = projects.findById(ids.map(id(entry)));
+        if (current == null) {
+          return "Project " + id(entry) + " no longer exists.";
+        }
+        Project project = ProjectJson.toProject(changes(entry, "project"), current);
+        project.setVersion(0);
+        return projects.update(project) ? null : "The database refused the update.";
+      }
+      case "finalize-project":
+        return projects.finalizeProject(ids.map(id(entry)), ProjectJson.date(entry, "date"))
+            ? null : "Project " + id(entry) + " no longer exists.";
+      case "delete-project":
+        return projects.delete(ids.map(id(entry)))
+            ? null : "Project " + id(entry) + " no longer exists.";
+      case "finalize-projects":
+        return projects.finalizeAll(mapIds(entry, ids), ProjectJson.date(entry, "date")) >= 0
+            ? null : "The database refused the finalize.";
+      case "delete-projects":
+        return projects.deleteAll(mapIds(entry, ids)) >= 0
+            ? null : "The database refused the delete.";
+      case "update-person": {
+        Person current = persons.findById(ids.map(id(entry)));
+        if (current == null) {
+          return "Person " + id(entry) + " no longer exists.";
+        }
+        Person person = ProjectJson.toPerson(changes(entry, "person"), current);
+        person.setVersion(0);
+        return persons.update(person) ? null : "The database refused the update.";
+      }
+      case "delete-person":
+        return persons.delete(ids.map(id(entry)))
+            ? null : "Person " + id(entry) + " no longer exists.";
+      default:
+        return "Unknown operation: " + op;
+    }
+  }
+
+  /**
+   * Maps a local ID to the ID it was stored under.
+   */
+  private interface IdMapper {
+    int map(int id);
+  }
+
+  private static int appliedId(Connection connection, String key) throws SQLException {
+    try (PreparedStatement pstmt = connection.prepareStatement(
+        "SELECT result_id FROM journal_applied WHERE idempotency_key = ?")) {
+      pstmt.setString(1, key);
+      try (ResultSet rs = pstmt.executeQuery()) {
+        return rs.next() ? rs.getInt(1) : -1;
+      }
+    }
+  }
+
+  private static StringBuilder start(String op) {
+    StringBuilder entry = new StringBuilder(256);
+    entry.append("{\"key\":\"").append(UUID.randomUUID()).append("\",\"op\":\"")
+        .append(op).append('"');
+    return entry;
+  }
+
+  private boolean appendIds(StringBuilder entry, Collection<Integer> ids) {
+    entry.append(",\"ids\":[");
+    boolean first = true;
+    for (Integer id : ids) {
+      entry.append(first ? "" : ",").append(id);
+      first = false;
+    }
+    entry.append(']');
+    return append(entry);
+  }
+
+  /**
+   * Appends an entry and forces it to disk.
+   *
+   * @return true if the entry was saved
+   */
+  private synchronized boolean append(StringBuilder entry) {
+    String line = entry.append('}').toString();
+    try {
+      write(file, line + "\n");
+      lines.add(line);
+      return true;
+    } catch (IOException e) {
+      System.out.println("Error saving the change to the offline journal.");
+      logger.severe("Error writing to the journal: " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Appends text to a file and forces it to disk.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  private static void write(Path path, String text) throws IOException {
+    ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      channel.force(false);
+    }
+  }
+
+  private static Map<String, Object> parse(String line) {
+    try {
+      return Json.parseObject(line);
+    } catch (IllegalArgumentException e) {
+      logger.warning("Skipping unreadable journal entry: " + line);
+      return null;
+    }
+  }
+
+  private static int id(Map<String, Object> entry) {
+    return (int) ProjectJson.number(entry, "id");
+  }
+
+  private static List<Integer> mapIds(Map<String, Object> entry, IdMapper ids) {
+    List<Integer> mapped = new ArrayList<>();
+    for (Integer id : ProjectJson.ids(entry, "ids")) {
+      mapped.add(ids.map(id));
+    }
+    return mapped;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> object(Map<String, Object> entry, String key) {
+    Object value = entry.get(key);
+    if (!(value instanceof Map)) {
+      throw new IllegalArgumentException("Expected a " + key + " object.");
+    }
+    return (Map<String, Object>) value;
+  }
+
+  /**
+   * Gets the fields an update changed, dropping the rest of the copy.
+   */
+  private static Map<String, Object> changes(Map<String, Object> entry, String key) {
+    Map<String, Object> values = object(entry, key);
+    Map<String, Object> changed = new HashMap<>();
+    Object fields = entry.get("fields");
+    if (fields instanceof List) {
+      for (Object field : (List<?>) fields) {
+        if (values.containsKey(field)) {
+          changed.put((String) field, values.get(field));
+        }
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Counts of one replay.
+   */
+  public static final class ReplayResult {
+    private int applied;
+    private int skipped;
+    private int rejected;
+
+    /**
+     * Gets the number of entries written to the database.
+     *
+     * @return The count
+     */
+    public int getApplied() {
+      return applied;
+    }
+
+    /**
+     * Gets the number of entries skipped because an earlier, interrupted
+     * replay had already applied them.
+     *
+     * @return The count
+     */
+    public int getSkipped() {
+      return skipped;
+    }
+
+    /**
+     * Gets the number of entries the database refused, which were moved
+     * to the rejected file.
+     *
+     * @return The count
+     */
+    public int getRejected() {
+      return rejected;
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package poised;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the core project and person operations against an
+ * embedded H2 database in MySQL mode, created from PoisePMS.sql and
+ * seeded by {@link DatasetGenerator} at each scale.
+ *
+ * <p>Each operation is reported as throughput and as sampled latency,
+ * whose percentiles JMH prints; run with {@code -prof gc} for the
+ * allocation rate. The project cache, the role directories and the
+ * search and deadline indexes are cleared before every call, outside the
+ * timed region, so the figures are for the SQL rather than for cache
+ * hits. The JDBC URL can be changed with {@code poisepms.bench.jdbcUrl}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ProjectOperationsBenchmark {
+  private static final String JDBC_URL = System.getProperty("poisepms.bench.jdbcUrl",
+      "jdbc:h2:mem:poisepms;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+  private static final int SEED_CHUNK_SIZE = 10_000;
+
+  @Param({"1000", "100000", "1000000"})
+  private int scale;
+
+  private Connection connection;
+  private ProjectRepository projects;
+  private PersonRepository persons;
+  private final Random random = new Random(42);
+  private final PersonRole[] roles = PersonRole.values();
+  private final LocalDate deadline = LocalDate.now().plusDays(30);
+  private int added;
+
+  /**
+   * Creates and seeds the database. It lives in memory until the
+   * connection is closed at the end of the trial.
+   *
+   * @throws SQLException if the database cannot be created or seeded
+   * @throws IOException  if the schema cannot be read
+   */
+  @Setup(Level.Trial)
+  public void createDatabase() throws SQLException, IOException {
+    connection = DriverManager.getConnection(JDBC_URL);
+    ProjectBenchmark.createTables(connection, readSchema());
+    DatasetGenerator.scaledTo(42L, scale).generateInto(connection, SEED_CHUNK_SIZE);
+    projects = new JdbcProjectRepository(connection);
+    persons = new JdbcPersonRepository(connection);
+  }
+
+  /**
+   * Clears every cache in front of the database. Run per invocation, which
+   * JMH only advises against for calls far shorter than these queries.
+   */
+  @Setup(Level.Invocation)
+  public void clearCaches() {
+    ProjectManager.invalidateProjectCache();
+    ProjectManager.invalidateRoleDirectories();
+    ProjectManager.invalidateSearchIndex();
+    ProjectManager.invalidateDeadlineIndex();
+  }
+
+  /**
+   * Closes the connection, dropping the in-memory database.
+   *
+   * @throws SQLException if the connection cannot be closed
+   */
+  @TearDown(Level.Trial)
+  public void dropDatabase() throws SQLException {
+    connection.close();
+    clearCaches();
+  }
+
+  @Benchmark
+  public Project getProjectById() {
+    return projects.findById(1 + random.nextInt(scale));
+  }
+
+  @Benchmark
+  public List<Project> findProjectByIdOrName() {
+    return projects.findByIdOrName(String.valueOf(1 + random.nextInt(scale)));
+  }
+
+  @Benchmark
+  public List<Project> findPastDueProjects() {
+    return projects.findPastDue();
+  }
+
+  @Benchmark
+  public Map<Integer, String> listPersons() {
+    return persons.listByRole(roles[random.nextInt(roles.length)]);
+  }
+
+  @Benchmark
+  public int addProject() {
+    int i = added++;
+    return projects.add(new Project("Bench " + i, "House", i + " Bench St", 1000f, deadline,
+        "B" + i, 1, 1, 1, 1, 1));
+  }
+
+  private static String readSchema() throws IOException {
+    try (InputStream in = ProjectOperationsBenchmark.class.getResourceAsStream("/PoisePMS.sql")) {
+      if (in == null) {
+        throw new IOException("PoisePMS.sql is not on the class path.");
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int n; (n = in.read(buffer)) > 0; ) {
+        out.write(buffer, 0, n);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+}